@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.recipes.atomic.AtomicValue;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicInteger;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicValue;
+import org.apache.curator.spring.boot.CuratorZkSequence;
+import org.apache.curator.spring.boot.CuratorZkStripedCounter;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 原子计数器（DistributedAtomicInteger/Long/Value）与分片计数器、号段序列的吞吐量对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class AtomicCounterBenchmark {
+
+	private static final byte[] PAYLOAD = new byte[64];
+
+	@Param({ "1", "16" })
+	public int keys;
+
+	private DistributedAtomicInteger[] atomicIntegers;
+	private DistributedAtomicLong[] atomicLongs;
+	private DistributedAtomicValue[] atomicValues;
+	private CuratorZkStripedCounter[] stripedCounters;
+	private CuratorZkSequence[] sequences;
+
+	@Setup(Level.Trial)
+	public void setUp(ZooKeeperState state) {
+		CuratorZkTemplate template = state.getTemplate();
+		atomicIntegers = new DistributedAtomicInteger[keys];
+		atomicLongs = new DistributedAtomicLong[keys];
+		atomicValues = new DistributedAtomicValue[keys];
+		stripedCounters = new CuratorZkStripedCounter[keys];
+		sequences = new CuratorZkSequence[keys];
+		for (int i = 0; i < keys; i++) {
+			atomicIntegers[i] = template.getAtomicInteger("/benchmark/atomic-integer/" + i);
+			atomicLongs[i] = template.getAtomicLong("/benchmark/atomic-long/" + i);
+			atomicValues[i] = template.getAtomicValue("/benchmark/atomic-value/" + i);
+			stripedCounters[i] = template.getStripedCounter("/benchmark/striped/" + i);
+			sequences[i] = template.getSequence("/benchmark/sequence/" + i);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		for (CuratorZkStripedCounter counter : stripedCounters) {
+			counter.close();
+		}
+	}
+
+	@Benchmark
+	public AtomicValue<Integer> distributedAtomicInteger() throws Exception {
+		return atomicIntegers[index()].increment();
+	}
+
+	@Benchmark
+	public AtomicValue<Long> distributedAtomicLong() throws Exception {
+		return atomicLongs[index()].increment();
+	}
+
+	@Benchmark
+	public AtomicValue<byte[]> distributedAtomicValue() throws Exception {
+		return atomicValues[index()].trySet(PAYLOAD);
+	}
+
+	@Benchmark
+	public void stripedCounter() {
+		stripedCounters[index()].increment();
+	}
+
+	@Benchmark
+	public long sequence() throws Exception {
+		return sequences[index()].next();
+	}
+
+	private int index() {
+		return ThreadLocalRandom.current().nextInt(keys);
+	}
+
+}
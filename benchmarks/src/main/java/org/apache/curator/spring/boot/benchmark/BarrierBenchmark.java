@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.recipes.barriers.DistributedBarrier;
+import org.apache.curator.framework.recipes.barriers.DistributedDoubleBarrier;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 栅栏的完整生命周期开销：DistributedBarrier set/remove/wait，DistributedDoubleBarrier 单成员 enter/leave
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class BarrierBenchmark {
+
+	@Param({ "1024" })
+	public int keys;
+
+	private CuratorZkTemplate template;
+
+	@Setup(Level.Trial)
+	public void setUp(ZooKeeperState state) {
+		template = state.getTemplate();
+	}
+
+	@Benchmark
+	public void barrier() throws Exception {
+		DistributedBarrier barrier = template.getBarrier("/benchmark/barrier/" + ThreadLocalRandom.current().nextInt(keys));
+		barrier.setBarrier();
+		barrier.removeBarrier();
+		barrier.waitOnBarrier();
+	}
+
+	@Benchmark
+	public void doubleBarrier() throws Exception {
+		DistributedDoubleBarrier barrier = template.getDoubleBarrier(
+				"/benchmark/double-barrier/" + ThreadLocalRandom.current().nextInt(keys) + "-" + Thread.currentThread().getId(), 1);
+		barrier.enter();
+		barrier.leave();
+	}
+
+}
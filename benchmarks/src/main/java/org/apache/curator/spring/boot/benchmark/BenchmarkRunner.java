@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.benchmark;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 依次以 1、8、64 个线程运行全部基准测试，结果以 JSON 写入 {@code target/jmh/threads-<n>.json}，便于跨版本比较。
+ * <p>
+ * 其余 JMH 命令行参数（如 {@code -p ensemble=server,cluster}、过滤用的正则）原样透传。
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		File output = new File("target/jmh");
+		output.mkdirs();
+		for (int threads : new int[] { 1, 8, 64 }) {
+			new Runner(new OptionsBuilder()
+					.parent(commandLine)
+					.threads(threads)
+					.resultFormat(ResultFormatType.JSON)
+					.result(new File(output, "threads-" + threads + ".json").getPath())
+					.build()).run();
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.spring.boot.CuratorZkDistributedLock;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 各类锁 acquire + release 的吞吐量与延迟，按锁类型与 key 基数（热点程度）组合
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class LockBenchmark {
+
+	@Param({ "distributed", "shared", "reentrant", "read", "write", "coalescing" })
+	public String lockType;
+
+	@Param({ "1", "16", "1024" })
+	public int keys;
+
+	private String[] lockKeys;
+	private CuratorZkTemplate template;
+	private CuratorZkDistributedLock distributedLock;
+
+	@Setup(Level.Trial)
+	public void setUp(ZooKeeperState state) {
+		template = state.getTemplate();
+		distributedLock = template.getDistributedLock();
+		lockKeys = new String[keys];
+		for (int i = 0; i < keys; i++) {
+			lockKeys[i] = "distributed".equals(lockType) ? "key-" + i : "/benchmark/lock/" + lockType + "/" + i;
+		}
+	}
+
+	@Benchmark
+	public void acquireRelease() throws Exception {
+		String key = lockKeys[ThreadLocalRandom.current().nextInt(keys)];
+		if ("distributed".equals(lockType)) {
+			distributedLock.acquireLock(key);
+			distributedLock.unlock(key);
+			return;
+		}
+		InterProcessLock lock = this.lock(key);
+		lock.acquire();
+		lock.release();
+	}
+
+	private InterProcessLock lock(String key) {
+		switch (lockType) {
+		case "shared":
+			return template.getSharedLock(key);
+		case "reentrant":
+			return template.getSharedReentrantLock(key);
+		case "read":
+			return template.getSharedReentrantReadWriteLock(key).readLock();
+		case "write":
+			return template.getSharedReentrantReadWriteLock(key).writeLock();
+		case "coalescing":
+			return template.getCoalescingLock(key);
+		default:
+			throw new IllegalArgumentException(lockType);
+		}
+	}
+
+}
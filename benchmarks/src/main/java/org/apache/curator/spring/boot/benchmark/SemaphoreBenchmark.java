@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.framework.recipes.locks.Lease;
+import org.apache.curator.spring.boot.CuratorZkShardedSemaphore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 信号量 acquire + return 的吞吐量与延迟
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class SemaphoreBenchmark {
+
+	@Param({ "1", "16" })
+	public int keys;
+
+	@Param({ "1", "1000" })
+	public int permits;
+
+	private InterProcessSemaphoreV2[] semaphores;
+	private CuratorZkShardedSemaphore[] shardedSemaphores;
+
+	@Setup(Level.Trial)
+	public void setUp(ZooKeeperState state) {
+		semaphores = new InterProcessSemaphoreV2[keys];
+		shardedSemaphores = new CuratorZkShardedSemaphore[keys];
+		for (int i = 0; i < keys; i++) {
+			semaphores[i] = state.getTemplate().getSharedSemaphore("/benchmark/semaphore/" + i, permits);
+			shardedSemaphores[i] = state.getTemplate().getShardedSemaphore("/benchmark/sharded-semaphore/" + permits + "/" + i, permits);
+		}
+	}
+
+	@Benchmark
+	public void acquireReturn() throws Exception {
+		InterProcessSemaphoreV2 semaphore = semaphores[ThreadLocalRandom.current().nextInt(keys)];
+		Lease lease = semaphore.acquire();
+		semaphore.returnLease(lease);
+	}
+
+	@Benchmark
+	public void shardedAcquireReturn() throws Exception {
+		CuratorZkShardedSemaphore semaphore = shardedSemaphores[ThreadLocalRandom.current().nextInt(keys)];
+		semaphore.acquire().close();
+	}
+
+}
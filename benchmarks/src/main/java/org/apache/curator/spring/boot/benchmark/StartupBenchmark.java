@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.discovery.CuratorZkDiscoveryAutoConfiguration;
+import org.apache.curator.test.InstanceSpec;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 应用冷启动耗时：包含客户端、模板与服务注册的上下文从开始刷新到刷新完成的时间。
+ * zookeeper=down 时集群不可达，blocking 模式下启动耗时受连接超时与重试影响，async 模式应与集群状态无关。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+	@Param({ "blocking", "async" })
+	public String startup;
+
+	@Param({ "up", "down" })
+	public String zookeeper;
+
+	private TestingServer server;
+	private String connectString;
+	private ConfigurableApplicationContext context;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		if ("up".equals(zookeeper)) {
+			server = new TestingServer();
+			connectString = server.getConnectString();
+		} else {
+			// 无进程监听的端口
+			connectString = "127.0.0.1:" + InstanceSpec.getRandomPort();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		if (server != null) {
+			server.close();
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void close() {
+		// 关闭耗时不计入启动时间
+		context.close();
+	}
+
+	@Benchmark
+	public void start() {
+		context = new SpringApplicationBuilder(StartupApplication.class)
+				.web(WebApplicationType.NONE)
+				.logStartupInfo(false)
+				.properties("spring.main.banner-mode=off",
+						"spring.application.name=startup-benchmark",
+						"curator.connect-string=" + connectString,
+						"curator.connection-timeout-ms=1000",
+						"curator.base-sleep-time-ms=100",
+						"curator.max-retries=2",
+						"curator.startup.async=" + "async".equals(startup))
+				.run();
+	}
+
+	@Configuration
+	@ImportAutoConfiguration({ CuratorZkAutoConfiguration.class, CuratorZkDiscoveryAutoConfiguration.class })
+	static class StartupApplication {
+
+	}
+
+}
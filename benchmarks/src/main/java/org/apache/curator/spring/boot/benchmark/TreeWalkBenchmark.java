@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 遍历整棵子树并读取全部节点数据：逐个同步 getChildren/getData 与 {@link CuratorZkTemplate#walkTree} 流水线读取对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class TreeWalkBenchmark {
+
+	private static final String ROOT = "/benchmark/tree";
+
+	/**
+	 * 两层子树，共 fanout * fanout 个叶子节点
+	 */
+	@Param({ "100" })
+	public int fanout;
+
+	private CuratorFramework client;
+	private CuratorZkTemplate template;
+
+	@Setup(Level.Trial)
+	public void setUp(ZooKeeperState state) throws Exception {
+		client = state.getClient();
+		template = state.getTemplate();
+		if (client.checkExists().forPath(ROOT) != null) {
+			return;
+		}
+		client.create().creatingParentsIfNeeded().forPath(ROOT);
+		byte[] data = new byte[128];
+		for (int i = 0; i < fanout; i++) {
+			List<CompletableFuture<?>> created = new ArrayList<>();
+			created.add(template.createBatched(ROOT + "/" + i, data, CreateMode.PERSISTENT));
+			for (int j = 0; j < fanout; j++) {
+				created.add(template.createBatched(ROOT + "/" + i + "/" + j, data, CreateMode.PERSISTENT));
+			}
+			template.flushBatched();
+			CompletableFuture.allOf(created.toArray(new CompletableFuture<?>[0])).join();
+		}
+	}
+
+	@Benchmark
+	public void sequential(Blackhole blackhole) throws Exception {
+		this.walk(ROOT, blackhole);
+	}
+
+	private void walk(String path, Blackhole blackhole) throws Exception {
+		blackhole.consume(client.getData().forPath(path));
+		for (String child : client.getChildren().forPath(path)) {
+			this.walk(ZKPaths.makePath(path, child), blackhole);
+		}
+	}
+
+	@Benchmark
+	public long pipelined(Blackhole blackhole) throws Exception {
+		return template.walkTree(ROOT, node -> blackhole.consume(node.getData()));
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.apache.curator.spring.boot.aop.ZkLock;
+import org.apache.curator.spring.boot.aop.ZkLockAutoConfiguration;
+import org.apache.curator.spring.boot.aop.ZkLockInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+
+/**
+ * {@link ZkLock} 切面自身的开销：模板返回空操作锁，只测量代理、key 解析与路径拼接，不含 ZooKeeper 调用
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZkLockAspectBenchmark {
+
+	private CuratorFramework client;
+	private OrderService target;
+	private OrderService proxy;
+	private Order order;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		// 客户端不启动，只用于构造模板
+		client = CuratorFrameworkFactory.newClient("127.0.0.1:1", new ExponentialBackoffRetry(10, 1));
+		CuratorZkTemplate template = new NoopLockTemplate(client);
+		target = new OrderService();
+		ProxyFactory factory = new ProxyFactory(target);
+		factory.setProxyTargetClass(true);
+		factory.addAdvisor(new ZkLockAutoConfiguration().zkLockAdvisor(new ZkLockInterceptor(template)));
+		proxy = (OrderService) factory.getProxy();
+		order = new Order(42);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public long direct() {
+		return target.byProperty(order);
+	}
+
+	@Benchmark
+	public long staticKey() {
+		return proxy.staticKey(order);
+	}
+
+	@Benchmark
+	public long parameterKey() {
+		return proxy.byParameter(order.getId());
+	}
+
+	@Benchmark
+	public long spelKey() {
+		return proxy.byProperty(order);
+	}
+
+	public static class Order {
+
+		private final long id;
+
+		public Order(long id) {
+			this.id = id;
+		}
+
+		public long getId() {
+			return id;
+		}
+
+	}
+
+	public static class OrderService {
+
+		@ZkLock(name = "/locks/order")
+		public long staticKey(Order order) {
+			return order.getId();
+		}
+
+		@ZkLock(name = "/locks/order", key = "#id")
+		public long byParameter(long id) {
+			return id;
+		}
+
+		@ZkLock(name = "/locks/order", key = "#order.id")
+		public long byProperty(Order order) {
+			return order.getId();
+		}
+
+	}
+
+	static class NoopLockTemplate extends CuratorZkTemplate {
+
+		private static final InterProcessLock NOOP = new InterProcessLock() {
+
+			@Override
+			public void acquire() {
+			}
+
+			@Override
+			public boolean acquire(long time, TimeUnit unit) {
+				return true;
+			}
+
+			@Override
+			public void release() {
+			}
+
+			@Override
+			public boolean isAcquiredInThisProcess() {
+				return false;
+			}
+
+		};
+
+		NoopLockTemplate(CuratorFramework client) {
+			super(client, new ExponentialBackoffRetry(10, 1), new CuratorZkProperties());
+		}
+
+		@Override
+		public InterProcessLock getSharedReentrantLock(String lockKey) {
+			return NOOP;
+		}
+
+	}
+
+}
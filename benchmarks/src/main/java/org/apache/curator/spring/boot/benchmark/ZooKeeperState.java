@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.benchmark;
+
+import java.io.Closeable;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.apache.curator.test.TestingCluster;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * 进程内 ZooKeeper（单节点 TestingServer 或三节点 TestingCluster）及连接到它的客户端、模板
+ */
+@State(Scope.Benchmark)
+public class ZooKeeperState {
+
+	@Param({ "server" })
+	public String ensemble;
+
+	private Closeable zookeeper;
+	private CuratorFramework client;
+	private CuratorZkTemplate template;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		String connectString;
+		if ("cluster".equals(ensemble)) {
+			TestingCluster cluster = new TestingCluster(3);
+			cluster.start();
+			connectString = cluster.getConnectString();
+			zookeeper = cluster;
+		} else {
+			TestingServer server = new TestingServer();
+			connectString = server.getConnectString();
+			zookeeper = server;
+		}
+		client = CuratorFrameworkFactory.newClient(connectString, new ExponentialBackoffRetry(10, 3));
+		client.start();
+		client.blockUntilConnected();
+		template = new CuratorZkTemplate(client, new ExponentialBackoffRetry(10, 29), new CuratorZkProperties());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		client.close();
+		zookeeper.close();
+	}
+
+	public CuratorFramework getClient() {
+		return client;
+	}
+
+	public CuratorZkTemplate getTemplate() {
+		return template;
+	}
+
+}
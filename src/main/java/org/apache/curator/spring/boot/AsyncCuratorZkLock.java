@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.util.concurrent.CompletionStage;
+
+import org.apache.curator.framework.CuratorFramework;
+
+/**
+ * {@link AsyncCuratorZkTemplate#acquire(String)} 返回的锁句柄，与线程无关，可在任意线程释放
+ */
+public class AsyncCuratorZkLock {
+
+	private final AsyncCuratorZkTemplate template;
+	private final CuratorFramework curatorClient;
+	private final String lockPath;
+
+	AsyncCuratorZkLock(AsyncCuratorZkTemplate template, CuratorFramework curatorClient, String lockPath) {
+		this.template = template;
+		this.curatorClient = curatorClient;
+		this.lockPath = lockPath;
+	}
+
+	public CompletionStage<Void> release() {
+		return template.release(this);
+	}
+
+	public String getLockPath() {
+		return lockPath;
+	}
+
+	/**
+	 * 锁节点所在集群的客户端
+	 */
+	CuratorFramework getCuratorClient() {
+		return curatorClient;
+	}
+
+}
@@ -0,0 +1,519 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.EventType;
+import org.apache.zookeeper.Watcher.Event.KeeperState;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * 非阻塞的 Curator 操作模板：所有方法立即返回 {@link CompletionStage}，由 Curator 的后台回调完成，
+ * 等待中的请求不占用任何线程。
+ * <p>
+ * 默认在 Curator 事件线程上完成，耗时的后续处理请使用 {@code thenXxxAsync} 切换到业务线程池；
+ * 也可以通过 {@code callbackExecutor} 指定完成回调的线程池（如虚拟线程），避免阻塞事件线程。
+ * <p>
+ * 多集群时按与同步模板相同的规则经 {@link CuratorZkClientRing} 路由：锁按 lockKey（与 {@link CuratorZkDistributedLock} 一致），
+ * 其余操作按节点路径，同一个 key 的异步锁与同步锁位于同一集群、互相排斥。
+ */
+public class AsyncCuratorZkTemplate implements Closeable {
+
+	private static final String LOCK_NAME = "lock-";
+
+	private final CuratorZkClientRing ring;
+	private final String locksRoot;
+	private final ReentrantLock initLock = new ReentrantLock();
+	private volatile ScheduledExecutorService timeoutScheduler;
+	private volatile boolean closed;
+	private volatile Executor callbackExecutor;
+
+	public AsyncCuratorZkTemplate(CuratorFramework curatorClient) {
+		this(curatorClient, "/locks");
+	}
+
+	public AsyncCuratorZkTemplate(CuratorFramework curatorClient, String locksRoot) {
+		this(curatorClient, locksRoot, null);
+	}
+
+	/**
+	 * @param curatorClient    客户端
+	 * @param locksRoot        锁根路径
+	 * @param callbackExecutor 完成返回结果的线程池，为 null 时直接在 Curator 事件线程上完成
+	 */
+	public AsyncCuratorZkTemplate(CuratorFramework curatorClient, String locksRoot, Executor callbackExecutor) {
+		this(CuratorZkClientRing.of(curatorClient), locksRoot, callbackExecutor);
+	}
+
+	/**
+	 * @param ring             多集群客户端环
+	 * @param locksRoot        锁根路径
+	 * @param callbackExecutor 完成返回结果的线程池，为 null 时直接在 Curator 事件线程上完成
+	 */
+	public AsyncCuratorZkTemplate(CuratorZkClientRing ring, String locksRoot, Executor callbackExecutor) {
+		this.ring = ring;
+		this.locksRoot = locksRoot;
+		this.callbackExecutor = callbackExecutor;
+	}
+
+	/**
+	 * 异步加锁，取得锁后完成；节点结构与 {@link CuratorZkDistributedLock} 一致
+	 *
+	 * @param lockKey 锁标识
+	 * @return 锁句柄
+	 */
+	public CompletionStage<AsyncCuratorZkLock> acquire(String lockKey) {
+		return this.deliver(this.acquireLock(lockKey));
+	}
+
+	private CompletableFuture<AsyncCuratorZkLock> acquireLock(String lockKey) {
+		CompletableFuture<AsyncCuratorZkLock> future = new CompletableFuture<>();
+		String lockDir = ZKPaths.makePath(locksRoot, lockKey);
+		CuratorFramework curatorClient = ring.route(lockKey);
+		try {
+			curatorClient.create().creatingParentContainersIfNeeded().withProtection()
+					.withMode(CreateMode.EPHEMERAL_SEQUENTIAL).inBackground((client, event) -> {
+						if (!failed(future, event)) {
+							this.checkLock(curatorClient, lockDir, event.getName(), future);
+						}
+					}).forPath(ZKPaths.makePath(lockDir, LOCK_NAME));
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * 在指定时间内异步加锁，超时后以 {@link TimeoutException} 完成并清理锁节点
+	 *
+	 * @param lockKey 锁标识
+	 * @param time    最长等待时间
+	 * @param unit    时间单位
+	 * @return 锁句柄
+	 */
+	public CompletionStage<AsyncCuratorZkLock> acquire(String lockKey, long time, TimeUnit unit) {
+		CompletableFuture<AsyncCuratorZkLock> future = this.acquireLock(lockKey);
+		ScheduledFuture<?> timeout = this.getTimeoutScheduler().schedule(
+				() -> future.completeExceptionally(new TimeoutException("Could not acquire lock : " + lockKey)), time, unit);
+		future.whenComplete((lock, ex) -> timeout.cancel(false));
+		return this.deliver(future);
+	}
+
+	/**
+	 * 释放锁
+	 *
+	 * @param lock 锁句柄
+	 * @return 完成信号
+	 */
+	public CompletionStage<Void> release(AsyncCuratorZkLock lock) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		try {
+			lock.getCuratorClient().delete().guaranteed().inBackground((client, event) -> {
+				if (event.getResultCode() == KeeperException.Code.NONODE.intValue() || !failed(future, event)) {
+					future.complete(null);
+				}
+			}).forPath(lock.getLockPath());
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return this.deliver(future);
+	}
+
+	private void checkLock(CuratorFramework curatorClient, String lockDir, String lockPath, CompletableFuture<AsyncCuratorZkLock> future) {
+		if (future.isDone()) {
+			// 超时或被取消时清理自己的节点；正常完成说明已由另一次检查取得锁
+			if (future.isCompletedExceptionally()) {
+				this.deleteQuietly(curatorClient, lockPath);
+			}
+			return;
+		}
+		try {
+			curatorClient.getChildren().inBackground((client, event) -> {
+				if (failed(future, event)) {
+					this.deleteQuietly(curatorClient, lockPath);
+					return;
+				}
+				String node = ZKPaths.getNodeFromPath(lockPath);
+				if (!event.getChildren().contains(node)) {
+					// 会话失效后临时节点已被删除，不能在没有节点的情况下授予锁
+					future.completeExceptionally(new CuratorLockException("Lock node lost (session expired?) : " + lockPath));
+					return;
+				}
+				long sequence = sequenceOf(node);
+				String predecessor = null;
+				long predecessorSequence = -1;
+				for (String child : event.getChildren()) {
+					long childSequence = sequenceOf(child);
+					if (childSequence < sequence && childSequence > predecessorSequence) {
+						predecessorSequence = childSequence;
+						predecessor = child;
+					}
+				}
+				if (predecessor == null) {
+					AsyncCuratorZkLock lock = new AsyncCuratorZkLock(this, curatorClient, lockPath);
+					if (!future.complete(lock) && future.isCompletedExceptionally()) {
+						this.deleteQuietly(curatorClient, lockPath);
+					}
+					return;
+				}
+				// 只监听紧邻的前一个节点；连接断开或会话失效时重新检查，由检查结果决定继续等待还是失败
+				client.checkExists().usingWatcher((Watcher) watchedEvent -> {
+					if (watchedEvent.getType() == EventType.NodeDeleted || (watchedEvent.getType() == EventType.None
+							&& watchedEvent.getState() != KeeperState.SyncConnected)) {
+						this.checkLock(curatorClient, lockDir, lockPath, future);
+					}
+				}).inBackground((c, existsEvent) -> {
+					if (existsEvent.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+						this.checkLock(curatorClient, lockDir, lockPath, future);
+					} else if (failed(future, existsEvent)) {
+						this.deleteQuietly(curatorClient, lockPath);
+					}
+				}).forPath(ZKPaths.makePath(lockDir, predecessor));
+			}).forPath(lockDir);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+			this.deleteQuietly(curatorClient, lockPath);
+		}
+	}
+
+	/**
+	 * 原子递增，数据格式与 {@link org.apache.curator.framework.recipes.atomic.DistributedAtomicLong} 兼容
+	 *
+	 * @param path  节点路径
+	 * @param delta 增量
+	 * @return 递增后的值
+	 */
+	public CompletionStage<Long> increment(String path, long delta) {
+		CompletableFuture<Long> future = new CompletableFuture<>();
+		this.tryIncrement(path, delta, future);
+		return this.deliver(future);
+	}
+
+	private void tryIncrement(String path, long delta, CompletableFuture<Long> future) {
+		try {
+			ring.route(path).getData().inBackground((client, event) -> {
+				if (event.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+					client.create().creatingParentContainersIfNeeded().inBackground((c, createEvent) -> {
+						if (createEvent.getResultCode() == KeeperException.Code.NODEEXISTS.intValue()) {
+							this.tryIncrement(path, delta, future);
+						} else if (!failed(future, createEvent)) {
+							future.complete(delta);
+						}
+					}).forPath(path, toBytes(delta));
+					return;
+				}
+				if (failed(future, event)) {
+					return;
+				}
+				byte[] data = event.getData();
+				long value = (data == null || data.length == 0 ? 0 : ByteBuffer.wrap(data).getLong()) + delta;
+				client.setData().withVersion(event.getStat().getVersion()).inBackground((c, setEvent) -> {
+					if (setEvent.getResultCode() == KeeperException.Code.BADVERSION.intValue()) {
+						// 乐观锁冲突，重试
+						this.tryIncrement(path, delta, future);
+					} else if (!failed(future, setEvent)) {
+						future.complete(value);
+					}
+				}).forPath(path, toBytes(value));
+			}).forPath(path);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * 设置栅栏
+	 *
+	 * @param barrierPath 栅栏路径
+	 * @return 完成信号
+	 */
+	public CompletionStage<Void> setBarrier(String barrierPath) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		try {
+			ring.route(barrierPath).create().creatingParentContainersIfNeeded().inBackground((client, event) -> {
+				if (event.getResultCode() == KeeperException.Code.NODEEXISTS.intValue() || !failed(future, event)) {
+					future.complete(null);
+				}
+			}).forPath(barrierPath);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return this.deliver(future);
+	}
+
+	/**
+	 * 移除栅栏，唤醒所有等待者
+	 *
+	 * @param barrierPath 栅栏路径
+	 * @return 完成信号
+	 */
+	public CompletionStage<Void> removeBarrier(String barrierPath) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		try {
+			ring.route(barrierPath).delete().guaranteed().inBackground((client, event) -> {
+				if (event.getResultCode() == KeeperException.Code.NONODE.intValue() || !failed(future, event)) {
+					future.complete(null);
+				}
+			}).forPath(barrierPath);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return this.deliver(future);
+	}
+
+	/**
+	 * 等待栅栏被移除
+	 *
+	 * @param barrierPath 栅栏路径
+	 * @return 栅栏移除后完成
+	 */
+	public CompletionStage<Void> waitOnBarrier(String barrierPath) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		this.watchBarrier(barrierPath, future);
+		return this.deliver(future);
+	}
+
+	private void watchBarrier(String barrierPath, CompletableFuture<Void> future) {
+		try {
+			ring.route(barrierPath).checkExists().usingWatcher((Watcher) event -> {
+				if (!future.isDone()) {
+					this.watchBarrier(barrierPath, future);
+				}
+			}).inBackground((client, event) -> {
+				// 只有 NONODE 表示栅栏已移除，连接丢失等其他错误以异常完成
+				if (event.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+					future.complete(null);
+				} else {
+					failed(future, event);
+				}
+			}).forPath(barrierPath);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+	}
+
+	public CompletionStage<String> create(String path, byte[] data, CreateMode mode) {
+		CompletableFuture<String> future = new CompletableFuture<>();
+		try {
+			ring.route(path).create().creatingParentContainersIfNeeded().withMode(mode).inBackground((client, event) -> {
+				if (!failed(future, event)) {
+					future.complete(event.getName());
+				}
+			}).forPath(path, data);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return this.deliver(future);
+	}
+
+	public CompletionStage<byte[]> getData(String path) {
+		CompletableFuture<byte[]> future = new CompletableFuture<>();
+		try {
+			ring.route(path).getData().inBackground((client, event) -> {
+				if (!failed(future, event)) {
+					future.complete(event.getData());
+				}
+			}).forPath(path);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return this.deliver(future);
+	}
+
+	public CompletionStage<Stat> setData(String path, byte[] data) {
+		CompletableFuture<Stat> future = new CompletableFuture<>();
+		try {
+			ring.route(path).setData().inBackground((client, event) -> {
+				if (!failed(future, event)) {
+					future.complete(event.getStat());
+				}
+			}).forPath(path, data);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return this.deliver(future);
+	}
+
+	public CompletionStage<Stat> checkExists(String path) {
+		CompletableFuture<Stat> future = new CompletableFuture<>();
+		try {
+			ring.route(path).checkExists().inBackground((client, event) -> {
+				if (event.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+					future.complete(null);
+				} else if (!failed(future, event)) {
+					future.complete(event.getStat());
+				}
+			}).forPath(path);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return this.deliver(future);
+	}
+
+	public CompletionStage<List<String>> getChildren(String path) {
+		CompletableFuture<List<String>> future = new CompletableFuture<>();
+		try {
+			ring.route(path).getChildren().inBackground((client, event) -> {
+				if (!failed(future, event)) {
+					future.complete(event.getChildren());
+				}
+			}).forPath(path);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return this.deliver(future);
+	}
+
+	public CompletionStage<Void> delete(String path) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		try {
+			ring.route(path).delete().guaranteed().inBackground((client, event) -> {
+				if (!failed(future, event)) {
+					future.complete(null);
+				}
+			}).forPath(path);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return this.deliver(future);
+	}
+
+	/**
+	 * @return 第一个集群的客户端，单集群时即唯一的客户端
+	 */
+	public CuratorFramework getCuratorClient() {
+		return ring.getClient(0);
+	}
+
+	public CuratorZkClientRing getClientRing() {
+		return ring;
+	}
+
+	/**
+	 * 更换完成回调的线程池，对之后发起的操作生效，已发起的操作仍在原线程池上完成
+	 */
+	public void setCallbackExecutor(Executor callbackExecutor) {
+		this.callbackExecutor = callbackExecutor;
+	}
+
+	/**
+	 * 超时线程在第一次限时加锁时才创建，不使用限时加锁的实例不占用线程
+	 */
+	private ScheduledExecutorService getTimeoutScheduler() {
+		if (timeoutScheduler == null) {
+			initLock.lock();
+			try {
+				if (closed) {
+					throw new IllegalStateException("AsyncCuratorZkTemplate is closed");
+				}
+				if (timeoutScheduler == null) {
+					timeoutScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+						Thread thread = new Thread(r, "curator-async-timeout");
+						thread.setDaemon(true);
+						return thread;
+					});
+				}
+			} finally {
+				initLock.unlock();
+			}
+		}
+		return timeoutScheduler;
+	}
+
+	boolean isTimeoutSchedulerStarted() {
+		return timeoutScheduler != null;
+	}
+
+	@Override
+	public void close() {
+		initLock.lock();
+		try {
+			closed = true;
+			if (timeoutScheduler != null) {
+				timeoutScheduler.shutdownNow();
+			}
+		} finally {
+			initLock.unlock();
+		}
+	}
+
+	private void deleteQuietly(CuratorFramework curatorClient, String path) {
+		try {
+			curatorClient.delete().guaranteed().inBackground().forPath(path);
+		} catch (Exception e) {
+			// ignore
+		}
+	}
+
+	/**
+	 * 在 callbackExecutor 上完成返回给调用方的 future，后续的同步阶段也随之在该线程池上执行
+	 */
+	private <T> CompletionStage<T> deliver(CompletableFuture<T> future) {
+		Executor executor = callbackExecutor;
+		if (executor == null) {
+			return future;
+		}
+		CompletableFuture<T> delivered = new CompletableFuture<>();
+		future.whenComplete((value, ex) -> executor.execute(() -> {
+			if (ex != null) {
+				delivered.completeExceptionally(ex);
+			} else {
+				delivered.complete(value);
+			}
+		}));
+		return delivered;
+	}
+
+	/**
+	 * 后台操作失败时以 {@link KeeperException} 完成 future
+	 */
+	private static boolean failed(CompletableFuture<?> future, CuratorEvent event) {
+		KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+		if (code == KeeperException.Code.OK) {
+			return false;
+		}
+		future.completeExceptionally(KeeperException.create(code, event.getPath()));
+		return true;
+	}
+
+	private static byte[] toBytes(long value) {
+		return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+	}
+
+	private static long sequenceOf(String node) {
+		int index = node.lastIndexOf(LOCK_NAME);
+		return index < 0 ? Long.MAX_VALUE : Long.parseLong(node.substring(index + LOCK_NAME.length()));
+	}
+
+}
@@ -1,6 +1,11 @@
 package org.apache.curator.spring.boot;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.curator.RetryPolicy;
@@ -10,19 +15,28 @@ import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.recipes.locks.InterProcessLock;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.zookeeper.ZooKeeper;
-import org.apache.zookeeper.ZooKeeper.States;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 
 @Configuration
 @ConditionalOnClass({CuratorFramework.class, RetryPolicy.class, InterProcessLock.class, ZooKeeper.class})
 @EnableConfigurationProperties(CuratorZkProperties.class)
 public class CuratorZkAutoConfiguration {
 
+	private static final Logger LOG = LoggerFactory.getLogger(CuratorZkAutoConfiguration.class);
+
 	@Bean
 	@ConditionalOnMissingBean
 	public RetryPolicy retryPolicy(CuratorZkProperties properties) {
@@ -33,11 +47,62 @@ public class CuratorZkAutoConfiguration {
 	
 	@Bean
 	@ConditionalOnMissingBean
-	public CuratorFramework curatorClient(CuratorZkProperties properties, RetryPolicy retryPolicy) {
+	public CuratorFramework curatorClient(CuratorZkProperties properties, RetryPolicy retryPolicy) throws InterruptedException {
+
+		// 1、创建连接实例；仅配置了分片集群时以第一个集群作为默认客户端
+		String connectString = properties.getConnectString();
+		if (!StringUtils.hasText(connectString) && !CollectionUtils.isEmpty(properties.getSharding().getEnsembles())) {
+			connectString = properties.getSharding().getEnsembles().get(0);
+		}
+		CuratorFramework curatorClient = this.newClient(properties, retryPolicy, connectString);
+		// 2、开启连接：连接在后台建立，仅在配置了等待时间时有限等待
+		curatorClient.start();
+		long blockUntilConnectedMs = properties.getStartup().getBlockUntilConnectedMs();
+		if (blockUntilConnectedMs > 0 && !curatorClient.blockUntilConnected((int) blockUntilConnectedMs, TimeUnit.MILLISECONDS)) {
+			LOG.warn("ZooKeeper {} not connected within {} ms, continuing startup", connectString, blockUntilConnectedMs);
+		}
+		return curatorClient;
+	}
 
-		// 1、创建连接实例
-		CuratorFramework curatorClient = CuratorFrameworkFactory.builder()
-				.connectString(properties.getConnectString())
+	@Bean
+	@ConditionalOnMissingBean
+	public CuratorZkStartup curatorZkStartup(CuratorZkProperties properties, CuratorFramework curatorClient) {
+		return new CuratorZkStartup(curatorClient, properties.getStartup().isAsync());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public CuratorZkClientRing curatorZkClientRing(CuratorZkProperties properties, CuratorFramework curatorClient, RetryPolicy retryPolicy) {
+		CuratorZkProperties.Sharding sharding = properties.getSharding();
+		if (CollectionUtils.isEmpty(sharding.getEnsembles())) {
+			return CuratorZkClientRing.of(curatorClient);
+		}
+		// 每个集群一个客户端，与默认客户端连接串相同的集群直接复用
+		String defaultConnectString = curatorClient.getZookeeperClient().getCurrentConnectionString();
+		Map<String, CuratorFramework> ensembles = new LinkedHashMap<>();
+		List<CuratorFramework> created = new ArrayList<>();
+		for (String connectString : sharding.getEnsembles()) {
+			if (connectString.equals(defaultConnectString)) {
+				ensembles.put(connectString, curatorClient);
+			} else {
+				CuratorFramework client = this.newClient(properties, retryPolicy, connectString);
+				client.start();
+				ensembles.put(connectString, client);
+				created.add(client);
+			}
+		}
+		// 默认客户端是独立的 Bean，由容器关闭，环只关闭自己创建的客户端
+		return new CuratorZkClientRing(ensembles, sharding.getVirtualNodes(), created);
+	}
+
+	private CuratorFramework newClient(CuratorZkProperties properties, RetryPolicy retryPolicy, String connectString) {
+		CuratorFrameworkFactory.Builder builder = CuratorFrameworkFactory.builder();
+		CuratorZkProperties.Payload payload = properties.getPayload();
+		if (payload.isCompression()) {
+			builder.compressionProvider(new CuratorZkCompressionProvider(payload.getCompressionThreshold(), payload.getCompressionLevel()));
+		}
+		return builder
+				.connectString(connectString)
 				.connectionTimeoutMs(properties.getConnectionTimeoutMs())
 				.canBeReadOnly(properties.isCanBeReadOnly())
 				.authorization(CollectionUtils.isEmpty(properties.getAuthInfo()) ? new ArrayList<AuthInfo>()
@@ -49,18 +114,55 @@ public class CuratorZkAutoConfiguration {
 				.retryPolicy(retryPolicy)
 				.sessionTimeoutMs(properties.getSessionTimeoutMs())
 				.build();
-		// 2、开启连接
-		curatorClient.start();
+	}
 
-		System.out.println(States.CONNECTED);
-		System.out.println(curatorClient.getState());
+	@Bean
+	public CuratorZkTemplate curatorZkTemplate(CuratorZkProperties properties, CuratorZkClientRing curatorZkClientRing, RetryPolicy retryPolicy,
+			ObjectProvider<ZkSerializer> serializer,
+			@Qualifier("curatorCallbackExecutor") ObjectProvider<ExecutorService> curatorCallbackExecutor) {
+		CuratorZkTemplate template = new CuratorZkTemplate(curatorZkClientRing, retryPolicy, properties);
+		// 自定义的 ZkSerializer 优先于 payload.serializer 配置
+		serializer.ifAvailable(template::setSerializer);
+		curatorCallbackExecutor.ifAvailable(template::setCallbackExecutor);
+		return template;
+	}
 
-		return curatorClient;
+	@Bean
+	@ConditionalOnMissingBean
+	public CuratorZkLeaderRegistry curatorZkLeaderRegistry(CuratorZkProperties properties, CuratorZkTemplate template,
+			CuratorZkStartup startup, ApplicationEventPublisher eventPublisher) throws Exception {
+		// 领导权变更以 Spring 事件发布
+		template.addLeaderListener((latch, leader) -> eventPublisher.publishEvent(new CuratorZkLeadershipEvent(latch, leader)));
+		CuratorZkLeaderRegistry registry = template.getLeaderRegistry();
+		for (String name : properties.getLeader().getLatches()) {
+			startup.execute("leader-latch:" + name, () -> registry.getLatch(name));
+		}
+		return registry;
 	}
 
 	@Bean
-	public CuratorZkTemplate curatorZkTemplate(CuratorZkProperties properties, CuratorFramework curatorClient, RetryPolicy retryPolicy) {
-		return new CuratorZkTemplate(curatorClient, retryPolicy, properties.getSessionTimeoutMs());
+	@ConditionalOnMissingBean
+	public AsyncCuratorZkTemplate asyncCuratorZkTemplate(CuratorZkClientRing curatorZkClientRing,
+			@Qualifier("curatorCallbackExecutor") ObjectProvider<ExecutorService> curatorCallbackExecutor) {
+		// 与 CuratorZkDistributedLock 相同的路由，同一个 key 的异步锁与同步锁落在同一集群
+		return new AsyncCuratorZkTemplate(curatorZkClientRing, "/locks", curatorCallbackExecutor.getIfAvailable());
 	}
-	
+
+	@Bean(destroyMethod = "shutdown")
+	@ConditionalOnMissingBean(name = "curatorCallbackExecutor")
+	@ConditionalOnExpression("!'${" + CuratorZkProperties.PREFIX + ".executor.type:direct}'.equalsIgnoreCase('direct')")
+	public ExecutorService curatorCallbackExecutor(CuratorZkProperties properties) {
+		return CuratorZkExecutors.newCallbackExecutor(properties.getExecutor());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = CuratorZkProperties.PREFIX + ".node-cache", name = "enabled", havingValue = "true")
+	public ZkNodeCache zkNodeCache(CuratorZkProperties properties, CuratorFramework curatorClient, CuratorZkStartup startup) throws Exception {
+		CuratorZkProperties.NodeCache nodeCache = properties.getNodeCache();
+		ZkNodeCache cache = new ZkNodeCache(curatorClient, nodeCache.getPaths(), nodeCache.getMaximumSize(), nodeCache.getExpireAfterAccessMs());
+		startup.execute("node-cache", cache::start);
+		return cache;
+	}
+
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.zookeeper.KeeperException;
+
+/**
+ * 子树变更事件，只包含路径与变更类型，节点数据按需读取
+ */
+public class CuratorZkChangeEvent {
+
+	public enum Type {
+
+		/**
+		 * 节点创建
+		 */
+		CREATED,
+		/**
+		 * 节点删除
+		 */
+		DELETED,
+		/**
+		 * 节点数据变更
+		 */
+		DATA_CHANGED,
+		/**
+		 * Watch 已（重新）注册，路径为子树根路径：首个 RESET 表示订阅已生效，之后的 RESET 表示重连期间可能丢失了事件
+		 */
+		RESET
+
+	}
+
+	private final CuratorFramework curatorClient;
+	private final boolean decompress;
+	private final Type type;
+	private final String path;
+
+	CuratorZkChangeEvent(CuratorFramework curatorClient, boolean decompress, Type type, String path) {
+		this.curatorClient = curatorClient;
+		this.decompress = decompress;
+		this.type = type;
+		this.path = path;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * 读取节点当前数据，读取的是读取时刻的最新值
+	 *
+	 * @return 节点不存在时返回 null
+	 */
+	public byte[] fetchData() throws Exception {
+		try {
+			byte[] data = curatorClient.getData().forPath(path);
+			return decompress ? CuratorZkCompressionProvider.decompressIfMarked(path, data) : data;
+		} catch (KeeperException.NoNodeException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return type + " " + path;
+	}
+
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.watch.PersistentWatcher;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher.Event.EventType;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * 基于 ZooKeeper 3.6+ 持久递归 Watch（{@link PersistentWatcher}）的子树变更流：
+ * <ul>
+ * <li>整个子树只注册一个服务端 Watch，无需逐节点重新注册，也不在内存中保存节点数据；</li>
+ * <li>按订阅者的请求量下发事件，未下发的事件按到达顺序缓冲，最多 bufferSize 个，溢出时按 {@link Overflow} 处理；</li>
+ * <li>RESET 从不丢弃；溢出丢弃事件后在缓冲末尾补一个 RESET（未下发时只保留一个并移到末尾），订阅者据此重新读取；</li>
+ * <li>开启合并时同一路径的未下发事件合并为一个，保留最早的位置与最新的类型；合并不跨越 RESET；</li>
+ * <li>节点数据通过 {@link CuratorZkChangeEvent#fetchData()} 按需读取。</li>
+ * </ul>
+ * 每个订阅各自注册 Watch，取消订阅时移除。指定 {@code callbackExecutor} 时事件在该线程池上串行下发给订阅者，
+ * 订阅者的处理不占用 ZooKeeper 事件线程；事件仍在 Watch 回调线程中按到达顺序写入缓冲。
+ * <p>
+ * 按客户端环构造时每个订阅在每个集群上各注册一个 Watch，事件汇入同一个缓冲；节点按完整路径分片，
+ * 只下发所属集群上的事件，其它集群上自动创建的父路径不产生事件。不同集群之间的事件没有全局顺序。
+ */
+public class CuratorZkChangeFeed {
+
+	/**
+	 * 缓冲溢出策略
+	 */
+	public enum Overflow {
+
+		/**
+		 * 丢弃最早的未下发事件（RESET 除外）
+		 */
+		DROP_OLDEST,
+		/**
+		 * 丢弃新到达的事件
+		 */
+		DROP_LATEST,
+		/**
+		 * 以溢出异常结束订阅
+		 */
+		ERROR
+
+	}
+
+	private final CuratorZkClientRing clientRing;
+	private final String path;
+	private final int bufferSize;
+	private final Overflow overflow;
+	private final boolean coalesce;
+	private final boolean decompress;
+	private final Executor callbackExecutor;
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+
+	/**
+	 * @param curatorClient 客户端
+	 * @param path          子树根路径
+	 * @param bufferSize    每个订阅最多缓冲的未下发事件数
+	 * @param overflow      缓冲溢出策略
+	 * @param coalesce      是否合并同一路径的未下发事件
+	 * @param decompress    按需读取数据时是否解压带压缩标记的数据
+	 */
+	public CuratorZkChangeFeed(CuratorFramework curatorClient, String path, int bufferSize, Overflow overflow, boolean coalesce,
+			boolean decompress) {
+		this(curatorClient, path, bufferSize, overflow, coalesce, decompress, null);
+	}
+
+	/**
+	 * @param callbackExecutor 下发事件的线程池，为 null 时在 Watch 回调线程中下发
+	 */
+	public CuratorZkChangeFeed(CuratorFramework curatorClient, String path, int bufferSize, Overflow overflow, boolean coalesce,
+			boolean decompress, Executor callbackExecutor) {
+		this(CuratorZkClientRing.of(curatorClient), path, bufferSize, overflow, coalesce, decompress, callbackExecutor);
+	}
+
+	/**
+	 * @param clientRing 客户端环，变更流覆盖其中每个集群
+	 */
+	public CuratorZkChangeFeed(CuratorZkClientRing clientRing, String path, int bufferSize, Overflow overflow, boolean coalesce,
+			boolean decompress, Executor callbackExecutor) {
+		this.clientRing = clientRing;
+		this.path = path;
+		this.bufferSize = Math.max(1, bufferSize);
+		this.overflow = overflow;
+		this.coalesce = coalesce;
+		this.decompress = decompress;
+		this.callbackExecutor = callbackExecutor;
+	}
+
+	/**
+	 * @return 变更事件流，订阅时注册 Watch
+	 */
+	public Flux<CuratorZkChangeEvent> flux() {
+		return Flux.create(sink -> {
+			Subscription subscription = new Subscription(sink);
+			List<PersistentWatcher> watchers = new ArrayList<>(clientRing.size());
+			for (int i = 0; i < clientRing.size(); i++) {
+				int index = i;
+				PersistentWatcher watcher = new PersistentWatcher(clientRing.getClient(i), path, true);
+				watcher.getListenable().addListener(event -> subscription.onWatchedEvent(index, event));
+				watcher.getResetListenable().addListener(subscription::onReset);
+				watchers.add(watcher);
+			}
+			sink.onRequest(subscription::request);
+			sink.onDispose(() -> watchers.forEach(PersistentWatcher::close));
+			watchers.forEach(PersistentWatcher::start);
+		});
+	}
+
+	/**
+	 * @return 因缓冲溢出丢弃的事件数
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return 被合并的事件数
+	 */
+	public long getCoalescedCount() {
+		return coalesced.sum();
+	}
+
+	/**
+	 * 单个订阅的缓冲与下发：Watch 回调线程写入缓冲，按请求量串行下发
+	 */
+	private class Subscription {
+
+		private final FluxSink<CuratorZkChangeEvent> sink;
+		/**
+		 * 唯一的有序缓冲：合并的事件以 {@link PathKey} 为键，其余事件（含 RESET）以独立对象为键
+		 */
+		private final Map<Object, CuratorZkChangeEvent> buffer = new LinkedHashMap<>();
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+		private long epoch;
+		private Object lossReset;
+		private volatile boolean overflowed;
+
+		Subscription(FluxSink<CuratorZkChangeEvent> sink) {
+			this.sink = sink;
+		}
+
+		void onWatchedEvent(int index, WatchedEvent event) {
+			if (event.getPath() == null || clientRing.indexOf(event.getPath()) != index) {
+				// 连接状态事件（重连后由 RESET 通知），或其它集群为子节点自动创建的父路径
+				return;
+			}
+			CuratorZkChangeEvent.Type type;
+			if (event.getType() == EventType.NodeCreated) {
+				type = CuratorZkChangeEvent.Type.CREATED;
+			} else if (event.getType() == EventType.NodeDeleted) {
+				type = CuratorZkChangeEvent.Type.DELETED;
+			} else if (event.getType() == EventType.NodeDataChanged) {
+				type = CuratorZkChangeEvent.Type.DATA_CHANGED;
+			} else {
+				return;
+			}
+			this.offer(new CuratorZkChangeEvent(clientRing.getClient(index), decompress, type, event.getPath()));
+		}
+
+		void onReset() {
+			synchronized (this) {
+				this.appendReset(new Object());
+			}
+			this.signal();
+		}
+
+		private void offer(CuratorZkChangeEvent event) {
+			synchronized (this) {
+				PathKey key = coalesce ? new PathKey(epoch, event.getPath()) : null;
+				if (key != null && buffer.containsKey(key)) {
+					// 保留原位置，更新为最新类型
+					buffer.put(key, event);
+					coalesced.increment();
+				} else if (this.reserve()) {
+					buffer.put(key != null ? key : new Object(), event);
+				}
+			}
+			this.signal();
+		}
+
+		/**
+		 * 为新事件腾出空间；补发的 RESET 不占容量
+		 *
+		 * @return 是否接收新事件
+		 */
+		private boolean reserve() {
+			if (buffer.size() - (lossReset != null ? 1 : 0) < bufferSize) {
+				return true;
+			}
+			switch (overflow) {
+			case DROP_OLDEST:
+				Iterator<CuratorZkChangeEvent> buffered = buffer.values().iterator();
+				while (buffered.hasNext()) {
+					if (buffered.next().getType() != CuratorZkChangeEvent.Type.RESET) {
+						buffered.remove();
+						dropped.increment();
+						this.markLoss();
+						break;
+					}
+				}
+				return true;
+			case DROP_LATEST:
+				dropped.increment();
+				this.markLoss();
+				return false;
+			default:
+				overflowed = true;
+				return false;
+			}
+		}
+
+		/**
+		 * 丢弃事件后在末尾补一个 RESET；尚未下发的补发 RESET 移到末尾，始终排在所有被丢弃的事件之后
+		 */
+		private void markLoss() {
+			if (lossReset != null) {
+				buffer.remove(lossReset);
+			}
+			lossReset = new Object();
+			this.appendReset(lossReset);
+		}
+
+		private void appendReset(Object key) {
+			buffer.put(key, new CuratorZkChangeEvent(clientRing.route(path), decompress, CuratorZkChangeEvent.Type.RESET, path));
+			// RESET 之后的事件不再与之前的合并
+			epoch++;
+		}
+
+		private synchronized CuratorZkChangeEvent poll() {
+			Iterator<Map.Entry<Object, CuratorZkChangeEvent>> iterator = buffer.entrySet().iterator();
+			if (!iterator.hasNext()) {
+				return null;
+			}
+			Map.Entry<Object, CuratorZkChangeEvent> first = iterator.next();
+			iterator.remove();
+			if (first.getKey() == lossReset) {
+				lossReset = null;
+			}
+			return first.getValue();
+		}
+
+		/**
+		 * 有新事件写入缓冲：配置了 callbackExecutor 时在其上下发，drain 本身串行，不会打乱顺序
+		 */
+		private void signal() {
+			if (callbackExecutor == null) {
+				this.drain();
+			} else {
+				callbackExecutor.execute(this::drain);
+			}
+		}
+
+		void request(long n) {
+			requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+			this.drain();
+		}
+
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				if (overflowed) {
+					sink.error(Exceptions.failWithOverflow("Change feed buffer of " + bufferSize + " events overflowed for " + path));
+					return;
+				}
+				long emitted = 0;
+				long demand = requested.get();
+				while (emitted < demand) {
+					CuratorZkChangeEvent event = this.poll();
+					if (event == null) {
+						break;
+					}
+					sink.next(event);
+					emitted++;
+				}
+				if (emitted > 0 && demand != Long.MAX_VALUE) {
+					requested.addAndGet(-emitted);
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+	}
+
+	private static final class PathKey {
+
+		private final long epoch;
+		private final String path;
+
+		PathKey(long epoch, String path) {
+			this.epoch = epoch;
+			this.path = path;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PathKey)) {
+				return false;
+			}
+			PathKey other = (PathKey) obj;
+			return epoch == other.epoch && path.equals(other.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(epoch, path);
+		}
+
+	}
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.KeeperException;
+
+/**
+ * 由连接状态驱动的熔断器：
+ * <ul>
+ * <li>SUSPENDED / LOST / READ_ONLY 时打开，加锁请求立即拒绝，不再进入 Curator 的重试循环；</li>
+ * <li>CONNECTED / RECONNECTED 时进入半开状态，只放行 {@code halfOpenMaxCalls} 个探测请求，
+ * 探测成功即关闭，探测因连接丢失、会话过期失败时重新打开；</li>
+ * <li>打开超过 {@code waitDurationMs} 且客户端已连接时，下一个请求将其转为半开，
+ * 避免连接早已恢复却没有新的连接事件时一直保持打开。</li>
+ * </ul>
+ * 权限不足、路径错误等 ZooKeeper 已正常应答的异常不算探测失败。
+ * 关闭状态下的判断只是一次 volatile 读。
+ */
+public class CuratorZkCircuitBreaker implements ConnectionStateListener {
+
+	public enum State {
+		CLOSED, HALF_OPEN, OPEN
+	}
+
+	private final String name;
+	private final int halfOpenMaxCalls;
+	private final CuratorFramework client;
+	private final long waitDurationNanos;
+	private volatile long openedAtNanos;
+	private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+	private final AtomicInteger halfOpenCalls = new AtomicInteger();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder opened = new LongAdder();
+
+	/**
+	 * 只由连接事件转为半开
+	 */
+	public CuratorZkCircuitBreaker(String name, int halfOpenMaxCalls) {
+		this(name, halfOpenMaxCalls, null, -1);
+	}
+
+	/**
+	 * @param client         打开超过 waitDurationMs 后据其连接状态转为半开，为 null 时只由连接事件转为半开
+	 * @param waitDurationMs 打开状态的最短持续时间
+	 */
+	public CuratorZkCircuitBreaker(String name, int halfOpenMaxCalls, CuratorFramework client, long waitDurationMs) {
+		this.name = name;
+		this.halfOpenMaxCalls = halfOpenMaxCalls;
+		this.client = client;
+		this.waitDurationNanos = TimeUnit.MILLISECONDS.toNanos(waitDurationMs);
+	}
+
+	/**
+	 * 创建熔断器并注册到客户端的连接状态监听
+	 */
+	public static CuratorZkCircuitBreaker bindTo(CuratorFramework client, String name, int halfOpenMaxCalls) {
+		return bindTo(client, name, halfOpenMaxCalls, CuratorZkProperties.CircuitBreaker.DEFAULT_WAIT_DURATION_MS);
+	}
+
+	/**
+	 * 创建熔断器并注册到客户端的连接状态监听，打开超过 waitDurationMs 且已连接时转为半开
+	 */
+	public static CuratorZkCircuitBreaker bindTo(CuratorFramework client, String name, int halfOpenMaxCalls, long waitDurationMs) {
+		CuratorZkCircuitBreaker breaker = new CuratorZkCircuitBreaker(name, halfOpenMaxCalls, client, waitDurationMs);
+		client.getConnectionStateListenable().addListener(breaker);
+		return breaker;
+	}
+
+	@Override
+	public void stateChanged(CuratorFramework client, ConnectionState newState) {
+		switch (newState) {
+		case SUSPENDED:
+		case LOST:
+		case READ_ONLY:
+			this.open();
+			break;
+		case CONNECTED:
+		case RECONNECTED:
+			this.halfOpen();
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * 申请放行一次请求；被拒绝时计入 rejected
+	 *
+	 * @return 是否放行
+	 */
+	public boolean tryAcquirePermission() {
+		State current = state.get();
+		if (current == State.CLOSED) {
+			return true;
+		}
+		if (current == State.OPEN && this.waitElapsed() && this.halfOpen()) {
+			current = State.HALF_OPEN;
+		}
+		if (current == State.HALF_OPEN && halfOpenCalls.incrementAndGet() <= halfOpenMaxCalls) {
+			return true;
+		}
+		rejected.increment();
+		return false;
+	}
+
+	/**
+	 * 放行的请求成功访问了 ZooKeeper（包括因竞争超时未取得锁）
+	 */
+	public void recordSuccess() {
+		if (state.get() == State.HALF_OPEN) {
+			state.compareAndSet(State.HALF_OPEN, State.CLOSED);
+		}
+	}
+
+	/**
+	 * 放行的请求未访问 ZooKeeper 就结束（本地等待超时、线程被中断），归还半开状态下的探测名额
+	 */
+	public void releasePermission() {
+		if (state.get() == State.HALF_OPEN) {
+			halfOpenCalls.updateAndGet(calls -> calls > 0 ? calls - 1 : 0);
+		}
+	}
+
+	/**
+	 * 放行的请求因异常失败：只有连接丢失、会话过期才算探测失败，其它异常说明 ZooKeeper 已应答，按成功处理
+	 *
+	 * @param ex 请求抛出的异常
+	 */
+	public void recordFailure(Throwable ex) {
+		if (!isConnectionFailure(ex)) {
+			this.recordSuccess();
+		} else if (state.get() == State.HALF_OPEN) {
+			this.open();
+		}
+	}
+
+	/**
+	 * 异常（含 cause 链）是否由连接丢失、会话过期或请求超时引起
+	 */
+	static boolean isConnectionFailure(Throwable ex) {
+		for (Throwable cause = ex; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+			if (cause instanceof KeeperException) {
+				switch (((KeeperException) cause).code()) {
+				case CONNECTIONLOSS:
+				case SESSIONEXPIRED:
+				case SESSIONMOVED:
+				case OPERATIONTIMEOUT:
+					return true;
+				default:
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void open() {
+		openedAtNanos = System.nanoTime();
+		if (state.getAndSet(State.OPEN) != State.OPEN) {
+			opened.increment();
+		}
+	}
+
+	private boolean halfOpen() {
+		if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+			halfOpenCalls.set(0);
+			return true;
+		}
+		return state.get() == State.HALF_OPEN;
+	}
+
+	private boolean waitElapsed() {
+		return client != null && waitDurationNanos >= 0 && System.nanoTime() - openedAtNanos >= waitDurationNanos
+				&& client.getZookeeperClient().isConnected();
+	}
+
+	public State getState() {
+		return state.get();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 被拒绝的请求数
+	 */
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	/**
+	 * 熔断器打开的次数
+	 */
+	public long getOpenedCount() {
+		return opened.sum();
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+
+/**
+ * 受 {@link CuratorZkCircuitBreaker} 保护的锁：熔断打开时快速失败，或降级为仅在本 JVM 内互斥的本地锁。
+ * <p>
+ * 启用本地降级时，正常模式下也先取得同一把本地锁，保证降级期间取得的锁与恢复前已持有的 ZooKeeper 锁在本 JVM 内互斥；
+ * 此时锁必须由加锁线程释放。
+ */
+public class CuratorZkCircuitBreakerLock implements InterProcessLock {
+
+	private final InterProcessLock delegate;
+	private final String lockPath;
+	private final CuratorZkCircuitBreaker breaker;
+	private final ReentrantLock localLock;
+	private final ConcurrentMap<Thread, Hold> holds = new ConcurrentHashMap<>();
+
+	/**
+	 * @param delegate      实际的 ZooKeeper 锁
+	 * @param lockPath      锁路径
+	 * @param breaker       所属集群的熔断器
+	 * @param localFallback 熔断时是否降级为本地锁，否则抛出 {@link CuratorLockException}
+	 */
+	public CuratorZkCircuitBreakerLock(InterProcessLock delegate, String lockPath, CuratorZkCircuitBreaker breaker, boolean localFallback) {
+		this.delegate = delegate;
+		this.lockPath = lockPath;
+		this.breaker = breaker;
+		this.localLock = localFallback ? new ReentrantLock() : null;
+	}
+
+	@Override
+	public void acquire() throws Exception {
+		this.acquire(-1, null);
+	}
+
+	@Override
+	public boolean acquire(long time, TimeUnit unit) throws Exception {
+		Thread currentThread = Thread.currentThread();
+		Hold hold = holds.get(currentThread);
+		if (hold != null) {
+			// 重入沿用首次加锁的模式，本地锁与被包装的锁各自计数
+			if (!this.lockLocally(time, unit)) {
+				return false;
+			}
+			if (!hold.degraded) {
+				try {
+					if (!this.lockDelegate(time, unit)) {
+						this.unlockLocally();
+						return false;
+					}
+				} catch (Exception e) {
+					this.unlockLocally();
+					throw e;
+				}
+			}
+			hold.depth++;
+			return true;
+		}
+		long startNanos = System.nanoTime();
+		boolean permitted = breaker.tryAcquirePermission();
+		if (!permitted && localLock == null) {
+			throw new CuratorLockException("ZooKeeper connection unavailable (circuit " + breaker.getState() + "), lock rejected : " + lockPath);
+		}
+		// 每条退出路径都要给放行的请求一个结果，否则半开状态的探测名额会被耗尽
+		boolean locked;
+		try {
+			locked = this.lockLocally(time, unit);
+		} catch (InterruptedException e) {
+			if (permitted) {
+				breaker.releasePermission();
+			}
+			throw e;
+		}
+		if (!locked) {
+			if (permitted) {
+				breaker.releasePermission();
+			}
+			return false;
+		}
+		if (!permitted) {
+			holds.put(currentThread, new Hold(true));
+			return true;
+		}
+		boolean acquired;
+		try {
+			long remainingNanos = time < 0 ? -1 : Math.max(0, unit.toNanos(time) - (System.nanoTime() - startNanos));
+			acquired = this.lockDelegate(remainingNanos, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			breaker.releasePermission();
+			this.unlockLocally();
+			throw e;
+		} catch (Exception e) {
+			breaker.recordFailure(e);
+			this.unlockLocally();
+			throw e;
+		}
+		breaker.recordSuccess();
+		if (!acquired) {
+			this.unlockLocally();
+			return false;
+		}
+		holds.put(currentThread, new Hold(false));
+		return true;
+	}
+
+	@Override
+	public void release() throws Exception {
+		Thread currentThread = Thread.currentThread();
+		Hold hold = holds.get(currentThread);
+		if (hold == null) {
+			// 交由被包装的锁判断（如不绑定线程的 InterProcessSemaphoreMutex）
+			delegate.release();
+			return;
+		}
+		if (--hold.depth == 0) {
+			holds.remove(currentThread);
+		}
+		try {
+			if (!hold.degraded) {
+				delegate.release();
+			}
+		} finally {
+			this.unlockLocally();
+		}
+	}
+
+	@Override
+	public boolean isAcquiredInThisProcess() {
+		return delegate.isAcquiredInThisProcess() || (localLock != null && localLock.isLocked());
+	}
+
+	public InterProcessLock getDelegate() {
+		return delegate;
+	}
+
+	public String getLockPath() {
+		return lockPath;
+	}
+
+	private boolean lockDelegate(long time, TimeUnit unit) throws Exception {
+		if (time < 0) {
+			delegate.acquire();
+			return true;
+		}
+		return delegate.acquire(time, unit);
+	}
+
+	private boolean lockLocally(long time, TimeUnit unit) throws InterruptedException {
+		if (localLock == null) {
+			return true;
+		}
+		if (time < 0) {
+			localLock.lockInterruptibly();
+			return true;
+		}
+		return localLock.tryLock(time, unit);
+	}
+
+	private void unlockLocally() {
+		if (localLock != null) {
+			localLock.unlock();
+		}
+	}
+
+	private static class Hold {
+
+		private final boolean degraded;
+		private int depth = 1;
+
+		private Hold(boolean degraded) {
+			this.degraded = degraded;
+		}
+
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.curator.framework.CuratorFramework;
+
+/**
+ * 多 ZooKeeper 集群的一致性哈希环：按 key 把锁、计数器、栅栏等路由到固定的集群上，增加集群即可水平扩展写吞吐。
+ * <p>
+ * 每个集群按名称（通常是连接串）在环上放置若干虚拟节点，所有进程只要配置相同的集群名称就会得到相同的路由；
+ * 增减一个集群时只有约 1/n 的 key 会迁移。
+ */
+public class CuratorZkClientRing implements Closeable {
+
+	public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+	private final List<String> names;
+	private final List<CuratorFramework> clients;
+	private final List<CuratorFramework> ownedClients;
+	private final long[] hashes;
+	private final int[] owners;
+
+	/**
+	 * 环持有全部客户端，{@link #close()} 时一并关闭
+	 *
+	 * @param ensembles    集群名称到客户端的映射，名称参与哈希，各进程需保持一致
+	 * @param virtualNodes 每个集群的虚拟节点数
+	 */
+	public CuratorZkClientRing(Map<String, CuratorFramework> ensembles, int virtualNodes) {
+		this(ensembles, virtualNodes, ensembles.values());
+	}
+
+	/**
+	 * @param ensembles    集群名称到客户端的映射，名称参与哈希，各进程需保持一致
+	 * @param virtualNodes 每个集群的虚拟节点数
+	 * @param ownedClients 由环创建、{@link #close()} 时需要关闭的客户端；共享的客户端（如默认客户端 Bean）不应包含在内
+	 */
+	public CuratorZkClientRing(Map<String, CuratorFramework> ensembles, int virtualNodes, Collection<CuratorFramework> ownedClients) {
+		if (ensembles.isEmpty()) {
+			throw new IllegalArgumentException("At least one ensemble is required");
+		}
+		this.names = Collections.unmodifiableList(new ArrayList<>(ensembles.keySet()));
+		this.clients = Collections.unmodifiableList(new ArrayList<>(ensembles.values()));
+		this.ownedClients = new ArrayList<>(ownedClients);
+		int size = names.size() == 1 ? 0 : names.size() * virtualNodes;
+		long[][] points = new long[size][];
+		for (int i = 0, p = 0; size > 0 && i < names.size(); i++) {
+			for (int v = 0; v < virtualNodes; v++) {
+				points[p++] = new long[] { hash(names.get(i) + "#" + v), i };
+			}
+		}
+		Arrays.sort(points, (a, b) -> Long.compare(a[0], b[0]));
+		this.hashes = new long[size];
+		this.owners = new int[size];
+		for (int i = 0; i < size; i++) {
+			hashes[i] = points[i][0];
+			owners[i] = (int) points[i][1];
+		}
+	}
+
+	/**
+	 * 单集群环，所有 key 都路由到同一个客户端；客户端由调用方关闭
+	 */
+	public static CuratorZkClientRing of(CuratorFramework client) {
+		return new CuratorZkClientRing(Collections.singletonMap("default", client), 1, Collections.emptyList());
+	}
+
+	/**
+	 * key 所属集群的下标
+	 */
+	public int indexOf(String key) {
+		if (hashes.length == 0) {
+			return 0;
+		}
+		int index = Arrays.binarySearch(hashes, hash(key));
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return owners[index == hashes.length ? 0 : index];
+	}
+
+	/**
+	 * key 所属集群的客户端
+	 */
+	public CuratorFramework route(String key) {
+		return clients.get(this.indexOf(key));
+	}
+
+	public CuratorFramework getClient(int index) {
+		return clients.get(index);
+	}
+
+	public List<CuratorFramework> getClients() {
+		return clients;
+	}
+
+	public List<String> getNames() {
+		return names;
+	}
+
+	public int size() {
+		return clients.size();
+	}
+
+	/**
+	 * 只关闭环自己持有的客户端
+	 */
+	@Override
+	public void close() {
+		ownedClients.forEach(CuratorFramework::close);
+	}
+
+	/**
+	 * 64 位 FNV-1a 加 MurmurHash3 finalizer 打散，分布均匀且跨 JVM 稳定
+	 */
+	private static long hash(String key) {
+		long h = 0xcbf29ce484222325L;
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			h ^= b;
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+
+/**
+ * 合并锁：同一 JVM 内的线程先在本地公平锁上排队，只有队首线程持有 ZooKeeper 锁节点。
+ * <p>
+ * 释放时如果本地还有等待者，且连续移交次数未超过 {@code maxHandoffs}，则不删除锁节点，直接把 ZooKeeper 锁移交给下一个本地线程；
+ * 超过次数后真正释放，保证其他节点的公平性。移交后如果等待者超时或被中断而放弃，由最后放弃的线程释放 ZooKeeper 锁，
+ * 锁节点不会在无人持有时滞留到会话失效。
+ * <p>
+ * 注意：同一把锁的所有参与者都必须使用合并锁模式，其节点结构与 {@link org.apache.curator.framework.recipes.locks.InterProcessMutex} 不兼容。
+ */
+public class CuratorZkCoalescingLock implements InterProcessLock {
+
+	private final AsyncCuratorZkTemplate asyncTemplate;
+	private final String lockPath;
+	private final int maxHandoffs;
+	private final ReentrantLock localLock = new ReentrantLock(true);
+	/** 正在本地排队的线程数，决定是否移交 */
+	private final AtomicInteger waiters = new AtomicInteger();
+	/** 由 localLock 保护 */
+	private AsyncCuratorZkLock zkLock;
+	/** 由 localLock 保护 */
+	private int handoffs;
+
+	public CuratorZkCoalescingLock(AsyncCuratorZkTemplate asyncTemplate, String lockPath, int maxHandoffs) {
+		this.asyncTemplate = asyncTemplate;
+		this.lockPath = lockPath;
+		this.maxHandoffs = maxHandoffs;
+	}
+
+	@Override
+	public void acquire() throws Exception {
+		waiters.incrementAndGet();
+		try {
+			localLock.lockInterruptibly();
+		} catch (InterruptedException e) {
+			waiters.decrementAndGet();
+			this.releaseOrphaned();
+			throw e;
+		}
+		waiters.decrementAndGet();
+		if (localLock.getHoldCount() > 1 || zkLock != null) {
+			// 重入，或者上一个持有者已移交 ZooKeeper 锁
+			return;
+		}
+		try {
+			zkLock = asyncTemplate.acquire(lockPath).toCompletableFuture().get();
+		} catch (Exception e) {
+			localLock.unlock();
+			throw unwrap(e);
+		}
+	}
+
+	@Override
+	public boolean acquire(long time, TimeUnit unit) throws Exception {
+		long deadline = System.nanoTime() + unit.toNanos(time);
+		boolean locked;
+		waiters.incrementAndGet();
+		try {
+			locked = localLock.tryLock(time, unit);
+		} catch (InterruptedException e) {
+			waiters.decrementAndGet();
+			this.releaseOrphaned();
+			throw e;
+		}
+		waiters.decrementAndGet();
+		if (!locked) {
+			this.releaseOrphaned();
+			return false;
+		}
+		if (localLock.getHoldCount() > 1 || zkLock != null) {
+			return true;
+		}
+		try {
+			long remaining = Math.max(0, deadline - System.nanoTime());
+			zkLock = asyncTemplate.acquire(lockPath, remaining, TimeUnit.NANOSECONDS).toCompletableFuture().get();
+			return true;
+		} catch (ExecutionException e) {
+			localLock.unlock();
+			if (e.getCause() instanceof TimeoutException) {
+				return false;
+			}
+			throw unwrap(e);
+		} catch (Exception e) {
+			localLock.unlock();
+			throw e;
+		}
+	}
+
+	@Override
+	public void release() throws Exception {
+		if (!localLock.isHeldByCurrentThread()) {
+			throw new IllegalMonitorStateException("You do not own the lock: " + lockPath);
+		}
+		boolean handedOff = false;
+		try {
+			if (localLock.getHoldCount() > 1) {
+				return;
+			}
+			if (waiters.get() > 0 && handoffs < maxHandoffs) {
+				// 本地移交，不经过 ZooKeeper
+				handoffs++;
+				handedOff = true;
+				return;
+			}
+			handoffs = 0;
+			AsyncCuratorZkLock held = zkLock;
+			zkLock = null;
+			if (held != null) {
+				held.release().toCompletableFuture().get();
+			}
+		} finally {
+			localLock.unlock();
+			if (handedOff && waiters.get() == 0) {
+				// 判断之后等待者已全部放弃
+				this.releaseOrphaned();
+			}
+		}
+	}
+
+	/**
+	 * 本地锁空闲且无人等待时释放移交下来的 ZooKeeper 锁。等待者放弃后与移交方各检查一次：
+	 * 等待者先减少计数再 tryLock，移交方先解锁再读取计数，两者至少有一方能看到锁空闲且无人等待。
+	 */
+	private void releaseOrphaned() {
+		if (!localLock.tryLock()) {
+			// 当前持有者会使用或释放 ZooKeeper 锁
+			return;
+		}
+		try {
+			if (localLock.getHoldCount() == 1 && zkLock != null && waiters.get() == 0) {
+				AsyncCuratorZkLock held = zkLock;
+				zkLock = null;
+				handoffs = 0;
+				held.release().toCompletableFuture().get();
+			}
+		} catch (Exception e) {
+			// 锁节点为临时节点，释放失败时随会话删除
+		} finally {
+			localLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isAcquiredInThisProcess() {
+		return localLock.isLocked();
+	}
+
+	/**
+	 * 本地排队的线程数
+	 *
+	 * @return 等待者数量
+	 */
+	public int getQueueLength() {
+		return localLock.getQueueLength();
+	}
+
+	public String getLockPath() {
+		return lockPath;
+	}
+
+	private static Exception unwrap(Exception e) {
+		if (e instanceof ExecutionException && e.getCause() instanceof Exception) {
+			return (Exception) e.getCause();
+		}
+		return e;
+	}
+
+}
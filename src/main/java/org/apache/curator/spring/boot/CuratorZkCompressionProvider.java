@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.apache.curator.framework.api.CompressionProvider;
+import org.apache.curator.framework.imps.GzipCompressionProvider;
+
+/**
+ * 带阈值的 Deflate 压缩：小于阈值或压缩后没有变小的数据原样保存，只多一个字节的标记。
+ * <p>
+ * 格式为 {@code 0 + 原始数据} 或 {@code 1 + 原始长度(4 字节) + Deflate 数据}；以 GZIP 魔数开头的数据按 Curator 默认的
+ * {@link GzipCompressionProvider} 解压，兼容此前写入的数据。Deflater/Inflater 与输出缓冲区按线程复用。
+ */
+public class CuratorZkCompressionProvider implements CompressionProvider {
+
+	private static final byte RAW = 0;
+	private static final byte DEFLATE = 1;
+	private static final int HEADER = 1 + Integer.BYTES;
+	/**
+	 * 只用于解压，格式自描述，与写入时的阈值、级别无关
+	 */
+	private static final CuratorZkCompressionProvider DECODER = new CuratorZkCompressionProvider(Integer.MAX_VALUE, Deflater.DEFAULT_COMPRESSION);
+
+	private final int threshold;
+	private final ThreadLocal<Deflater> deflaters;
+	private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+	private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[8192]);
+	private final GzipCompressionProvider gzip = new GzipCompressionProvider();
+
+	/**
+	 * @param threshold 不小于该字节数的数据才压缩
+	 * @param level     Deflate 压缩级别 1-9
+	 */
+	public CuratorZkCompressionProvider(int threshold, int level) {
+		this.threshold = threshold;
+		this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level));
+	}
+
+	@Override
+	public byte[] compress(String path, byte[] data) throws Exception {
+		if (data.length >= threshold) {
+			Deflater deflater = deflaters.get();
+			deflater.reset();
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] buffer = this.buffer(data.length);
+			int length = HEADER;
+			// 压缩结果不小于原始数据时放弃压缩
+			while (!deflater.finished() && length < data.length) {
+				length += deflater.deflate(buffer, length, Math.min(buffer.length, data.length) - length);
+			}
+			if (deflater.finished() && length < data.length) {
+				buffer[0] = DEFLATE;
+				ByteBuffer.wrap(buffer, 1, Integer.BYTES).putInt(data.length);
+				return Arrays.copyOf(buffer, length);
+			}
+		}
+		byte[] raw = new byte[data.length + 1];
+		raw[0] = RAW;
+		System.arraycopy(data, 0, raw, 1, data.length);
+		return raw;
+	}
+
+	@Override
+	public byte[] decompress(String path, byte[] compressedData) throws Exception {
+		if (compressedData.length == 0) {
+			return compressedData;
+		}
+		switch (compressedData[0]) {
+		case RAW:
+			return Arrays.copyOfRange(compressedData, 1, compressedData.length);
+		case DEFLATE:
+			return this.inflate(compressedData);
+		default:
+			if (isGzip(compressedData)) {
+				return gzip.decompress(path, compressedData);
+			}
+			throw new DataFormatException("Unknown compression header " + compressedData[0]);
+		}
+	}
+
+	/**
+	 * 只解压带压缩标记（本类格式或 GZIP 魔数）的数据，用于遍历子树、变更订阅等可能读到其它程序写入节点的场景；
+	 * 没有标记或标记后的内容无法解压时原样返回
+	 */
+	public static byte[] decompressIfMarked(String path, byte[] data) throws Exception {
+		if (data == null || data.length == 0 || !isMarked(data)) {
+			return data;
+		}
+		try {
+			return DECODER.decompress(path, data);
+		} catch (DataFormatException | ZipException e) {
+			return data;
+		}
+	}
+
+	private static boolean isMarked(byte[] data) {
+		return data[0] == RAW || (data[0] == DEFLATE && data.length > HEADER) || isGzip(data);
+	}
+
+	private static boolean isGzip(byte[] data) {
+		return data.length > 1 && (data[0] & 0xff) == 0x1f && (data[1] & 0xff) == 0x8b;
+	}
+
+	private byte[] inflate(byte[] compressedData) throws DataFormatException {
+		int length = ByteBuffer.wrap(compressedData, 1, Integer.BYTES).getInt();
+		if (length < 0) {
+			throw new DataFormatException("Invalid uncompressed length " + length);
+		}
+		byte[] data = new byte[length];
+		Inflater inflater = inflaters.get();
+		inflater.reset();
+		inflater.setInput(compressedData, HEADER, compressedData.length - HEADER);
+		int offset = 0;
+		while (offset < length) {
+			int inflated = inflater.inflate(data, offset, length - offset);
+			if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+				throw new DataFormatException("Truncated compressed data");
+			}
+			offset += inflated;
+		}
+		return data;
+	}
+
+	private byte[] buffer(int size) {
+		byte[] buffer = buffers.get();
+		if (buffer.length < size) {
+			buffer = new byte[size];
+			buffers.set(buffer);
+		}
+		return buffer;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+}
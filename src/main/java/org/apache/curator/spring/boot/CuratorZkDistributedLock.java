@@ -16,125 +16,345 @@
 package org.apache.curator.spring.boot;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.utils.ZKPaths;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
-import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
-import org.apache.zookeeper.Watcher.Event.KeeperState;
+import org.apache.zookeeper.Watcher.Event.EventType;
 import org.apache.zookeeper.data.Stat;
 
-public class CuratorZkDistributedLock implements Watcher {
-	
-	private CuratorFramework curatorClient;
-	private String locksRoot = "/locks";
-	private String waitNode;
-	private String lockNode;
-	private CountDownLatch latch;
-	private CountDownLatch connectedLatch = new CountDownLatch(1);
-	private int sessionTimeout = 30000;
+/**
+ * 基于临时有序节点的分布式锁：
+ * <ul>
+ * <li>每次加锁的状态（节点路径、唤醒信号、重入次数）保存在独立的 {@link LockData} 中，实例本身无共享可变字段；</li>
+ * <li>每个等待者只监听紧邻的前一个节点，释放锁时只唤醒一个等待者；</li>
+ * <li>同一线程对同一 lockKey 可重入；</li>
+ * <li>ZooKeeper 请求均以后台方式提交，调用线程只在 j.u.c 同步器上挂起：ZooKeeper 同步 API 在 synchronized 中 wait()，
+ * 会钉住虚拟线程的载体线程，后台提交则没有这个问题，可支撑大量虚拟线程并发等待。</li>
+ * </ul>
+ * 节点结构：{@code /locks/<lockKey>/lock-0000000001}；多集群时按 lockKey 经 {@link CuratorZkClientRing} 路由到所属集群。
+ */
+public class CuratorZkDistributedLock {
+
+	private static final String LOCK_NAME = "lock-";
+
+	private final CuratorZkClientRing ring;
+	private final String locksRoot;
+	private final int sessionTimeout;
+	private final List<CuratorZkLockListener> listeners;
+	private final List<CuratorZkCircuitBreaker> circuitBreakers;
+	private final ConcurrentMap<Thread, Map<String, LockData>> threadData = new ConcurrentHashMap<>();
 
 	public CuratorZkDistributedLock(CuratorFramework curatorClient, int sessionTimeout) {
-		try {
-			this.curatorClient = curatorClient;
-			this.sessionTimeout = sessionTimeout;
-			connectedLatch.await();
-		} catch (InterruptedException e) {
-			throw new CuratorLockException(e);
-		}
+		this(curatorClient, "/locks", sessionTimeout);
 	}
-	
-	@Override
-	public void process(WatchedEvent event) {
-		if (event.getState() == KeeperState.SyncConnected) {
-			connectedLatch.countDown();
-			return;
-		}
 
-		if (this.latch != null) {
-			this.latch.countDown();
-		}
+	public CuratorZkDistributedLock(CuratorFramework curatorClient, String locksRoot, int sessionTimeout) {
+		this(curatorClient, locksRoot, sessionTimeout, Collections.emptyList());
 	}
 
+	public CuratorZkDistributedLock(CuratorFramework curatorClient, String locksRoot, int sessionTimeout,
+			List<CuratorZkLockListener> listeners) {
+		this(CuratorZkClientRing.of(curatorClient), locksRoot, sessionTimeout, listeners);
+	}
+
+	public CuratorZkDistributedLock(CuratorZkClientRing ring, String locksRoot, int sessionTimeout,
+			List<CuratorZkLockListener> listeners) {
+		this(ring, locksRoot, sessionTimeout, listeners, Collections.emptyList());
+	}
+
+	/**
+	 * @param circuitBreakers 与 ring 中客户端一一对应的熔断器，为空表示不启用熔断
+	 */
+	public CuratorZkDistributedLock(CuratorZkClientRing ring, String locksRoot, int sessionTimeout,
+			List<CuratorZkLockListener> listeners, List<CuratorZkCircuitBreaker> circuitBreakers) {
+		this.ring = ring;
+		this.circuitBreakers = circuitBreakers;
+		this.locksRoot = locksRoot;
+		this.sessionTimeout = sessionTimeout;
+		this.listeners = listeners;
+	}
+
+	/**
+	 * 阻塞加锁，直到取得锁为止
+	 *
+	 * @param lockKey 锁标识
+	 */
 	public void acquireLock(String lockKey) {
+		if (!this.tryLock(lockKey, -1, null)) {
+			throw new CuratorLockException("Could not acquire lock : " + lockKey);
+		}
+	}
+
+	/**
+	 * 尝试加锁，不等待
+	 *
+	 * @param lockKey 锁标识
+	 * @return 是否取得锁
+	 */
+	public boolean tryLock(String lockKey) {
+		return this.tryLock(lockKey, 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 在指定时间内尝试加锁
+	 *
+	 * @param lockKey 锁标识
+	 * @param time    最长等待时间，小于 0 表示一直等待
+	 * @param unit    时间单位
+	 * @return 是否取得锁
+	 */
+	public boolean tryLock(String lockKey, long time, TimeUnit unit) {
+		Thread currentThread = Thread.currentThread();
+		Map<String, LockData> holds = threadData.get(currentThread);
+		LockData lockData = holds == null ? null : holds.get(lockKey);
+		if (lockData != null) {
+			// 重入
+			lockData.holdCount++;
+			return true;
+		}
+		long startMillis = System.currentTimeMillis();
+		long startNanos = System.nanoTime();
+		Long waitMillis = time < 0 ? null : unit.toMillis(time);
+		String lockDir = ZKPaths.makePath(locksRoot, lockKey);
+		String lockPath = null;
+		int index = ring.indexOf(lockKey);
+		CuratorFramework curatorClient = ring.getClient(index);
+		CuratorZkCircuitBreaker breaker = circuitBreakers.isEmpty() ? null : circuitBreakers.get(index);
+		for (CuratorZkLockListener listener : listeners) {
+			listener.onWaiting(lockDir);
+		}
+		if (breaker != null && !breaker.tryAcquirePermission()) {
+			// 连接不可用时快速失败，不进入重试循环
+			CuratorLockException ex = new CuratorLockException("ZooKeeper connection unavailable (circuit " + breaker.getState() + "), lock rejected : " + lockKey);
+			this.fireAcquireFailed(lockDir, startNanos, ex);
+			throw ex;
+		}
 		try {
-			if (this.tryLock(lockKey)) {
-				return;
-			} else {
-				waitForLock(waitNode, sessionTimeout);
+			CompletableFuture<String> created = new CompletableFuture<>();
+			curatorClient.create().creatingParentContainersIfNeeded().withProtection().withMode(CreateMode.EPHEMERAL_SEQUENTIAL)
+					.inBackground((client, event) -> complete(created, event, event.getName())).forPath(ZKPaths.makePath(lockDir, LOCK_NAME));
+			lockPath = await(created);
+			boolean locked = this.waitForLock(curatorClient, lockDir, lockPath, startMillis, waitMillis);
+			if (breaker != null) {
+				breaker.recordSuccess();
 			}
-		} catch (KeeperException e) {
-			throw new CuratorLockException(e);
+			if (locked) {
+				if (holds == null) {
+					holds = new HashMap<>(4);
+					threadData.put(currentThread, holds);
+				}
+				LockData acquired = new LockData(curatorClient, lockDir, lockPath);
+				holds.put(lockKey, acquired);
+				for (CuratorZkLockListener listener : listeners) {
+					listener.onAcquired(lockDir, acquired.acquiredNanos - startNanos);
+				}
+				return true;
+			}
+			this.deleteQuietly(curatorClient, lockPath);
+			this.fireAcquireFailed(lockDir, startNanos, null);
+			return false;
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			if (breaker != null) {
+				breaker.releasePermission();
+			}
+			this.deleteQuietly(curatorClient, lockPath);
+			this.fireAcquireFailed(lockDir, startNanos, e);
 			throw new CuratorLockException(e);
 		} catch (Exception e) {
+			if (breaker != null) {
+				breaker.recordFailure(e);
+			}
+			this.deleteQuietly(curatorClient, lockPath);
+			this.fireAcquireFailed(lockDir, startNanos, e);
 			throw new CuratorLockException(e);
 		}
 	}
 
-	public boolean tryLock(String lockKey) throws Exception {
+	/**
+	 * 释放当前线程持有的锁；重入时仅减少计数
+	 *
+	 * @param lockKey 锁标识
+	 */
+	public void unlock(String lockKey) {
+		Thread currentThread = Thread.currentThread();
+		Map<String, LockData> holds = threadData.get(currentThread);
+		LockData lockData = holds == null ? null : holds.get(lockKey);
+		if (lockData == null) {
+			throw new IllegalMonitorStateException("You do not own the lock: " + lockKey);
+		}
+		if (--lockData.holdCount > 0) {
+			return;
+		}
+		holds.remove(lockKey);
+		if (holds.isEmpty()) {
+			threadData.remove(currentThread);
+		}
 		try {
-			// 传入进去的locksRoot + “/” + lockKey
-			// 假设lockKey代表了一个商品id，比如说1
-			// locksRoot = locks
-			// /locks/10000000000，/locks/10000000001，/locks/10000000002
-			// 创建临时有序节点
-			lockNode = curatorClient.create().withMode(CreateMode.EPHEMERAL_SEQUENTIAL).forPath(locksRoot + "/" + lockKey,
-					new byte[0]);
-
-			// 看看刚创建的节点是不是最小的节点
-			// locks：10000000000，10000000001，10000000002
-			List<String> locks = curatorClient.getChildren().forPath(locksRoot);
-			Collections.sort(locks);
-
-			if (lockNode.equals(locksRoot + "/" + locks.get(0))) {
-				// 如果是最小的节点,则表示取得锁
+			delete(lockData.curatorClient, lockData.lockPath);
+		} catch (KeeperException.NoNodeException e) {
+			// 会话过期时节点已被删除
+		} catch (Exception e) {
+			throw new CuratorLockException(e);
+		} finally {
+			long holdNanos = System.nanoTime() - lockData.acquiredNanos;
+			for (CuratorZkLockListener listener : listeners) {
+				listener.onReleased(lockData.lockDir, holdNanos);
+			}
+		}
+	}
+
+	private void fireAcquireFailed(String lockDir, long startNanos, Throwable ex) {
+		long waitNanos = System.nanoTime() - startNanos;
+		for (CuratorZkLockListener listener : listeners) {
+			listener.onAcquireFailed(lockDir, waitNanos, ex);
+		}
+	}
+
+	/**
+	 * 当前线程是否持有锁
+	 *
+	 * @param lockKey 锁标识
+	 * @return 是否持有
+	 */
+	public boolean isHeldByCurrentThread(String lockKey) {
+		Map<String, LockData> holds = threadData.get(Thread.currentThread());
+		return holds != null && holds.containsKey(lockKey);
+	}
+
+	private boolean waitForLock(CuratorFramework curatorClient, String lockDir, String lockPath, long startMillis, Long waitMillis) throws Exception {
+		String lockNode = ZKPaths.getNodeFromPath(lockPath);
+		long sequence = sequenceOf(lockNode);
+		while (true) {
+			CompletableFuture<List<String>> listed = new CompletableFuture<>();
+			curatorClient.getChildren().inBackground((client, event) -> complete(listed, event, event.getChildren())).forPath(lockDir);
+			List<String> children = await(listed);
+			// 线性查找紧邻的前一个节点，无需全量排序
+			String predecessor = null;
+			long predecessorSequence = -1;
+			boolean found = false;
+			for (String child : children) {
+				long childSequence = sequenceOf(child);
+				if (childSequence == sequence) {
+					found = true;
+				} else if (childSequence < sequence && childSequence > predecessorSequence) {
+					predecessorSequence = childSequence;
+					predecessor = child;
+				}
+			}
+			if (!found) {
+				throw new CuratorLockException("Lock node lost (session expired?) : " + lockPath);
+			}
+			if (predecessor == null) {
 				return true;
 			}
-			
-			// 如果不是最小的节点，找到比自己小1的节点
-			int previousLockIndex = -1;
-			for (int i = 0; i < locks.size(); i++) {
-				if (lockNode.equals(locksRoot + "/" + locks.get(i))) {
-					previousLockIndex = i - 1;
-					break;
+			long remaining = 0;
+			if (waitMillis != null) {
+				remaining = waitMillis - (System.currentTimeMillis() - startMillis);
+				if (remaining <= 0) {
+					return false;
 				}
 			}
-			
-			this.waitNode = locks.get(previousLockIndex);
-		} catch (KeeperException e) {
-			throw new CuratorLockException(e);
-		} catch (InterruptedException e) {
-			throw new CuratorLockException(e);
+			final CountDownLatch latch = new CountDownLatch(1);
+			Watcher watcher = event -> {
+				if (event.getType() == EventType.NodeDeleted || event.getType() == EventType.None) {
+					latch.countDown();
+				}
+			};
+			// 只在前一个节点上设置监听，前一个节点已不存在时直接重新检查
+			CompletableFuture<Stat> exists = new CompletableFuture<>();
+			curatorClient.checkExists().usingWatcher(watcher).inBackground((client, event) -> {
+				if (event.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+					exists.complete(null);
+				} else {
+					complete(exists, event, event.getStat());
+				}
+			}).forPath(ZKPaths.makePath(lockDir, predecessor));
+			if (await(exists) == null) {
+				continue;
+			}
+			if (waitMillis == null) {
+				// 会话超时时间内至少醒来一次以检查节点状态
+				latch.await(sessionTimeout, TimeUnit.MILLISECONDS);
+			} else {
+				latch.await(remaining, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	private void deleteQuietly(CuratorFramework curatorClient, String lockPath) {
+		if (lockPath == null) {
+			return;
+		}
+		try {
+			delete(curatorClient, lockPath);
+		} catch (Exception e) {
+			// ignore
 		}
-		return false;
 	}
 
-	private boolean waitForLock(String waitNode, long waitTime) throws Exception {
-		
-		Stat stat = curatorClient.checkExists().forPath(locksRoot + "/" + waitNode);
-		if (stat != null) {
-			this.latch = new CountDownLatch(1);
-			this.latch.await(waitTime, TimeUnit.MILLISECONDS);
-			this.latch = null;
+	private static void delete(CuratorFramework curatorClient, String path) throws Exception {
+		CompletableFuture<Void> deleted = new CompletableFuture<>();
+		curatorClient.delete().guaranteed().inBackground((client, event) -> complete(deleted, event, null)).forPath(path);
+		await(deleted);
+	}
+
+	private static <T> void complete(CompletableFuture<T> future, CuratorEvent event, T value) {
+		KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+		if (code == KeeperException.Code.OK) {
+			future.complete(value);
+		} else {
+			future.completeExceptionally(KeeperException.create(code, event.getPath()));
 		}
-		return true;
 	}
-	
-	public boolean unlock() {
+
+	/**
+	 * 在 CompletableFuture 上挂起等待后台请求完成，还原原始异常
+	 */
+	private static <T> T await(CompletableFuture<T> future) throws Exception {
 		try {
-			// 删除/locks/10000000000节点
-			curatorClient.delete().forPath(lockNode);
-			lockNode = null;
-			return true;
-		} catch (Exception e) {
-			e.printStackTrace();
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof Exception ? (Exception) cause : e;
+		}
+	}
+
+	/**
+	 * 截取节点名末尾的顺序号
+	 */
+	private static long sequenceOf(String node) {
+		int index = node.lastIndexOf(LOCK_NAME);
+		return index < 0 ? Long.MAX_VALUE : Long.parseLong(node.substring(index + LOCK_NAME.length()));
+	}
+
+	private static class LockData {
+
+		private final CuratorFramework curatorClient;
+		private final String lockDir;
+		private final String lockPath;
+		private final long acquiredNanos = System.nanoTime();
+		private int holdCount = 1;
+
+		private LockData(CuratorFramework curatorClient, String lockDir, String lockPath) {
+			this.curatorClient = curatorClient;
+			this.lockDir = lockDir;
+			this.lockPath = lockPath;
 		}
-		return false;
+
 	}
 
-}
\ No newline at end of file
+}
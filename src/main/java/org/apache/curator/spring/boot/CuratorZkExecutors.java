@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 回调线程池工厂。虚拟线程通过反射创建，源码仍保持 Java 8 兼容，JDK 21 以下自动退回固定大小的平台线程池。
+ */
+public final class CuratorZkExecutors {
+
+	/**
+	 * 直接在 Curator 事件线程上回调，不额外创建线程池
+	 */
+	public static final String TYPE_DIRECT = "direct";
+	/**
+	 * 固定大小的平台线程池
+	 */
+	public static final String TYPE_FIXED = "fixed";
+	/**
+	 * 每个任务一个虚拟线程（JDK 21+）
+	 */
+	public static final String TYPE_VIRTUAL = "virtual";
+
+	private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+	private CuratorZkExecutors() {
+	}
+
+	/**
+	 * 当前 JVM 是否支持虚拟线程
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+	}
+
+	/**
+	 * 按配置创建回调线程池
+	 *
+	 * @param properties 线程池配置
+	 * @return 线程池；类型为 direct 时返回 null
+	 */
+	public static ExecutorService newCallbackExecutor(CuratorZkProperties.Executor properties) {
+		String type = properties.getType();
+		if (type == null || TYPE_DIRECT.equalsIgnoreCase(type)) {
+			return null;
+		}
+		if (TYPE_VIRTUAL.equalsIgnoreCase(type) && isVirtualThreadSupported()) {
+			return newVirtualThreadPerTaskExecutor();
+		}
+		if (!TYPE_VIRTUAL.equalsIgnoreCase(type) && !TYPE_FIXED.equalsIgnoreCase(type)) {
+			throw new IllegalArgumentException("Unknown executor type : " + type);
+		}
+		int threads = properties.getThreads() > 0 ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+		return Executors.newFixedThreadPool(threads, daemonThreadFactory(properties.getThreadNamePrefix()));
+	}
+
+	/**
+	 * 每个任务一个虚拟线程的线程池
+	 *
+	 * @throws UnsupportedOperationException JDK 21 以下
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+			throw new UnsupportedOperationException("Virtual threads require JDK 21+");
+		}
+		try {
+			return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static ThreadFactory daemonThreadFactory(String prefix) {
+		AtomicInteger index = new AtomicInteger();
+		return r -> {
+			Thread thread = new Thread(r, prefix + index.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	private static Method findVirtualThreadPerTaskExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			// JDK 19/20 中为预览特性，未开启时调用会失败
+			((ExecutorService) method.invoke(null)).shutdown();
+			return method;
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+
+/**
+ * 在 {@link InterProcessLock} 外层回调 {@link CuratorZkLockListener}；没有监听器时只多一次空列表判断。
+ * 持有时长按线程记录，重入时只统计最外层。InterProcessSemaphoreMutex 允许由其它线程释放，此时结束最早的一次持有记录，
+ * 避免获取线程的记录残留（之后的获取被误判为重入、不再回调监听器，并一直引用该线程）。
+ */
+public class CuratorZkInstrumentedLock implements InterProcessLock {
+
+	private final InterProcessLock delegate;
+	private final String lockPath;
+	private final List<CuratorZkLockListener> listeners;
+	private final ConcurrentMap<Thread, Hold> holds = new ConcurrentHashMap<>();
+
+	public CuratorZkInstrumentedLock(InterProcessLock delegate, String lockPath, List<CuratorZkLockListener> listeners) {
+		this.delegate = delegate;
+		this.lockPath = lockPath;
+		this.listeners = listeners;
+	}
+
+	@Override
+	public void acquire() throws Exception {
+		if (listeners.isEmpty()) {
+			delegate.acquire();
+			return;
+		}
+		long start = this.beforeAcquire();
+		try {
+			delegate.acquire();
+		} catch (Exception e) {
+			this.afterAcquire(start, false, e);
+			throw e;
+		}
+		this.afterAcquire(start, true, null);
+	}
+
+	@Override
+	public boolean acquire(long time, TimeUnit unit) throws Exception {
+		if (listeners.isEmpty()) {
+			return delegate.acquire(time, unit);
+		}
+		long start = this.beforeAcquire();
+		boolean acquired;
+		try {
+			acquired = delegate.acquire(time, unit);
+		} catch (Exception e) {
+			this.afterAcquire(start, false, e);
+			throw e;
+		}
+		this.afterAcquire(start, acquired, null);
+		return acquired;
+	}
+
+	@Override
+	public void release() throws Exception {
+		if (listeners.isEmpty()) {
+			delegate.release();
+			return;
+		}
+		Thread thread = Thread.currentThread();
+		Hold hold = holds.get(thread);
+		delegate.release();
+		if (hold == null) {
+			// 跨线程释放：结束获取线程的记录
+			hold = this.eldestHold();
+			thread = hold == null ? null : hold.thread;
+		}
+		long holdNanos = -1;
+		if (hold != null) {
+			if (--hold.depth > 0) {
+				return;
+			}
+			holds.remove(thread, hold);
+			holdNanos = System.nanoTime() - hold.acquiredNanos;
+		}
+		for (CuratorZkLockListener listener : listeners) {
+			listener.onReleased(lockPath, holdNanos);
+		}
+	}
+
+	@Override
+	public boolean isAcquiredInThisProcess() {
+		return delegate.isAcquiredInThisProcess();
+	}
+
+	public InterProcessLock getDelegate() {
+		return delegate;
+	}
+
+	public String getLockPath() {
+		return lockPath;
+	}
+
+	private Hold eldestHold() {
+		Hold eldest = null;
+		for (Hold hold : holds.values()) {
+			if (eldest == null || hold.acquiredNanos - eldest.acquiredNanos < 0) {
+				eldest = hold;
+			}
+		}
+		return eldest;
+	}
+
+	private long beforeAcquire() {
+		if (!holds.containsKey(Thread.currentThread())) {
+			for (CuratorZkLockListener listener : listeners) {
+				listener.onWaiting(lockPath);
+			}
+		}
+		return System.nanoTime();
+	}
+
+	private void afterAcquire(long start, boolean acquired, Exception ex) {
+		long now = System.nanoTime();
+		Thread thread = Thread.currentThread();
+		Hold hold = holds.get(thread);
+		if (acquired && hold != null) {
+			// 重入
+			hold.depth++;
+			return;
+		}
+		if (acquired) {
+			holds.put(thread, new Hold(thread, now));
+		}
+		for (CuratorZkLockListener listener : listeners) {
+			if (acquired) {
+				listener.onAcquired(lockPath, now - start);
+			} else {
+				listener.onAcquireFailed(lockPath, now - start, ex);
+			}
+		}
+	}
+
+	private static class Hold {
+
+		private final Thread thread;
+		private final long acquiredNanos;
+		private int depth = 1;
+
+		private Hold(Thread thread, long acquiredNanos) {
+			this.thread = thread;
+			this.acquiredNanos = acquiredNanos;
+		}
+
+	}
+
+}
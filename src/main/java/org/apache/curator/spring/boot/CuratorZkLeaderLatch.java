@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.leader.LeaderLatch;
+import org.apache.curator.framework.recipes.leader.LeaderLatchListener;
+import org.apache.curator.framework.recipes.leader.Participant;
+
+/**
+ * 命名的 {@link LeaderLatch}：领导权由 LeaderLatch 回调写入 volatile 字段，{@link #isLeader()} 只是一次内存读取，可在热路径上调用。
+ * <p>
+ * 连接 SUSPENDED/LOST 时 LeaderLatch 会回调失去领导权，重连后重新参与选举。
+ */
+public class CuratorZkLeaderLatch implements Closeable {
+
+	private final String name;
+	private final String path;
+	private final LeaderLatch latch;
+	private final List<CuratorZkLeaderListener> listeners;
+	private volatile boolean leader;
+
+	public CuratorZkLeaderLatch(CuratorFramework curatorClient, String name, String latchPath, String participantId,
+			List<CuratorZkLeaderListener> listeners) {
+		this.name = name;
+		this.path = latchPath;
+		this.listeners = listeners;
+		this.latch = new LeaderLatch(curatorClient, latchPath, participantId, LeaderLatch.CloseMode.NOTIFY_LEADER);
+		this.latch.addListener(new LeaderLatchListener() {
+
+			@Override
+			public void isLeader() {
+				CuratorZkLeaderLatch.this.changed(true);
+			}
+
+			@Override
+			public void notLeader() {
+				CuratorZkLeaderLatch.this.changed(false);
+			}
+
+		});
+	}
+
+	public void start() throws Exception {
+		latch.start();
+	}
+
+	/**
+	 * @return 当前是否为领导者
+	 */
+	public boolean isLeader() {
+		return leader;
+	}
+
+	/**
+	 * 等待成为领导者
+	 *
+	 * @param time 等待时间
+	 * @param unit 时间单位
+	 * @return 是否成为领导者
+	 */
+	public boolean await(long time, TimeUnit unit) throws InterruptedException {
+		return latch.await(time, unit);
+	}
+
+	/**
+	 * 查询当前领导者，需要访问 ZooKeeper
+	 *
+	 * @return 领导者的参与者 ID，尚未选出时为空字符串
+	 */
+	public String getLeaderId() throws Exception {
+		Participant participant = latch.getLeader();
+		return participant.isLeader() ? participant.getId() : "";
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getParticipantId() {
+		return latch.getId();
+	}
+
+	public LeaderLatch getLatch() {
+		return latch;
+	}
+
+	private void changed(boolean leader) {
+		if (this.leader == leader) {
+			return;
+		}
+		this.leader = leader;
+		for (CuratorZkLeaderListener listener : listeners) {
+			listener.leadershipChanged(this, leader);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (latch.getState() == LeaderLatch.State.STARTED) {
+			latch.close();
+		}
+	}
+
+}
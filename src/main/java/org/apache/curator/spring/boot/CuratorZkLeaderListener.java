@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+/**
+ * {@link CuratorZkLeaderLatch} 的领导权变更回调，在 Curator 事件线程上调用，实现不能阻塞。
+ */
+@FunctionalInterface
+public interface CuratorZkLeaderListener {
+
+	/**
+	 * 领导权变更
+	 *
+	 * @param latch  发生变更的选举
+	 * @param leader 当前是否为领导者
+	 */
+	void leadershipChanged(CuratorZkLeaderLatch latch, boolean leader);
+
+}
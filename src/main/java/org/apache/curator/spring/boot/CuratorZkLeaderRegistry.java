@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.curator.utils.CloseableUtils;
+import org.apache.curator.utils.ZKPaths;
+import org.springframework.util.StringUtils;
+
+/**
+ * 按名称管理 {@link CuratorZkLeaderLatch}，同名选举在进程内只参与一次，首次获取时开始参与选举。
+ * 选举节点为 {@code <root>/<name>}，按路径经 {@link CuratorZkClientRing} 路由到所属集群。
+ */
+public class CuratorZkLeaderRegistry implements Closeable {
+
+	private final CuratorZkClientRing clientRing;
+	private final String root;
+	private final String participantId;
+	private final List<CuratorZkLeaderListener> listeners;
+	private final ConcurrentMap<String, CuratorZkLeaderLatch> latches = new ConcurrentHashMap<>();
+
+	/**
+	 * @param clientRing    客户端
+	 * @param root          选举根路径
+	 * @param participantId 参与者 ID，为空时使用 pid@hostname
+	 * @param listeners     领导权变更回调
+	 */
+	public CuratorZkLeaderRegistry(CuratorZkClientRing clientRing, String root, String participantId, List<CuratorZkLeaderListener> listeners) {
+		this.clientRing = clientRing;
+		this.root = root;
+		this.participantId = StringUtils.hasText(participantId) ? participantId : ManagementFactory.getRuntimeMXBean().getName();
+		this.listeners = listeners;
+	}
+
+	/**
+	 * 获取命名选举，首次获取时开始参与选举
+	 *
+	 * @param name 选举名称
+	 * @return 选举
+	 */
+	public CuratorZkLeaderLatch getLatch(String name) {
+		CuratorZkLeaderLatch latch = latches.get(name);
+		if (latch != null) {
+			return latch;
+		}
+		return latches.computeIfAbsent(name, key -> {
+			String path = ZKPaths.makePath(root, key);
+			CuratorZkLeaderLatch created = new CuratorZkLeaderLatch(clientRing.route(path), key, path, participantId, listeners);
+			try {
+				created.start();
+			} catch (Exception e) {
+				throw new CuratorLockException(e);
+			}
+			return created;
+		});
+	}
+
+	/**
+	 * @param name 选举名称
+	 * @return 本进程是否为该选举的领导者，尚未参与的选举返回 false
+	 */
+	public boolean isLeader(String name) {
+		CuratorZkLeaderLatch latch = latches.get(name);
+		return latch != null && latch.isLeader();
+	}
+
+	/**
+	 * 退出选举，持有的领导权随之交出
+	 *
+	 * @param name 选举名称
+	 */
+	public void leave(String name) {
+		CuratorZkLeaderLatch latch = latches.remove(name);
+		if (latch != null) {
+			CloseableUtils.closeQuietly(latch);
+		}
+	}
+
+	public Collection<CuratorZkLeaderLatch> getLatches() {
+		return Collections.unmodifiableCollection(latches.values());
+	}
+
+	public String getParticipantId() {
+		return participantId;
+	}
+
+	@Override
+	public void close() {
+		for (String name : latches.keySet()) {
+			this.leave(name);
+		}
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 本进程在某个命名选举中取得或失去领导权时发布的 Spring 事件
+ */
+@SuppressWarnings("serial")
+public class CuratorZkLeadershipEvent extends ApplicationEvent {
+
+	private final boolean leader;
+
+	public CuratorZkLeadershipEvent(CuratorZkLeaderLatch latch, boolean leader) {
+		super(latch);
+		this.leader = leader;
+	}
+
+	public CuratorZkLeaderLatch getLatch() {
+		return (CuratorZkLeaderLatch) getSource();
+	}
+
+	public String getName() {
+		return getLatch().getName();
+	}
+
+	/**
+	 * @return 变更后是否为领导者
+	 */
+	public boolean isLeader() {
+		return leader;
+	}
+
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * 租约锁：进程取得 ZooKeeper 锁后，本地释放时并不立即删除锁节点，而是保留租约 {@code leaseMs}，
+ * 租约期内本进程再次加锁只需获取本地锁，不访问 ZooKeeper。
+ * <ul>
+ * <li>租约在空闲超过 {@code leaseMs}、其他进程请求撤销或连接中断（SUSPENDED/LOST）时释放，
+ * 此后的加锁重新向 ZooKeeper 申请租约；</li>
+ * <li>其他进程等待时在 {@code <lockPath>/revoke} 下登记撤销请求，持有者监听该目录，在本地空闲后立即交出锁；</li>
+ * <li>每次取得 ZooKeeper 锁都会更新 {@code <lockPath>/fence} 节点，以其 mzxid 作为单调递增的 fencing token，
+ * 下游存储可据此拒绝过期持有者的写入。同一租约内的本地重入共享同一个 token。</li>
+ * </ul>
+ * ZooKeeper 层使用 {@link InterProcessSemaphoreMutex}，不绑定线程，租约可由后台线程释放。
+ * 指定熔断器时，需要向 ZooKeeper 申请租约的加锁在熔断打开时快速失败；租约期内的本地加锁不受影响。
+ */
+public class CuratorZkLeaseLock implements InterProcessLock, Closeable {
+
+	private final CuratorFramework curatorClient;
+	private final String lockPath;
+	private final String revokePath;
+	private final String fencePath;
+	private final long leaseMs;
+	private final ScheduledExecutorService scheduler;
+	private final List<CuratorZkLockListener> listeners;
+	private final InterProcessSemaphoreMutex zkLock;
+	private final CuratorZkCircuitBreaker breaker;
+	private final ReentrantLock localLock = new ReentrantLock(true);
+	private final ConnectionStateListener connectionListener = this::onConnectionStateChanged;
+	private final LongAdder localAcquires = new LongAdder();
+	private final LongAdder leaseAcquires = new LongAdder();
+	// 以下状态只在持有 localLock 时修改
+	private volatile boolean leaseHeld;
+	private volatile boolean revokeRequested;
+	private volatile int generation;
+	private volatile long fencingToken = -1;
+	private volatile long lastReleaseMillis;
+	private volatile boolean closed;
+	private boolean expiryScheduled;
+	private long holdStartNanos;
+
+	public CuratorZkLeaseLock(CuratorFramework curatorClient, String lockPath, long leaseMs,
+			ScheduledExecutorService scheduler, List<CuratorZkLockListener> listeners) {
+		this(curatorClient, lockPath, leaseMs, scheduler, listeners, null);
+	}
+
+	/**
+	 * @param breaker 所属集群的熔断器，为 null 时不熔断
+	 */
+	public CuratorZkLeaseLock(CuratorFramework curatorClient, String lockPath, long leaseMs,
+			ScheduledExecutorService scheduler, List<CuratorZkLockListener> listeners, CuratorZkCircuitBreaker breaker) {
+		this.breaker = breaker;
+		this.curatorClient = curatorClient;
+		this.lockPath = lockPath;
+		this.revokePath = ZKPaths.makePath(lockPath, "revoke");
+		this.fencePath = ZKPaths.makePath(lockPath, "fence");
+		this.leaseMs = leaseMs;
+		this.scheduler = scheduler;
+		this.listeners = listeners;
+		this.zkLock = new InterProcessSemaphoreMutex(curatorClient, lockPath);
+	}
+
+	@Override
+	public void acquire() throws Exception {
+		this.acquire(-1, null);
+	}
+
+	@Override
+	public boolean acquire(long time, TimeUnit unit) throws Exception {
+		if (localLock.isHeldByCurrentThread()) {
+			// 重入
+			localLock.lock();
+			return true;
+		}
+		long startNanos = System.nanoTime();
+		for (CuratorZkLockListener listener : listeners) {
+			listener.onWaiting(lockPath);
+		}
+		try {
+			if (time < 0) {
+				localLock.lockInterruptibly();
+			} else if (!localLock.tryLock(time, unit)) {
+				this.fireAcquireFailed(startNanos, null);
+				return false;
+			}
+			if (leaseHeld && (revokeRequested || !curatorClient.getZookeeperClient().isConnected())) {
+				// 租约已被撤销或连接已中断，不能再在本地授予，释放后重新申请
+				this.releaseLease();
+			}
+			if (leaseHeld) {
+				localAcquires.increment();
+			} else {
+				long remainingNanos = time < 0 ? -1 : Math.max(0, unit.toNanos(time) - (System.nanoTime() - startNanos));
+				if (!this.acquireLease(remainingNanos)) {
+					localLock.unlock();
+					this.fireAcquireFailed(startNanos, null);
+					return false;
+				}
+			}
+		} catch (Exception e) {
+			if (localLock.isHeldByCurrentThread()) {
+				localLock.unlock();
+			}
+			this.fireAcquireFailed(startNanos, e);
+			throw e;
+		}
+		holdStartNanos = System.nanoTime();
+		for (CuratorZkLockListener listener : listeners) {
+			listener.onAcquired(lockPath, holdStartNanos - startNanos);
+		}
+		return true;
+	}
+
+	@Override
+	public void release() throws Exception {
+		if (!localLock.isHeldByCurrentThread()) {
+			throw new IllegalMonitorStateException("You do not own the lock: " + lockPath);
+		}
+		if (localLock.getHoldCount() > 1) {
+			localLock.unlock();
+			return;
+		}
+		long holdNanos = System.nanoTime() - holdStartNanos;
+		try {
+			if (leaseMs <= 0 || revokeRequested || closed) {
+				this.releaseLease();
+			} else {
+				lastReleaseMillis = System.currentTimeMillis();
+				if (!expiryScheduled) {
+					expiryScheduled = true;
+					scheduler.schedule(this::expire, leaseMs, TimeUnit.MILLISECONDS);
+				}
+			}
+		} finally {
+			localLock.unlock();
+			for (CuratorZkLockListener listener : listeners) {
+				listener.onReleased(lockPath, holdNanos);
+			}
+		}
+	}
+
+	/**
+	 * 当前租约的 fencing token，随锁一起传给下游存储
+	 *
+	 * @return 单调递增的 token
+	 */
+	public long getFencingToken() {
+		if (!localLock.isHeldByCurrentThread()) {
+			throw new IllegalMonitorStateException("You do not own the lock: " + lockPath);
+		}
+		return fencingToken;
+	}
+
+	@Override
+	public boolean isAcquiredInThisProcess() {
+		return localLock.isLocked();
+	}
+
+	/**
+	 * 本进程是否仍持有 ZooKeeper 上的租约（可能处于空闲状态）
+	 */
+	public boolean isLeaseHeld() {
+		return leaseHeld;
+	}
+
+	/**
+	 * 在租约期内、未访问 ZooKeeper 完成的加锁次数
+	 */
+	public long getLocalAcquireCount() {
+		return localAcquires.sum();
+	}
+
+	/**
+	 * 需要向 ZooKeeper 申请租约的加锁次数
+	 */
+	public long getLeaseAcquireCount() {
+		return leaseAcquires.sum();
+	}
+
+	public String getLockPath() {
+		return lockPath;
+	}
+
+	private boolean acquireLease(long remainingNanos) throws Exception {
+		if (breaker == null) {
+			return this.doAcquireLease(remainingNanos);
+		}
+		if (!breaker.tryAcquirePermission()) {
+			throw new CuratorLockException("ZooKeeper connection unavailable (circuit " + breaker.getState() + "), lock rejected : " + lockPath);
+		}
+		boolean acquired;
+		try {
+			acquired = this.doAcquireLease(remainingNanos);
+		} catch (InterruptedException e) {
+			breaker.releasePermission();
+			throw e;
+		} catch (Exception e) {
+			breaker.recordFailure(e);
+			throw e;
+		}
+		breaker.recordSuccess();
+		return acquired;
+	}
+
+	private boolean doAcquireLease(long remainingNanos) throws Exception {
+		// 登记撤销请求，促使当前持有者在空闲时交出租约
+		String request = curatorClient.create().creatingParentContainersIfNeeded()
+				.withMode(CreateMode.EPHEMERAL_SEQUENTIAL).forPath(ZKPaths.makePath(revokePath, "request-"));
+		try {
+			if (remainingNanos < 0) {
+				zkLock.acquire();
+			} else if (!zkLock.acquire(remainingNanos, TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		} finally {
+			this.deleteQuietly(request);
+		}
+		try {
+			fencingToken = this.nextFencingToken();
+		} catch (Exception e) {
+			zkLock.release();
+			throw e;
+		}
+		leaseAcquires.increment();
+		leaseHeld = true;
+		revokeRequested = false;
+		int current = ++generation;
+		curatorClient.getConnectionStateListenable().addListener(connectionListener);
+		this.watchRevokeRequests(current);
+		return true;
+	}
+
+	/**
+	 * 交还空闲的租约；正被持有时由持有者释放锁时交还，此后不再保留租约
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		if (!localLock.tryLock()) {
+			return;
+		}
+		try {
+			if (leaseHeld) {
+				this.releaseLease();
+			}
+		} finally {
+			localLock.unlock();
+		}
+	}
+
+	private long nextFencingToken() throws Exception {
+		Stat stat;
+		try {
+			stat = curatorClient.setData().forPath(fencePath);
+		} catch (KeeperException.NoNodeException e) {
+			try {
+				curatorClient.create().creatingParentsIfNeeded().forPath(fencePath);
+			} catch (KeeperException.NodeExistsException ignore) {
+				// 并发创建
+			}
+			stat = curatorClient.setData().forPath(fencePath);
+		}
+		// zxid 全局单调递增，即使 fence 节点被删除重建也不会回退
+		return stat.getMzxid();
+	}
+
+	private void watchRevokeRequests(int expected) throws Exception {
+		Watcher watcher = event -> {
+			if (!closed) {
+				scheduler.execute(() -> this.onRevokeEvent(expected));
+			}
+		};
+		if (!curatorClient.getChildren().usingWatcher(watcher).forPath(revokePath).isEmpty()) {
+			revokeRequested = true;
+		}
+	}
+
+	private void onRevokeEvent(int expected) {
+		if (!leaseHeld || generation != expected) {
+			return;
+		}
+		try {
+			this.watchRevokeRequests(expected);
+		} catch (Exception e) {
+			// 无法确认时保守地交出租约
+			revokeRequested = true;
+		}
+		if (revokeRequested) {
+			this.revokeIfIdle(expected);
+		}
+	}
+
+	private void onConnectionStateChanged(CuratorFramework client, ConnectionState newState) {
+		if (!closed && (newState == ConnectionState.SUSPENDED || newState == ConnectionState.LOST)) {
+			// 连接中断时无法确认锁节点仍在（会话可能已失效），停止在本地授予租约
+			revokeRequested = true;
+			int expected = generation;
+			scheduler.execute(() -> this.revokeIfIdle(expected));
+		}
+	}
+
+	private void revokeIfIdle(int expected) {
+		if (!localLock.tryLock()) {
+			// 持有者释放时会看到 revokeRequested；这里补一次检查，避免与释放交错时错过
+			scheduler.schedule(this::expire, 1, TimeUnit.MILLISECONDS);
+			return;
+		}
+		try {
+			if (leaseHeld && generation == expected) {
+				this.releaseLease();
+			}
+		} finally {
+			localLock.unlock();
+		}
+	}
+
+	private void expire() {
+		if (!localLock.tryLock()) {
+			scheduler.schedule(this::expire, Math.max(leaseMs, 1), TimeUnit.MILLISECONDS);
+			return;
+		}
+		try {
+			expiryScheduled = false;
+			if (!leaseHeld) {
+				return;
+			}
+			long idle = System.currentTimeMillis() - lastReleaseMillis;
+			if (revokeRequested || idle >= leaseMs) {
+				this.releaseLease();
+			} else {
+				expiryScheduled = true;
+				scheduler.schedule(this::expire, leaseMs - idle, TimeUnit.MILLISECONDS);
+			}
+		} finally {
+			localLock.unlock();
+		}
+	}
+
+	private void releaseLease() {
+		leaseHeld = false;
+		revokeRequested = false;
+		generation++;
+		curatorClient.getConnectionStateListenable().removeListener(connectionListener);
+		try {
+			zkLock.release();
+		} catch (Exception e) {
+			// 会话失效时锁节点已被删除
+		}
+	}
+
+	private void fireAcquireFailed(long startNanos, Throwable ex) {
+		long waitNanos = System.nanoTime() - startNanos;
+		for (CuratorZkLockListener listener : listeners) {
+			listener.onAcquireFailed(lockPath, waitNanos, ex);
+		}
+	}
+
+	private void deleteQuietly(String path) {
+		try {
+			curatorClient.delete().guaranteed().forPath(path);
+		} catch (Exception e) {
+			// ignore
+		}
+	}
+
+}
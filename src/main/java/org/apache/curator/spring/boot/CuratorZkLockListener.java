@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+/**
+ * {@link CuratorZkTemplate} 所提供锁的生命周期回调，在加锁/释放的线程上同步调用，实现必须足够轻量且不能抛出异常。
+ */
+public interface CuratorZkLockListener {
+
+	/**
+	 * 开始等待锁
+	 *
+	 * @param lockPath 锁路径
+	 */
+	default void onWaiting(String lockPath) {
+	}
+
+	/**
+	 * 取得锁
+	 *
+	 * @param lockPath  锁路径
+	 * @param waitNanos 等待时长（纳秒）
+	 */
+	default void onAcquired(String lockPath, long waitNanos) {
+	}
+
+	/**
+	 * 加锁超时或失败
+	 *
+	 * @param lockPath  锁路径
+	 * @param waitNanos 等待时长（纳秒）
+	 * @param ex        失败原因，超时时为 null
+	 */
+	default void onAcquireFailed(String lockPath, long waitNanos, Throwable ex) {
+	}
+
+	/**
+	 * 释放锁
+	 *
+	 * @param lockPath  锁路径
+	 * @param holdNanos 持有时长（纳秒），无法确定时为 -1
+	 */
+	default void onReleased(String lockPath, long holdNanos) {
+	}
+
+}
@@ -15,7 +15,10 @@
  */
 package org.apache.curator.spring.boot;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.curator.CuratorZookeeperClient;
 import org.apache.zookeeper.Watcher;
@@ -103,6 +106,116 @@ public class CuratorZkProperties {
 	 */
 	private int maxSleepMs = DEFAULT_MAX_SLEEP_MS;
 	
+	/**
+	 * 合并锁配置
+	 */
+	private Coalescing coalescing = new Coalescing();
+	
+	/**
+	 * recipe 实例缓存配置
+	 */
+	private RecipeCache recipeCache = new RecipeCache();
+	
+	/**
+	 * 分片计数器与号段序列配置
+	 */
+	private Counter counter = new Counter();
+	
+	/**
+	 * 分片信号量配置
+	 */
+	private Semaphore semaphore = new Semaphore();
+	
+	/**
+	 * 限流器配置
+	 */
+	private RateLimiter rateLimiter = new RateLimiter();
+	
+	/**
+	 * 领导者选举配置
+	 */
+	private Leader leader = new Leader();
+	
+	/**
+	 * 服务发现配置
+	 */
+	private Discovery discovery = new Discovery();
+	
+	/**
+	 * 分布式队列配置
+	 */
+	private Queue queue = new Queue();
+	
+	/**
+	 * 节点数据序列化与压缩配置
+	 */
+	private Payload payload = new Payload();
+	
+	/**
+	 * 本地节点缓存配置
+	 */
+	private NodeCache nodeCache = new NodeCache();
+	
+	/**
+	 * Micrometer 指标配置
+	 */
+	private Metrics metrics = new Metrics();
+	
+	/**
+	 * 多集群分片配置
+	 */
+	private Sharding sharding = new Sharding();
+	
+	/**
+	 * 批量写配置
+	 */
+	private WriteBatch writeBatch = new WriteBatch();
+	
+	/**
+	 * 租约锁配置
+	 */
+	private LeaseLock leaseLock = new LeaseLock();
+	
+	/**
+	 * 异步回调线程池配置
+	 */
+	private Executor executor = new Executor();
+	
+	/**
+	 * 加锁熔断配置
+	 */
+	private CircuitBreaker circuitBreaker = new CircuitBreaker();
+	
+	/**
+	 * 组合树栅栏配置
+	 */
+	private Barrier barrier = new Barrier();
+	
+	/**
+	 * 子树批量读写配置
+	 */
+	private Bulk bulk = new Bulk();
+	
+	/**
+	 * 子树变更流配置
+	 */
+	private ChangeFeed changeFeed = new ChangeFeed();
+	
+	/**
+	 * 锁争用统计配置
+	 */
+	private LockProfiler lockProfiler = new LockProfiler();
+	
+	/**
+	 * 启动配置
+	 */
+	private Startup startup = new Startup();
+	
+	/**
+	 * 健康检查配置
+	 */
+	private Health health = new Health();
+	
 	@Data
 	public class CuratorAuthInfo {
 		
@@ -110,5 +223,391 @@ public class CuratorZkProperties {
 		private String    auth;
 		
 	}
+	
+	@Data
+	public static class Coalescing {
+		
+		/**
+		 * 本地线程之间连续移交 ZooKeeper 锁的最大次数，超过后必须真正释放锁以保证跨节点公平，默认 16；0 表示不移交
+		 */
+		private int maxHandoffs = 16;
+		
+	}
+	
+	@Data
+	public static class RecipeCache {
+		
+		/**
+		 * 是否按路径复用锁、计数器等 recipe 实例，默认 true
+		 */
+		private boolean enabled = true;
+		/**
+		 * 最多缓存的实例数（每种 recipe 分别计算），默认 10000
+		 */
+		private int maximumSize = 10000;
+		/**
+		 * 实例空闲多久后淘汰（单位：毫秒），默认 600000；0 表示不按空闲时间淘汰
+		 */
+		private long expireAfterAccessMs = 600000;
+		/**
+		 * 最近多久内被访问过的实例即使超出容量也不淘汰（单位：毫秒），默认 1000，覆盖取得实例到加锁之间的窗口
+		 */
+		private long minIdleMs = 1000;
+		
+	}
+	
+	@Data
+	public static class Counter {
+		
+		/**
+		 * 分片计数器的分片节点数，默认 8
+		 */
+		private int stripes = 8;
+		/**
+		 * 分片计数器本地增量的刷新间隔（单位：毫秒），默认 1000
+		 */
+		private long flushIntervalMs = 1000;
+		/**
+		 * 号段序列每次租用的号段大小，默认 1000
+		 */
+		private long sequenceBlockSize = 1000;
+		
+	}
+	
+	@Data
+	public static class Semaphore {
+		
+		/**
+		 * 分片信号量的分片数，默认 8，不超过许可总数
+		 */
+		private int shards = 8;
+		/**
+		 * 每次从 ZooKeeper 预取的租约数，默认 16；1 表示不预取
+		 */
+		private int prefetch = 16;
+		/**
+		 * 本地预取的租约空闲多久后交还 ZooKeeper（单位：毫秒），默认 1000
+		 */
+		private long idleReturnMs = 1000;
+		
+	}
+	
+	@Data
+	public static class RateLimiter {
+		
+		/**
+		 * 本地预留令牌的有效期（单位：毫秒），默认 100；越大访问 ZooKeeper 越少，令牌在实例之间的分配越不均匀
+		 */
+		private long windowMs = 100;
+		
+	}
+	
+	@Data
+	public static class Leader {
+		
+		/**
+		 * 命名选举的根路径，默认 /leader
+		 */
+		private String root = "/leader";
+		/**
+		 * 参与者 ID，默认 pid@hostname
+		 */
+		private String participantId;
+		/**
+		 * 启动时即参与的选举名称，未列出的选举在首次使用时才参与
+		 */
+		private List<String> latches = new ArrayList<>();
+		
+	}
+	
+	@Data
+	public static class Discovery {
+		
+		/**
+		 * 存在 curator-x-discovery 时是否启用服务发现，默认 true
+		 */
+		private boolean enabled = true;
+		/**
+		 * 服务注册根路径，默认 /services
+		 */
+		private String basePath = "/services";
+		/**
+		 * 是否注册当前应用，默认 true
+		 */
+		private boolean register = true;
+		/**
+		 * 注册的服务名，默认 spring.application.name
+		 */
+		private String serviceName;
+		/**
+		 * 注册的地址，默认本机第一个非回环地址
+		 */
+		private String address;
+		/**
+		 * 注册的端口，默认 server.port
+		 */
+		private Integer port;
+		/**
+		 * 实例权重，默认 1
+		 */
+		private int weight = 1;
+		/**
+		 * 实例元数据
+		 */
+		private Map<String, String> metadata = new LinkedHashMap<>();
+		/**
+		 * 默认负载均衡策略：round-robin（默认）、least-inflight、weighted-random
+		 */
+		private String strategy = "round-robin";
+		/**
+		 * 按服务名指定负载均衡策略
+		 */
+		private Map<String, String> strategies = new LinkedHashMap<>();
+		
+	}
+	
+	@Data
+	public static class Queue {
+		
+		/**
+		 * 每个队列节点最多保存的元素数，默认 100
+		 */
+		private int maxBatchSize = 100;
+		/**
+		 * 每个消费者本地缓冲的批次数，默认 4
+		 */
+		private int prefetch = 4;
+		/**
+		 * 是否在批次 ack 之后才删除节点（至少一次），默认 true；false 时取出即删除（至多一次）
+		 */
+		private boolean lockSafe = true;
+		
+	}
+	
+	@Data
+	public static class Payload {
+		
+		/**
+		 * 模板 get/put 使用的序列化方式：json（默认）、smile（二进制 JSON，需 jackson-dataformat-smile）、jdk
+		 */
+		private String serializer = ZkSerializers.TYPE_JSON;
+		/**
+		 * 是否为客户端配置带阈值的 Deflate 压缩，并由模板 get/put 压缩节点数据，默认 false
+		 */
+		private boolean compression = false;
+		/**
+		 * 不小于该字节数的数据才压缩，默认 1024
+		 */
+		private int compressionThreshold = 1024;
+		/**
+		 * Deflate 压缩级别 1-9，默认 1（最快）
+		 */
+		private int compressionLevel = 1;
+		
+	}
+	
+	@Data
+	public static class NodeCache {
+		
+		/**
+		 * 是否启用 {@link org.apache.curator.spring.boot.ZkNodeCache}，默认 false
+		 */
+		private boolean enabled = false;
+		/**
+		 * 需要缓存的子树根路径
+		 */
+		private List<String> paths = new ArrayList<>();
+		/**
+		 * 最多缓存的节点数据条数，默认 10000
+		 */
+		private int maximumSize = 10000;
+		/**
+		 * 节点数据空闲多久后淘汰（单位：毫秒），默认 0 表示不按空闲时间淘汰
+		 */
+		private long expireAfterAccessMs = 0;
+		
+	}
+	
+	@Data
+	public static class Metrics {
+		
+		/**
+		 * 存在 MeterRegistry 时是否输出 Curator 指标，默认 true
+		 */
+		private boolean enabled = true;
+		/**
+		 * 锁指标按锁路径的前几级打标签，默认 1（如 /order/42 记为 /order）
+		 */
+		private int lockPathDepth = 1;
+		
+	}
+
+	@Data
+	public static class Sharding {
+		
+		/**
+		 * 参与分片的各集群连接串，为空时只使用 connectString 对应的单个集群；
+		 * 连接串同时作为哈希环上的集群名称，各进程需配置相同的列表
+		 */
+		private List<String> ensembles = new ArrayList<>();
+		/**
+		 * 每个集群在哈希环上的虚拟节点数，默认 160
+		 */
+		private int virtualNodes = CuratorZkClientRing.DEFAULT_VIRTUAL_NODES;
+		
+	}
+
+	@Data
+	public static class WriteBatch {
+		
+		/**
+		 * 每个事务最多包含的操作数，默认 100
+		 */
+		private int maxOps = 100;
+		/**
+		 * 每个事务的估算字节上限，默认 0 表示取 jute.maxbuffer 的 90%
+		 */
+		private int maxBytes = 0;
+		/**
+		 * 操作入队后最多等待多久提交（单位：毫秒），默认 5
+		 */
+		private long lingerMs = 5;
+		
+	}
+
+	@Data
+	public static class LeaseLock {
+		
+		/**
+		 * 本地释放后保留 ZooKeeper 租约的时长（单位：毫秒），默认 30000，0 表示释放即交出
+		 */
+		private long leaseMs = 30000;
+		
+	}
+
+	@Data
+	public static class Executor {
+		
+		/**
+		 * 异步模板完成回调的线程池类型：direct（Curator 事件线程，默认）、fixed（平台线程池）、
+		 * virtual（每个任务一个虚拟线程，JDK 21 以下退回 fixed）
+		 */
+		private String type = CuratorZkExecutors.TYPE_DIRECT;
+		/**
+		 * fixed 线程池的线程数，默认 0 表示 CPU 核数
+		 */
+		private int threads = 0;
+		/**
+		 * 平台线程名前缀
+		 */
+		private String threadNamePrefix = "curator-callback-";
+		
+	}
+
+	@Data
+	public static class CircuitBreaker {
+		
+		public static final String FALLBACK_FAIL_FAST = "fail-fast";
+		public static final String FALLBACK_LOCAL = "local";
+		public static final long DEFAULT_WAIT_DURATION_MS = 5000;
+		
+		/**
+		 * 连接 SUSPENDED/LOST 时是否熔断加锁请求，默认 true
+		 */
+		private boolean enabled = true;
+		/**
+		 * 熔断时的处理方式：fail-fast（抛出 CuratorLockException，默认）或 local（降级为仅本 JVM 内互斥的本地锁）
+		 */
+		private String fallback = FALLBACK_FAIL_FAST;
+		/**
+		 * 重连后半开状态下放行的探测请求数，默认 1
+		 */
+		private int halfOpenMaxCalls = 1;
+		/**
+		 * 打开超过该时长（毫秒）且客户端已连接时转为半开，默认 5000；小于 0 时只由重连事件转为半开
+		 */
+		private long waitDurationMs = DEFAULT_WAIT_DURATION_MS;
+		
+	}
+
+	@Data
+	public static class Barrier {
+		
+		/**
+		 * 组合树栅栏每组的成员数，默认 32
+		 */
+		private int fanout = 32;
+		
+	}
+
+	@Data
+	public static class Bulk {
+		
+		/**
+		 * 遍历、导入子树时同时在途的请求数，默认 64
+		 */
+		private int maxInFlight = 64;
+		
+	}
+
+	@Data
+	public static class ChangeFeed {
+		
+		/**
+		 * 每个订阅最多缓冲的未下发事件数，默认 1024
+		 */
+		private int bufferSize = 1024;
+		/**
+		 * 缓冲溢出策略：drop-oldest（默认）、drop-latest、error
+		 */
+		private CuratorZkChangeFeed.Overflow overflow = CuratorZkChangeFeed.Overflow.DROP_OLDEST;
+		/**
+		 * 是否合并同一路径的未下发事件，默认 true
+		 */
+		private boolean coalesce = true;
+		
+	}
+
+	@Data
+	public static class LockProfiler {
+		
+		/**
+		 * 是否统计锁争用：每次加锁/释放都会回调统计，默认 false
+		 */
+		private boolean enabled = false;
+		/**
+		 * 保留的热点 key 数，默认 20
+		 */
+		private int topK = 20;
+		/**
+		 * 是否记录 JFR 事件（需同时开启 enabled），默认 false
+		 */
+		private boolean jfr = false;
+		
+	}
+
+	@Data
+	public static class Startup {
+		
+		/**
+		 * 是否异步启动：服务注册、节点缓存、选举等依赖连接的初始化在首次连接成功后于后台执行，默认 false
+		 */
+		private boolean async = false;
+		/**
+		 * 启动时最长等待首次连接的时间（单位：毫秒），超时后继续启动；默认 0 表示不等待
+		 */
+		private long blockUntilConnectedMs = 0;
+		
+	}
+
+	@Data
+	public static class Health {
+		
+		/**
+		 * 连接 SUSPENDED/LOST 时是否将应用就绪状态（ReadinessState）置为 REFUSING_TRAFFIC，重连后恢复，默认 false
+		 */
+		private boolean readinessState = false;
+		
+	}
 
 }
@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.queue.DistributedPriorityQueue;
+import org.apache.curator.framework.recipes.queue.DistributedQueue;
+import org.apache.curator.framework.recipes.queue.QueueBuilder;
+import org.apache.curator.framework.recipes.queue.QueueConsumer;
+import org.apache.curator.framework.recipes.queue.QueueSerializer;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.utils.CloseableUtils;
+
+/**
+ * 批量分布式队列：基于 {@link DistributedQueue}/{@link DistributedPriorityQueue}，每个节点保存一批元素，
+ * 放入与取出都以批为单位，吞吐量按每批元素数而不是每个元素一个节点计算。
+ * <p>
+ * 首次 take 时才开始消费，消费到的批次先进入容量为 prefetch 的本地缓冲。lockSafe 模式下节点在批次 ack 之后才删除，
+ * nack、进程退出或会话过期时批次重新入队（至少一次）；否则节点在进入本地缓冲前即删除，缓冲中的批次随进程退出丢失（至多一次）。
+ * lockSafe 模式下最多 prefetch 个批次并行等待 ack，进入缓冲的顺序仍与 Curator 分派节点的顺序（队列/优先级顺序）一致。
+ *
+ * @param <T> 元素类型
+ */
+public class CuratorZkQueue<T> implements Closeable {
+
+	private final CuratorFramework curatorClient;
+	private final String path;
+	private final QueueSerializer<List<T>> serializer;
+	private final boolean priority;
+	private final int maxBatchSize;
+	private final int prefetch;
+	private final boolean lockSafe;
+	private final DistributedQueue<List<T>> producer;
+	private final DistributedPriorityQueue<List<T>> priorityProducer;
+	private final BlockingQueue<Batch<T>> buffer;
+	private final ReentrantLock consumerLock = new ReentrantLock();
+	private volatile Closeable consumer;
+	private ExecutorService consumerExecutor;
+	private volatile boolean closed;
+	/**
+	 * lockSafe 模式下按分派顺序放入缓冲：Curator 依次提交节点任务，任务并行执行，每个任务在提交时领取序号，
+	 * 轮到自己的序号时才放入缓冲；未放入缓冲的任务（如节点已被其他消费者锁定）结束时跳过其序号
+	 */
+	private final AtomicLong dispatched = new AtomicLong();
+	private final ThreadLocal<Long> ticket = new ThreadLocal<>();
+	private final ReentrantLock handoffLock = new ReentrantLock();
+	private final Condition handoffTurn = handoffLock.newCondition();
+	private final Set<Long> skipped = new HashSet<>();
+	private long nextHandoff;
+	private final AtomicLong putItems = new AtomicLong();
+	private final AtomicLong putBatches = new AtomicLong();
+	private final AtomicLong takenItems = new AtomicLong();
+	private final AtomicLong takenBatches = new AtomicLong();
+	private final AtomicLong requeuedBatches = new AtomicLong();
+
+	/**
+	 * @param curatorClient 客户端
+	 * @param path          队列路径
+	 * @param serializer    元素序列化器
+	 * @param priority      是否为优先级队列
+	 * @param maxBatchSize  每个节点最多保存的元素数
+	 * @param prefetch      本地缓冲的批次数
+	 * @param lockSafe      是否在 ack 之后才删除节点
+	 */
+	public CuratorZkQueue(CuratorFramework curatorClient, String path, QueueSerializer<T> serializer, boolean priority,
+			int maxBatchSize, int prefetch, boolean lockSafe) {
+		this.curatorClient = curatorClient;
+		this.path = path;
+		this.serializer = new BatchSerializer<>(serializer);
+		this.priority = priority;
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.prefetch = Math.max(1, prefetch);
+		this.lockSafe = lockSafe;
+		this.buffer = new ArrayBlockingQueue<>(this.prefetch);
+		// 只负责写入的队列实例，不传 consumer 即不会消费
+		QueueBuilder<List<T>> builder = QueueBuilder.builder(curatorClient, null, this.serializer, path).putInBackground(false);
+		if (priority) {
+			this.producer = null;
+			this.priorityProducer = builder.buildPriorityQueue(1);
+		} else {
+			this.producer = builder.buildQueue();
+			this.priorityProducer = null;
+		}
+	}
+
+	public void start() throws Exception {
+		if (priority) {
+			priorityProducer.start();
+		} else {
+			producer.start();
+		}
+	}
+
+	/**
+	 * 放入单个元素，单独占用一个节点
+	 *
+	 * @param item 元素
+	 */
+	public void put(T item) throws Exception {
+		this.putAll(Collections.singletonList(item));
+	}
+
+	/**
+	 * 批量放入，每 maxBatchSize 个元素写入一个节点
+	 *
+	 * @param items 元素
+	 */
+	public void putAll(Collection<? extends T> items) throws Exception {
+		if (priority) {
+			throw new IllegalStateException("Priority queue " + path + " requires a priority");
+		}
+		for (List<T> batch : this.split(items)) {
+			producer.put(batch);
+			this.recordPut(batch);
+		}
+	}
+
+	/**
+	 * 按优先级批量放入，数值越小越先被消费
+	 *
+	 * @param items    元素
+	 * @param priority 优先级
+	 */
+	public void putAll(Collection<? extends T> items, int priority) throws Exception {
+		if (!this.priority) {
+			throw new IllegalStateException("Queue " + path + " is not a priority queue");
+		}
+		for (List<T> batch : this.split(items)) {
+			priorityProducer.put(batch, priority);
+			this.recordPut(batch);
+		}
+	}
+
+	private List<List<T>> split(Collection<? extends T> items) {
+		List<List<T>> batches = new ArrayList<>(items.size() / maxBatchSize + 1);
+		Iterator<? extends T> iterator = items.iterator();
+		while (iterator.hasNext()) {
+			List<T> batch = new ArrayList<>(Math.min(maxBatchSize, items.size()));
+			while (iterator.hasNext() && batch.size() < maxBatchSize) {
+				batch.add(iterator.next());
+			}
+			batches.add(batch);
+		}
+		return batches;
+	}
+
+	private void recordPut(List<T> batch) {
+		putBatches.incrementAndGet();
+		putItems.addAndGet(batch.size());
+	}
+
+	/**
+	 * 取出一批元素，首次调用时开始消费
+	 *
+	 * @param time 等待时间
+	 * @param unit 时间单位
+	 * @return 批次，超时返回 null；lockSafe 模式下处理完必须 ack 或 nack
+	 */
+	public Batch<T> take(long time, TimeUnit unit) throws Exception {
+		this.ensureConsuming();
+		Batch<T> batch = buffer.poll(time, unit);
+		if (batch != null) {
+			takenBatches.incrementAndGet();
+			takenItems.addAndGet(batch.getItems().size());
+		}
+		return batch;
+	}
+
+	private void ensureConsuming() throws Exception {
+		if (consumer != null) {
+			return;
+		}
+		consumerLock.lock();
+		try {
+			if (closed) {
+				throw new IllegalStateException("Queue " + path + " is closed");
+			}
+			if (consumer != null) {
+				return;
+			}
+			QueueBuilder<List<T>> builder = QueueBuilder.builder(curatorClient, new BufferingConsumer(), serializer, path);
+			if (lockSafe) {
+				// 每个等待 ack 的批次占用一个线程，最多 prefetch 个
+				AtomicInteger index = new AtomicInteger();
+				consumerExecutor = Executors.newFixedThreadPool(prefetch, r -> {
+					Thread thread = new Thread(r, "curator-queue-" + index.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+				builder.lockPath(path + "-locks").executor(this.orderedExecutor(consumerExecutor));
+			}
+			if (priority) {
+				DistributedPriorityQueue<List<T>> queue = builder.buildPriorityQueue(1);
+				queue.start();
+				consumer = queue;
+			} else {
+				DistributedQueue<List<T>> queue = builder.buildQueue();
+				queue.start();
+				consumer = queue;
+			}
+		} finally {
+			consumerLock.unlock();
+		}
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return 本地缓冲中尚未取出的批次数
+	 */
+	public int getBufferedBatches() {
+		return buffer.size();
+	}
+
+	public long getPutItems() {
+		return putItems.get();
+	}
+
+	public long getPutBatches() {
+		return putBatches.get();
+	}
+
+	public long getTakenItems() {
+		return takenItems.get();
+	}
+
+	public long getTakenBatches() {
+		return takenBatches.get();
+	}
+
+	/**
+	 * @return nack 后重新入队的批次数
+	 */
+	public long getRequeuedBatches() {
+		return requeuedBatches.get();
+	}
+
+	@Override
+	public void close() {
+		consumerLock.lock();
+		try {
+			closed = true;
+			// 缓冲中未取出的批次交还队列
+			Batch<T> batch;
+			while ((batch = buffer.poll()) != null) {
+				batch.nack();
+			}
+			if (consumer != null) {
+				CloseableUtils.closeQuietly(consumer);
+			}
+			if (consumerExecutor != null) {
+				consumerExecutor.shutdownNow();
+			}
+			CloseableUtils.closeQuietly(priority ? priorityProducer : producer);
+		} finally {
+			consumerLock.unlock();
+		}
+	}
+
+	private Executor orderedExecutor(ExecutorService executor) {
+		return command -> {
+			long number = dispatched.getAndIncrement();
+			executor.execute(() -> {
+				ticket.set(number);
+				try {
+					command.run();
+				} finally {
+					ticket.remove();
+					this.finishHandoff(number);
+				}
+			});
+		};
+	}
+
+	private void awaitHandoff(long number) throws InterruptedException {
+		handoffLock.lock();
+		try {
+			while (nextHandoff != number) {
+				handoffTurn.await();
+			}
+		} finally {
+			handoffLock.unlock();
+		}
+	}
+
+	/**
+	 * 序号已放入缓冲或任务结束：轮到该序号时推进，否则记为跳过，由前面的序号推进时一并越过
+	 */
+	private void finishHandoff(long number) {
+		handoffLock.lock();
+		try {
+			if (number < nextHandoff) {
+				return;
+			}
+			if (number > nextHandoff) {
+				skipped.add(number);
+				return;
+			}
+			nextHandoff++;
+			while (skipped.remove(nextHandoff)) {
+				nextHandoff++;
+			}
+			handoffTurn.signalAll();
+		} finally {
+			handoffLock.unlock();
+		}
+	}
+
+	private class BufferingConsumer implements QueueConsumer<List<T>> {
+
+		@Override
+		public void consumeMessage(List<T> items) throws Exception {
+			Batch<T> batch = new Batch<>(items, lockSafe);
+			Long number = ticket.get();
+			if (number == null) {
+				buffer.put(batch);
+			} else {
+				awaitHandoff(number);
+				try {
+					buffer.put(batch);
+				} finally {
+					finishHandoff(number);
+				}
+			}
+			if (lockSafe && !batch.awaitAck()) {
+				requeuedBatches.incrementAndGet();
+				// 抛出异常由 Curator 将节点重新入队
+				throw new CuratorLockException("Batch of " + items.size() + " items in " + path + " was not acknowledged");
+			}
+		}
+
+		@Override
+		public void stateChanged(CuratorFramework client, ConnectionState newState) {
+			// lockSafe 模式下会话过期时锁节点随之删除，未 ack 的批次由其他消费者重新处理
+		}
+
+	}
+
+	/**
+	 * 一批元素，对应队列中的一个节点
+	 */
+	public static class Batch<T> {
+
+		private final List<T> items;
+		private final CountDownLatch done;
+		private volatile boolean acked;
+
+		Batch(List<T> items, boolean lockSafe) {
+			this.items = Collections.unmodifiableList(items);
+			this.done = new CountDownLatch(lockSafe ? 1 : 0);
+		}
+
+		public List<T> getItems() {
+			return items;
+		}
+
+		/**
+		 * 确认处理完成，lockSafe 模式下删除对应节点
+		 */
+		public void ack() {
+			this.acked = true;
+			done.countDown();
+		}
+
+		/**
+		 * 处理失败，lockSafe 模式下整批重新入队；否则无效果
+		 */
+		public void nack() {
+			done.countDown();
+		}
+
+		boolean awaitAck() throws InterruptedException {
+			done.await();
+			return acked;
+		}
+
+	}
+
+	/**
+	 * 一批元素序列化为一个队列条目：元素个数，随后每个元素的长度与内容
+	 */
+	private static class BatchSerializer<T> implements QueueSerializer<List<T>> {
+
+		private final QueueSerializer<T> serializer;
+
+		BatchSerializer(QueueSerializer<T> serializer) {
+			this.serializer = serializer;
+		}
+
+		@Override
+		public byte[] serialize(List<T> items) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeInt(items.size());
+				for (T item : items) {
+					byte[] data = serializer.serialize(item);
+					out.writeInt(data.length);
+					out.write(data);
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return bytes.toByteArray();
+		}
+
+		@Override
+		public List<T> deserialize(byte[] bytes) {
+			try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+				int size = in.readInt();
+				List<T> items = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					byte[] data = new byte[in.readInt()];
+					in.readFully(data);
+					items.add(serializer.deserialize(data));
+				}
+				return items;
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+	}
+
+}
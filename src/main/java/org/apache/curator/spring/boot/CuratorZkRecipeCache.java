@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 按路径缓存 Curator recipe 实例，复用同一路径的锁/计数器对象。
+ * <p>
+ * 淘汰策略：超过空闲时间或超过容量时淘汰最久未访问的实例，{@code evictable} 返回 false 的实例（如正被持有的锁）永不淘汰。
+ * <p>
+ * {@code evictable} 的检查与移除在 Map 的 compute 锁内完成，get 返回前确认实例仍在缓存中，因此不会把已淘汰的实例交给调用方；
+ * 最近 {@code minIdleMs} 内被访问过的实例也不淘汰，覆盖从 get 返回到 acquire 之间的窗口，避免同一线程重入时拿到新实例而排在自己的节点之后。
+ * 全量扫描与排序提交到 {@code evictionExecutor} 执行，不占用调用线程。
+ */
+public class CuratorZkRecipeCache<T> {
+
+	private final ConcurrentMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+	private final int maximumSize;
+	private final long expireAfterAccessMs;
+	private final Predicate<T> evictable;
+	private final long minIdleMs;
+	private final Stats stats;
+	private final Executor evictionExecutor;
+	private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+	private volatile long lastSweepMillis = System.currentTimeMillis();
+
+	/**
+	 * 在调用线程中淘汰，不保留最近访问的实例
+	 */
+	public CuratorZkRecipeCache(int maximumSize, long expireAfterAccessMs, Predicate<T> evictable, Stats stats) {
+		this(maximumSize, expireAfterAccessMs, 0, evictable, stats, Runnable::run);
+	}
+
+	/**
+	 * @param maximumSize         容量
+	 * @param expireAfterAccessMs 空闲多久后淘汰，0 表示不按时间淘汰
+	 * @param minIdleMs           最近多久内访问过的实例即使超出容量也不淘汰
+	 * @param evictable           实例能否被淘汰
+	 * @param stats               统计
+	 * @param evictionExecutor    执行淘汰扫描的线程
+	 */
+	public CuratorZkRecipeCache(int maximumSize, long expireAfterAccessMs, long minIdleMs, Predicate<T> evictable, Stats stats,
+			Executor evictionExecutor) {
+		this.maximumSize = maximumSize;
+		this.expireAfterAccessMs = expireAfterAccessMs;
+		this.minIdleMs = minIdleMs;
+		this.evictable = evictable;
+		this.stats = stats;
+		this.evictionExecutor = evictionExecutor;
+	}
+
+	public T get(String path, Function<String, T> loader) {
+		long now = System.currentTimeMillis();
+		Entry<T> entry = entries.get(path);
+		if (entry != null) {
+			stats.hits.increment();
+		} else {
+			stats.misses.increment();
+		}
+		while (true) {
+			if (entry == null) {
+				entry = entries.computeIfAbsent(path, key -> new Entry<>(loader.apply(key), now));
+			}
+			entry.lastAccessMillis = now;
+			// 先刷新访问时间再确认仍在缓存中：淘汰要么看到新的访问时间而保留，要么已移除而在这里重新加载
+			Entry<T> current = entries.get(path);
+			if (current == entry) {
+				break;
+			}
+			entry = current;
+		}
+		this.evictIfNecessary(now);
+		return entry.value;
+	}
+
+	/**
+	 * 仅查询，不加载；刷新访问时间但不计入命中统计
+	 */
+	public T getIfPresent(String path) {
+		Entry<T> entry = entries.get(path);
+		while (entry != null) {
+			entry.lastAccessMillis = System.currentTimeMillis();
+			Entry<T> current = entries.get(path);
+			if (current == entry) {
+				return entry.value;
+			}
+			entry = current;
+		}
+		return null;
+	}
+
+	public void put(String path, T value) {
+		long now = System.currentTimeMillis();
+		entries.put(path, new Entry<>(value, now));
+		this.evictIfNecessary(now);
+	}
+
+	public void invalidate(String path) {
+		entries.remove(path);
+	}
+
+	/**
+	 * 当前缓存的全部实例（快照）
+	 */
+	public List<T> values() {
+		List<T> values = new ArrayList<>(entries.size());
+		for (Entry<T> entry : entries.values()) {
+			values.add(entry.value);
+		}
+		return values;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	private void evictIfNecessary(long now) {
+		boolean overflow = entries.size() > maximumSize;
+		boolean sweepDue = expireAfterAccessMs > 0 && now - lastSweepMillis > expireAfterAccessMs / 2;
+		if ((!overflow && !sweepDue) || !evictionScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		lastSweepMillis = now;
+		try {
+			evictionExecutor.execute(this::evict);
+		} catch (RejectedExecutionException e) {
+			// 线程池已关闭，下次访问时再尝试
+			evictionScheduled.set(false);
+		}
+	}
+
+	private void evict() {
+		try {
+			long now = System.currentTimeMillis();
+			boolean overflow = entries.size() > maximumSize;
+			List<Map.Entry<String, Entry<T>>> candidates = new ArrayList<>();
+			for (Map.Entry<String, Entry<T>> mapEntry : entries.entrySet()) {
+				Entry<T> entry = mapEntry.getValue();
+				if (expireAfterAccessMs > 0 && now - entry.lastAccessMillis > expireAfterAccessMs) {
+					this.evict(mapEntry.getKey(), entry, now);
+				} else if (overflow) {
+					candidates.add(mapEntry);
+				}
+			}
+			// 一次淘汰到容量的 90%，摊薄排序开销
+			int excess = entries.size() - maximumSize * 9 / 10;
+			if (excess > 0) {
+				candidates.sort((a, b) -> Long.compare(a.getValue().lastAccessMillis, b.getValue().lastAccessMillis));
+				for (int i = 0; i < candidates.size() && excess > 0; i++) {
+					if (this.evict(candidates.get(i).getKey(), candidates.get(i).getValue(), now)) {
+						excess--;
+					}
+				}
+			}
+		} finally {
+			evictionScheduled.set(false);
+		}
+	}
+
+	private boolean evict(String path, Entry<T> entry, long now) {
+		boolean[] evicted = new boolean[1];
+		// 在 compute 锁内检查并移除，检查结果不会被并发的访问推翻
+		entries.computeIfPresent(path, (key, current) -> {
+			if (current == entry && now - entry.lastAccessMillis >= minIdleMs && evictable.test(entry.value)) {
+				evicted[0] = true;
+				return null;
+			}
+			return current;
+		});
+		if (evicted[0]) {
+			stats.evictions.increment();
+		}
+		return evicted[0];
+	}
+
+	private static class Entry<T> {
+
+		private final T value;
+		private volatile long lastAccessMillis;
+
+		private Entry(T value, long lastAccessMillis) {
+			this.value = value;
+			this.lastAccessMillis = lastAccessMillis;
+		}
+
+	}
+
+	/**
+	 * 命中/未命中/淘汰计数，多个缓存可以共享同一个实例
+	 */
+	public static class Stats {
+
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder evictions = new LongAdder();
+
+		public long getHitCount() {
+			return hits.sum();
+		}
+
+		public long getMissCount() {
+			return misses.sum();
+		}
+
+		public long getEvictionCount() {
+			return evictions.sum();
+		}
+
+		public double getHitRatio() {
+			long hitCount = hits.sum();
+			long total = hitCount + misses.sum();
+			return total == 0 ? 1.0 : (double) hitCount / total;
+		}
+
+	}
+
+}
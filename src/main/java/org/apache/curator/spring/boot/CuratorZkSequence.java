@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.curator.framework.recipes.atomic.AtomicValue;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
+
+/**
+ * 号段（hi/lo）序列：每次从 ZooKeeper 租用 {@code blockSize} 个号，号段内的分配是纯本地操作。
+ * <p>
+ * 生成的值全局唯一、在本 JVM 内单调递增，但不同 JVM 之间不保证顺序；进程重启会丢弃未用完的号段。
+ */
+public class CuratorZkSequence {
+
+	private final DistributedAtomicLong highValue;
+	private final long blockSize;
+	private final ReentrantLock refillLock = new ReentrantLock();
+	private final AtomicLong next = new AtomicLong();
+	/** 当前号段的上界（不含），volatile 写在 next 更新之后 */
+	private volatile long limit;
+
+	public CuratorZkSequence(DistributedAtomicLong highValue, long blockSize) {
+		this.highValue = highValue;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * 下一个序列值
+	 *
+	 * @return 序列值
+	 */
+	public long next() throws Exception {
+		while (true) {
+			long currentLimit = limit;
+			long value = next.getAndIncrement();
+			if (value < currentLimit) {
+				return value;
+			}
+			this.refill(currentLimit);
+		}
+	}
+
+	private void refill(long exhaustedLimit) throws Exception {
+		refillLock.lock();
+		try {
+			if (limit != exhaustedLimit) {
+				// 其他线程已租用新号段
+				return;
+			}
+			AtomicValue<Long> result;
+			do {
+				result = highValue.add(blockSize);
+			} while (!result.succeeded());
+			next.set(result.preValue());
+			limit = result.postValue();
+		} finally {
+			refillLock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.framework.recipes.locks.Lease;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.curator.utils.CloseableUtils;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+
+/**
+ * 分片信号量：总许可数平均分配到 N 个分片 {@code <path>/shard-<i>}，每个分片是一个独立的 {@link InterProcessSemaphoreV2}，
+ * 不同节点的申请分散在各分片的内部互斥锁上，而不是全部串行在同一个节点上。
+ * <p>
+ * 每次访问 ZooKeeper 最多预取 prefetch 个租约放入本地池，本 JVM 内的后续申请直接从池中取得；
+ * 归还的租约先放回本地池，空闲超过 idleReturnMs 后交还 ZooKeeper。有线程在 ZooKeeper 上阻塞等待，
+ * 或连接 SUSPENDED/LOST 时，本地池中的租约立即交还。
+ * <p>
+ * 预取会让许可在节点之间分布不均：某个节点持有的空闲租约在交还之前，其他节点无法使用。
+ * <p>
+ * 指定熔断器时，本地池未命中、需要访问 ZooKeeper 的申请在熔断打开时快速失败。
+ */
+public class CuratorZkShardedSemaphore implements Closeable, ConnectionStateListener {
+
+	private static final String SHARD_NAME = "shard-";
+
+	private final CuratorFramework curatorClient;
+	private final String path;
+	private final int permits;
+	private final InterProcessSemaphoreV2[] shards;
+	private final int[] shardPermits;
+	private final int prefetch;
+	private final long idleReturnMs;
+	/** 本 JVM 的首选分片，不同节点从不同分片开始申请 */
+	private final int preferredShard;
+	/** 后进先出，空闲最久的租约在队尾 */
+	private final ConcurrentLinkedDeque<PooledLease> pool = new ConcurrentLinkedDeque<>();
+	private final ReentrantLock prefetchLock = new ReentrantLock();
+	private final AtomicInteger waiters = new AtomicInteger();
+	private final AtomicInteger waiterSequence = new AtomicInteger();
+	private final AtomicLong zkAcquireCount = new AtomicLong();
+	private final AtomicLong localAcquireCount = new AtomicLong();
+	private final ScheduledFuture<?> idleTask;
+	private final CuratorZkCircuitBreaker breaker;
+	private volatile boolean closed;
+
+	/**
+	 * @param curatorClient 客户端
+	 * @param path          信号量根路径
+	 * @param permits       全局许可总数
+	 * @param shards        分片数，不超过许可总数
+	 * @param prefetch      每次从 ZooKeeper 预取的租约数，1 表示不预取
+	 * @param idleReturnMs  本地池中的租约空闲多久后交还（单位：毫秒），0 表示一直保留到关闭
+	 * @param scheduler     执行空闲交还的调度器
+	 */
+	public CuratorZkShardedSemaphore(CuratorFramework curatorClient, String path, int permits, int shards, int prefetch,
+			long idleReturnMs, ScheduledExecutorService scheduler) {
+		this(curatorClient, path, permits, shards, prefetch, idleReturnMs, scheduler, null);
+	}
+
+	/**
+	 * @param breaker 所属集群的熔断器，为 null 时不熔断
+	 */
+	public CuratorZkShardedSemaphore(CuratorFramework curatorClient, String path, int permits, int shards, int prefetch,
+			long idleReturnMs, ScheduledExecutorService scheduler, CuratorZkCircuitBreaker breaker) {
+		if (permits < 1) {
+			throw new IllegalArgumentException("permits must be at least 1");
+		}
+		this.curatorClient = curatorClient;
+		this.path = path;
+		this.permits = permits;
+		this.breaker = breaker;
+		int shardCount = Math.max(1, Math.min(shards, permits));
+		this.shards = new InterProcessSemaphoreV2[shardCount];
+		this.shardPermits = new int[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shardPermits[i] = permits / shardCount + (i < permits % shardCount ? 1 : 0);
+			this.shards[i] = new InterProcessSemaphoreV2(curatorClient, ZKPaths.makePath(path, SHARD_NAME + i), shardPermits[i]);
+		}
+		this.prefetch = Math.max(1, prefetch);
+		this.idleReturnMs = idleReturnMs;
+		this.preferredShard = ThreadLocalRandom.current().nextInt(shardCount);
+		this.idleTask = idleReturnMs > 0 && this.prefetch > 1
+				? scheduler.scheduleWithFixedDelay(this::returnIdle, idleReturnMs, idleReturnMs, TimeUnit.MILLISECONDS)
+				: null;
+		curatorClient.getConnectionStateListenable().addListener(this);
+	}
+
+	/**
+	 * 获取一个许可，一直等待
+	 *
+	 * @return 租约，关闭即归还
+	 */
+	public Lease acquire() throws Exception {
+		return this.acquire(-1, null);
+	}
+
+	/**
+	 * 在指定时间内获取一个许可
+	 *
+	 * @param time 等待时间
+	 * @param unit 时间单位
+	 * @return 租约，超时返回 null
+	 */
+	public Lease acquire(long time, TimeUnit unit) throws Exception {
+		if (closed) {
+			throw new IllegalStateException("Semaphore " + path + " is closed");
+		}
+		long deadline = unit == null ? -1 : System.nanoTime() + unit.toNanos(time);
+		Lease lease = this.pollPool();
+		if (lease != null) {
+			return lease;
+		}
+		if (breaker == null) {
+			return this.acquireFromZk(deadline);
+		}
+		if (!breaker.tryAcquirePermission()) {
+			throw new CuratorLockException("ZooKeeper connection unavailable (circuit " + breaker.getState() + "), semaphore rejected : " + path);
+		}
+		try {
+			lease = this.acquireFromZk(deadline);
+		} catch (InterruptedException e) {
+			breaker.releasePermission();
+			throw e;
+		} catch (Exception e) {
+			breaker.recordFailure(e);
+			throw e;
+		}
+		breaker.recordSuccess();
+		return lease;
+	}
+
+	private Lease acquireFromZk(long deadline) throws Exception {
+		Lease lease;
+		// 同一时间只有一个线程去 ZooKeeper 预取，其余线程等它填充本地池
+		boolean locked = deadline < 0 ? this.lockPrefetch() : prefetchLock.tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		if (locked) {
+			try {
+				lease = this.pollPool();
+				if (lease == null) {
+					lease = this.prefetch();
+				}
+			} finally {
+				prefetchLock.unlock();
+			}
+			if (lease != null) {
+				return lease;
+			}
+		}
+		// 所有分片都没有空闲许可，轮流选一个分片阻塞等待
+		int shard = (preferredShard + waiterSequence.getAndIncrement()) % shards.length;
+		waiters.incrementAndGet();
+		try {
+			this.returnPool();
+			Lease acquired;
+			if (deadline < 0) {
+				acquired = shards[shard].acquire();
+			} else {
+				long remaining = deadline - System.nanoTime();
+				acquired = remaining > 0 ? shards[shard].acquire(remaining, TimeUnit.NANOSECONDS) : null;
+			}
+			if (acquired == null) {
+				return null;
+			}
+			zkAcquireCount.incrementAndGet();
+			return new PooledLease(acquired);
+		} finally {
+			waiters.decrementAndGet();
+		}
+	}
+
+	private boolean lockPrefetch() throws InterruptedException {
+		prefetchLock.lockInterruptibly();
+		return true;
+	}
+
+	private Lease pollPool() {
+		PooledLease pooled = pool.pollFirst();
+		if (pooled == null) {
+			return null;
+		}
+		localAcquireCount.incrementAndGet();
+		return new PooledLease(pooled.delegate);
+	}
+
+	/**
+	 * 依次尝试各分片，按分片当前空闲许可数批量申请，不等待分片的内部互斥锁
+	 */
+	private Lease prefetch() throws Exception {
+		for (int i = 0; i < shards.length; i++) {
+			int shard = (preferredShard + i) % shards.length;
+			int free = shardPermits[shard] - this.getLeaseCount(shard);
+			if (free <= 0) {
+				continue;
+			}
+			Collection<Lease> leases = shards[shard].acquire(Math.min(prefetch, free), 0, TimeUnit.MILLISECONDS);
+			if (leases == null) {
+				continue;
+			}
+			zkAcquireCount.incrementAndGet();
+			Iterator<Lease> iterator = leases.iterator();
+			Lease first = iterator.next();
+			long now = System.nanoTime();
+			while (iterator.hasNext()) {
+				pool.offerLast(new PooledLease(iterator.next(), now));
+			}
+			return new PooledLease(first);
+		}
+		return null;
+	}
+
+	private int getLeaseCount(int shard) throws Exception {
+		try {
+			return shards[shard].getParticipantNodes().size();
+		} catch (KeeperException.NoNodeException e) {
+			return 0;
+		}
+	}
+
+	private void release(PooledLease lease) {
+		if (closed || waiters.get() > 0 || prefetch <= 1 || pool.size() >= prefetch) {
+			CloseableUtils.closeQuietly(lease.delegate);
+			return;
+		}
+		pool.offerFirst(new PooledLease(lease.delegate, System.nanoTime()));
+	}
+
+	/**
+	 * 将本地池中空闲超过 idleReturnMs 的租约交还 ZooKeeper
+	 */
+	public void returnIdle() {
+		long now = System.nanoTime();
+		long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleReturnMs);
+		Iterator<PooledLease> iterator = pool.descendingIterator();
+		while (iterator.hasNext()) {
+			PooledLease pooled = iterator.next();
+			if (now - pooled.pooledAt < idleNanos) {
+				break;
+			}
+			if (pool.removeLastOccurrence(pooled)) {
+				CloseableUtils.closeQuietly(pooled.delegate);
+			}
+		}
+	}
+
+	/**
+	 * 将本地池中的租约全部交还 ZooKeeper
+	 */
+	public void returnPool() {
+		PooledLease pooled;
+		while ((pooled = pool.pollFirst()) != null) {
+			CloseableUtils.closeQuietly(pooled.delegate);
+		}
+	}
+
+	@Override
+	public void stateChanged(CuratorFramework client, ConnectionState newState) {
+		if (newState == ConnectionState.SUSPENDED || newState == ConnectionState.LOST) {
+			// 会话可能已过期，池中租约对应的临时节点不再可信
+			this.returnPool();
+		}
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public int getPermits() {
+		return permits;
+	}
+
+	public int getShards() {
+		return shards.length;
+	}
+
+	/**
+	 * @return 本地池中的空闲租约数
+	 */
+	public int getLocalAvailable() {
+		return pool.size();
+	}
+
+	/**
+	 * @return 访问 ZooKeeper 取得租约的次数（批量预取算一次）
+	 */
+	public long getZkAcquireCount() {
+		return zkAcquireCount.get();
+	}
+
+	/**
+	 * @return 直接从本地池取得租约的次数
+	 */
+	public long getLocalAcquireCount() {
+		return localAcquireCount.get();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		if (idleTask != null) {
+			idleTask.cancel(false);
+		}
+		curatorClient.getConnectionStateListenable().removeListener(this);
+		this.returnPool();
+	}
+
+	/**
+	 * 交给调用方的租约，关闭时放回本地池；池中的对象只用来记录入池时间
+	 */
+	private class PooledLease implements Lease {
+
+		private final Lease delegate;
+		private final long pooledAt;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		PooledLease(Lease delegate) {
+			this(delegate, 0);
+		}
+
+		PooledLease(Lease delegate, long pooledAt) {
+			this.delegate = delegate;
+			this.pooledAt = pooledAt;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (released.compareAndSet(false, true)) {
+				CuratorZkShardedSemaphore.this.release(this);
+			}
+		}
+
+		@Override
+		public byte[] getData() throws Exception {
+			return delegate.getData();
+		}
+
+		@Override
+		public String getNodeName() {
+			return delegate.getNodeName();
+		}
+
+	}
+
+}
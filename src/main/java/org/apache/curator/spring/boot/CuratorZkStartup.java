@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.Closeable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 启动期初始化：需要 ZooKeeper 连接才能完成的工作（服务注册、缓存、选举等）统一经此提交。
+ * <ul>
+ * <li>同步模式：在调用线程立即执行，与以往行为一致；</li>
+ * <li>异步模式：首次连接成功后在后台线程依次执行，上下文刷新不再等待 ZooKeeper，冷启动耗时与集群延迟无关；
+ * 通过 {@link #executeWithRetry(String, Task)} 提交的任务失败后按指数退避重试，直到成功或关闭。</li>
+ * </ul>
+ * 同时记录客户端启动到首次连接成功的耗时，供健康检查展示。
+ */
+public class CuratorZkStartup implements Closeable {
+
+	/**
+	 * 需要连接的初始化任务
+	 */
+	@FunctionalInterface
+	public interface Task {
+
+		void run() throws Exception;
+
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(CuratorZkStartup.class);
+	private static final long INITIAL_RETRY_DELAY_MS = 1000;
+	private static final long MAX_RETRY_DELAY_MS = 60000;
+
+	private final CuratorFramework curatorClient;
+	private final boolean async;
+	private final long startNanos = System.nanoTime();
+	private final CountDownLatch connected = new CountDownLatch(1);
+	private final ConnectionStateListener listener = this::stateChanged;
+	private final ScheduledExecutorService executor;
+	private volatile long connectMillis = -1;
+
+	/**
+	 * @param curatorClient 已启动的客户端
+	 * @param async         是否在首次连接后于后台执行初始化任务
+	 */
+	public CuratorZkStartup(CuratorFramework curatorClient, boolean async) {
+		this.curatorClient = curatorClient;
+		this.async = async;
+		this.executor = async ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "curator-startup");
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
+		curatorClient.getConnectionStateListenable().addListener(listener);
+		if (curatorClient.getZookeeperClient().isConnected()) {
+			this.onConnected();
+		}
+	}
+
+	private void stateChanged(CuratorFramework client, ConnectionState newState) {
+		if (newState.isConnected()) {
+			this.onConnected();
+		}
+	}
+
+	private synchronized void onConnected() {
+		if (connected.getCount() > 0) {
+			connectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+			connected.countDown();
+			curatorClient.getConnectionStateListenable().removeListener(listener);
+		}
+	}
+
+	/**
+	 * 执行初始化任务：同步模式立即执行并抛出异常；异步模式在首次连接后于后台执行，失败仅记录日志
+	 *
+	 * @param name 任务名称
+	 * @param task 任务
+	 * @throws Exception 同步模式下任务抛出的异常
+	 */
+	public void execute(String name, Task task) throws Exception {
+		if (!async) {
+			task.run();
+			return;
+		}
+		this.schedule(name, task, 0, false);
+	}
+
+	/**
+	 * 执行可重复的初始化任务：同步模式同 {@link #execute(String, Task)}；异步模式失败后按指数退避（1 秒起，最长 60 秒）重试，
+	 * 任务需要保证重复执行是安全的
+	 *
+	 * @param name 任务名称
+	 * @param task 任务
+	 * @throws Exception 同步模式下任务抛出的异常
+	 */
+	public void executeWithRetry(String name, Task task) throws Exception {
+		if (!async) {
+			task.run();
+			return;
+		}
+		this.schedule(name, task, 0, true);
+	}
+
+	private void schedule(String name, Task task, long delayMs, boolean retry) {
+		try {
+			executor.schedule(() -> {
+				try {
+					connected.await();
+					task.run();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (Exception e) {
+					if (!retry) {
+						LOG.warn("Curator startup task '{}' failed", name, e);
+						return;
+					}
+					long nextDelayMs = delayMs == 0 ? INITIAL_RETRY_DELAY_MS : Math.min(delayMs * 2, MAX_RETRY_DELAY_MS);
+					LOG.warn("Curator startup task '{}' failed, retrying in {} ms", name, nextDelayMs, e);
+					this.schedule(name, task, nextDelayMs, true);
+				}
+			}, delayMs, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// 已关闭，不再初始化
+		}
+	}
+
+	/**
+	 * 在指定时间内等待首次连接
+	 *
+	 * @param time 最长等待时间
+	 * @param unit 时间单位
+	 * @return 是否已连接
+	 * @throws InterruptedException 等待被中断
+	 */
+	public boolean awaitConnected(long time, TimeUnit unit) throws InterruptedException {
+		return connected.await(time, unit);
+	}
+
+	public boolean isAsync() {
+		return async;
+	}
+
+	/**
+	 * @return 客户端启动到首次连接成功的耗时（毫秒），尚未连接时为 -1
+	 */
+	public long getConnectMillis() {
+		return connectMillis;
+	}
+
+	@Override
+	public void close() {
+		curatorClient.getConnectionStateListenable().removeListener(listener);
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * 分片计数器：增量先累加在本地，定期合并成一次 CAS 写入 N 个分片节点中的一个，读取时对所有分片求和。
+ * <p>
+ * 分片节点 {@code <path>/stripe-<i>} 的数据格式与 {@link org.apache.curator.framework.recipes.atomic.DistributedAtomicLong} 一致。
+ * 适用于统计类计数（如速率计数），不适用于需要每次递增都立即全局可见的场景。
+ */
+public class CuratorZkStripedCounter implements Closeable {
+
+	private static final String STRIPE_NAME = "stripe-";
+
+	private final CuratorFramework curatorClient;
+	private final String path;
+	private final int stripes;
+	/** 本 JVM 的首选分片，减少不同节点之间的 CAS 冲突 */
+	private final int preferredStripe;
+	private final LongAdder pending = new LongAdder();
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final ScheduledFuture<?> flushTask;
+
+	public CuratorZkStripedCounter(CuratorFramework curatorClient, String path, int stripes,
+			ScheduledExecutorService scheduler, long flushIntervalMs) {
+		this.curatorClient = curatorClient;
+		this.path = path;
+		this.stripes = stripes;
+		this.preferredStripe = ThreadLocalRandom.current().nextInt(stripes);
+		this.flushTask = scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				this.flush();
+			} catch (Exception e) {
+				// 增量已放回本地缓冲，下次重试
+			}
+		}, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 本地递增，不访问 ZooKeeper
+	 *
+	 * @param delta 增量
+	 */
+	public void add(long delta) {
+		pending.add(delta);
+	}
+
+	public void increment() {
+		pending.increment();
+	}
+
+	/**
+	 * 所有分片之和加上本地尚未刷新的增量
+	 *
+	 * @return 当前值
+	 */
+	public long get() throws Exception {
+		return this.getGlobal() + pending.sum();
+	}
+
+	/**
+	 * 已写入 ZooKeeper 的所有分片之和
+	 *
+	 * @return 全局值
+	 */
+	public long getGlobal() throws Exception {
+		List<String> children;
+		try {
+			children = curatorClient.getChildren().forPath(path);
+		} catch (KeeperException.NoNodeException e) {
+			return 0;
+		}
+		long sum = 0;
+		for (String child : children) {
+			if (child.startsWith(STRIPE_NAME)) {
+				try {
+					sum += toLong(curatorClient.getData().forPath(ZKPaths.makePath(path, child)));
+				} catch (KeeperException.NoNodeException e) {
+					// 并发删除，忽略
+				}
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * 将本地缓冲的增量合并写入一个分片
+	 */
+	public void flush() throws Exception {
+		flushLock.lock();
+		try {
+			long delta = pending.sumThenReset();
+			if (delta == 0) {
+				return;
+			}
+			try {
+				int stripe = preferredStripe;
+				while (!this.tryAdd(ZKPaths.makePath(path, STRIPE_NAME + stripe), delta)) {
+					// CAS 冲突时换一个分片
+					stripe = (stripe + 1) % stripes;
+				}
+			} catch (Exception e) {
+				pending.add(delta);
+				throw e;
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private boolean tryAdd(String stripePath, long delta) throws Exception {
+		Stat stat = new Stat();
+		byte[] data;
+		try {
+			data = curatorClient.getData().storingStatIn(stat).forPath(stripePath);
+		} catch (KeeperException.NoNodeException e) {
+			try {
+				curatorClient.create().creatingParentContainersIfNeeded().forPath(stripePath, toBytes(delta));
+				return true;
+			} catch (KeeperException.NodeExistsException ex) {
+				return false;
+			}
+		}
+		try {
+			curatorClient.setData().withVersion(stat.getVersion()).forPath(stripePath, toBytes(toLong(data) + delta));
+			return true;
+		} catch (KeeperException.BadVersionException e) {
+			return false;
+		}
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * 停止定时刷新并刷新剩余增量
+	 *
+	 * @throws IllegalStateException 刷新失败，cause 为 ZooKeeper 异常；运行时异常原样抛出
+	 */
+	@Override
+	public void close() {
+		flushTask.cancel(false);
+		try {
+			this.flush();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException("Failed to flush striped counter " + path + " on close", e);
+		}
+	}
+
+	private static long toLong(byte[] data) {
+		return data == null || data.length == 0 ? 0 : ByteBuffer.wrap(data).getLong();
+	}
+
+	private static byte[] toBytes(long value) {
+		return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+	}
+
+}
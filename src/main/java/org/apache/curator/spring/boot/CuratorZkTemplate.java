@@ -1,38 +1,214 @@
 package org.apache.curator.spring.boot;
 
+import java.io.Closeable;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
 import org.apache.curator.framework.recipes.atomic.DistributedAtomicInteger;
 import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
 import org.apache.curator.framework.recipes.atomic.DistributedAtomicValue;
 import org.apache.curator.framework.recipes.barriers.DistributedBarrier;
 import org.apache.curator.framework.recipes.barriers.DistributedDoubleBarrier;
+import org.apache.curator.framework.recipes.leader.LeaderSelector;
+import org.apache.curator.framework.recipes.leader.LeaderSelectorListener;
 import org.apache.curator.framework.recipes.locks.InterProcessLock;
 import org.apache.curator.framework.recipes.locks.InterProcessMultiLock;
 import org.apache.curator.framework.recipes.locks.InterProcessMutex;
 import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
 import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
 import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.framework.recipes.queue.QueueSerializer;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * https://www.cnblogs.com/qlqwjy/p/10518900.html
+ * <p>
+ * 配置多个集群时，锁、计数器、栅栏等按 key 经 {@link CuratorZkClientRing} 路由到所属集群。
+ * <p>
+ * 只有 getDistributedLock、getCoalescingLock 的等待基于 java.util.concurrent 与 Watch，不在 synchronized 中挂起，
+ * 适合大量虚拟线程并发等待。getSharedLock、getSharedReentrantLock（@ZkLock 默认的 MUTEX）、getSharedReentrantReadWriteLock、
+ * getSharedSemaphore、getLeaseLock 基于 Curator 自带的 InterProcessMutex、InterProcessSemaphoreV2，
+ * 在 synchronized 中调用 wait()，在 JDK 24 之前会钉住载体线程，大量虚拟线程竞争时应改用前两者。
+ * <p>
+ * 作为 Spring Bean 时容器关闭会调用 {@link #close()}：先刷新计数器与批量写、交还信号量与租约，再停止内部线程。
  */
-public class CuratorZkTemplate {
+public class CuratorZkTemplate implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CuratorZkTemplate.class);
 
 	private CuratorFramework curatorClient;
+	private final CuratorZkClientRing clientRing;
 	private RetryPolicy retryPolicy;
 	private int sessionTimeout = 30000;
+	private int maxHandoffs = 16;
+	private final AsyncCuratorZkTemplate[] asyncTemplates;
+	private final boolean recipeCacheEnabled;
+	private final CuratorZkRecipeCache.Stats recipeCacheStats = new CuratorZkRecipeCache.Stats();
+	private final List<CuratorZkLockListener> lockListeners = new CopyOnWriteArrayList<>();
+	private final List<CuratorZkLeaderListener> leaderListeners = new CopyOnWriteArrayList<>();
+	private final CuratorZkLeaderRegistry leaderRegistry;
+	private final List<CuratorZkCircuitBreaker> circuitBreakers = new ArrayList<>();
+	private final boolean circuitBreakerLocalFallback;
+	private final CuratorZkDistributedLock distributedLock;
+	private final CuratorZkRecipeCache<CuratorZkInstrumentedLock> sharedLocks;
+	private final CuratorZkRecipeCache<CuratorZkInstrumentedLock> sharedReentrantLocks;
+	private final CuratorZkRecipeCache<InterProcessReadWriteLock> sharedReentrantReadWriteLocks;
+	private final CuratorZkRecipeCache<CuratorZkInstrumentedLock> coalescingLocks;
+	private final CuratorZkRecipeCache<CuratorZkLeaseLock> leaseLocks;
+	private final long leaseMs;
+	private final CuratorZkRecipeCache<DistributedAtomicInteger> atomicIntegers;
+	private final CuratorZkRecipeCache<DistributedAtomicLong> atomicLongs;
+	private final CuratorZkRecipeCache<DistributedAtomicValue> atomicValues;
+	private final CuratorZkProperties.Counter counterProperties;
+	private final ConcurrentMap<String, CuratorZkStripedCounter> stripedCounters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, CuratorZkSequence> sequences = new ConcurrentHashMap<>();
+	private final CuratorZkProperties.Semaphore semaphoreProperties;
+	private final ConcurrentMap<String, CuratorZkShardedSemaphore> shardedSemaphores = new ConcurrentHashMap<>();
+	private final CuratorZkProperties.RateLimiter rateLimiterProperties;
+	private final CuratorZkProperties.Queue queueProperties;
+	private final int bulkMaxInFlight;
+	private final int barrierFanout;
+	private final CuratorZkProperties.ChangeFeed changeFeedProperties;
+	private volatile ZkSerializer serializer;
+	private final String serializerType;
+	private final boolean compressPayload;
+	private final ConcurrentMap<String, ZkRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+	private final CuratorZkProperties.WriteBatch writeBatchProperties;
+	private final CuratorZkWriteBatcher[] writeBatchers;
+	private volatile ScheduledExecutorService scheduler;
+	private volatile ExecutorService batchExecutor;
+	private volatile Executor callbackExecutor;
+	// 延迟初始化用显式锁而非 synchronized，虚拟线程在此竞争时不会钉住载体线程
+	private final ReentrantLock initLock = new ReentrantLock();
+	private volatile boolean closed;
 
 	public CuratorZkTemplate(CuratorFramework curatorClient, RetryPolicy retryPolicy, int sessionTimeout) {
-		this.curatorClient = curatorClient;
+		this(curatorClient, retryPolicy, sessionTimeout, new CuratorZkProperties());
+	}
+
+	public CuratorZkTemplate(CuratorFramework curatorClient, RetryPolicy retryPolicy, CuratorZkProperties properties) {
+		this(CuratorZkClientRing.of(curatorClient), retryPolicy, properties.getSessionTimeoutMs(), properties);
+	}
+
+	public CuratorZkTemplate(CuratorZkClientRing clientRing, RetryPolicy retryPolicy, CuratorZkProperties properties) {
+		this(clientRing, retryPolicy, properties.getSessionTimeoutMs(), properties);
+	}
+
+	private CuratorZkTemplate(CuratorFramework curatorClient, RetryPolicy retryPolicy, int sessionTimeout, CuratorZkProperties properties) {
+		this(CuratorZkClientRing.of(curatorClient), retryPolicy, sessionTimeout, properties);
+	}
+
+	private CuratorZkTemplate(CuratorZkClientRing clientRing, RetryPolicy retryPolicy, int sessionTimeout, CuratorZkProperties properties) {
+		this.curatorClient = clientRing.getClient(0);
+		this.clientRing = clientRing;
 		this.retryPolicy = retryPolicy;
 		this.sessionTimeout = sessionTimeout;
+		this.maxHandoffs = properties.getCoalescing().getMaxHandoffs();
+		// 以根路径作为锁目录，lockKey 与其他方法一样直接作为节点路径
+		this.asyncTemplates = new AsyncCuratorZkTemplate[clientRing.size()];
+		for (int i = 0; i < asyncTemplates.length; i++) {
+			asyncTemplates[i] = new AsyncCuratorZkTemplate(clientRing.getClient(i), "/");
+		}
+		// 按路径缓存 recipe 实例，正被持有的锁不会被淘汰
+		CuratorZkProperties.RecipeCache cache = properties.getRecipeCache();
+		this.recipeCacheEnabled = cache.isEnabled();
+		this.sharedLocks = this.newRecipeCache(cache, lock -> !lock.isAcquiredInThisProcess());
+		this.sharedReentrantLocks = this.newRecipeCache(cache, lock -> !lock.isAcquiredInThisProcess());
+		this.sharedReentrantReadWriteLocks = this.newRecipeCache(cache,
+				lock -> !lock.readLock().isAcquiredInThisProcess() && !lock.writeLock().isAcquiredInThisProcess());
+		// 合并锁必须按 lockKey 共享，因此不受 enabled 开关影响
+		this.coalescingLocks = this.newRecipeCache(cache, lock -> !lock.isAcquiredInThisProcess() && coalescingLockOf(lock).getQueueLength() == 0);
+		// 租约锁同样必须按 lockKey 共享，持有租约期间不淘汰
+		this.leaseLocks = this.newRecipeCache(cache, lock -> !lock.isLeaseHeld() && !lock.isAcquiredInThisProcess());
+		this.leaseMs = properties.getLeaseLock().getLeaseMs();
+		this.atomicIntegers = this.newRecipeCache(cache, value -> true);
+		this.atomicLongs = this.newRecipeCache(cache, value -> true);
+		this.atomicValues = this.newRecipeCache(cache, value -> true);
+		this.counterProperties = properties.getCounter();
+		this.semaphoreProperties = properties.getSemaphore();
+		this.rateLimiterProperties = properties.getRateLimiter();
+		this.queueProperties = properties.getQueue();
+		this.bulkMaxInFlight = properties.getBulk().getMaxInFlight();
+		this.barrierFanout = properties.getBarrier().getFanout();
+		this.changeFeedProperties = properties.getChangeFeed();
+		this.serializerType = properties.getPayload().getSerializer();
+		this.compressPayload = properties.getPayload().isCompression();
+		this.writeBatchProperties = properties.getWriteBatch();
+		this.writeBatchers = new CuratorZkWriteBatcher[clientRing.size()];
+		// 每个集群一个熔断器，由连接状态驱动
+		CuratorZkProperties.CircuitBreaker circuitBreaker = properties.getCircuitBreaker();
+		this.circuitBreakerLocalFallback = CuratorZkProperties.CircuitBreaker.FALLBACK_LOCAL.equalsIgnoreCase(circuitBreaker.getFallback());
+		if (circuitBreaker.isEnabled()) {
+			for (int i = 0; i < clientRing.size(); i++) {
+				circuitBreakers.add(CuratorZkCircuitBreaker.bindTo(clientRing.getClient(i), clientRing.getNames().get(i),
+						circuitBreaker.getHalfOpenMaxCalls(), circuitBreaker.getWaitDurationMs()));
+			}
+		}
+		// 加锁状态按线程和 lockKey 保存，整个模板共用一个实例即可
+		this.distributedLock = new CuratorZkDistributedLock(clientRing, "/locks", sessionTimeout, lockListeners, circuitBreakers);
+		this.leaderRegistry = new CuratorZkLeaderRegistry(clientRing, properties.getLeader().getRoot(),
+				properties.getLeader().getParticipantId(), leaderListeners);
+	}
+
+	/**
+	 * 淘汰扫描在内部线程中执行，不占用取锁的调用线程
+	 */
+	private <T> CuratorZkRecipeCache<T> newRecipeCache(CuratorZkProperties.RecipeCache cache, Predicate<T> evictable) {
+		return new CuratorZkRecipeCache<>(cache.getMaximumSize(), cache.getExpireAfterAccessMs(), cache.getMinIdleMs(), evictable,
+				recipeCacheStats, task -> this.getScheduler().execute(task));
+	}
+
+	private <T> T cached(CuratorZkRecipeCache<T> cache, String path, Function<String, T> loader) {
+		return recipeCacheEnabled ? cache.get(path, loader) : loader.apply(path);
+	}
+
+	/**
+	 * 启用熔断时在锁外层加上熔断保护
+	 */
+	private InterProcessLock guarded(InterProcessLock lock, String lockKey) {
+		if (circuitBreakers.isEmpty()) {
+			return lock;
+		}
+		return new CuratorZkCircuitBreakerLock(lock, lockKey, this.circuitBreakerOf(lockKey), circuitBreakerLocalFallback);
+	}
+
+	private CuratorZkCircuitBreaker circuitBreakerOf(String key) {
+		return circuitBreakers.isEmpty() ? null : circuitBreakers.get(clientRing.indexOf(key));
+	}
+
+	private static CuratorZkCoalescingLock coalescingLockOf(CuratorZkInstrumentedLock lock) {
+		InterProcessLock delegate = lock.getDelegate();
+		if (delegate instanceof CuratorZkCircuitBreakerLock) {
+			delegate = ((CuratorZkCircuitBreakerLock) delegate).getDelegate();
+		}
+		return (CuratorZkCoalescingLock) delegate;
 	}
 
 	public CuratorZkDistributedLock getDistributedLock() {
-		return new CuratorZkDistributedLock(curatorClient, sessionTimeout);
+		return distributedLock;
 	}
 
 	/**
@@ -42,7 +218,7 @@ public class CuratorZkTemplate {
 	 * @return
 	 */
 	public InterProcessLock getSharedLock(String lockKey) {
-		return new InterProcessSemaphoreMutex(curatorClient, lockKey);
+		return cached(sharedLocks, lockKey, key -> new CuratorZkInstrumentedLock(this.guarded(new InterProcessSemaphoreMutex(clientRing.route(key), key), key), key, lockListeners));
 	}
 
 	/**
@@ -52,28 +228,77 @@ public class CuratorZkTemplate {
 	 * @return
 	 */
 	public InterProcessLock getSharedReentrantLock(String lockKey) {
-		return new InterProcessMutex(curatorClient, lockKey);
+		return cached(sharedReentrantLocks, lockKey, key -> new CuratorZkInstrumentedLock(this.guarded(new InterProcessMutex(clientRing.route(key), key), key), key, lockListeners));
+	}
+
+	/**
+	 * 合并锁--- 同一 JVM 内对同一 lockKey 共享一个实例，只有本地队首线程持有 ZooKeeper 锁节点
+	 *
+	 * @param lockKey
+	 * @return
+	 */
+	public InterProcessLock getCoalescingLock(String lockKey) {
+		return coalescingLocks.get(lockKey, key -> new CuratorZkInstrumentedLock(this.guarded(new CuratorZkCoalescingLock(asyncTemplates[clientRing.indexOf(key)], key, maxHandoffs), key), key, lockListeners));
 	}
 
 	/**
-	 * 共享可重入读写锁--- InterProcessMutex
+	 * 租约锁--- 本地释放后保留租约，租约期内本进程再次加锁不访问 ZooKeeper；每次授予租约携带 fencing token
+	 *
+	 * @param lockKey
+	 * @return
+	 */
+	public CuratorZkLeaseLock getLeaseLock(String lockKey) {
+		return leaseLocks.get(lockKey, key -> new CuratorZkLeaseLock(clientRing.route(key), key, leaseMs, this.getScheduler(), lockListeners,
+				this.circuitBreakerOf(key)));
+	}
+
+	/**
+	 * 共享可重入读写锁--- InterProcessMutex；返回 Curator 原生类型，不受熔断保护
 	 *
 	 * @param lockKey
 	 * @return
 	 */
 	public InterProcessReadWriteLock getSharedReentrantReadWriteLock(String lockKey) {
-		return new InterProcessReadWriteLock(curatorClient, lockKey);
+		return cached(sharedReentrantReadWriteLocks, lockKey, key -> new InterProcessReadWriteLock(clientRing.route(key), key));
 	}
 
 	/**
-	 * 共享信号量--- InterProcessSemaphoreV2
+	 * 共享信号量--- InterProcessSemaphoreV2；返回 Curator 原生类型，不受熔断保护，需要熔断时使用 {@link #getShardedSemaphore(String, int)}
 	 *
 	 * @param lockKey
 	 * @return
 	 */
 	public InterProcessSemaphoreV2 getSharedSemaphore(String lockKey) {
+		return this.getSharedSemaphore(lockKey, 1);
+	}
+
+	/**
+	 * 共享信号量--- InterProcessSemaphoreV2；返回 Curator 原生类型，不受熔断保护
+	 *
+	 * @param lockKey
+	 * @param permits 许可总数
+	 * @return
+	 */
+	public InterProcessSemaphoreV2 getSharedSemaphore(String lockKey, int permits) {
 		// 创建一个信号量, Curator 以公平锁的方式进行实现
-		return new InterProcessSemaphoreV2(curatorClient, lockKey, 1);
+		return new InterProcessSemaphoreV2(clientRing.route(lockKey), lockKey, permits);
+	}
+
+	/**
+	 * 分片信号量--- 许可分散到多个分片，并在本地预取租约，适合许可数较多的全局并发/限流控制
+	 *
+	 * @param semaphorePath
+	 * @param permits 许可总数，同一路径各节点需一致
+	 * @return
+	 */
+	public CuratorZkShardedSemaphore getShardedSemaphore(String semaphorePath, int permits) {
+		CuratorZkShardedSemaphore semaphore = shardedSemaphores.computeIfAbsent(semaphorePath, key -> new CuratorZkShardedSemaphore(
+				clientRing.route(key), key, permits, semaphoreProperties.getShards(), semaphoreProperties.getPrefetch(),
+				semaphoreProperties.getIdleReturnMs(), this.getScheduler(), this.circuitBreakerOf(key)));
+		if (semaphore.getPermits() != permits) {
+			throw new IllegalArgumentException("Semaphore " + semaphorePath + " already exists with " + semaphore.getPermits() + " permits");
+		}
+		return semaphore;
 	}
 
 	/**
@@ -87,32 +312,563 @@ public class CuratorZkTemplate {
 		return new InterProcessMultiLock(Arrays.asList(locks));
 	}
 
+	/**
+	 * 命名选举--- LeaderLatch，首次获取时开始参与选举，isLeader() 不访问 ZooKeeper
+	 *
+	 * @param name 选举名称
+	 * @return
+	 */
+	public CuratorZkLeaderLatch getLeaderLatch(String name) {
+		return leaderRegistry.getLatch(name);
+	}
+
+	/**
+	 * 轮流执行的领导者选举--- LeaderSelector，由调用方 start/close
+	 *
+	 * @param leaderPath
+	 * @param listener 成为领导者时回调，回调返回即交出领导权
+	 * @return
+	 */
+	public LeaderSelector getLeaderSelector(String leaderPath, LeaderSelectorListener listener) {
+		return new LeaderSelector(clientRing.route(leaderPath), leaderPath, listener);
+	}
+
+	public CuratorZkLeaderRegistry getLeaderRegistry() {
+		return leaderRegistry;
+	}
+
 	public DistributedBarrier getBarrier(String barrierPath) {
-		return new DistributedBarrier(curatorClient, barrierPath);
+		return new DistributedBarrier(clientRing.route(barrierPath), barrierPath);
 	}
 
 	public DistributedDoubleBarrier getDoubleBarrier(String barrierPath, int memberQty) {
-		return new DistributedDoubleBarrier(curatorClient, barrierPath, memberQty);
+		return new DistributedDoubleBarrier(clientRing.route(barrierPath), barrierPath, memberQty);
+	}
+
+	/**
+	 * 组合树双栅栏--- 成员较多时替代 DistributedDoubleBarrier，每个成员只监听所在组的节点
+	 *
+	 * @param barrierPath 栅栏路径，每个路径只能使用一轮，所有成员离开后以 {@link CuratorZkTreeBarrier#clean()} 删除
+	 * @param memberQty   成员数
+	 * @return
+	 */
+	public CuratorZkTreeBarrier getTreeBarrier(String barrierPath, int memberQty) {
+		return this.getTreeBarrier(barrierPath, memberQty, barrierFanout);
+	}
+
+	public CuratorZkTreeBarrier getTreeBarrier(String barrierPath, int memberQty, int fanout) {
+		return new CuratorZkTreeBarrier(clientRing.route(barrierPath), barrierPath, memberQty, fanout, callbackExecutor);
 	}
 
 	public DistributedAtomicInteger getAtomicInteger(String lockKey) {
-		return new DistributedAtomicInteger(curatorClient, lockKey, retryPolicy);
+		return cached(atomicIntegers, lockKey, key -> new DistributedAtomicInteger(clientRing.route(key), key, retryPolicy));
 	}
 
 	public DistributedAtomicLong getAtomicLong(String lockKey) {
-		return new DistributedAtomicLong(curatorClient, lockKey, retryPolicy);
+		return cached(atomicLongs, lockKey, key -> new DistributedAtomicLong(clientRing.route(key), key, retryPolicy));
 	}
 
 	public DistributedAtomicValue getAtomicValue(String lockKey) {
-		return new DistributedAtomicValue(curatorClient, lockKey, retryPolicy);
+		return cached(atomicValues, lockKey, key -> new DistributedAtomicValue(clientRing.route(key), key, retryPolicy));
+	}
+
+	/**
+	 * 分片计数器--- 本地缓冲、定期合并写入多个分片节点，适合高频统计计数
+	 *
+	 * @param counterPath
+	 * @return
+	 */
+	public CuratorZkStripedCounter getStripedCounter(String counterPath) {
+		return stripedCounters.computeIfAbsent(counterPath, key -> new CuratorZkStripedCounter(clientRing.route(key), key,
+				counterProperties.getStripes(), this.getScheduler(), counterProperties.getFlushIntervalMs()));
+	}
+
+	/**
+	 * 号段序列--- 每次租用一段号，号段内分配不访问 ZooKeeper
+	 *
+	 * @param sequencePath
+	 * @return
+	 */
+	public CuratorZkSequence getSequence(String sequencePath) {
+		return sequences.computeIfAbsent(sequencePath, key -> new CuratorZkSequence(
+				new DistributedAtomicLong(clientRing.route(key), key, retryPolicy), counterProperties.getSequenceBlockSize()));
+	}
+
+	/**
+	 * 分布式限流器--- 令牌桶，容量等于每秒令牌数（允许 1 秒的突发量）
+	 *
+	 * @param limiterPath
+	 * @param permitsPerSecond 全局每秒令牌数
+	 * @return
+	 */
+	public ZkRateLimiter getRateLimiter(String limiterPath, double permitsPerSecond) {
+		return this.getRateLimiter(limiterPath, permitsPerSecond, (long) Math.ceil(permitsPerSecond));
+	}
+
+	/**
+	 * 分布式限流器--- 令牌桶，各实例批量预留令牌，常规路径不访问 ZooKeeper
+	 *
+	 * @param limiterPath
+	 * @param permitsPerSecond 全局每秒令牌数，同一路径各节点需一致
+	 * @param capacity 令牌桶容量
+	 * @return
+	 */
+	public ZkRateLimiter getRateLimiter(String limiterPath, double permitsPerSecond, long capacity) {
+		ZkRateLimiter rateLimiter = rateLimiters.computeIfAbsent(limiterPath, key -> new ZkRateLimiter(clientRing.route(key), key,
+				permitsPerSecond, capacity, rateLimiterProperties.getWindowMs()));
+		if (rateLimiter.getPermitsPerSecond() != permitsPerSecond || rateLimiter.getCapacity() != capacity) {
+			throw new IllegalArgumentException("Rate limiter " + limiterPath + " already exists with " + rateLimiter.getPermitsPerSecond()
+					+ " permits per second and capacity " + rateLimiter.getCapacity());
+		}
+		return rateLimiter;
+	}
+
+	/**
+	 * 读取节点并反序列化，启用压缩时只解压带压缩标记的数据，未压缩写入的旧数据原样读取
+	 *
+	 * @param path
+	 * @param type 目标类型
+	 * @return 节点不存在或数据为空时返回 null
+	 */
+	public <T> T get(String path, Class<T> type) throws Exception {
+		return this.get(path, type, null);
+	}
+
+	/**
+	 * 读取节点并反序列化，同时取得节点状态
+	 *
+	 * @param path
+	 * @param type 目标类型
+	 * @param stat 接收节点状态，可为 null
+	 * @return 节点不存在或数据为空时返回 null
+	 */
+	public <T> T get(String path, Class<T> type, Stat stat) throws Exception {
+		CuratorFramework client = clientRing.route(path);
+		Stat target = stat == null ? new Stat() : stat;
+		byte[] data;
+		try {
+			data = client.getData().storingStatIn(target).forPath(path);
+		} catch (KeeperException.NoNodeException e) {
+			return null;
+		}
+		if (compressPayload) {
+			data = CuratorZkCompressionProvider.decompressIfMarked(path, data);
+		}
+		return data == null || data.length == 0 ? null : this.getSerializer().deserialize(data, type);
+	}
+
+	/**
+	 * 序列化后写入节点，节点不存在时连同父节点一起创建
+	 *
+	 * @param path
+	 * @param value 对象
+	 */
+	public void put(String path, Object value) throws Exception {
+		CuratorFramework client = clientRing.route(path);
+		byte[] data = this.getSerializer().serialize(value);
+		try {
+			if (compressPayload) {
+				client.setData().compressed().forPath(path, data);
+			} else {
+				client.setData().forPath(path, data);
+			}
+		} catch (KeeperException.NoNodeException e) {
+			try {
+				if (compressPayload) {
+					client.create().compressed().creatingParentContainersIfNeeded().forPath(path, data);
+				} else {
+					client.create().creatingParentContainersIfNeeded().forPath(path, data);
+				}
+			} catch (KeeperException.NodeExistsException ex) {
+				// 并发创建，按覆盖语义再写一次
+				this.put(path, value);
+			}
+		}
+	}
+
+	/**
+	 * 按版本号写入节点（CAS）
+	 *
+	 * @param path
+	 * @param value   对象
+	 * @param version 期望的版本号
+	 * @return 版本号不匹配时返回 false
+	 */
+	public boolean put(String path, Object value, int version) throws Exception {
+		CuratorFramework client = clientRing.route(path);
+		byte[] data = this.getSerializer().serialize(value);
+		try {
+			if (compressPayload) {
+				client.setData().compressed().withVersion(version).forPath(path, data);
+			} else {
+				client.setData().withVersion(version).forPath(path, data);
+			}
+			return true;
+		} catch (KeeperException.BadVersionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 首次使用时按 payload.serializer 创建，只用锁等功能时不要求引入 Jackson
+	 */
+	public ZkSerializer getSerializer() {
+		if (serializer == null) {
+			initLock.lock();
+			try {
+				if (serializer == null) {
+					serializer = ZkSerializers.of(serializerType);
+				}
+			} finally {
+				initLock.unlock();
+			}
+		}
+		return serializer;
+	}
+
+	public void setSerializer(ZkSerializer serializer) {
+		this.serializer = serializer;
+	}
+
+	/**
+	 * 批量分布式队列--- DistributedQueue，每个节点保存一批元素；返回已启动的队列，由调用方关闭
+	 *
+	 * @param queuePath
+	 * @param serializer 元素序列化器
+	 * @return
+	 */
+	public <T> CuratorZkQueue<T> getQueue(String queuePath, QueueSerializer<T> serializer) throws Exception {
+		return this.newQueue(queuePath, serializer, false);
+	}
+
+	/**
+	 * 批量优先级队列--- DistributedPriorityQueue，返回已启动的队列，由调用方关闭
+	 *
+	 * @param queuePath
+	 * @param serializer 元素序列化器
+	 * @return
+	 */
+	public <T> CuratorZkQueue<T> getPriorityQueue(String queuePath, QueueSerializer<T> serializer) throws Exception {
+		return this.newQueue(queuePath, serializer, true);
+	}
+
+	private <T> CuratorZkQueue<T> newQueue(String queuePath, QueueSerializer<T> serializer, boolean priority) throws Exception {
+		CuratorZkQueue<T> queue = new CuratorZkQueue<>(clientRing.route(queuePath), queuePath, serializer, priority,
+				queueProperties.getMaxBatchSize(), queueProperties.getPrefetch(), queueProperties.isLockSafe());
+		queue.start();
+		return queue;
+	}
+
+	/**
+	 * 流水线遍历子树（含根节点），读取节点数据，启用压缩时只解压带压缩标记的数据，其它程序写入的节点原样返回
+	 *
+	 * @param path     子树根路径
+	 * @param consumer 节点回调，在调用线程中执行
+	 * @return 遍历的节点数
+	 */
+	public long walkTree(String path, CuratorZkTreeReader.NodeConsumer consumer) throws Exception {
+		return this.walkTree(path, true, consumer);
+	}
+
+	/**
+	 * 流水线遍历子树（含根节点）；配置多个集群时依次遍历每个集群，只返回按路径分片落在所属集群上的节点
+	 *
+	 * @param path     子树根路径
+	 * @param withData 是否读取节点数据，为 false 时只取节点状态
+	 * @param consumer 节点回调，在调用线程中执行
+	 * @return 遍历的节点数
+	 */
+	public long walkTree(String path, boolean withData, CuratorZkTreeReader.NodeConsumer consumer) throws Exception {
+		return new CuratorZkTreeReader(clientRing, bulkMaxInFlight, compressPayload).walk(path, withData, consumer);
+	}
+
+	/**
+	 * 子树变更流--- 基于持久递归 Watch，不缓存节点数据；需要 reactor-core。配置多个集群时合并每个集群上的事件
+	 *
+	 * @param path 子树根路径
+	 * @return
+	 */
+	public CuratorZkChangeFeed getChangeFeed(String path) {
+		return new CuratorZkChangeFeed(clientRing, path, changeFeedProperties.getBufferSize(),
+				changeFeedProperties.getOverflow(), changeFeedProperties.isCoalesce(), compressPayload, callbackExecutor);
+	}
+
+	/**
+	 * 将子树导出为快照，节点数据按原样（不解压）写出；配置多个集群时导出所有集群上的节点
+	 *
+	 * @param path 子树根路径
+	 * @param out  输出流，不会被关闭
+	 * @return 导出的节点数
+	 */
+	public long exportTree(String path, OutputStream out) throws Exception {
+		return new CuratorZkTreeReader(clientRing, bulkMaxInFlight, false).exportTo(path, out);
+	}
+
+	/**
+	 * 将快照导入到指定路径下，已存在的节点覆盖数据；每个节点按路径写到所属集群
+	 *
+	 * @param path 目标根路径
+	 * @param in   快照输入流，不会被关闭
+	 * @return 导入的节点数
+	 */
+	public long importTree(String path, InputStream in) throws Exception {
+		return new CuratorZkTreeWriter(clientRing, bulkMaxInFlight).importFrom(path, in);
+	}
+
+	/**
+	 * 批量创建节点--- 与其他批量写操作合并为一个事务提交，大幅减少往返次数
+	 *
+	 * @param path
+	 * @param data
+	 * @param mode
+	 * @return 该操作的事务结果
+	 */
+	public CompletableFuture<CuratorTransactionResult> createBatched(String path, byte[] data, CreateMode mode) throws Exception {
+		return this.getWriteBatcher(path).create(path, data, mode);
+	}
+
+	public CompletableFuture<CuratorTransactionResult> setDataBatched(String path, byte[] data) throws Exception {
+		return this.getWriteBatcher(path).setData(path, data);
+	}
+
+	public CompletableFuture<CuratorTransactionResult> setDataBatched(String path, byte[] data, int version) throws Exception {
+		return this.getWriteBatcher(path).setData(path, data, version);
+	}
+
+	public CompletableFuture<CuratorTransactionResult> deleteBatched(String path) throws Exception {
+		return this.getWriteBatcher(path).delete(path);
+	}
+
+	public CompletableFuture<CuratorTransactionResult> checkBatched(String path, int version) throws Exception {
+		return this.getWriteBatcher(path).check(path, version);
+	}
+
+	/**
+	 * 批量写操作组--- 同成同败，与其他批量写操作合并提交但不会被拆分；组内路径必须位于同一集群
+	 *
+	 * @param path 用于选择集群的路径
+	 * @return 操作组，调用 submit() 提交
+	 */
+	public CuratorZkWriteBatcher.Group groupBatched(String path) {
+		return this.getWriteBatcher(path).group();
+	}
+
+	/**
+	 * 立即提交所有尚未提交的批量写操作
+	 */
+	public void flushBatched() {
+		for (CuratorZkWriteBatcher batcher : writeBatchers) {
+			if (batcher != null) {
+				batcher.flush();
+			}
+		}
+	}
+
+	/**
+	 * 事务只能提交到单个集群，因此每个集群一个合并器
+	 */
+	protected CuratorZkWriteBatcher getWriteBatcher(String path) {
+		int index = clientRing.indexOf(path);
+		CuratorZkWriteBatcher batcher = writeBatchers[index];
+		if (batcher == null) {
+			initLock.lock();
+			try {
+				batcher = writeBatchers[index];
+				if (batcher == null) {
+					batcher = new CuratorZkWriteBatcher(clientRing.getClient(index), writeBatchProperties.getMaxOps(),
+							writeBatchProperties.getMaxBytes(), writeBatchProperties.getLingerMs(), this.getScheduler(), this.getBatchExecutor());
+					writeBatchers[index] = batcher;
+				}
+			} finally {
+				initLock.unlock();
+			}
+		}
+		return batcher;
+	}
+
+	/**
+	 * 模板内部定时任务（计数器刷新等）共用的守护线程
+	 */
+	protected ScheduledExecutorService getScheduler() {
+		if (scheduler == null) {
+			initLock.lock();
+			try {
+				if (scheduler == null) {
+					scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+						Thread thread = new Thread(r, "curator-template-scheduler");
+						thread.setDaemon(true);
+						return thread;
+					});
+				}
+			} finally {
+				initLock.unlock();
+			}
+		}
+		return scheduler;
+	}
+
+	/**
+	 * 批量写事务的提交线程，阻塞的提交不占用 {@link #getScheduler()}
+	 */
+	protected ExecutorService getBatchExecutor() {
+		if (batchExecutor == null) {
+			initLock.lock();
+			try {
+				if (batchExecutor == null) {
+					batchExecutor = Executors.newCachedThreadPool(r -> {
+						Thread thread = new Thread(r, "curator-template-batch");
+						thread.setDaemon(true);
+						return thread;
+					});
+				}
+			} finally {
+				initLock.unlock();
+			}
+		}
+		return batchExecutor;
+	}
+
+	/**
+	 * 设置完成回调的线程池（curator.executor.type），对合并锁之后的加锁、之后创建的树形栅栏返回的 future 以及变更流的下发生效；
+	 * 应在使用模板前设置。锁内部的连接状态监听、Leader 选举回调等仍在 Curator 线程上执行
+	 */
+	public void setCallbackExecutor(Executor callbackExecutor) {
+		initLock.lock();
+		try {
+			this.callbackExecutor = callbackExecutor;
+			// 原地更换线程池：已缓存的合并锁仍持有这些实例，不能关闭后替换
+			for (AsyncCuratorZkTemplate asyncTemplate : asyncTemplates) {
+				asyncTemplate.setCallbackExecutor(callbackExecutor);
+			}
+		} finally {
+			initLock.unlock();
+		}
+	}
+
+	public Executor getCallbackExecutor() {
+		return callbackExecutor;
+	}
+
+	/**
+	 * 依次刷新分段计数器与批量写、交还预取的信号量许可与租约锁、退出 Leader 选举，最后停止内部线程；可重复调用
+	 */
+	@Override
+	public void close() {
+		initLock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		} finally {
+			initLock.unlock();
+		}
+		for (CuratorZkStripedCounter counter : stripedCounters.values()) {
+			this.closeQuietly(counter);
+		}
+		for (CuratorZkWriteBatcher batcher : writeBatchers) {
+			if (batcher != null) {
+				this.closeQuietly(batcher);
+			}
+		}
+		for (CuratorZkShardedSemaphore semaphore : shardedSemaphores.values()) {
+			this.closeQuietly(semaphore);
+		}
+		for (CuratorZkLeaseLock lock : leaseLocks.values()) {
+			this.closeQuietly(lock);
+		}
+		leaderRegistry.close();
+		// 刷新与交还都已同步完成，剩余的定时任务（租约到期、空闲归还等）可直接丢弃
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		if (batchExecutor != null) {
+			batchExecutor.shutdown();
+			try {
+				batchExecutor.awaitTermination(sessionTimeout, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for (AsyncCuratorZkTemplate asyncTemplate : asyncTemplates) {
+			asyncTemplate.close();
+		}
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	private void closeQuietly(Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (Exception e) {
+			LOG.warn("Failed to close " + closeable + " : " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 注册锁监听器，对 getDistributedLock、getSharedLock、getSharedReentrantLock、getCoalescingLock、getLeaseLock 返回的锁生效
+	 *
+	 * @param listener
+	 */
+	public void addLockListener(CuratorZkLockListener listener) {
+		lockListeners.add(listener);
+	}
+
+	public void removeLockListener(CuratorZkLockListener listener) {
+		lockListeners.remove(listener);
+	}
+
+	/**
+	 * 注册领导权变更监听器，对 getLeaderLatch 返回的选举生效
+	 *
+	 * @param listener
+	 */
+	public void addLeaderListener(CuratorZkLeaderListener listener) {
+		leaderListeners.add(listener);
+	}
+
+	public void removeLeaderListener(CuratorZkLeaderListener listener) {
+		leaderListeners.remove(listener);
 	}
 
 	public CuratorFramework getCuratorClient() {
 		return curatorClient;
 	}
 
+	/**
+	 * key 所属集群的客户端，单集群时即 {@link #getCuratorClient()}
+	 *
+	 * @param key 锁标识或节点路径
+	 * @return 客户端
+	 */
+	public CuratorFramework getCuratorClient(String key) {
+		return clientRing.route(key);
+	}
+
+	/**
+	 * 各集群的熔断器，与 {@link #getClientRing()} 中的客户端一一对应；未启用熔断时为空
+	 */
+	public List<CuratorZkCircuitBreaker> getCircuitBreakers() {
+		return Collections.unmodifiableList(circuitBreakers);
+	}
+
+	public CuratorZkClientRing getClientRing() {
+		return clientRing;
+	}
+
 	public RetryPolicy getRetryPolicy() {
 		return retryPolicy;
 	}
 
+	/**
+	 * recipe 实例缓存的命中/未命中/淘汰计数
+	 *
+	 * @return 统计信息
+	 */
+	public CuratorZkRecipeCache.Stats getRecipeCacheStats() {
+		return recipeCacheStats;
+	}
+
 }
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.EventType;
+
+/**
+ * 组合树（combining tree）双栅栏，用于替代成员较多时的 {@link org.apache.curator.framework.recipes.barriers.DistributedDoubleBarrier}：
+ * <ul>
+ * <li>成员按进入顺序取得序号，每 fanout 个成员为一组，每组的最后到达者代表该组进入上一层，直到根节点；</li>
+ * <li>根节点到齐后逐层放行：每个组的最后到达者负责创建该组的 ready 节点，其余成员只监听自己所在组的 ready 节点；</li>
+ * <li>到达节点以 protection 模式创建，连接丢失后的重试不会留下重复节点；每个成员创建后读取所在组的子节点（至多 fanout 个），
+ * 按序号排在第 groupSize 位的成员即最后到达者，不依赖序号本身（序号来自父节点的 cversion，删除子节点也会使其增长）；</li>
+ * <li>每个 ready 节点最多 fanout - 1 个监听者，总请求数为 O(n)。</li>
+ * </ul>
+ * 节点结构：{@code <path>/members/m-<seq>}、{@code <path>/<enter|leave>/<level>-<group>/a-<seq>}、
+ * {@code <path>/<enter|leave>/<level>-<group>-ready}，均为持久节点。每个路径只能使用一轮，成员超时后其到达仍然计数；
+ * 所有成员离开后调用 {@link #clean()} 删除。
+ * <p>
+ * 全部 ZooKeeper 请求以后台方式提交，{@link #enterAsync()}、{@link #leaveAsync()} 不占用线程等待；
+ * 指定 {@code callbackExecutor} 时返回的 future 在该线程池上完成，调用方的后续阶段不占用 Curator 事件线程。
+ */
+public class CuratorZkTreeBarrier {
+
+	private static final String MEMBERS = "members";
+	private static final String ENTER = "enter";
+	private static final String LEAVE = "leave";
+
+	private final CuratorFramework curatorClient;
+	private final String barrierPath;
+	private final int memberQty;
+	private final int fanout;
+	private final Executor callbackExecutor;
+	/**
+	 * 每一层的参与单元数：第 0 层为成员数，往上每层为下一层的组数
+	 */
+	private final int[] units;
+	private volatile int index = -1;
+
+	/**
+	 * @param curatorClient 客户端
+	 * @param barrierPath   栅栏路径
+	 * @param memberQty     成员数
+	 * @param fanout        每组成员数，至少为 2
+	 */
+	public CuratorZkTreeBarrier(CuratorFramework curatorClient, String barrierPath, int memberQty, int fanout) {
+		this(curatorClient, barrierPath, memberQty, fanout, null);
+	}
+
+	/**
+	 * @param curatorClient    客户端
+	 * @param barrierPath      栅栏路径
+	 * @param memberQty        成员数
+	 * @param fanout           每组成员数，至少为 2
+	 * @param callbackExecutor 完成返回结果的线程池，为 null 时直接在 Curator 事件线程上完成
+	 */
+	public CuratorZkTreeBarrier(CuratorFramework curatorClient, String barrierPath, int memberQty, int fanout, Executor callbackExecutor) {
+		if (memberQty < 1 || fanout < 2) {
+			throw new IllegalArgumentException("memberQty must be positive and fanout at least 2");
+		}
+		this.curatorClient = curatorClient;
+		this.barrierPath = barrierPath;
+		this.memberQty = memberQty;
+		this.fanout = fanout;
+		this.callbackExecutor = callbackExecutor;
+		List<Integer> levels = new ArrayList<>();
+		int count = memberQty;
+		levels.add(count);
+		while (count > fanout) {
+			count = (count + fanout - 1) / fanout;
+			levels.add(count);
+		}
+		this.units = levels.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * 进入栅栏，等待所有成员进入
+	 */
+	public void enter() throws Exception {
+		await(this.enterAsync());
+	}
+
+	/**
+	 * 在指定时间内等待所有成员进入
+	 *
+	 * @return 超时返回 false
+	 */
+	public boolean enter(long time, TimeUnit unit) throws Exception {
+		return await(this.enterAsync(), time, unit);
+	}
+
+	/**
+	 * 离开栅栏，等待所有成员离开
+	 */
+	public void leave() throws Exception {
+		await(this.leaveAsync());
+	}
+
+	/**
+	 * 在指定时间内等待所有成员离开
+	 *
+	 * @return 超时返回 false
+	 */
+	public boolean leave(long time, TimeUnit unit) throws Exception {
+		return await(this.leaveAsync(), time, unit);
+	}
+
+	/**
+	 * 进入栅栏，所有成员进入后完成
+	 */
+	public CompletableFuture<Void> enterAsync() {
+		// 成员节点使用持久节点：临时节点随成员崩溃被删除时会使后续成员的序号出现空洞
+		return this.deliver(this.create(ZKPaths.makePath(barrierPath, MEMBERS, "m-"), CreateMode.PERSISTENT_SEQUENTIAL).thenCompose(name -> {
+			int sequence = sequenceOf(name);
+			if (sequence >= memberQty) {
+				throw new IllegalStateException("More than " + memberQty + " members entered barrier " + barrierPath);
+			}
+			index = sequence;
+			return this.arrive(ENTER, 0, sequence, new ArrayList<>());
+		}));
+	}
+
+	/**
+	 * 离开栅栏，所有成员离开后完成
+	 */
+	public CompletableFuture<Void> leaveAsync() {
+		if (index < 0) {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			future.completeExceptionally(new IllegalStateException("Barrier " + barrierPath + " not entered"));
+			return future;
+		}
+		return this.deliver(this.arrive(LEAVE, 0, index, new ArrayList<>()));
+	}
+
+	/**
+	 * 在 callbackExecutor 上完成返回给调用方的 future
+	 */
+	private <T> CompletableFuture<T> deliver(CompletableFuture<T> future) {
+		if (callbackExecutor == null) {
+			return future;
+		}
+		CompletableFuture<T> delivered = new CompletableFuture<>();
+		future.whenComplete((value, ex) -> callbackExecutor.execute(() -> {
+			if (ex != null) {
+				delivered.completeExceptionally(ex);
+			} else {
+				delivered.complete(value);
+			}
+		}));
+		return delivered;
+	}
+
+	/**
+	 * 在第 level 层以单元 unit 到达；是所在组的最后到达者时继续进入上一层，否则等待该组放行
+	 *
+	 * @param completed 本成员作为最后到达者完成的组，放行时由本成员负责
+	 */
+	private CompletableFuture<Void> arrive(String phase, int level, int unit, List<String> completed) {
+		int group = unit / fanout;
+		int groupSize = Math.min(fanout, units[level] - group * fanout);
+		String groupPath = ZKPaths.makePath(barrierPath, phase, level + "-" + group);
+		return this.create(ZKPaths.makePath(groupPath, "a-"), CreateMode.PERSISTENT_SEQUENTIAL)
+				.thenCompose(name -> this.positionOf(groupPath, name))
+				.thenCompose(position -> {
+					if (position != groupSize - 1) {
+						// 尚未到齐，或组已满后多余的到达，等待该组放行
+						return this.awaitNode(groupPath + "-ready").thenCompose(ready -> this.release(completed));
+					}
+					completed.add(groupPath);
+					if (level == units.length - 1) {
+						// 根节点到齐
+						return this.release(completed);
+					}
+					return this.arrive(phase, level + 1, group, completed);
+				});
+	}
+
+	/**
+	 * 本节点在组内按序号的位置：序号更小的节点都先于本节点创建，此时一定可见
+	 */
+	private CompletableFuture<Integer> positionOf(String groupPath, String name) {
+		int sequence = sequenceOf(name);
+		CompletableFuture<Integer> future = new CompletableFuture<>();
+		try {
+			curatorClient.getChildren().inBackground((client, event) -> {
+				if (event.getResultCode() != KeeperException.Code.OK.intValue()) {
+					complete(future, event, null);
+					return;
+				}
+				int position = 0;
+				for (String child : event.getChildren()) {
+					if (sequenceOf(child) < sequence) {
+						position++;
+					}
+				}
+				future.complete(position);
+			}).forPath(groupPath);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * 自上而下放行本成员负责的组
+	 */
+	private CompletableFuture<Void> release(List<String> completed) {
+		CompletableFuture<?>[] released = new CompletableFuture<?>[completed.size()];
+		for (int i = 0; i < released.length; i++) {
+			released[i] = this.create(completed.get(completed.size() - 1 - i) + "-ready", CreateMode.PERSISTENT, true);
+		}
+		return CompletableFuture.allOf(released);
+	}
+
+	private CompletableFuture<String> create(String path, CreateMode mode) {
+		return this.create(path, mode, false);
+	}
+
+	/**
+	 * 创建节点，父节点不存在时逐级以后台请求创建父节点后重试：大量成员首次同时到达时，
+	 * 避免 creatingParentsIfNeeded 在客户端后台线程中逐级同步检查父节点
+	 *
+	 * @param existsOk 节点已存在是否视为成功
+	 */
+	private CompletableFuture<String> create(String path, CreateMode mode, boolean existsOk) {
+		CompletableFuture<String> future = new CompletableFuture<>();
+		BackgroundCallback callback = (client, event) -> {
+			if (event.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+				this.create(ZKPaths.getPathAndNode(path).getPath(), CreateMode.PERSISTENT, true)
+						.thenCompose(parent -> this.create(path, mode, existsOk))
+						.whenComplete((name, e) -> {
+							if (e != null) {
+								future.completeExceptionally(e);
+							} else {
+								future.complete(name);
+							}
+						});
+			} else if (existsOk && event.getResultCode() == KeeperException.Code.NODEEXISTS.intValue()) {
+				future.complete(path);
+			} else {
+				complete(future, event, event.getName());
+			}
+		};
+		try {
+			if (mode.isSequential()) {
+				// 顺序节点以 protection 模式创建，连接丢失后重试时按 GUID 找回已创建的节点，不会重复创建
+				curatorClient.create().withProtection().withMode(mode).inBackground(callback).forPath(path);
+			} else {
+				curatorClient.create().withMode(mode).inBackground(callback).forPath(path);
+			}
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private CompletableFuture<Void> awaitNode(String path) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		Watcher watcher = event -> {
+			if (event.getType() == EventType.NodeCreated) {
+				future.complete(null);
+			}
+		};
+		try {
+			curatorClient.checkExists().usingWatcher(watcher).inBackground((client, event) -> {
+				if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+					future.complete(null);
+				} else if (event.getResultCode() != KeeperException.Code.NONODE.intValue()) {
+					complete(future, event, null);
+				}
+			}).forPath(path);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private static <T> void complete(CompletableFuture<T> future, CuratorEvent event, T value) {
+		if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+			future.complete(value);
+		} else {
+			future.completeExceptionally(KeeperException.create(KeeperException.Code.get(event.getResultCode()), event.getPath()));
+		}
+	}
+
+	private static int sequenceOf(String name) {
+		return Integer.parseInt(name.substring(name.length() - 10));
+	}
+
+	private static void await(CompletableFuture<Void> future) throws Exception {
+		try {
+			future.get();
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	private static boolean await(CompletableFuture<Void> future, long time, TimeUnit unit) throws Exception {
+		try {
+			future.get(time, unit);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	private static Exception unwrap(ExecutionException e) {
+		return e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+	}
+
+	/**
+	 * 删除栅栏的全部节点，须在所有成员离开后调用（由任一成员或外部调用一次即可）
+	 */
+	public void clean() throws Exception {
+		try {
+			curatorClient.delete().deletingChildrenIfNeeded().forPath(barrierPath);
+		} catch (KeeperException.NoNodeException e) {
+			// 已删除
+		}
+	}
+
+	/**
+	 * @return 本成员的序号，未进入时为 -1
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return 组合树的层数
+	 */
+	public int getLevels() {
+		return units.length;
+	}
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.data.Stat;
+import org.springframework.util.StringUtils;
+
+/**
+ * 流水线方式遍历子树：按广度优先提交后台 getChildren/getData 请求，同时在途的节点数不超过 maxInFlight。
+ * <p>
+ * 结果在调用线程中逐个交给回调，回调处理期间不再提交新请求，在途请求与待处理结果都不超过 maxInFlight，
+ * 内存只与待访问的路径数有关，不随节点数据总量增长。遍历期间被删除的节点直接跳过。
+ * <p>
+ * 按客户端环构造时依次遍历每个集群上的子树：节点按完整路径分片（与 {@link CuratorZkTemplate#put} 等一致），
+ * 只返回落在所属集群上的节点，其它集群上为创建子节点而自动生成的父节点不重复返回。
+ */
+public class CuratorZkTreeReader {
+
+	/**
+	 * 快照文件头
+	 */
+	static final int SNAPSHOT_MAGIC = 0x5A4B5431;
+
+	/**
+	 * 节点回调
+	 */
+	@FunctionalInterface
+	public interface NodeConsumer {
+
+		void accept(ChildData node) throws Exception;
+
+	}
+
+	private final CuratorZkClientRing clientRing;
+	private final int maxInFlight;
+	private final boolean decompress;
+
+	/**
+	 * @param curatorClient 客户端
+	 * @param maxInFlight   同时在途的节点数
+	 * @param decompress    是否解压带压缩标记的节点数据，其它节点原样返回
+	 */
+	public CuratorZkTreeReader(CuratorFramework curatorClient, int maxInFlight, boolean decompress) {
+		this(CuratorZkClientRing.of(curatorClient), maxInFlight, decompress);
+	}
+
+	/**
+	 * @param clientRing  客户端环，遍历覆盖其中每个集群
+	 * @param maxInFlight 每个集群同时在途的节点数
+	 * @param decompress  是否解压带压缩标记的节点数据，其它节点原样返回
+	 */
+	public CuratorZkTreeReader(CuratorZkClientRing clientRing, int maxInFlight, boolean decompress) {
+		this.clientRing = clientRing;
+		this.maxInFlight = Math.max(1, maxInFlight);
+		this.decompress = decompress;
+	}
+
+	/**
+	 * 遍历子树（含根节点）
+	 *
+	 * @param root     子树根路径
+	 * @param withData 是否读取节点数据，为 false 时只取节点状态
+	 * @param consumer 节点回调，在调用线程中执行
+	 * @return 遍历的节点数
+	 * @throws Exception 读取失败或回调抛出的异常
+	 */
+	public long walk(String root, boolean withData, NodeConsumer consumer) throws Exception {
+		long count = 0;
+		for (int i = 0; i < clientRing.size(); i++) {
+			count += this.walk(i, root, withData, consumer);
+		}
+		return count;
+	}
+
+	private long walk(int index, String root, boolean withData, NodeConsumer consumer) throws Exception {
+		CuratorFramework curatorClient = clientRing.getClient(index);
+		BlockingQueue<Visit> completed = new LinkedBlockingQueue<>();
+		ArrayDeque<String> frontier = new ArrayDeque<>();
+		frontier.add(root);
+		int inFlight = 0;
+		long count = 0;
+		while (true) {
+			while (inFlight < maxInFlight && !frontier.isEmpty()) {
+				this.submit(curatorClient, new Visit(frontier.poll(), withData ? 2 : 1), withData, completed);
+				inFlight++;
+			}
+			if (inFlight == 0) {
+				return count;
+			}
+			Visit visit = completed.take();
+			inFlight--;
+			if (visit.code == KeeperException.Code.NONODE) {
+				continue;
+			}
+			if (visit.code != KeeperException.Code.OK) {
+				throw KeeperException.create(visit.code, visit.path);
+			}
+			for (String child : visit.children) {
+				frontier.add(ZKPaths.makePath(visit.path, child));
+			}
+			if (clientRing.indexOf(visit.path) != index) {
+				// 不属于该集群的节点只是子节点的父路径，继续向下遍历但不返回
+				continue;
+			}
+			byte[] data = decompress ? CuratorZkCompressionProvider.decompressIfMarked(visit.path, visit.data)
+					: visit.data;
+			consumer.accept(new ChildData(visit.path, visit.stat, data));
+			count++;
+		}
+	}
+
+	private void submit(CuratorFramework curatorClient, Visit visit, boolean withData, BlockingQueue<Visit> completed) throws Exception {
+		if (withData) {
+			curatorClient.getData().inBackground((client, event) -> visit.onData(event, completed)).forPath(visit.path);
+		}
+		curatorClient.getChildren().inBackground((client, event) -> visit.onChildren(event, completed)).forPath(visit.path);
+	}
+
+	/**
+	 * 将子树导出为快照：按遍历顺序（同一集群内父节点先于子节点）写入相对路径与数据，临时节点及 /zookeeper 系统节点不导出。
+	 * 格式：文件头 int，每个节点为 boolean(true) + UTF 相对路径 + int 数据长度（-1 表示 null）+ 数据，以 boolean(false) 结束。
+	 *
+	 * @param root 子树根路径
+	 * @param out  输出流，不会被关闭
+	 * @return 导出的节点数
+	 * @throws Exception 读取或写入失败
+	 */
+	public long exportTo(String root, OutputStream out) throws Exception {
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+		output.writeInt(SNAPSHOT_MAGIC);
+		boolean systemTree = ZKPaths.PATH_SEPARATOR.equals(root) && !StringUtils.hasText(clientRing.getClient(0).getNamespace());
+		long[] exported = new long[1];
+		this.walk(root, true, node -> {
+			if (node.getStat().getEphemeralOwner() != 0 || systemTree && isSystemPath(node.getPath())) {
+				return;
+			}
+			writeNode(output, relativePath(root, node.getPath()), node.getData());
+			exported[0]++;
+		});
+		output.writeBoolean(false);
+		output.flush();
+		return exported[0];
+	}
+
+	private static boolean isSystemPath(String path) {
+		return path.equals(ZooDefs.ZOOKEEPER_NODE_SUBTREE) || path.startsWith(ZooDefs.ZOOKEEPER_NODE_SUBTREE + ZKPaths.PATH_SEPARATOR);
+	}
+
+	private static String relativePath(String root, String path) {
+		if (ZKPaths.PATH_SEPARATOR.equals(root)) {
+			return ZKPaths.PATH_SEPARATOR.equals(path) ? "" : path;
+		}
+		return path.substring(root.length());
+	}
+
+	private static void writeNode(DataOutputStream output, String relativePath, byte[] data) throws IOException {
+		output.writeBoolean(true);
+		output.writeUTF(relativePath);
+		if (data == null) {
+			output.writeInt(-1);
+		} else {
+			output.writeInt(data.length);
+			output.write(data);
+		}
+	}
+
+	/**
+	 * 单个节点的读取结果，getData 与 getChildren 均返回后才算完成
+	 */
+	private static class Visit {
+
+		private final String path;
+		private final AtomicInteger pending;
+		private volatile KeeperException.Code code = KeeperException.Code.OK;
+		private volatile Stat stat;
+		private volatile byte[] data;
+		private volatile List<String> children = Collections.emptyList();
+
+		Visit(String path, int requests) {
+			this.path = path;
+			this.pending = new AtomicInteger(requests);
+		}
+
+		void onData(CuratorEvent event, BlockingQueue<Visit> completed) {
+			if (this.record(event)) {
+				data = event.getData();
+				stat = event.getStat();
+			}
+			this.complete(completed);
+		}
+
+		void onChildren(CuratorEvent event, BlockingQueue<Visit> completed) {
+			if (this.record(event)) {
+				children = event.getChildren();
+				if (stat == null) {
+					stat = event.getStat();
+				}
+			}
+			this.complete(completed);
+		}
+
+		private boolean record(CuratorEvent event) {
+			KeeperException.Code result = KeeperException.Code.get(event.getResultCode());
+			if (result != KeeperException.Code.OK && code == KeeperException.Code.OK) {
+				code = result;
+			}
+			return result == KeeperException.Code.OK;
+		}
+
+		private void complete(BlockingQueue<Visit> completed) {
+			if (pending.decrementAndGet() == 0) {
+				completed.add(this);
+			}
+		}
+
+	}
+
+}
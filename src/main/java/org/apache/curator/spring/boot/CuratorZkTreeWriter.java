@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+
+/**
+ * 将 {@link CuratorZkTreeReader#exportTo(String, java.io.OutputStream)} 导出的快照流水线写回 ZooKeeper。
+ * <p>
+ * 边读取快照边以后台请求创建节点，同时在途的请求数不超过 maxInFlight；同一会话的请求按提交顺序执行，
+ * 快照中父节点先于子节点，因此无需等待父节点创建完成。已存在的节点改为覆盖数据。
+ * <p>
+ * 按客户端环构造时每个节点按完整路径写到所属集群，缺失的父路径在该集群上自动创建为容器节点；
+ * 多集群快照中父节点可能晚于子节点出现，此时父节点已存在，同样改为覆盖数据。
+ */
+public class CuratorZkTreeWriter {
+
+	private final CuratorZkClientRing clientRing;
+	private final int maxInFlight;
+
+	/**
+	 * @param curatorClient 客户端
+	 * @param maxInFlight   同时在途的请求数
+	 */
+	public CuratorZkTreeWriter(CuratorFramework curatorClient, int maxInFlight) {
+		this(CuratorZkClientRing.of(curatorClient), maxInFlight);
+	}
+
+	/**
+	 * @param clientRing  客户端环，节点按路径写到所属集群
+	 * @param maxInFlight 同时在途的请求数
+	 */
+	public CuratorZkTreeWriter(CuratorZkClientRing clientRing, int maxInFlight) {
+		this.clientRing = clientRing;
+		this.maxInFlight = Math.max(1, maxInFlight);
+	}
+
+	/**
+	 * 导入快照
+	 *
+	 * @param root 目标根路径，快照中的节点按相对路径写到其下
+	 * @param in   快照输入流，不会被关闭
+	 * @return 导入的节点数
+	 * @throws Exception 快照格式错误或写入失败
+	 */
+	public long importFrom(String root, InputStream in) throws Exception {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+		if (input.readInt() != CuratorZkTreeReader.SNAPSHOT_MAGIC) {
+			throw new IOException("Not a ZooKeeper tree snapshot");
+		}
+		Semaphore inFlight = new Semaphore(maxInFlight);
+		AtomicReference<Exception> failure = new AtomicReference<>();
+		long count = 0;
+		try {
+			while (failure.get() == null && input.readBoolean()) {
+				String relativePath = input.readUTF();
+				int length = input.readInt();
+				byte[] data = null;
+				if (length >= 0) {
+					data = new byte[length];
+					input.readFully(data);
+				}
+				String path = relativePath.isEmpty() ? root : ZKPaths.makePath(root, relativePath);
+				inFlight.acquire();
+				try {
+					this.create(path, data, inFlight, failure);
+				} catch (Exception e) {
+					inFlight.release();
+					throw e;
+				}
+				count++;
+			}
+		} finally {
+			// 等待在途请求全部完成
+			inFlight.acquire(maxInFlight);
+			inFlight.release(maxInFlight);
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		return count;
+	}
+
+	private void create(String path, byte[] data, Semaphore inFlight, AtomicReference<Exception> failure) throws Exception {
+		clientRing.route(path).create().creatingParentContainersIfNeeded().inBackground((client, event) -> {
+			if (event.getResultCode() == KeeperException.Code.NODEEXISTS.intValue()) {
+				this.setData(path, data, inFlight, failure);
+			} else {
+				this.complete(event, inFlight, failure);
+			}
+		}).forPath(path, data);
+	}
+
+	private void setData(String path, byte[] data, Semaphore inFlight, AtomicReference<Exception> failure) {
+		try {
+			clientRing.route(path).setData().inBackground((client, event) -> this.complete(event, inFlight, failure)).forPath(path, data);
+		} catch (Exception e) {
+			failure.compareAndSet(null, e);
+			inFlight.release();
+		}
+	}
+
+	private void complete(CuratorEvent event, Semaphore inFlight, AtomicReference<Exception> failure) {
+		if (event.getResultCode() != KeeperException.Code.OK.intValue()) {
+			failure.compareAndSet(null, KeeperException.create(KeeperException.Code.get(event.getResultCode()), event.getPath()));
+		}
+		inFlight.release();
+	}
+
+}
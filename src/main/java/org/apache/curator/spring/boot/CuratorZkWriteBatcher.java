@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.OpResult;
+
+/**
+ * 写操作合并器：把零散的 create/setData/delete/check 攒成批，以一次 {@code transaction().forOperations(...)} 提交。
+ * <p>
+ * 达到 {@code maxOps} 条或 {@code lingerMs} 到期即提交；单批估算大小超过 {@code maxBytes}（默认取 jute.maxbuffer 的 90%）时自动拆分。
+ * 每个操作的结果相互独立：事务中某个操作失败时只有它的 future 以对应的 {@link KeeperException} 失败，
+ * 同批中被连带回滚的其他操作会立即重新提交。需要同成同败的一组操作通过 {@link #group()} 显式提交，
+ * 一组操作总在同一个事务中提交、不会被拆分，组内任一操作失败则整组失败。批次串行提交，先加入的操作先生效。
+ */
+public class CuratorZkWriteBatcher implements Closeable {
+
+	/**
+	 * ZooKeeper 单个请求的默认上限（jute.maxbuffer）
+	 */
+	private static final int DEFAULT_JUTE_MAXBUFFER = 0xfffff;
+	/**
+	 * 每个操作在请求中的固定开销估算（操作头、版本、ACL 等）
+	 */
+	private static final int OP_OVERHEAD_BYTES = 64;
+
+	private final CuratorFramework curatorClient;
+	private final int maxOps;
+	private final int maxBytes;
+	private final long lingerMs;
+	private final ScheduledExecutorService scheduler;
+	private final Executor commitExecutor;
+	private final Queue<PendingUnit> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicBoolean lingerScheduled = new AtomicBoolean();
+	private final AtomicBoolean sizeTriggered = new AtomicBoolean();
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder operations = new LongAdder();
+	private volatile boolean closed;
+
+	/**
+	 * @param curatorClient 客户端
+	 * @param maxOps        每批最多操作数
+	 * @param maxBytes      每批估算字节上限，小于等于 0 时取 jute.maxbuffer 的 90%
+	 * @param lingerMs      第一个操作入队后最多等待多久提交（单位：毫秒）
+	 * @param executor      执行定时提交的线程池，同时用于执行提交
+	 */
+	public CuratorZkWriteBatcher(CuratorFramework curatorClient, int maxOps, int maxBytes, long lingerMs,
+			ScheduledExecutorService executor) {
+		this(curatorClient, maxOps, maxBytes, lingerMs, executor, executor);
+	}
+
+	/**
+	 * @param curatorClient  客户端
+	 * @param maxOps         每批最多操作数
+	 * @param maxBytes       每批估算字节上限，小于等于 0 时取 jute.maxbuffer 的 90%
+	 * @param lingerMs       第一个操作入队后最多等待多久提交（单位：毫秒）
+	 * @param scheduler      只负责 lingerMs 计时
+	 * @param commitExecutor 执行阻塞的事务提交，避免占用共享的定时线程
+	 */
+	public CuratorZkWriteBatcher(CuratorFramework curatorClient, int maxOps, int maxBytes, long lingerMs,
+			ScheduledExecutorService scheduler, Executor commitExecutor) {
+		this.curatorClient = curatorClient;
+		this.maxOps = maxOps;
+		this.maxBytes = maxBytes > 0 ? maxBytes : Integer.getInteger("jute.maxbuffer", DEFAULT_JUTE_MAXBUFFER) / 10 * 9;
+		this.lingerMs = lingerMs;
+		this.scheduler = scheduler;
+		this.commitExecutor = commitExecutor;
+	}
+
+	public CompletableFuture<CuratorTransactionResult> create(String path, byte[] data, CreateMode mode) throws Exception {
+		return this.single(this.group().create(path, data, mode));
+	}
+
+	public CompletableFuture<CuratorTransactionResult> setData(String path, byte[] data) throws Exception {
+		return this.setData(path, data, -1);
+	}
+
+	public CompletableFuture<CuratorTransactionResult> setData(String path, byte[] data, int version) throws Exception {
+		return this.single(this.group().setData(path, data, version));
+	}
+
+	public CompletableFuture<CuratorTransactionResult> delete(String path) throws Exception {
+		return this.delete(path, -1);
+	}
+
+	public CompletableFuture<CuratorTransactionResult> delete(String path, int version) throws Exception {
+		return this.single(this.group().delete(path, version));
+	}
+
+	public CompletableFuture<CuratorTransactionResult> check(String path, int version) throws Exception {
+		return this.single(this.group().check(path, version));
+	}
+
+	/**
+	 * 开始一组同成同败的操作，调用 {@link Group#submit()} 后与其他操作合并提交
+	 *
+	 * @return 操作组
+	 */
+	public Group group() {
+		return new Group();
+	}
+
+	private CompletableFuture<CuratorTransactionResult> single(Group group) {
+		CompletableFuture<CuratorTransactionResult> future = new CompletableFuture<>();
+		group.submit().whenComplete((results, ex) -> {
+			if (ex != null) {
+				future.completeExceptionally(ex);
+			} else {
+				future.complete(results.get(0));
+			}
+		});
+		return future;
+	}
+
+	private void enqueue(PendingUnit unit) {
+		if (closed) {
+			throw new IllegalStateException("Write batcher is closed");
+		}
+		queue.add(unit);
+		if (queued.addAndGet(unit.ops.size()) >= maxOps) {
+			if (sizeTriggered.compareAndSet(false, true)) {
+				commitExecutor.execute(this::flushQuietly);
+			}
+		} else if (lingerScheduled.compareAndSet(false, true)) {
+			scheduler.schedule(() -> commitExecutor.execute(this::flushQuietly), lingerMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * 立即提交队列中的全部操作，返回时这些操作的 future 均已完成
+	 */
+	public void flush() {
+		flushLock.lock();
+		try {
+			lingerScheduled.set(false);
+			sizeTriggered.set(false);
+			List<PendingUnit> batch = new ArrayList<>();
+			int ops = 0;
+			int bytes = 0;
+			PendingUnit unit;
+			while ((unit = queue.poll()) != null) {
+				queued.addAndGet(-unit.ops.size());
+				// 操作组不拆分，超过上限的组单独成批
+				if (!batch.isEmpty() && (ops + unit.ops.size() > maxOps || bytes + unit.size > maxBytes)) {
+					this.commit(batch);
+					batch = new ArrayList<>();
+					ops = 0;
+					bytes = 0;
+				}
+				batch.add(unit);
+				ops += unit.ops.size();
+				bytes += unit.size;
+			}
+			if (!batch.isEmpty()) {
+				this.commit(batch);
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			this.flush();
+		} catch (RuntimeException e) {
+			// 各操作的 future 已携带异常
+		}
+	}
+
+	private void commit(List<PendingUnit> batch) {
+		List<PendingUnit> remaining = batch;
+		while (!remaining.isEmpty()) {
+			List<CuratorOp> ops = new ArrayList<>();
+			for (PendingUnit unit : remaining) {
+				ops.addAll(unit.ops);
+			}
+			try {
+				List<CuratorTransactionResult> results = curatorClient.transaction().forOperations(ops);
+				batches.increment();
+				operations.add(ops.size());
+				int offset = 0;
+				for (PendingUnit unit : remaining) {
+					unit.future.complete(new ArrayList<>(results.subList(offset, offset + unit.ops.size())));
+					offset += unit.ops.size();
+				}
+				return;
+			} catch (KeeperException e) {
+				List<OpResult> results = e.getResults();
+				if (results == null || results.size() != ops.size()) {
+					this.failAll(remaining, e);
+					return;
+				}
+				// 只有包含出错操作的单元失败，其余被连带回滚的单元重新提交
+				List<PendingUnit> retry = new ArrayList<>(remaining.size());
+				int offset = 0;
+				for (PendingUnit unit : remaining) {
+					KeeperException cause = null;
+					for (int i = 0; i < unit.ops.size() && cause == null; i++) {
+						OpResult result = results.get(offset + i);
+						int err = result instanceof OpResult.ErrorResult ? ((OpResult.ErrorResult) result).getErr() : 0;
+						if (err != KeeperException.Code.OK.intValue() && err != KeeperException.Code.RUNTIMEINCONSISTENCY.intValue()) {
+							cause = KeeperException.create(KeeperException.Code.get(err), unit.paths.get(i));
+						}
+					}
+					offset += unit.ops.size();
+					if (cause != null) {
+						unit.future.completeExceptionally(cause);
+					} else {
+						retry.add(unit);
+					}
+				}
+				if (retry.size() == remaining.size()) {
+					this.failAll(remaining, e);
+					return;
+				}
+				remaining = retry;
+			} catch (Exception e) {
+				this.failAll(remaining, e);
+				return;
+			}
+		}
+	}
+
+	private void failAll(List<PendingUnit> batch, Exception e) {
+		for (PendingUnit unit : batch) {
+			unit.future.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * 已提交的事务数
+	 */
+	public long getBatchCount() {
+		return batches.sum();
+	}
+
+	/**
+	 * 已成功提交的操作数
+	 */
+	public long getOperationCount() {
+		return operations.sum();
+	}
+
+	/**
+	 * 尚未提交的操作数
+	 */
+	public int getPendingCount() {
+		return queued.get();
+	}
+
+	/**
+	 * 停止接收新操作并提交剩余操作
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		this.flush();
+	}
+
+	/**
+	 * 同成同败的一组操作：总在同一个事务中提交，组内任一操作失败则整组失败，结果按加入顺序返回
+	 */
+	public class Group {
+
+		private final List<CuratorOp> ops = new ArrayList<>();
+		private final List<String> paths = new ArrayList<>();
+		private int size;
+		private boolean submitted;
+
+		public Group create(String path, byte[] data, CreateMode mode) throws Exception {
+			return this.add(curatorClient.transactionOp().create().withMode(mode).forPath(path, data), path, data);
+		}
+
+		public Group setData(String path, byte[] data) throws Exception {
+			return this.setData(path, data, -1);
+		}
+
+		public Group setData(String path, byte[] data, int version) throws Exception {
+			return this.add(curatorClient.transactionOp().setData().withVersion(version).forPath(path, data), path, data);
+		}
+
+		public Group delete(String path) throws Exception {
+			return this.delete(path, -1);
+		}
+
+		public Group delete(String path, int version) throws Exception {
+			return this.add(curatorClient.transactionOp().delete().withVersion(version).forPath(path), path, null);
+		}
+
+		public Group check(String path, int version) throws Exception {
+			return this.add(curatorClient.transactionOp().check().withVersion(version).forPath(path), path, null);
+		}
+
+		private Group add(CuratorOp op, String path, byte[] data) {
+			if (submitted) {
+				throw new IllegalStateException("Group already submitted");
+			}
+			ops.add(op);
+			paths.add(path);
+			size += path.getBytes(StandardCharsets.UTF_8).length + (data == null ? 0 : data.length) + OP_OVERHEAD_BYTES;
+			return this;
+		}
+
+		/**
+		 * 提交该组操作
+		 *
+		 * @return 各操作的事务结果，任一操作失败时以该操作的 {@link KeeperException} 失败
+		 */
+		public CompletableFuture<List<CuratorTransactionResult>> submit() {
+			if (submitted) {
+				throw new IllegalStateException("Group already submitted");
+			}
+			if (ops.isEmpty()) {
+				throw new IllegalStateException("Group is empty");
+			}
+			submitted = true;
+			PendingUnit unit = new PendingUnit(ops, paths, size);
+			CuratorZkWriteBatcher.this.enqueue(unit);
+			return unit.future;
+		}
+
+	}
+
+	private static class PendingUnit {
+
+		private final List<CuratorOp> ops;
+		private final List<String> paths;
+		private final int size;
+		private final CompletableFuture<List<CuratorTransactionResult>> future = new CompletableFuture<>();
+
+		private PendingUnit(List<CuratorOp> ops, List<String> paths, int size) {
+			this.ops = ops;
+			this.paths = paths;
+			this.size = size;
+		}
+
+	}
+
+}
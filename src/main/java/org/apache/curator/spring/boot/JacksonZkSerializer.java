@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 基于 Jackson 的序列化：{@link #json()} 输出 JSON；{@link #smile()} 输出 Smile 二进制格式（需 jackson-dataformat-smile），
+ * 字段名与数字以二进制编码，体积通常比 JSON 小三到五成。Jackson 内部复用输出缓冲区，序列化时只产生结果数组一次分配。
+ */
+public class JacksonZkSerializer implements ZkSerializer {
+
+	private static final String SMILE_FACTORY = "com.fasterxml.jackson.dataformat.smile.SmileFactory";
+
+	private final ObjectMapper objectMapper;
+
+	public JacksonZkSerializer(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	public static JacksonZkSerializer json() {
+		return new JacksonZkSerializer(configure(new ObjectMapper()));
+	}
+
+	public static JacksonZkSerializer smile() {
+		try {
+			// 通过反射创建，未引入 jackson-dataformat-smile 时本类仍可加载
+			JsonFactory factory = (JsonFactory) Class.forName(SMILE_FACTORY).getDeclaredConstructor().newInstance();
+			return new JacksonZkSerializer(configure(new ObjectMapper(factory)));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Smile serialization requires jackson-dataformat-smile on the classpath", e);
+		}
+	}
+
+	private static ObjectMapper configure(ObjectMapper objectMapper) {
+		return objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+	}
+
+	@Override
+	public byte[] serialize(Object value) throws Exception {
+		return objectMapper.writeValueAsBytes(value);
+	}
+
+	@Override
+	public <T> T deserialize(byte[] data, Class<T> type) throws Exception {
+		return objectMapper.readValue(data, type);
+	}
+
+	public ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+}
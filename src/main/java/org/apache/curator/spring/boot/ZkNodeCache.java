@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.framework.recipes.cache.CuratorCacheStorage;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * 读穿透、由 Watch 失效的本地节点缓存。
+ * <p>
+ * 每个配置的子树由一个只保存 {@link Stat} 的 {@link CuratorCache} 跟踪版本；节点数据按需读取后放入有界缓存，
+ * 读取时与 CuratorCache 中的最新 mzxid 比对，一致即直接返回内存数据，不一致则重新读取。比较 mzxid 而不是 version：
+ * 节点删除后重建时 version 从 0 重新计数，而 mzxid 全局递增。
+ * 反序列化结果随数据一起缓存，每个版本只反序列化一次。
+ */
+public class ZkNodeCache implements Closeable {
+
+	private final CuratorFramework curatorClient;
+	private final List<String> paths;
+	private final List<CuratorCache> caches = new ArrayList<>();
+	private final CuratorZkRecipeCache.Stats evictions = new CuratorZkRecipeCache.Stats();
+	private final CuratorZkRecipeCache<NodeData> data;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder staleReads = new LongAdder();
+	private final LongAdder uncachedReads = new LongAdder();
+	private final AtomicInteger initializedCaches = new AtomicInteger();
+	private volatile long lastEventLagMs;
+
+	public ZkNodeCache(CuratorFramework curatorClient, List<String> paths, int maximumSize, long expireAfterAccessMs) {
+		this.curatorClient = curatorClient;
+		this.paths = paths;
+		this.data = new CuratorZkRecipeCache<>(maximumSize, expireAfterAccessMs, value -> true, evictions);
+	}
+
+	public void start() {
+		for (String path : paths) {
+			CuratorCache cache = CuratorCache.builder(curatorClient, path)
+					.withStorage(CuratorCacheStorage.dataNotCached()).build();
+			cache.listenable().addListener(new CuratorCacheListener() {
+
+				@Override
+				public void event(Type type, ChildData oldData, ChildData data) {
+					ZkNodeCache.this.onEvent(oldData, data);
+				}
+
+				@Override
+				public void initialized() {
+					initializedCaches.incrementAndGet();
+				}
+
+			});
+			cache.start();
+			caches.add(cache);
+		}
+	}
+
+	private void onEvent(ChildData oldData, ChildData newData) {
+		ChildData current = newData != null ? newData : oldData;
+		if (current == null) {
+			return;
+		}
+		data.invalidate(current.getPath());
+		if (newData != null && newData.getStat() != null) {
+			// 节点修改到收到通知之间的延迟
+			lastEventLagMs = Math.max(0, System.currentTimeMillis() - newData.getStat().getMtime());
+		}
+	}
+
+	/**
+	 * 读取节点数据，节点不存在时返回 null
+	 *
+	 * @param path 节点路径
+	 * @return 节点数据
+	 */
+	public byte[] get(String path) throws Exception {
+		NodeData node = this.getNode(path);
+		return node == null ? null : node.bytes;
+	}
+
+	/**
+	 * 读取并反序列化节点数据，同一版本只反序列化一次
+	 *
+	 * @param path    节点路径
+	 * @param decoder 反序列化函数，应复用同一个实例
+	 * @return 反序列化结果，节点不存在时返回 null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(String path, Function<byte[], T> decoder) throws Exception {
+		NodeData node = this.getNode(path);
+		if (node == null) {
+			return null;
+		}
+		Decoded decoded = node.decoded;
+		if (decoded != null && decoded.decoder == decoder) {
+			return (T) decoded.value;
+		}
+		T value = decoder.apply(node.bytes);
+		node.decoded = new Decoded(decoder, value);
+		return value;
+	}
+
+	private NodeData getNode(String path) throws Exception {
+		CuratorCache cache = this.cacheFor(path);
+		if (cache == null || initializedCaches.get() < caches.size()) {
+			// 未配置缓存的子树，或缓存尚未完成初始加载，直接读取
+			uncachedReads.increment();
+			return this.load(path);
+		}
+		Optional<ChildData> current = cache.get(path);
+		if (!current.isPresent()) {
+			return null;
+		}
+		long mzxid = current.get().getStat().getMzxid();
+		NodeData node = data.getIfPresent(path);
+		if (node != null && node.mzxid >= mzxid) {
+			hits.increment();
+			return node;
+		}
+		misses.increment();
+		if (node != null) {
+			staleReads.increment();
+		}
+		node = this.load(path);
+		if (node != null) {
+			data.put(path, node);
+		}
+		return node;
+	}
+
+	private NodeData load(String path) throws Exception {
+		Stat stat = new Stat();
+		try {
+			byte[] bytes = curatorClient.getData().storingStatIn(stat).forPath(path);
+			return new NodeData(bytes, stat.getMzxid());
+		} catch (KeeperException.NoNodeException e) {
+			return null;
+		}
+	}
+
+	private CuratorCache cacheFor(String path) {
+		for (int i = 0; i < paths.size(); i++) {
+			String root = paths.get(i);
+			if (path.startsWith(root) && (path.length() == root.length() || path.charAt(root.length()) == '/' || root.endsWith("/"))) {
+				return i < caches.size() ? caches.get(i) : null;
+			}
+		}
+		return null;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public double getHitRatio() {
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+		return total == 0 ? 1.0 : (double) hitCount / total;
+	}
+
+	/**
+	 * 因容量或空闲时间被淘汰的节点数
+	 */
+	public long getEvictionCount() {
+		return evictions.getEvictionCount();
+	}
+
+	/**
+	 * 因版本过期而重新读取的次数
+	 */
+	public long getStaleReadCount() {
+		return staleReads.sum();
+	}
+
+	/**
+	 * 不在缓存子树内、直接访问 ZooKeeper 的读取次数
+	 */
+	public long getUncachedReadCount() {
+		return uncachedReads.sum();
+	}
+
+	/**
+	 * 最近一次变更从写入到收到通知的延迟（单位：毫秒）
+	 */
+	public long getLastEventLagMs() {
+		return lastEventLagMs;
+	}
+
+	public int size() {
+		return data.size();
+	}
+
+	@Override
+	public void close() {
+		caches.forEach(CuratorCache::close);
+		caches.clear();
+		data.clear();
+	}
+
+	private static class NodeData {
+
+		private final byte[] bytes;
+		private final long mzxid;
+		private volatile Decoded decoded;
+
+		private NodeData(byte[] bytes, long mzxid) {
+			this.bytes = bytes;
+			this.mzxid = mzxid;
+		}
+
+	}
+
+	private static class Decoded {
+
+		private final Function<?, ?> decoder;
+		private final Object value;
+
+		private Decoded(Function<?, ?> decoder, Object value) {
+			this.decoder = decoder;
+			this.value = value;
+		}
+
+	}
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * 分布式令牌桶限流器：全局令牌数与上次补充时间保存在一个节点中，各实例按自身观测到的速率批量预留令牌，
+ * 常规路径只是本地原子递减，不访问 ZooKeeper。
+ * <p>
+ * 预留的令牌在 windowMs 内有效，过期未用完的令牌在下一次预留时归还全局桶，因此批量预留不会让总放行数超过令牌桶本身的上限，
+ * 只会让令牌在实例之间分配得不那么均匀。同一路径的各实例需配置相同的速率与容量，补充时间基于各节点的系统时钟。
+ */
+public class ZkRateLimiter {
+
+	private static final double EWMA_ALPHA = 0.5;
+
+	private final CuratorFramework curatorClient;
+	private final String path;
+	private final double permitsPerSecond;
+	private final long capacity;
+	private final long windowNanos;
+	/** 单次预留的上限：一个有效期内按全局速率可补充的令牌数 */
+	private final long maxBatch;
+	private final AtomicLong localTokens = new AtomicLong();
+	private volatile long localExpiresAt;
+	/** 全局桶已空，在此之前直接拒绝，避免被拒绝的请求反复访问 ZooKeeper */
+	private volatile long emptyUntil = System.nanoTime();
+	private final ReentrantLock reserveLock = new ReentrantLock();
+	private final AtomicLong localAcquired = new AtomicLong();
+	private final AtomicLong reserveCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private long lastReserveAt = System.nanoTime();
+	private long lastAcquired;
+	/** 本实例的令牌消耗速率（个/秒）的指数移动平均 */
+	private double observedRate;
+
+	/**
+	 * @param curatorClient    客户端
+	 * @param path             令牌桶节点路径
+	 * @param permitsPerSecond 全局每秒补充的令牌数
+	 * @param capacity         令牌桶容量，即允许的最大突发量
+	 * @param windowMs         本地预留令牌的有效期（单位：毫秒）
+	 */
+	public ZkRateLimiter(CuratorFramework curatorClient, String path, double permitsPerSecond, long capacity, long windowMs) {
+		if (permitsPerSecond <= 0 || capacity < 1) {
+			throw new IllegalArgumentException("permitsPerSecond and capacity must be positive");
+		}
+		this.curatorClient = curatorClient;
+		this.path = path;
+		this.permitsPerSecond = permitsPerSecond;
+		this.capacity = capacity;
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, windowMs));
+		this.maxBatch = Math.max(1, Math.min(capacity, (long) (permitsPerSecond * windowMs / 1000)));
+	}
+
+	/**
+	 * 尝试获取一个令牌，不等待
+	 *
+	 * @return 是否获取成功
+	 */
+	public boolean tryAcquire() throws Exception {
+		return this.tryAcquire(1);
+	}
+
+	/**
+	 * 尝试获取指定数量的令牌，不等待
+	 *
+	 * @param permits 令牌数
+	 * @return 是否获取成功
+	 */
+	public boolean tryAcquire(int permits) throws Exception {
+		if (this.tryAcquireLocal(permits)) {
+			return true;
+		}
+		if (System.nanoTime() - emptyUntil < 0) {
+			rejectedCount.incrementAndGet();
+			return false;
+		}
+		reserveLock.lock();
+		try {
+			// 其他线程可能已经补充了本地令牌
+			if (this.tryAcquireLocal(permits) || this.reserve(permits)) {
+				return true;
+			}
+		} finally {
+			reserveLock.unlock();
+		}
+		rejectedCount.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * 在指定时间内获取令牌，按全局速率估算的间隔重试
+	 *
+	 * @param permits 令牌数
+	 * @param time    等待时间
+	 * @param unit    时间单位
+	 * @return 是否获取成功
+	 */
+	public boolean tryAcquire(int permits, long time, TimeUnit unit) throws Exception {
+		long deadline = System.nanoTime() + unit.toNanos(time);
+		long interval = Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) (permits * TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+		while (!this.tryAcquire(permits)) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			TimeUnit.NANOSECONDS.sleep(Math.min(remaining, interval));
+		}
+		return true;
+	}
+
+	private boolean tryAcquireLocal(int permits) {
+		if (System.nanoTime() - localExpiresAt >= 0) {
+			return false;
+		}
+		long tokens;
+		do {
+			tokens = localTokens.get();
+			if (tokens < permits) {
+				return false;
+			}
+		} while (!localTokens.compareAndSet(tokens, tokens - permits));
+		localAcquired.addAndGet(permits);
+		return true;
+	}
+
+	/**
+	 * 从全局桶预留一批令牌，其中 permits 个直接交给调用方，同时归还已过期的本地令牌
+	 */
+	private boolean reserve(int permits) throws Exception {
+		long now = System.nanoTime();
+		long elapsed = Math.max(1, now - lastReserveAt);
+		long acquired = localAcquired.get();
+		double rate = (acquired - lastAcquired) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+		observedRate = observedRate == 0 ? rate : EWMA_ALPHA * rate + (1 - EWMA_ALPHA) * observedRate;
+		lastReserveAt = now;
+		lastAcquired = acquired;
+		long batch = Math.max(permits, Math.min(maxBatch, (long) Math.ceil(observedRate * windowNanos / TimeUnit.SECONDS.toNanos(1))));
+		// 有效期内的本地令牌不足 permits 时一并归还，避免与新预留的令牌分开计算有效期
+		long returned = localTokens.getAndSet(0);
+		long granted;
+		try {
+			granted = this.reserveGlobal(permits, batch, returned);
+		} catch (Exception e) {
+			localTokens.addAndGet(returned);
+			throw e;
+		}
+		reserveCount.incrementAndGet();
+		if (granted < permits) {
+			// 至少等全局补充出 permits 个令牌再来
+			emptyUntil = System.nanoTime() + (long) (permits * TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+			return false;
+		}
+		localTokens.addAndGet(granted - permits);
+		localExpiresAt = System.nanoTime() + windowNanos;
+		localAcquired.addAndGet(permits);
+		return true;
+	}
+
+	/**
+	 * 以 CAS 方式补充全局令牌并扣减：不足 permits 时不扣减，足够时最多扣减 batch 个
+	 *
+	 * @return 实际扣减的令牌数
+	 */
+	private long reserveGlobal(int permits, long batch, long returned) throws Exception {
+		while (true) {
+			Stat stat = new Stat();
+			byte[] data;
+			try {
+				data = curatorClient.getData().storingStatIn(stat).forPath(path);
+			} catch (KeeperException.NoNodeException e) {
+				long granted = permits <= capacity ? Math.min(batch, capacity) : 0;
+				try {
+					curatorClient.create().creatingParentContainersIfNeeded().forPath(path,
+							toBytes(capacity - granted, System.currentTimeMillis()));
+					return granted;
+				} catch (KeeperException.NodeExistsException ex) {
+					continue;
+				}
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			double tokens = buffer.getDouble();
+			long lastRefillMs = buffer.getLong();
+			long nowMs = System.currentTimeMillis();
+			tokens = Math.min(capacity, tokens + returned + Math.max(0, nowMs - lastRefillMs) * permitsPerSecond / 1000);
+			long granted = tokens >= permits ? Math.min(batch, (long) tokens) : 0;
+			if (granted == 0 && returned == 0) {
+				// 补充量按上次补充时间惰性计算，不扣减时无需写回
+				return 0;
+			}
+			try {
+				curatorClient.setData().withVersion(stat.getVersion()).forPath(path, toBytes(tokens - granted, Math.max(nowMs, lastRefillMs)));
+				return granted;
+			} catch (KeeperException.BadVersionException e) {
+				// 其他实例并发修改，重新读取
+			}
+		}
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public double getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return 本地剩余的预留令牌数
+	 */
+	public long getLocalTokens() {
+		return localTokens.get();
+	}
+
+	/**
+	 * @return 本实例放行的令牌总数
+	 */
+	public long getAcquiredCount() {
+		return localAcquired.get();
+	}
+
+	/**
+	 * @return 访问 ZooKeeper 预留令牌的次数
+	 */
+	public long getReserveCount() {
+		return reserveCount.get();
+	}
+
+	/**
+	 * @return 被拒绝的请求数
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	private static byte[] toBytes(double tokens, long refillMs) {
+		return ByteBuffer.allocate(Double.BYTES + Long.BYTES).putDouble(tokens).putLong(refillMs).array();
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+/**
+ * 节点数据序列化 SPI，{@link CuratorZkTemplate#get(String, Class)}、{@link CuratorZkTemplate#put(String, Object)} 使用。
+ * 实现必须线程安全。
+ */
+public interface ZkSerializer {
+
+	/**
+	 * 序列化
+	 *
+	 * @param value 对象，不为 null
+	 * @return 节点数据
+	 */
+	byte[] serialize(Object value) throws Exception;
+
+	/**
+	 * 反序列化
+	 *
+	 * @param data 节点数据，不为 null
+	 * @param type 目标类型
+	 * @return 对象
+	 */
+	<T> T deserialize(byte[] data, Class<T> type) throws Exception;
+
+}
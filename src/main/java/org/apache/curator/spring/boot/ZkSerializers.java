@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * 按名称创建 {@link ZkSerializer}
+ */
+public final class ZkSerializers {
+
+	public static final String TYPE_JSON = "json";
+	public static final String TYPE_SMILE = "smile";
+	public static final String TYPE_JDK = "jdk";
+
+	private static final boolean JACKSON_PRESENT = ClassUtils.isPresent("com.fasterxml.jackson.databind.ObjectMapper",
+			ZkSerializers.class.getClassLoader());
+
+	private ZkSerializers() {
+	}
+
+	/**
+	 * @param type json、smile 或 jdk；jdk 只在显式配置时使用，json、smile 缺少 Jackson 时抛出异常而不会退回 jdk
+	 * @return 序列化器
+	 */
+	public static ZkSerializer of(String type) {
+		if (TYPE_JDK.equalsIgnoreCase(type)) {
+			return new JdkZkSerializer();
+		}
+		if (TYPE_JSON.equalsIgnoreCase(type) || TYPE_SMILE.equalsIgnoreCase(type)) {
+			if (!JACKSON_PRESENT) {
+				throw new IllegalStateException("Serializer '" + type + "' requires jackson-databind on the classpath; "
+						+ "add it or set curator.payload.serializer=jdk explicitly");
+			}
+			return TYPE_SMILE.equalsIgnoreCase(type) ? JacksonZkSerializer.smile() : JacksonZkSerializer.json();
+		}
+		throw new IllegalArgumentException("Unknown serializer type: " + type);
+	}
+
+}
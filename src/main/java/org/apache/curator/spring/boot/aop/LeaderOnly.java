@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.aop;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 只有本进程为指定选举的领导者时才执行方法，否则直接返回 null（基本类型返回默认值）。
+ * <pre>
+ * &#64;LeaderOnly("order-reconcile")
+ * &#64;Scheduled(fixedDelay = 60000)
+ * public void reconcile() { ... }
+ * </pre>
+ * 选举在首次调用时开始参与，刚启动时的几次调用可能因尚未当选而被跳过；需要启动即参与时在 {@code curator.leader.latches} 中列出。
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface LeaderOnly {
+
+	/**
+	 * 选举名称
+	 */
+	String value();
+
+}
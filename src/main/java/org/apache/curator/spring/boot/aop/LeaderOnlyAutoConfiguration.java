@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.aop;
+
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.CuratorZkLeaderRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+/**
+ * {@link LeaderOnly} 注解支持。
+ */
+@Configuration
+@ConditionalOnClass(Advisor.class)
+@ConditionalOnBean(CuratorZkLeaderRegistry.class)
+@AutoConfigureAfter(CuratorZkAutoConfiguration.class)
+public class LeaderOnlyAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+	public LeaderOnlyInterceptor leaderOnlyInterceptor(CuratorZkLeaderRegistry registry) {
+		return new LeaderOnlyInterceptor(registry);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean(name = "leaderOnlyAdvisor")
+	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+	public Advisor leaderOnlyAdvisor(LeaderOnlyInterceptor leaderOnlyInterceptor) {
+		ComposablePointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(null, LeaderOnly.class, true))
+				.union(new AnnotationMatchingPointcut(LeaderOnly.class, true));
+		DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, leaderOnlyInterceptor);
+		// 非领导者时在加锁等切面之前直接跳过
+		advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 50);
+		return advisor;
+	}
+
+}
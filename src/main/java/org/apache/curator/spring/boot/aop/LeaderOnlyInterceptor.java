@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.aop;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.curator.spring.boot.CuratorZkLeaderLatch;
+import org.apache.curator.spring.boot.CuratorZkLeaderRegistry;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+/**
+ * {@link LeaderOnly} 的拦截器：每个方法只解析一次注解并缓存对应的选举，之后每次调用只读取一次 volatile 字段。
+ * 注解可以标在类上，缓存按方法与目标类区分，继承同一方法的不同子类各自解析。
+ */
+public class LeaderOnlyInterceptor implements MethodInterceptor {
+
+	private static final Guard NONE = new Guard(null, null);
+
+	private final CuratorZkLeaderRegistry registry;
+	private final ConcurrentMap<MethodClassKey, Guard> guardCache = new ConcurrentHashMap<>();
+
+	public LeaderOnlyInterceptor(CuratorZkLeaderRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		Method method = invocation.getMethod();
+		Class<?> targetClass = invocation.getThis() == null ? method.getDeclaringClass() : AopUtils.getTargetClass(invocation.getThis());
+		MethodClassKey cacheKey = new MethodClassKey(method, targetClass);
+		Guard guard = guardCache.get(cacheKey);
+		if (guard == null) {
+			guard = guardCache.computeIfAbsent(cacheKey, key -> this.parse(method, targetClass));
+		}
+		if (guard == NONE || guard.latch.isLeader()) {
+			return invocation.proceed();
+		}
+		return guard.skippedValue;
+	}
+
+	private Guard parse(Method method, Class<?> targetClass) {
+		Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+		LeaderOnly annotation = AnnotatedElementUtils.findMergedAnnotation(specificMethod, LeaderOnly.class);
+		if (annotation == null) {
+			annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, LeaderOnly.class);
+		}
+		if (annotation == null) {
+			return NONE;
+		}
+		Class<?> returnType = method.getReturnType();
+		Object skippedValue = returnType.isPrimitive() && returnType != void.class ? Array.get(Array.newInstance(returnType, 1), 0) : null;
+		return new Guard(registry.getLatch(annotation.value()), skippedValue);
+	}
+
+	private static class Guard {
+
+		private final CuratorZkLeaderLatch latch;
+		private final Object skippedValue;
+
+		Guard(CuratorZkLeaderLatch latch, Object skippedValue) {
+			this.latch = latch;
+			this.skippedValue = skippedValue;
+		}
+
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.aop;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在方法执行期间持有分布式锁，锁路径为 {@code name + "/" + key}。
+ * <pre>
+ * &#64;ZkLock(name = "/locks/order", key = "#order.id", waitTime = 3000)
+ * public void pay(Order order) { ... }
+ * </pre>
+ * ZooKeeper 锁随会话存活，不需要也不支持 Redis 式的自动过期时间；需要本地保留所有权时使用 {@link Type#LEASE}。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZkLock {
+
+	/**
+	 * 锁路径前缀，默认 {@code /locks/<类名>.<方法名>}
+	 */
+	String name() default "";
+
+	/**
+	 * 锁 key 的 SpEL 表达式，可引用参数名（需编译时保留参数名）或 {@code #p0}/{@code #a0}；为空时整个方法共用一把锁
+	 */
+	String key() default "";
+
+	/**
+	 * 最长等待时间，小于 0 表示一直等待；超时抛出 {@link org.apache.curator.spring.boot.CuratorLockException}
+	 */
+	long waitTime() default -1;
+
+	TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+
+	Type type() default Type.MUTEX;
+
+	/**
+	 * {@link Type#SEMAPHORE} 的许可总数，默认 1；同一路径各节点需一致
+	 */
+	int permits() default 1;
+
+	enum Type {
+
+		/**
+		 * 可重入互斥锁，{@code getSharedReentrantLock}
+		 */
+		MUTEX,
+		/**
+		 * 读锁，{@code getSharedReentrantReadWriteLock().readLock()}
+		 */
+		READ,
+		/**
+		 * 写锁，{@code getSharedReentrantReadWriteLock().writeLock()}
+		 */
+		WRITE,
+		/**
+		 * 信号量，{@code getSharedSemaphore(path, permits)}
+		 */
+		SEMAPHORE,
+		/**
+		 * 租约锁，{@code getLeaseLock}
+		 */
+		LEASE
+
+	}
+
+}
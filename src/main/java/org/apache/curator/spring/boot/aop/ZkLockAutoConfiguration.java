@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.aop;
+
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+/**
+ * {@link ZkLock} 注解支持。
+ * <p>
+ * 以基础设施角色的 Advisor 注册，由 Spring Boot 默认的自动代理创建器织入，不依赖 AspectJ。
+ */
+@Configuration
+@ConditionalOnClass(Advisor.class)
+@ConditionalOnBean(CuratorZkTemplate.class)
+@ConditionalOnProperty(prefix = CuratorZkProperties.PREFIX + ".lock-annotation", name = "enabled", havingValue = "true", matchIfMissing = true)
+@AutoConfigureAfter(CuratorZkAutoConfiguration.class)
+public class ZkLockAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+	public ZkLockInterceptor zkLockInterceptor(CuratorZkTemplate template) {
+		return new ZkLockInterceptor(template);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean(name = "zkLockAdvisor")
+	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+	public Advisor zkLockAdvisor(ZkLockInterceptor zkLockInterceptor) {
+		DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(null, ZkLock.class, true), zkLockInterceptor);
+		// 在事务等切面之外加锁，保证锁覆盖整个事务
+		advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+		return advisor;
+	}
+
+}
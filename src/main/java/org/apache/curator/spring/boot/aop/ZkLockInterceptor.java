@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.aop;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.framework.recipes.locks.Lease;
+import org.apache.curator.spring.boot.CuratorLockException;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link ZkLock} 的拦截器。
+ * <p>
+ * 每个方法（按方法与目标类区分，继承同一方法的不同子类各自解析）只解析一次注解与 SpEL：key 为空时锁路径在解析时即确定；key 只是参数引用（如 {@code #id}、{@code #p0}）时
+ * 直接按下标取参数，不经过 SpEL；其余表达式以 MIXED 模式编译为字节码执行。锁路径在线程复用的 StringBuilder 中拼接。
+ */
+public class ZkLockInterceptor implements MethodInterceptor {
+
+	private static final String DEFAULT_PREFIX = "/locks/";
+
+	private final CuratorZkTemplate template;
+	private final SpelExpressionParser parser = new SpelExpressionParser(
+			new SpelParserConfiguration(SpelCompilerMode.MIXED, ZkLockInterceptor.class.getClassLoader()));
+	private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+	private final ConcurrentMap<MethodClassKey, LockMetadata> metadataCache = new ConcurrentHashMap<>();
+	private final ThreadLocal<StringBuilder> pathBuilder = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+	public ZkLockInterceptor(CuratorZkTemplate template) {
+		this.template = template;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		Method method = invocation.getMethod();
+		Class<?> targetClass = invocation.getThis() == null ? method.getDeclaringClass() : AopUtils.getTargetClass(invocation.getThis());
+		// 默认锁路径与注解查找都依赖目标类，缓存须按方法与目标类区分
+		MethodClassKey cacheKey = new MethodClassKey(method, targetClass);
+		LockMetadata metadata = metadataCache.get(cacheKey);
+		if (metadata == null) {
+			metadata = metadataCache.computeIfAbsent(cacheKey, key -> this.parse(method, targetClass));
+		}
+		if (metadata == LockMetadata.NONE) {
+			return invocation.proceed();
+		}
+		String path = this.resolvePath(metadata, method, invocation.getArguments());
+		switch (metadata.type) {
+		case SEMAPHORE:
+			return this.invokeWithSemaphore(invocation, metadata, template.getSharedSemaphore(path, metadata.annotation.permits()), path);
+		case READ:
+			return this.invokeWithLock(invocation, metadata, template.getSharedReentrantReadWriteLock(path).readLock(), path);
+		case WRITE:
+			return this.invokeWithLock(invocation, metadata, template.getSharedReentrantReadWriteLock(path).writeLock(), path);
+		case LEASE:
+			return this.invokeWithLock(invocation, metadata, template.getLeaseLock(path), path);
+		default:
+			return this.invokeWithLock(invocation, metadata, template.getSharedReentrantLock(path), path);
+		}
+	}
+
+	private Object invokeWithLock(MethodInvocation invocation, LockMetadata metadata, InterProcessLock lock, String path) throws Throwable {
+		if (metadata.waitTime < 0) {
+			lock.acquire();
+		} else if (!lock.acquire(metadata.waitTime, metadata.annotation.timeUnit())) {
+			throw new CuratorLockException("Could not acquire lock : " + path);
+		}
+		try {
+			return invocation.proceed();
+		} finally {
+			lock.release();
+		}
+	}
+
+	private Object invokeWithSemaphore(MethodInvocation invocation, LockMetadata metadata, InterProcessSemaphoreV2 semaphore, String path) throws Throwable {
+		Lease lease = metadata.waitTime < 0 ? semaphore.acquire() : semaphore.acquire(metadata.waitTime, metadata.annotation.timeUnit());
+		if (lease == null) {
+			throw new CuratorLockException("Could not acquire semaphore : " + path);
+		}
+		try {
+			return invocation.proceed();
+		} finally {
+			semaphore.returnLease(lease);
+		}
+	}
+
+	String resolvePath(LockMetadata metadata, Method method, Object[] args) {
+		if (metadata.staticPath != null) {
+			return metadata.staticPath;
+		}
+		Object key;
+		if (metadata.argIndex >= 0) {
+			key = args[metadata.argIndex];
+		} else {
+			key = metadata.expression.getValue(new MethodBasedEvaluationContext(null, method, args, parameterNameDiscoverer));
+		}
+		StringBuilder builder = pathBuilder.get();
+		builder.setLength(0);
+		return builder.append(metadata.prefix).append('/').append(key).toString();
+	}
+
+	private LockMetadata parse(Method method, Class<?> targetClass) {
+		Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+		ZkLock annotation = AnnotatedElementUtils.findMergedAnnotation(specificMethod, ZkLock.class);
+		if (annotation == null) {
+			annotation = AnnotatedElementUtils.findMergedAnnotation(method, ZkLock.class);
+		}
+		if (annotation == null) {
+			return LockMetadata.NONE;
+		}
+		if (annotation.type() == ZkLock.Type.SEMAPHORE && annotation.permits() < 1) {
+			throw new IllegalArgumentException("@ZkLock permits must be positive on " + method);
+		}
+		String prefix = StringUtils.hasText(annotation.name()) ? annotation.name()
+				: DEFAULT_PREFIX + targetClass.getName() + "." + method.getName();
+		if (prefix.endsWith("/")) {
+			prefix = prefix.substring(0, prefix.length() - 1);
+		}
+		String key = annotation.key().trim();
+		if (key.isEmpty()) {
+			return new LockMetadata(annotation, prefix, prefix, -1, null);
+		}
+		int argIndex = this.argIndexOf(key, specificMethod);
+		return new LockMetadata(annotation, prefix, null, argIndex, argIndex >= 0 ? null : parser.parseExpression(key));
+	}
+
+	/**
+	 * 表达式只是单个参数引用时返回参数下标，否则返回 -1
+	 */
+	private int argIndexOf(String key, Method method) {
+		if (key.length() < 2 || key.charAt(0) != '#') {
+			return -1;
+		}
+		String name = key.substring(1);
+		if ((name.startsWith("p") || name.startsWith("a")) && name.length() > 1 && name.substring(1).chars().allMatch(Character::isDigit)) {
+			int index = Integer.parseInt(name.substring(1));
+			return index < method.getParameterCount() ? index : -1;
+		}
+		String[] names = parameterNameDiscoverer.getParameterNames(method);
+		if (names != null) {
+			for (int i = 0; i < names.length; i++) {
+				if (names[i].equals(name)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	static final class LockMetadata {
+
+		static final LockMetadata NONE = new LockMetadata(null, null, null, -1, null);
+
+		private final ZkLock annotation;
+		private final ZkLock.Type type;
+		private final long waitTime;
+		private final String prefix;
+		private final String staticPath;
+		private final int argIndex;
+		private final Expression expression;
+
+		private LockMetadata(ZkLock annotation, String prefix, String staticPath, int argIndex, Expression expression) {
+			this.annotation = annotation;
+			this.type = annotation == null ? null : annotation.type();
+			this.waitTime = annotation == null ? -1 : annotation.waitTime();
+			this.prefix = prefix;
+			this.staticPath = staticPath;
+			this.argIndex = argIndex;
+			this.expression = expression;
+		}
+
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.discovery;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkStartup;
+import org.apache.curator.x.discovery.ServiceDiscovery;
+import org.apache.curator.x.discovery.ServiceDiscoveryBuilder;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.apache.curator.x.discovery.ServiceInstanceBuilder;
+import org.apache.curator.x.discovery.details.JsonInstanceSerializer;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+/**
+ * 服务发现：注册当前应用，并按服务名提供基于本地缓存的客户端负载均衡
+ */
+@Configuration
+@ConditionalOnClass(ServiceDiscovery.class)
+@ConditionalOnBean({ CuratorFramework.class, CuratorZkStartup.class })
+@ConditionalOnProperty(prefix = CuratorZkProperties.PREFIX + ".discovery", name = "enabled", havingValue = "true", matchIfMissing = true)
+@AutoConfigureAfter(CuratorZkAutoConfiguration.class)
+public class CuratorZkDiscoveryAutoConfiguration {
+
+	@Bean(destroyMethod = "close")
+	@ConditionalOnMissingBean
+	public ServiceDiscovery<CuratorZkServiceMetadata> curatorZkServiceDiscovery(CuratorZkProperties properties,
+			CuratorFramework curatorClient, CuratorZkStartup startup, Environment environment) throws Exception {
+		CuratorZkProperties.Discovery discovery = properties.getDiscovery();
+		ServiceDiscoveryBuilder<CuratorZkServiceMetadata> builder = ServiceDiscoveryBuilder.builder(CuratorZkServiceMetadata.class)
+				.client(curatorClient)
+				.basePath(discovery.getBasePath())
+				.serializer(new JsonInstanceSerializer<>(CuratorZkServiceMetadata.class));
+		// 未指定服务名且没有 spring.application.name 时只做服务发现，不注册
+		String serviceName = StringUtils.hasText(discovery.getServiceName()) ? discovery.getServiceName()
+				: environment.getProperty("spring.application.name");
+		ServiceInstance<CuratorZkServiceMetadata> instance = discovery.isRegister() && StringUtils.hasText(serviceName)
+				? this.thisInstance(discovery, serviceName, environment) : null;
+		// 注册需要连接，异步启动时在首次连接后完成；ServiceDiscovery.start() 注册失败只记录日志，
+		// 因此由这里显式注册，失败时抛出异常交给 CuratorZkStartup 重试，重复执行是安全的
+		ServiceDiscovery<CuratorZkServiceMetadata> serviceDiscovery = builder.build();
+		startup.executeWithRetry("service-discovery", () -> {
+			serviceDiscovery.start();
+			if (instance != null) {
+				serviceDiscovery.registerService(instance);
+			}
+		});
+		return serviceDiscovery;
+	}
+
+	private ServiceInstance<CuratorZkServiceMetadata> thisInstance(CuratorZkProperties.Discovery discovery, String serviceName,
+			Environment environment) throws Exception {
+		CuratorZkServiceMetadata metadata = new CuratorZkServiceMetadata();
+		metadata.setWeight(discovery.getWeight());
+		metadata.getMetadata().putAll(discovery.getMetadata());
+		ServiceInstanceBuilder<CuratorZkServiceMetadata> builder = ServiceInstance.<CuratorZkServiceMetadata>builder()
+				.name(serviceName)
+				.port(discovery.getPort() != null ? discovery.getPort() : environment.getProperty("server.port", Integer.class, 8080))
+				.payload(metadata);
+		if (StringUtils.hasText(discovery.getAddress())) {
+			builder.address(discovery.getAddress());
+		}
+		return builder.build();
+	}
+
+	@Bean(destroyMethod = "close")
+	@ConditionalOnMissingBean
+	public CuratorZkServiceProviders curatorZkServiceProviders(CuratorZkProperties properties,
+			ServiceDiscovery<CuratorZkServiceMetadata> curatorZkServiceDiscovery) {
+		CuratorZkProperties.Discovery discovery = properties.getDiscovery();
+		return new CuratorZkServiceProviders(curatorZkServiceDiscovery, discovery.getStrategy(), discovery.getStrategies());
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.discovery;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端负载均衡策略，在内存快照上选择实例，不加锁、不访问 ZooKeeper。每个服务一个策略实例。
+ */
+public interface CuratorZkInstanceStrategy {
+
+	String ROUND_ROBIN = "round-robin";
+	String LEAST_INFLIGHT = "least-inflight";
+	String WEIGHTED_RANDOM = "weighted-random";
+
+	/**
+	 * 选择实例
+	 *
+	 * @param snapshot 非空的实例快照
+	 * @return 实例下标
+	 */
+	int choose(CuratorZkServiceSnapshot<?> snapshot);
+
+	/**
+	 * 按名称创建策略
+	 *
+	 * @param name round-robin、least-inflight 或 weighted-random
+	 * @return 新的策略实例
+	 */
+	static CuratorZkInstanceStrategy of(String name) {
+		if (LEAST_INFLIGHT.equalsIgnoreCase(name)) {
+			return new LeastInflight();
+		}
+		if (WEIGHTED_RANDOM.equalsIgnoreCase(name)) {
+			return new WeightedRandom();
+		}
+		if (ROUND_ROBIN.equalsIgnoreCase(name)) {
+			return new RoundRobin();
+		}
+		throw new IllegalArgumentException("Unknown instance strategy: " + name);
+	}
+
+	/**
+	 * 轮询
+	 */
+	class RoundRobin implements CuratorZkInstanceStrategy {
+
+		private final AtomicInteger next = new AtomicInteger();
+
+		@Override
+		public int choose(CuratorZkServiceSnapshot<?> snapshot) {
+			return (next.getAndIncrement() & Integer.MAX_VALUE) % snapshot.size();
+		}
+
+	}
+
+	/**
+	 * 进行中请求数最少者，从随机位置开始扫描以打散并列的实例；只有通过 select() 发出的请求会被计数
+	 */
+	class LeastInflight implements CuratorZkInstanceStrategy {
+
+		@Override
+		public int choose(CuratorZkServiceSnapshot<?> snapshot) {
+			int size = snapshot.size();
+			int start = ThreadLocalRandom.current().nextInt(size);
+			int best = start;
+			int bestInflight = snapshot.getInflight(start);
+			for (int i = 1; i < size && bestInflight > 0; i++) {
+				int index = (start + i) % size;
+				int inflight = snapshot.getInflight(index);
+				if (inflight < bestInflight) {
+					best = index;
+					bestInflight = inflight;
+				}
+			}
+			return best;
+		}
+
+	}
+
+	/**
+	 * 按 {@link CuratorZkServiceMetadata#getWeight()} 加权随机，权重之和为 0 时退化为均匀随机
+	 */
+	class WeightedRandom implements CuratorZkInstanceStrategy {
+
+		@Override
+		public int choose(CuratorZkServiceSnapshot<?> snapshot) {
+			long total = snapshot.getTotalWeight();
+			if (total <= 0) {
+				return ThreadLocalRandom.current().nextInt(snapshot.size());
+			}
+			return snapshot.indexOfWeight(ThreadLocalRandom.current().nextLong(total));
+		}
+
+	}
+
+}
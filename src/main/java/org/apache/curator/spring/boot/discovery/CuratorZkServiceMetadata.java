@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.discovery;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * 注册到 ZooKeeper 的服务实例附加信息，以 JSON 保存在实例节点中
+ */
+@Data
+public class CuratorZkServiceMetadata {
+
+	/**
+	 * 权重，weighted-random 策略按权重选择实例，默认 1
+	 */
+	private int weight = 1;
+	/**
+	 * 自定义元数据
+	 */
+	private Map<String, String> metadata = new LinkedHashMap<>();
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.discovery;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.x.discovery.ServiceCache;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.apache.curator.x.discovery.details.ServiceCacheListener;
+
+/**
+ * 基于 {@link ServiceCache} 的服务提供者：Watch 触发缓存变更时重建不可变快照，选择实例只读取快照并执行策略，不访问 ZooKeeper。
+ */
+public class CuratorZkServiceProvider<T> implements Closeable {
+
+	private final String serviceName;
+	private final ServiceCache<T> cache;
+	private final CuratorZkInstanceStrategy strategy;
+	private final ToIntFunction<T> weigher;
+	private volatile CuratorZkServiceSnapshot<T> snapshot;
+	private final LongAdder refreshCount = new LongAdder();
+	private final LongAdder resolveCount = new LongAdder();
+	private final LongAdder resolveNanos = new LongAdder();
+
+	public CuratorZkServiceProvider(String serviceName, ServiceCache<T> cache, CuratorZkInstanceStrategy strategy, ToIntFunction<T> weigher) {
+		this.serviceName = serviceName;
+		this.cache = cache;
+		this.strategy = strategy;
+		this.weigher = weigher;
+		this.snapshot = new CuratorZkServiceSnapshot<>(Collections.emptyList(), new HashMap<>(), weigher);
+	}
+
+	public void start() throws Exception {
+		cache.addListener(new ServiceCacheListener() {
+
+			@Override
+			public void cacheChanged() {
+				CuratorZkServiceProvider.this.refresh();
+			}
+
+			@Override
+			public void stateChanged(CuratorFramework client, ConnectionState newState) {
+				// 断线期间保留最后一次的实例列表
+			}
+
+		});
+		cache.start();
+		this.refresh();
+	}
+
+	/**
+	 * 从 ServiceCache 重建快照；start() 与缓存监听可能同时触发，串行执行以免丢失进行中的请求数
+	 */
+	synchronized void refresh() {
+		CuratorZkServiceSnapshot<T> previous = this.snapshot;
+		Map<String, AtomicInteger> inflight = new HashMap<>();
+		for (int i = 0; i < previous.size(); i++) {
+			inflight.put(previous.getInstance(i).getId(), previous.getInflightCounter(i));
+		}
+		this.snapshot = new CuratorZkServiceSnapshot<>(cache.getInstances(), inflight, weigher);
+		refreshCount.increment();
+	}
+
+	/**
+	 * 按策略选择一个实例
+	 *
+	 * @return 实例，没有可用实例时为 null
+	 */
+	public ServiceInstance<T> getInstance() {
+		long start = System.nanoTime();
+		CuratorZkServiceSnapshot<T> current = this.snapshot;
+		ServiceInstance<T> instance = current.size() == 0 ? null : current.getInstance(strategy.choose(current));
+		this.recordResolve(start);
+		return instance;
+	}
+
+	/**
+	 * 按策略选择一个实例并计入进行中的请求，请求结束后关闭返回值；least-inflight 策略依赖此计数
+	 *
+	 * @return 选择结果，没有可用实例时为 null
+	 */
+	public Selection<T> select() {
+		long start = System.nanoTime();
+		CuratorZkServiceSnapshot<T> current = this.snapshot;
+		Selection<T> selection = null;
+		if (current.size() > 0) {
+			int index = strategy.choose(current);
+			AtomicInteger inflight = current.getInflightCounter(index);
+			inflight.incrementAndGet();
+			selection = new Selection<>(current.getInstance(index), inflight);
+		}
+		this.recordResolve(start);
+		return selection;
+	}
+
+	private void recordResolve(long start) {
+		resolveNanos.add(System.nanoTime() - start);
+		resolveCount.increment();
+	}
+
+	public List<ServiceInstance<T>> getAllInstances() {
+		return snapshot.getInstances();
+	}
+
+	public CuratorZkServiceSnapshot<T> getSnapshot() {
+		return snapshot;
+	}
+
+	public String getServiceName() {
+		return serviceName;
+	}
+
+	public int getInstanceCount() {
+		return snapshot.size();
+	}
+
+	/**
+	 * @return 缓存变更触发的快照重建次数
+	 */
+	public long getRefreshCount() {
+		return refreshCount.sum();
+	}
+
+	public long getResolveCount() {
+		return resolveCount.sum();
+	}
+
+	/**
+	 * @return 选择实例的累计耗时（纳秒）
+	 */
+	public long getResolveNanos() {
+		return resolveNanos.sum();
+	}
+
+	@Override
+	public void close() throws IOException {
+		cache.close();
+	}
+
+	/**
+	 * 一次选择结果，关闭时减少该实例进行中的请求数
+	 */
+	public static class Selection<T> implements AutoCloseable {
+
+		private final ServiceInstance<T> instance;
+		private final AtomicInteger inflight;
+		private boolean closed;
+
+		Selection(ServiceInstance<T> instance, AtomicInteger inflight) {
+			this.instance = instance;
+			this.inflight = inflight;
+		}
+
+		public ServiceInstance<T> getInstance() {
+			return instance;
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				inflight.decrementAndGet();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.discovery;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.apache.curator.utils.CloseableUtils;
+import org.apache.curator.x.discovery.ServiceDiscovery;
+import org.apache.curator.x.discovery.ServiceInstance;
+
+/**
+ * 按服务名管理 {@link CuratorZkServiceProvider}，首次查询某个服务时创建并启动其 ServiceCache。
+ */
+public class CuratorZkServiceProviders implements Closeable {
+
+	private final ServiceDiscovery<CuratorZkServiceMetadata> serviceDiscovery;
+	private final String defaultStrategy;
+	private final Map<String, String> strategies;
+	private final ConcurrentMap<String, CuratorZkServiceProvider<CuratorZkServiceMetadata>> providers = new ConcurrentHashMap<>();
+	private final List<Consumer<CuratorZkServiceProvider<CuratorZkServiceMetadata>>> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @param serviceDiscovery 已启动的 ServiceDiscovery
+	 * @param defaultStrategy  默认负载均衡策略
+	 * @param strategies       按服务名指定的负载均衡策略
+	 */
+	public CuratorZkServiceProviders(ServiceDiscovery<CuratorZkServiceMetadata> serviceDiscovery, String defaultStrategy,
+			Map<String, String> strategies) {
+		this.serviceDiscovery = serviceDiscovery;
+		this.defaultStrategy = defaultStrategy;
+		this.strategies = strategies;
+	}
+
+	/**
+	 * 获取服务提供者，首次获取时会等待 ServiceCache 完成初始加载
+	 *
+	 * @param serviceName 服务名
+	 * @return 服务提供者
+	 * @throws IllegalStateException ServiceCache 启动失败
+	 */
+	public CuratorZkServiceProvider<CuratorZkServiceMetadata> getProvider(String serviceName) {
+		CuratorZkServiceProvider<CuratorZkServiceMetadata> provider = providers.get(serviceName);
+		if (provider != null) {
+			return provider;
+		}
+		// ServiceCache.start() 需要访问 ZooKeeper，不能放在 computeIfAbsent 中执行：阻塞期间会锁住同一分段，
+		// 监听器再次调用 getProvider 时还会死锁。并发首次获取时可能重复创建，未放入的一方直接关闭
+		CuratorZkServiceProvider<CuratorZkServiceMetadata> created = new CuratorZkServiceProvider<>(serviceName,
+				serviceDiscovery.serviceCacheBuilder().name(serviceName).build(),
+				CuratorZkInstanceStrategy.of(strategies.getOrDefault(serviceName, defaultStrategy)), CuratorZkServiceMetadata::getWeight);
+		try {
+			created.start();
+		} catch (Exception e) {
+			CloseableUtils.closeQuietly(created);
+			throw new IllegalStateException("Could not start service cache for " + serviceName, e);
+		}
+		provider = providers.putIfAbsent(serviceName, created);
+		if (provider != null) {
+			CloseableUtils.closeQuietly(created);
+			return provider;
+		}
+		for (Consumer<CuratorZkServiceProvider<CuratorZkServiceMetadata>> listener : listeners) {
+			listener.accept(created);
+		}
+		return created;
+	}
+
+	/**
+	 * 按服务的负载均衡策略选择一个实例
+	 *
+	 * @param serviceName 服务名
+	 * @return 实例，没有可用实例时为 null
+	 */
+	public ServiceInstance<CuratorZkServiceMetadata> getInstance(String serviceName) {
+		return this.getProvider(serviceName).getInstance();
+	}
+
+	public Collection<CuratorZkServiceProvider<CuratorZkServiceMetadata>> getProviders() {
+		return Collections.unmodifiableCollection(providers.values());
+	}
+
+	/**
+	 * 注册服务提供者创建回调，对已创建的提供者立即回调一次
+	 *
+	 * @param listener 回调
+	 */
+	public void addProviderListener(Consumer<CuratorZkServiceProvider<CuratorZkServiceMetadata>> listener) {
+		listeners.add(listener);
+		for (CuratorZkServiceProvider<CuratorZkServiceMetadata> provider : providers.values()) {
+			listener.accept(provider);
+		}
+	}
+
+	public ServiceDiscovery<CuratorZkServiceMetadata> getServiceDiscovery() {
+		return serviceDiscovery;
+	}
+
+	@Override
+	public void close() {
+		for (CuratorZkServiceProvider<CuratorZkServiceMetadata> provider : providers.values()) {
+			CloseableUtils.closeQuietly(provider);
+		}
+		providers.clear();
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.discovery;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+import org.apache.curator.x.discovery.ServiceInstance;
+
+/**
+ * 某一时刻的服务实例列表，缓存变更时整体替换，选择实例时无需加锁。
+ * 进行中的请求数按实例 ID 在相邻快照之间延续。
+ */
+public final class CuratorZkServiceSnapshot<T> {
+
+	private final ServiceInstance<T>[] instances;
+	private final AtomicInteger[] inflight;
+	/** 权重前缀和，用于按权重随机选择 */
+	private final long[] cumulativeWeights;
+
+	CuratorZkServiceSnapshot(List<ServiceInstance<T>> instances, Map<String, AtomicInteger> previousInflight, ToIntFunction<T> weigher) {
+		this.instances = instances.toArray(newArray(0));
+		this.inflight = new AtomicInteger[this.instances.length];
+		this.cumulativeWeights = new long[this.instances.length];
+		long total = 0;
+		for (int i = 0; i < this.instances.length; i++) {
+			ServiceInstance<T> instance = this.instances[i];
+			AtomicInteger counter = previousInflight.get(instance.getId());
+			inflight[i] = counter == null ? new AtomicInteger() : counter;
+			T payload = instance.getPayload();
+			total += Math.max(0, payload == null ? 1 : weigher.applyAsInt(payload));
+			cumulativeWeights[i] = total;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> ServiceInstance<T>[] newArray(int length) {
+		return (ServiceInstance<T>[]) new ServiceInstance<?>[length];
+	}
+
+	public int size() {
+		return instances.length;
+	}
+
+	public ServiceInstance<T> getInstance(int index) {
+		return instances[index];
+	}
+
+	public List<ServiceInstance<T>> getInstances() {
+		return Collections.unmodifiableList(Arrays.asList(instances));
+	}
+
+	/**
+	 * @param index 实例下标
+	 * @return 该实例进行中的请求数
+	 */
+	public int getInflight(int index) {
+		return inflight[index].get();
+	}
+
+	AtomicInteger getInflightCounter(int index) {
+		return inflight[index];
+	}
+
+	public long getTotalWeight() {
+		return cumulativeWeights.length == 0 ? 0 : cumulativeWeights[cumulativeWeights.length - 1];
+	}
+
+	/**
+	 * @param weight [0, totalWeight) 之间的值
+	 * @return 累计权重首次超过 weight 的实例下标
+	 */
+	public int indexOfWeight(long weight) {
+		// 权重为 0 的实例前缀和与前一个相同，不能用 Arrays.binarySearch
+		int low = 0;
+		int high = cumulativeWeights.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cumulativeWeights[mid] > weight) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.health;
+
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.CuratorZkClientRing;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkStartup;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 连接健康检查（需要 Actuator，通过 {@code management.health.curator.enabled} 开关）及就绪状态联动
+ */
+@Configuration
+@ConditionalOnBean(CuratorZkClientRing.class)
+@AutoConfigureAfter(CuratorZkAutoConfiguration.class)
+public class CuratorZkHealthAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = CuratorZkProperties.PREFIX + ".health", name = "readiness-state", havingValue = "true")
+	public CuratorZkReadinessStateListener curatorZkReadinessStateListener(CuratorZkClientRing curatorZkClientRing,
+			ApplicationEventPublisher eventPublisher, ObjectProvider<ApplicationAvailability> availability) {
+		CuratorZkReadinessStateListener listener = new CuratorZkReadinessStateListener(eventPublisher, availability.getIfAvailable());
+		listener.bindTo(curatorZkClientRing);
+		return listener;
+	}
+
+	@Configuration
+	@ConditionalOnClass(HealthIndicator.class)
+	@ConditionalOnEnabledHealthIndicator("curator")
+	static class HealthIndicatorConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean(name = "curatorHealthIndicator")
+		public CuratorZkHealthIndicator curatorHealthIndicator(CuratorZkClientRing curatorZkClientRing,
+				ObjectProvider<CuratorZkStartup> startup) {
+			return new CuratorZkHealthIndicator(curatorZkClientRing, startup.getIfAvailable());
+		}
+
+	}
+
+}
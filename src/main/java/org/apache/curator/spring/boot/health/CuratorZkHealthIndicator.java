@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.health;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.spring.boot.CuratorZkClientRing;
+import org.apache.curator.spring.boot.CuratorZkStartup;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * ZooKeeper 连接健康检查：所有集群均已连接时为 UP，否则为 DOWN。
+ * 只读取客户端本地的连接状态，不访问 ZooKeeper，可加入 readiness 健康组：
+ * {@code management.endpoint.health.group.readiness.include=readinessState,curator}
+ */
+public class CuratorZkHealthIndicator extends AbstractHealthIndicator {
+
+	private final CuratorZkClientRing clientRing;
+	private final CuratorZkStartup startup;
+
+	/**
+	 * @param clientRing 客户端
+	 * @param startup    启动信息，可为空
+	 */
+	public CuratorZkHealthIndicator(CuratorZkClientRing clientRing, CuratorZkStartup startup) {
+		super("ZooKeeper health check failed");
+		this.clientRing = clientRing;
+		this.startup = startup;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) {
+		boolean connected = true;
+		Map<String, String> ensembles = new LinkedHashMap<>();
+		for (int i = 0; i < clientRing.size(); i++) {
+			CuratorFramework client = clientRing.getClient(i);
+			boolean clientConnected = client.getZookeeperClient().isConnected();
+			connected &= clientConnected;
+			ensembles.put(client.getZookeeperClient().getCurrentConnectionString(), clientConnected ? "CONNECTED" : "DISCONNECTED");
+		}
+		if (connected) {
+			builder.up();
+		} else {
+			builder.down();
+		}
+		builder.withDetail("ensembles", ensembles);
+		if (startup != null) {
+			builder.withDetail("connectMs", startup.getConnectMillis());
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.health;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.curator.spring.boot.CuratorZkClientRing;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * 将连接状态同步到应用就绪状态：任一集群 SUSPENDED/LOST 时发布 REFUSING_TRAFFIC，所有集群重新连接后恢复。
+ * 只在应用就绪（ApplicationReadyEvent）之后、且当前的 REFUSING_TRAFFIC 仍是由本监听器发布时才恢复为 ACCEPTING_TRAFFIC，
+ * 不会覆盖其他组件设置的就绪状态，也不会提前宣告启动中的应用可以接收流量。
+ */
+public class CuratorZkReadinessStateListener implements ConnectionStateListener, ApplicationListener<ApplicationReadyEvent> {
+
+	private final ApplicationEventPublisher eventPublisher;
+	private final ApplicationAvailability availability;
+	private final Set<CuratorFramework> disconnected = ConcurrentHashMap.newKeySet();
+	private boolean refusing;
+	private boolean ready;
+
+	public CuratorZkReadinessStateListener(ApplicationEventPublisher eventPublisher) {
+		this(eventPublisher, null);
+	}
+
+	/**
+	 * @param eventPublisher 事件发布
+	 * @param availability   用于判断当前就绪状态是否由本监听器设置，为 null 时不做判断
+	 */
+	public CuratorZkReadinessStateListener(ApplicationEventPublisher eventPublisher, ApplicationAvailability availability) {
+		this.eventPublisher = eventPublisher;
+		this.availability = availability;
+	}
+
+	/**
+	 * 监听所有集群的连接状态
+	 *
+	 * @param clientRing 客户端
+	 */
+	public void bindTo(CuratorZkClientRing clientRing) {
+		for (int i = 0; i < clientRing.size(); i++) {
+			clientRing.getClient(i).getConnectionStateListenable().addListener(this);
+		}
+	}
+
+	@Override
+	public synchronized void onApplicationEvent(ApplicationReadyEvent event) {
+		ready = true;
+		this.restore();
+	}
+
+	@Override
+	public synchronized void stateChanged(CuratorFramework client, ConnectionState newState) {
+		if (newState.isConnected()) {
+			disconnected.remove(client);
+		} else {
+			disconnected.add(client);
+		}
+		if (!refusing && !disconnected.isEmpty()) {
+			refusing = true;
+			AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+		} else {
+			this.restore();
+		}
+	}
+
+	/**
+	 * 所有集群已连接且应用已就绪时撤销本监听器发布的 REFUSING_TRAFFIC
+	 */
+	private void restore() {
+		if (!refusing || !ready || !disconnected.isEmpty()) {
+			return;
+		}
+		refusing = false;
+		if (this.isRefusedByThis()) {
+			AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+		}
+	}
+
+	private boolean isRefusedByThis() {
+		if (availability == null) {
+			return true;
+		}
+		AvailabilityChangeEvent<ReadinessState> last = availability.getLastChangeEvent(ReadinessState.class);
+		return last != null && last.getSource() == this && last.getState() == ReadinessState.REFUSING_TRAFFIC;
+	}
+
+}
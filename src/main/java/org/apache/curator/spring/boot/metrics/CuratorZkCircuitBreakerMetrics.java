@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.metrics;
+
+import java.util.List;
+
+import org.apache.curator.spring.boot.CuratorZkCircuitBreaker;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 加锁熔断器指标，按集群（ensemble）打标签：
+ * <ul>
+ * <li>curator.circuit.state：当前状态（1 表示处于该状态）；</li>
+ * <li>curator.circuit.rejected：熔断期间被拒绝或降级的加锁请求数；</li>
+ * <li>curator.circuit.opened：熔断器打开次数。</li>
+ * </ul>
+ */
+public class CuratorZkCircuitBreakerMetrics implements MeterBinder {
+
+	private final List<CuratorZkCircuitBreaker> circuitBreakers;
+
+	public CuratorZkCircuitBreakerMetrics(List<CuratorZkCircuitBreaker> circuitBreakers) {
+		this.circuitBreakers = circuitBreakers;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (CuratorZkCircuitBreaker breaker : circuitBreakers) {
+			for (CuratorZkCircuitBreaker.State state : CuratorZkCircuitBreaker.State.values()) {
+				Gauge.builder("curator.circuit.state", breaker, b -> b.getState() == state ? 1 : 0)
+						.description("Current state of the lock circuit breaker (1 for the active state)")
+						.tag("ensemble", breaker.getName())
+						.tag("state", state.name())
+						.register(registry);
+			}
+			FunctionCounter.builder("curator.circuit.rejected", breaker, CuratorZkCircuitBreaker::getRejectedCount)
+					.description("Lock acquisitions rejected or degraded while the circuit was open")
+					.tag("ensemble", breaker.getName())
+					.register(registry);
+			FunctionCounter.builder("curator.circuit.opened", breaker, CuratorZkCircuitBreaker::getOpenedCount)
+					.description("Times the lock circuit breaker opened")
+					.tag("ensemble", breaker.getName())
+					.register(registry);
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.drivers.AdvancedTracerDriver;
+import org.apache.curator.drivers.EventTrace;
+import org.apache.curator.drivers.OperationTrace;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.KeeperException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * CuratorFramework 客户端指标：
+ * <ul>
+ * <li>curator.operation：create/getData/setData/delete/getChildren 等操作的耗时，按 operation、mode、result 打标签；</li>
+ * <li>curator.retries：RetryPolicy 允许/拒绝的重试次数；</li>
+ * <li>curator.connection.state / curator.connection.events：当前连接状态及状态变更次数（LOST 即会话过期）。</li>
+ * </ul>
+ * 所有指标带 ensemble 标签；配置多个集群时对 {@link org.apache.curator.spring.boot.CuratorZkClientRing} 中的每个客户端分别注册。
+ */
+public class CuratorZkClientMetrics {
+
+	public static final String DEFAULT_ENSEMBLE = "default";
+
+	private final MeterRegistry registry;
+
+	public CuratorZkClientMetrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * 注册到客户端，ensemble 标签为 default
+	 *
+	 * @param curatorClient 客户端
+	 */
+	public void bindTo(CuratorFramework curatorClient) {
+		this.bindTo(curatorClient, DEFAULT_ENSEMBLE);
+	}
+
+	/**
+	 * 注册到客户端：设置 TracerDriver 并监听连接状态
+	 *
+	 * @param curatorClient 客户端
+	 * @param ensemble      集群名称，作为 ensemble 标签
+	 */
+	public void bindTo(CuratorFramework curatorClient, String ensemble) {
+		Binding binding = new Binding(ensemble,
+				curatorClient.getZookeeperClient().isConnected() ? ConnectionState.CONNECTED : ConnectionState.LOST);
+		for (ConnectionState state : ConnectionState.values()) {
+			Gauge.builder("curator.connection.state", binding, target -> target.connectionState == state ? 1 : 0)
+					.description("Current connection state of the Curator client (1 for the active state)")
+					.tag("ensemble", ensemble)
+					.tag("state", state.name())
+					.register(registry);
+		}
+		curatorClient.getZookeeperClient().setTracerDriver(binding);
+		curatorClient.getConnectionStateListenable().addListener(binding);
+	}
+
+	/**
+	 * 单个客户端的 TracerDriver 与连接状态监听
+	 */
+	private class Binding extends AdvancedTracerDriver implements ConnectionStateListener {
+
+		private final String ensemble;
+		private final ConcurrentMap<String, ConcurrentMap<Integer, Timer>> operationTimers = new ConcurrentHashMap<>();
+		private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+		private final ConcurrentMap<ConnectionState, Counter> connectionEvents = new ConcurrentHashMap<>();
+		private volatile ConnectionState connectionState;
+
+		private Binding(String ensemble, ConnectionState connectionState) {
+			this.ensemble = ensemble;
+			this.connectionState = connectionState;
+		}
+
+		@Override
+		public void addTrace(OperationTrace trace) {
+			operationTimers.computeIfAbsent(trace.getName(), name -> new ConcurrentHashMap<>())
+					.computeIfAbsent(trace.getReturnCode(), code -> this.operationTimer(trace.getName(), code))
+					.record(trace.getLatencyMs(), TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void addEvent(EventTrace trace) {
+			this.counter(trace.getName()).increment();
+		}
+
+		@Override
+		public void stateChanged(CuratorFramework client, ConnectionState newState) {
+			this.connectionState = newState;
+			connectionEvents.computeIfAbsent(newState, state -> Counter.builder("curator.connection.events")
+					.description("Connection state changes of the Curator client")
+					.tag("ensemble", ensemble)
+					.tag("state", state.name())
+					.register(registry)).increment();
+		}
+
+		private Timer operationTimer(String traceName, int returnCode) {
+			// GetDataBuilderImpl-Foreground -> getData / foreground
+			int index = traceName.indexOf("BuilderImpl-");
+			String operation = traceName;
+			String mode = "foreground";
+			if (index > 0) {
+				operation = Character.toLowerCase(traceName.charAt(0)) + traceName.substring(1, index);
+				mode = traceName.substring(index + "BuilderImpl-".length()).toLowerCase();
+			}
+			KeeperException.Code code = KeeperException.Code.get(returnCode);
+			return Timer.builder("curator.operation")
+					.description("Latency of ZooKeeper operations issued by the Curator client")
+					.tag("ensemble", ensemble)
+					.tag("operation", operation)
+					.tag("mode", mode)
+					.tag("result", code == null ? String.valueOf(returnCode) : code.name())
+					.register(registry);
+		}
+
+		private Counter counter(String name) {
+			return counters.computeIfAbsent(name, key -> {
+				if (key.startsWith("retries-")) {
+					return Counter.builder("curator.retries")
+							.description("Retries allowed/disallowed by the RetryPolicy")
+							.tag("ensemble", ensemble)
+							.tag("outcome", key.substring("retries-".length()))
+							.register(registry);
+				}
+				return Counter.builder("curator.client.events")
+						.description("Internal Curator client events")
+						.tag("ensemble", ensemble)
+						.tag("name", key)
+						.register(registry);
+			});
+		}
+
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.spring.boot.discovery.CuratorZkServiceProvider;
+import org.apache.curator.spring.boot.discovery.CuratorZkServiceProviders;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 服务发现指标，按服务名（service）打标签：
+ * <ul>
+ * <li>curator.discovery.instances：本地缓存中的实例数；</li>
+ * <li>curator.discovery.refreshes：Watch 触发的缓存刷新次数；</li>
+ * <li>curator.discovery.resolve：从本地缓存选择实例的次数与耗时。</li>
+ * </ul>
+ * 服务提供者在首次查询时创建，创建后才注册对应的指标。
+ */
+public class CuratorZkDiscoveryMetrics implements MeterBinder {
+
+	private final CuratorZkServiceProviders providers;
+
+	public CuratorZkDiscoveryMetrics(CuratorZkServiceProviders providers) {
+		this.providers = providers;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		providers.addProviderListener(provider -> this.bindTo(registry, provider));
+	}
+
+	private void bindTo(MeterRegistry registry, CuratorZkServiceProvider<?> provider) {
+		Gauge.builder("curator.discovery.instances", provider, CuratorZkServiceProvider::getInstanceCount)
+				.description("Service instances in the local discovery cache")
+				.tag("service", provider.getServiceName())
+				.register(registry);
+		FunctionCounter.builder("curator.discovery.refreshes", provider, CuratorZkServiceProvider::getRefreshCount)
+				.description("Discovery cache refreshes triggered by ZooKeeper watches")
+				.tag("service", provider.getServiceName())
+				.register(registry);
+		FunctionTimer.builder("curator.discovery.resolve", provider, CuratorZkServiceProvider::getResolveCount,
+				CuratorZkServiceProvider::getResolveNanos, TimeUnit.NANOSECONDS)
+				.description("Instance resolution from the local discovery cache")
+				.tag("service", provider.getServiceName())
+				.register(registry);
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.spring.boot.CuratorZkLockListener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 锁等待/持有时长分布（curator.lock.wait、curator.lock.hold），按锁路径前 {@code pathDepth} 级打标签，避免标签基数随 key 增长。
+ * <p>
+ * {@link org.apache.curator.spring.boot.CuratorZkDistributedLock} 的锁目录先去掉锁根路径（默认 /locks）再取前缀；
+ * 路径不足 {@code pathDepth + 1} 级（如 {@code order:42}、{@code /user-123}）时记为 {@value #OTHER}，标签从不使用完整的锁 key。
+ */
+public class CuratorZkLockMetrics implements CuratorZkLockListener {
+
+	/**
+	 * 无法取得前缀的锁路径使用的标签
+	 */
+	public static final String OTHER = "other";
+
+	private final MeterRegistry registry;
+	private final int pathDepth;
+	private final String locksRoot;
+	private final ConcurrentMap<String, LockTimers> timers = new ConcurrentHashMap<>();
+
+	public CuratorZkLockMetrics(MeterRegistry registry, int pathDepth) {
+		this(registry, pathDepth, "/locks");
+	}
+
+	/**
+	 * @param registry  指标注册表
+	 * @param pathDepth 标签取锁路径的前几级
+	 * @param locksRoot 分布式锁的根路径，取前缀前去掉
+	 */
+	public CuratorZkLockMetrics(MeterRegistry registry, int pathDepth, String locksRoot) {
+		this.registry = registry;
+		this.pathDepth = Math.max(1, pathDepth);
+		this.locksRoot = locksRoot;
+	}
+
+	@Override
+	public void onAcquired(String lockPath, long waitNanos) {
+		this.timers(lockPath).acquired.record(waitNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void onAcquireFailed(String lockPath, long waitNanos, Throwable ex) {
+		LockTimers lockTimers = this.timers(lockPath);
+		(ex == null ? lockTimers.timeout : lockTimers.error).record(waitNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void onReleased(String lockPath, long holdNanos) {
+		if (holdNanos >= 0) {
+			this.timers(lockPath).hold.record(holdNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private LockTimers timers(String lockPath) {
+		String prefix = prefixOf(stripRoot(lockPath, locksRoot), pathDepth);
+		LockTimers lockTimers = timers.get(prefix);
+		return lockTimers != null ? lockTimers : timers.computeIfAbsent(prefix, LockTimers::new);
+	}
+
+	/**
+	 * /locks/order/42, /locks -> /order/42
+	 */
+	static String stripRoot(String lockPath, String root) {
+		if (root != null && lockPath.length() > root.length() && lockPath.startsWith(root)
+				&& lockPath.charAt(root.length()) == '/') {
+			return lockPath.substring(root.length());
+		}
+		return lockPath;
+	}
+
+	/**
+	 * /order/42/item, depth 1 -> /order；/order、order:42 -> other
+	 */
+	static String prefixOf(String lockPath, int depth) {
+		if (!lockPath.startsWith("/")) {
+			return OTHER;
+		}
+		int index = 0;
+		for (int i = 0; i < depth; i++) {
+			index = lockPath.indexOf('/', index + 1);
+			if (index < 0) {
+				// 不足 depth + 1 级，剩余部分就是 key 本身
+				return OTHER;
+			}
+		}
+		return lockPath.substring(0, index);
+	}
+
+	private class LockTimers {
+
+		private final Timer acquired;
+		private final Timer timeout;
+		private final Timer error;
+		private final Timer hold;
+
+		private LockTimers(String prefix) {
+			this.acquired = this.waitTimer(prefix, "acquired");
+			this.timeout = this.waitTimer(prefix, "timeout");
+			this.error = this.waitTimer(prefix, "error");
+			this.hold = Timer.builder("curator.lock.hold")
+					.description("Time a distributed lock was held")
+					.tag("path", prefix)
+					.publishPercentileHistogram()
+					.register(registry);
+		}
+
+		private Timer waitTimer(String prefix, String result) {
+			return Timer.builder("curator.lock.wait")
+					.description("Time spent waiting for a distributed lock")
+					.tag("path", prefix)
+					.tag("result", result)
+					.publishPercentileHistogram()
+					.register(registry);
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.metrics;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.CuratorZkClientRing;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.apache.curator.spring.boot.discovery.CuratorZkDiscoveryAutoConfiguration;
+import org.apache.curator.spring.boot.discovery.CuratorZkServiceProviders;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnBean({ MeterRegistry.class, CuratorFramework.class })
+@ConditionalOnProperty(prefix = CuratorZkProperties.PREFIX + ".metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+@AutoConfigureAfter(value = { CuratorZkAutoConfiguration.class, CuratorZkDiscoveryAutoConfiguration.class }, name = {
+		"org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+		"org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration" })
+public class CuratorZkMetricsAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	public CuratorZkClientMetrics curatorZkClientMetrics(MeterRegistry registry, CuratorFramework curatorClient,
+			ObjectProvider<CuratorZkClientRing> clientRing) {
+		CuratorZkClientMetrics metrics = new CuratorZkClientMetrics(registry);
+		// 环上的每个客户端都注册，默认客户端的 ensemble 标签为 default，其余为集群名称
+		boolean defaultBound = false;
+		CuratorZkClientRing ring = clientRing.getIfAvailable();
+		if (ring != null) {
+			for (int i = 0; i < ring.size(); i++) {
+				CuratorFramework client = ring.getClient(i);
+				metrics.bindTo(client, client == curatorClient ? CuratorZkClientMetrics.DEFAULT_ENSEMBLE : ring.getNames().get(i));
+				defaultBound |= client == curatorClient;
+			}
+		}
+		if (!defaultBound) {
+			metrics.bindTo(curatorClient);
+		}
+		return metrics;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnBean(CuratorZkTemplate.class)
+	public CuratorZkLockMetrics curatorZkLockMetrics(MeterRegistry registry, CuratorZkProperties properties, CuratorZkTemplate template) {
+		CuratorZkLockMetrics metrics = new CuratorZkLockMetrics(registry, properties.getMetrics().getLockPathDepth());
+		template.addLockListener(metrics);
+		return metrics;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnBean(CuratorZkTemplate.class)
+	public CuratorZkCircuitBreakerMetrics curatorZkCircuitBreakerMetrics(MeterRegistry registry, CuratorZkTemplate template) {
+		CuratorZkCircuitBreakerMetrics metrics = new CuratorZkCircuitBreakerMetrics(template.getCircuitBreakers());
+		metrics.bindTo(registry);
+		return metrics;
+	}
+
+	@Configuration
+	@ConditionalOnClass(name = "org.apache.curator.x.discovery.ServiceDiscovery")
+	@ConditionalOnBean(CuratorZkServiceProviders.class)
+	static class DiscoveryMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public CuratorZkDiscoveryMetrics curatorZkDiscoveryMetrics(MeterRegistry registry, CuratorZkServiceProviders providers) {
+			CuratorZkDiscoveryMetrics metrics = new CuratorZkDiscoveryMetrics(providers);
+			metrics.bindTo(registry);
+			return metrics;
+		}
+
+	}
+
+}
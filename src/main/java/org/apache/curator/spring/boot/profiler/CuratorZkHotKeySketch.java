@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.profiler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 热点 key 统计：Count-Min Sketch 估算每个 key 的加锁次数、累计等待与持有时长，
+ * 另以固定大小的候选表保留累计等待时长估值最大的 key。
+ * <p>
+ * 内存大小固定，与 key 的数量无关；更新只使用原子加与 CAS，不加锁。估值可能偏大，只用于排序与定位热点。
+ */
+public class CuratorZkHotKeySketch {
+
+	private static final int DEPTH = 4;
+	private static final int PROBES = 4;
+
+	private final int topK;
+	private final int widthMask;
+	private final AtomicLongArray counts;
+	private final AtomicLongArray waits;
+	private final AtomicLongArray holds;
+	private final AtomicReferenceArray<String> candidates;
+
+	/**
+	 * @param topK  需要保留的热点 key 数
+	 * @param width 每行计数器数，向上取整为 2 的幂
+	 */
+	public CuratorZkHotKeySketch(int topK, int width) {
+		this.topK = Math.max(1, topK);
+		int tableWidth = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+		this.widthMask = tableWidth - 1;
+		this.counts = new AtomicLongArray(DEPTH * tableWidth);
+		this.waits = new AtomicLongArray(DEPTH * tableWidth);
+		this.holds = new AtomicLongArray(DEPTH * tableWidth);
+		// 候选表为 topK 的 4 倍，减少探测冲突带来的误淘汰
+		this.candidates = new AtomicReferenceArray<>(Integer.highestOneBit(this.topK * 4 - 1) << 1);
+	}
+
+	/**
+	 * 记录一次加锁结果
+	 *
+	 * @param key       锁路径
+	 * @param count     加锁成功次数
+	 * @param waitNanos 等待时长
+	 * @param holdNanos 持有时长
+	 */
+	public void add(String key, long count, long waitNanos, long holdNanos) {
+		int hash = key.hashCode();
+		int step = (hash >>> 16) | 1;
+		for (int row = 0; row < DEPTH; row++) {
+			int index = this.index(row, hash, step);
+			if (count != 0) {
+				counts.addAndGet(index, count);
+			}
+			if (waitNanos > 0) {
+				waits.addAndGet(index, waitNanos);
+			}
+			if (holdNanos > 0) {
+				holds.addAndGet(index, holdNanos);
+			}
+		}
+		if (waitNanos > 0) {
+			this.offer(key, hash);
+		}
+	}
+
+	private int index(int row, int hash, int step) {
+		return row * (widthMask + 1) + ((hash + row * step) & widthMask);
+	}
+
+	private long estimate(AtomicLongArray table, String key) {
+		int hash = key.hashCode();
+		int step = (hash >>> 16) | 1;
+		long min = Long.MAX_VALUE;
+		for (int row = 0; row < DEPTH; row++) {
+			min = Math.min(min, table.get(this.index(row, hash, step)));
+		}
+		return min;
+	}
+
+	/**
+	 * 累计等待估值超过探测范围内最小的候选时替换该候选
+	 */
+	private void offer(String key, int hash) {
+		int mask = candidates.length() - 1;
+		int base = (hash ^ (hash >>> 16)) & mask;
+		int minSlot = -1;
+		String minKey = null;
+		long minWait = Long.MAX_VALUE;
+		for (int probe = 0; probe < PROBES; probe++) {
+			int slot = (base + probe) & mask;
+			String candidate = candidates.get(slot);
+			if (candidate == null) {
+				if (candidates.compareAndSet(slot, null, key)) {
+					return;
+				}
+				candidate = candidates.get(slot);
+			}
+			if (key.equals(candidate)) {
+				return;
+			}
+			long wait = this.estimate(waits, candidate);
+			if (wait < minWait) {
+				minWait = wait;
+				minSlot = slot;
+				minKey = candidate;
+			}
+		}
+		if (minSlot >= 0 && this.estimate(waits, key) > minWait) {
+			candidates.compareAndSet(minSlot, minKey, key);
+		}
+	}
+
+	/**
+	 * @return 按累计等待时长估值降序的热点 key
+	 */
+	public List<HotKey> getHotKeys() {
+		Set<String> keys = new LinkedHashSet<>();
+		for (int i = 0; i < candidates.length(); i++) {
+			String key = candidates.get(i);
+			if (key != null) {
+				keys.add(key);
+			}
+		}
+		List<HotKey> hotKeys = new ArrayList<>(keys.size());
+		for (String key : keys) {
+			hotKeys.add(new HotKey(key, this.estimate(counts, key), this.estimate(waits, key), this.estimate(holds, key)));
+		}
+		hotKeys.sort(Comparator.comparingLong(HotKey::getWaitNanos).reversed());
+		return hotKeys.size() > topK ? new ArrayList<>(hotKeys.subList(0, topK)) : hotKeys;
+	}
+
+	/**
+	 * 清空统计
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+			waits.set(i, 0);
+			holds.set(i, 0);
+		}
+		for (int i = 0; i < candidates.length(); i++) {
+			candidates.set(i, null);
+		}
+	}
+
+	public static class HotKey {
+
+		private final String lockPath;
+		private final long acquisitions;
+		private final long waitNanos;
+		private final long holdNanos;
+
+		HotKey(String lockPath, long acquisitions, long waitNanos, long holdNanos) {
+			this.lockPath = lockPath;
+			this.acquisitions = acquisitions;
+			this.waitNanos = waitNanos;
+			this.holdNanos = holdNanos;
+		}
+
+		public String getLockPath() {
+			return lockPath;
+		}
+
+		public long getAcquisitions() {
+			return acquisitions;
+		}
+
+		public long getWaitNanos() {
+			return waitNanos;
+		}
+
+		public long getHoldNanos() {
+			return holdNanos;
+		}
+
+	}
+
+}
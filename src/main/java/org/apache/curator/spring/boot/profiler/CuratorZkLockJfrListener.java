@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.profiler;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.curator.spring.boot.CuratorZkLockListener;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 将加锁、加锁失败、释放锁记录为 JFR 事件（org.apache.curator.Lock*），未开启录制时仅有一次 isEnabled 判断的开销。
+ * 事件通过 begin()/end() 记录真实区间：LockAcquired、LockFailed 覆盖等待锁的时间，LockReleased 覆盖持有锁的时间，
+ * 在 JMC 中可与同一线程的其他事件对齐。需要运行在支持 JFR 的 JDK（8u262+、11+）上。
+ */
+public class CuratorZkLockJfrListener implements CuratorZkLockListener {
+
+	/**
+	 * 当前线程正在等待的锁：等待发生在加锁线程上
+	 */
+	private final ThreadLocal<Map<String, Waiting>> waiting = ThreadLocal.withInitial(HashMap::new);
+	/**
+	 * 持有中的锁，按获取顺序排列；释放可能发生在其他线程上
+	 */
+	private final ConcurrentMap<String, Deque<Held>> held = new ConcurrentHashMap<>();
+
+	@Override
+	public void onWaiting(String lockPath) {
+		LockAcquiredEvent acquired = new LockAcquiredEvent();
+		LockFailedEvent failed = new LockFailedEvent();
+		if (acquired.isEnabled() || failed.isEnabled()) {
+			acquired.begin();
+			failed.begin();
+			waiting.get().put(lockPath, new Waiting(acquired, failed));
+		}
+	}
+
+	@Override
+	public void onAcquired(String lockPath, long waitNanos) {
+		Waiting wait = waiting.get().remove(lockPath);
+		if (wait != null && wait.acquired.isEnabled()) {
+			wait.acquired.end();
+			if (wait.acquired.shouldCommit()) {
+				wait.acquired.lockPath = lockPath;
+				wait.acquired.commit();
+			}
+		}
+		LockReleasedEvent release = new LockReleasedEvent();
+		if (release.isEnabled()) {
+			release.begin();
+			held.compute(lockPath, (key, holds) -> {
+				Deque<Held> deque = holds != null ? holds : new ArrayDeque<>();
+				deque.addLast(new Held(Thread.currentThread(), release));
+				return deque;
+			});
+		}
+	}
+
+	@Override
+	public void onAcquireFailed(String lockPath, long waitNanos, Throwable ex) {
+		Waiting wait = waiting.get().remove(lockPath);
+		if (wait != null && wait.failed.isEnabled()) {
+			wait.failed.end();
+			if (wait.failed.shouldCommit()) {
+				wait.failed.lockPath = lockPath;
+				wait.failed.timeout = ex == null;
+				wait.failed.error = ex == null ? null : ex.toString();
+				wait.failed.commit();
+			}
+		}
+	}
+
+	@Override
+	public void onReleased(String lockPath, long holdNanos) {
+		Held[] released = new Held[1];
+		held.computeIfPresent(lockPath, (key, holds) -> {
+			released[0] = takeHeld(holds, Thread.currentThread());
+			return holds.isEmpty() ? null : holds;
+		});
+		if (released[0] != null) {
+			LockReleasedEvent event = released[0].event;
+			event.end();
+			if (event.shouldCommit()) {
+				event.lockPath = lockPath;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * 优先取当前线程的持有记录，跨线程释放时取最早的一条，与 CuratorZkInstrumentedLock 一致
+	 */
+	private static Held takeHeld(Deque<Held> holds, Thread thread) {
+		for (Iterator<Held> it = holds.iterator(); it.hasNext();) {
+			Held hold = it.next();
+			if (hold.thread == thread) {
+				it.remove();
+				return hold;
+			}
+		}
+		return holds.pollFirst();
+	}
+
+	private static class Waiting {
+
+		private final LockAcquiredEvent acquired;
+		private final LockFailedEvent failed;
+
+		private Waiting(LockAcquiredEvent acquired, LockFailedEvent failed) {
+			this.acquired = acquired;
+			this.failed = failed;
+		}
+
+	}
+
+	private static class Held {
+
+		private final Thread thread;
+		private final LockReleasedEvent event;
+
+		private Held(Thread thread, LockReleasedEvent event) {
+			this.thread = thread;
+			this.event = event;
+		}
+
+	}
+
+	@Name("org.apache.curator.LockAcquired")
+	@Label("ZooKeeper Lock Acquired")
+	@Category({ "Curator", "Lock" })
+	@StackTrace(false)
+	static class LockAcquiredEvent extends Event {
+
+		@Label("Lock Path")
+		String lockPath;
+
+	}
+
+	@Name("org.apache.curator.LockFailed")
+	@Label("ZooKeeper Lock Failed")
+	@Category({ "Curator", "Lock" })
+	@StackTrace(false)
+	static class LockFailedEvent extends Event {
+
+		@Label("Lock Path")
+		String lockPath;
+
+		@Label("Timeout")
+		boolean timeout;
+
+		@Label("Error")
+		String error;
+
+	}
+
+	@Name("org.apache.curator.LockReleased")
+	@Label("ZooKeeper Lock Released")
+	@Category({ "Curator", "Lock" })
+	@StackTrace(false)
+	static class LockReleasedEvent extends Event {
+
+		@Label("Lock Path")
+		String lockPath;
+
+	}
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.profiler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.curator.spring.boot.CuratorZkLockListener;
+
+/**
+ * 进程内锁争用统计：
+ * <ul>
+ * <li>当前持有的锁：锁路径、持有线程、已持有时长；</li>
+ * <li>当前等待中的锁及等待线程数；</li>
+ * <li>热点 key：{@link CuratorZkHotKeySketch} 按累计等待时长排序，内存固定；</li>
+ * <li>全局加锁次数、失败/超时次数、累计与最大等待时长。</li>
+ * </ul>
+ * 持有与等待表只保存进行中的锁，随释放移除；释放回调在非持有线程上发生时按锁路径移除最早的持有记录。
+ */
+public class CuratorZkLockProfiler implements CuratorZkLockListener {
+
+	private final CuratorZkHotKeySketch sketch;
+	private final ConcurrentMap<Held, Long> held = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, AtomicInteger> waiting = new ConcurrentHashMap<>();
+	private final LongAdder acquisitions = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * @param topK 保留的热点 key 数
+	 */
+	public CuratorZkLockProfiler(int topK) {
+		this.sketch = new CuratorZkHotKeySketch(topK, 2048);
+	}
+
+	@Override
+	public void onWaiting(String lockPath) {
+		waiting.compute(lockPath, (key, value) -> {
+			AtomicInteger count = value == null ? new AtomicInteger() : value;
+			count.incrementAndGet();
+			return count;
+		});
+	}
+
+	private void doneWaiting(String lockPath) {
+		waiting.computeIfPresent(lockPath, (key, value) -> value.decrementAndGet() <= 0 ? null : value);
+	}
+
+	@Override
+	public void onAcquired(String lockPath, long waitNanos) {
+		this.doneWaiting(lockPath);
+		held.put(new Held(lockPath, Thread.currentThread()), System.nanoTime());
+		acquisitions.increment();
+		this.waitNanos.add(waitNanos);
+		maxWaitNanos.accumulate(waitNanos);
+		sketch.add(lockPath, 1, waitNanos, 0);
+	}
+
+	@Override
+	public void onAcquireFailed(String lockPath, long waitNanos, Throwable ex) {
+		this.doneWaiting(lockPath);
+		(ex == null ? timeouts : failures).increment();
+		this.waitNanos.add(waitNanos);
+		maxWaitNanos.accumulate(waitNanos);
+		sketch.add(lockPath, 0, waitNanos, 0);
+	}
+
+	@Override
+	public void onReleased(String lockPath, long holdNanos) {
+		if (held.remove(new Held(lockPath, Thread.currentThread())) == null) {
+			this.removeOldest(lockPath);
+		}
+		sketch.add(lockPath, 0, 0, holdNanos);
+	}
+
+	private void removeOldest(String lockPath) {
+		Held oldest = null;
+		long oldestNanos = Long.MAX_VALUE;
+		for (Map.Entry<Held, Long> entry : held.entrySet()) {
+			if (entry.getKey().lockPath.equals(lockPath) && entry.getValue() < oldestNanos) {
+				oldest = entry.getKey();
+				oldestNanos = entry.getValue();
+			}
+		}
+		if (oldest != null) {
+			held.remove(oldest);
+		}
+	}
+
+	/**
+	 * @return 当前持有的锁，按持有时长降序
+	 */
+	public List<HeldLock> getHeldLocks() {
+		long now = System.nanoTime();
+		List<HeldLock> locks = new ArrayList<>(held.size());
+		for (Map.Entry<Held, Long> entry : held.entrySet()) {
+			locks.add(new HeldLock(entry.getKey().lockPath, entry.getKey().threadName, TimeUnit.NANOSECONDS.toMillis(now - entry.getValue())));
+		}
+		locks.sort(Comparator.comparingLong(HeldLock::getHeldMs).reversed());
+		return locks;
+	}
+
+	/**
+	 * @return 当前有线程等待的锁及等待线程数
+	 */
+	public Map<String, Integer> getWaiting() {
+		Map<String, Integer> waiters = new LinkedHashMap<>();
+		for (Map.Entry<String, AtomicInteger> entry : waiting.entrySet()) {
+			waiters.put(entry.getKey(), entry.getValue().get());
+		}
+		return waiters;
+	}
+
+	/**
+	 * @return 按累计等待时长估值降序的热点 key
+	 */
+	public List<CuratorZkHotKeySketch.HotKey> getHotKeys() {
+		return sketch.getHotKeys();
+	}
+
+	public long getAcquisitions() {
+		return acquisitions.sum();
+	}
+
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	public long getWaitNanos() {
+		return waitNanos.sum();
+	}
+
+	public long getMaxWaitNanos() {
+		return maxWaitNanos.get();
+	}
+
+	/**
+	 * 清空累计统计，进行中的持有与等待记录不受影响
+	 */
+	public void reset() {
+		sketch.reset();
+		acquisitions.reset();
+		timeouts.reset();
+		failures.reset();
+		waitNanos.reset();
+		maxWaitNanos.reset();
+	}
+
+	private static final class Held {
+
+		private final String lockPath;
+		private final long threadId;
+		private final String threadName;
+
+		Held(String lockPath, Thread thread) {
+			this.lockPath = lockPath;
+			this.threadId = thread.getId();
+			this.threadName = thread.getName();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Held)) {
+				return false;
+			}
+			Held other = (Held) obj;
+			return threadId == other.threadId && lockPath.equals(other.lockPath);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(lockPath, threadId);
+		}
+
+	}
+
+	public static class HeldLock {
+
+		private final String lockPath;
+		private final String thread;
+		private final long heldMs;
+
+		HeldLock(String lockPath, String thread, long heldMs) {
+			this.lockPath = lockPath;
+			this.thread = thread;
+			this.heldMs = heldMs;
+		}
+
+		public String getLockPath() {
+			return lockPath;
+		}
+
+		public String getThread() {
+			return thread;
+		}
+
+		public long getHeldMs() {
+			return heldMs;
+		}
+
+	}
+
+}
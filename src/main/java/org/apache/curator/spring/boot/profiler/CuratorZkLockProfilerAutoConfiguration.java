@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.profiler;
+
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 锁争用统计（curator.lock-profiler.enabled=true 开启），可选 Actuator 端点（curatorlocks）与 JFR 事件
+ */
+@Configuration
+@ConditionalOnBean(CuratorZkTemplate.class)
+@ConditionalOnProperty(prefix = CuratorZkProperties.PREFIX + ".lock-profiler", name = "enabled", havingValue = "true")
+@AutoConfigureAfter(CuratorZkAutoConfiguration.class)
+public class CuratorZkLockProfilerAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	public CuratorZkLockProfiler curatorZkLockProfiler(CuratorZkProperties properties, CuratorZkTemplate template) {
+		CuratorZkLockProfiler profiler = new CuratorZkLockProfiler(properties.getLockProfiler().getTopK());
+		template.addLockListener(profiler);
+		return profiler;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnClass(name = "jdk.jfr.Event")
+	@ConditionalOnProperty(prefix = CuratorZkProperties.PREFIX + ".lock-profiler", name = "jfr", havingValue = "true")
+	public CuratorZkLockJfrListener curatorZkLockJfrListener(CuratorZkTemplate template) {
+		CuratorZkLockJfrListener listener = new CuratorZkLockJfrListener();
+		template.addLockListener(listener);
+		return listener;
+	}
+
+	@Configuration
+	@ConditionalOnClass(Endpoint.class)
+	@ConditionalOnAvailableEndpoint(endpoint = CuratorZkLocksEndpoint.class)
+	static class EndpointConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public CuratorZkLocksEndpoint curatorZkLocksEndpoint(CuratorZkLockProfiler profiler) {
+			return new CuratorZkLocksEndpoint(profiler);
+		}
+
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.curator.spring.boot.profiler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * 锁争用端点（/actuator/curatorlocks）：读取当前持有与等待的锁、热点 key 及汇总统计，DELETE 清空累计统计
+ */
+@Endpoint(id = "curatorlocks")
+public class CuratorZkLocksEndpoint {
+
+	private final CuratorZkLockProfiler profiler;
+
+	public CuratorZkLocksEndpoint(CuratorZkLockProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	@ReadOperation
+	public Map<String, Object> locks() {
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("acquisitions", profiler.getAcquisitions());
+		summary.put("timeouts", profiler.getTimeouts());
+		summary.put("failures", profiler.getFailures());
+		summary.put("waitMs", TimeUnit.NANOSECONDS.toMillis(profiler.getWaitNanos()));
+		summary.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(profiler.getMaxWaitNanos()));
+		Map<String, Object> locks = new LinkedHashMap<>();
+		locks.put("summary", summary);
+		locks.put("held", profiler.getHeldLocks());
+		locks.put("waiting", profiler.getWaiting());
+		locks.put("hotKeys", profiler.getHotKeys());
+		return locks;
+	}
+
+	@DeleteOperation
+	public void reset() {
+		profiler.reset();
+	}
+
+}
@@ -0,0 +1,167 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.CreateMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncCuratorZkTemplateTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private AsyncCuratorZkTemplate template;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		template = new AsyncCuratorZkTemplate(client);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		template.close();
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testNodeAndCounter() throws Exception {
+		template.create("/async/node", "v1".getBytes(), CreateMode.PERSISTENT).toCompletableFuture().get();
+		assertArrayEquals("v1".getBytes(), template.getData("/async/node").toCompletableFuture().get());
+		template.setData("/async/node", "v2".getBytes()).toCompletableFuture().get();
+		assertEquals(1, template.getChildren("/async").toCompletableFuture().get().size());
+		template.delete("/async/node").toCompletableFuture().get();
+		assertEquals(null, template.checkExists("/async/node").toCompletableFuture().get());
+
+		List<CompletableFuture<Long>> increments = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			increments.add(template.increment("/async/counter", 2).toCompletableFuture());
+		}
+		CompletableFuture.allOf(increments.toArray(new CompletableFuture<?>[0])).get();
+		DistributedAtomicLong atomicLong = new DistributedAtomicLong(client, "/async/counter", new ExponentialBackoffRetry(100, 3));
+		assertEquals(Long.valueOf(100), atomicLong.get().postValue());
+	}
+
+	@Test
+	public void testLockAndBarrier() throws Exception {
+		AsyncCuratorZkLock first = template.acquire("k").toCompletableFuture().get();
+		CompletableFuture<AsyncCuratorZkLock> second = template.acquire("k").toCompletableFuture();
+		// 超时线程在第一次限时加锁时才创建
+		assertFalse(template.isTimeoutSchedulerStarted());
+		try {
+			template.acquire("k", 100, TimeUnit.MILLISECONDS).toCompletableFuture().get();
+			fail("lock is held");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		assertTrue(template.isTimeoutSchedulerStarted());
+		assertFalse(second.isDone());
+		first.release().toCompletableFuture().get();
+		second.get(5, TimeUnit.SECONDS).release().toCompletableFuture().get();
+
+		template.setBarrier("/async/barrier").toCompletableFuture().get();
+		CompletableFuture<Void> waiting = template.waitOnBarrier("/async/barrier").toCompletableFuture();
+		Thread.sleep(100);
+		assertFalse(waiting.isDone());
+		template.removeBarrier("/async/barrier").toCompletableFuture().get();
+		waiting.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testSessionExpiryWhileWaiting() throws Exception {
+		CuratorFramework other = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		other.start();
+		other.blockUntilConnected();
+		try (AsyncCuratorZkTemplate holder = new AsyncCuratorZkTemplate(other)) {
+			AsyncCuratorZkLock held = holder.acquire("expire").toCompletableFuture().get();
+			CompletableFuture<AsyncCuratorZkLock> waiting = template.acquire("expire").toCompletableFuture();
+			Thread.sleep(200);
+			assertFalse(waiting.isDone());
+			// 会话失效后等待者的节点已被删除，不能挂起也不能授予锁；injectSessionExpiration 只作用于客户端，这里模拟服务端删除临时节点
+			for (String child : other.getChildren().forPath("/locks/expire")) {
+				if (!held.getLockPath().endsWith(child)) {
+					other.delete().forPath("/locks/expire/" + child);
+				}
+			}
+			client.getZookeeperClient().getZooKeeper().getTestable().injectSessionExpiration();
+			try {
+				waiting.get(10, TimeUnit.SECONDS);
+				fail("lock node lost");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof CuratorLockException);
+			}
+			held.release().toCompletableFuture().get();
+		} finally {
+			other.close();
+		}
+	}
+
+	/**
+	 * 阻塞（InterProcessMutex + 有界线程池） vs 异步（AsyncCuratorZkTemplate）的加锁吞吐量
+	 */
+	@Test
+	public void testThroughput() throws Exception {
+		for (int callers : new int[] { 1000, 10000 }) {
+			final int keys = 100;
+			ExecutorService pool = Executors.newFixedThreadPool(200);
+			long start = System.nanoTime();
+			List<Future<?>> futures = new ArrayList<>(callers);
+			for (int i = 0; i < callers; i++) {
+				final String key = "/blocking/" + (i % keys);
+				futures.add(pool.submit(() -> {
+					InterProcessMutex mutex = new InterProcessMutex(client, key);
+					mutex.acquire();
+					mutex.release();
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			long blocking = System.nanoTime() - start;
+			pool.shutdown();
+
+			final AtomicInteger completed = new AtomicInteger();
+			start = System.nanoTime();
+			List<CompletableFuture<Void>> stages = new ArrayList<>(callers);
+			for (int i = 0; i < callers; i++) {
+				stages.add(template.acquire("async-" + (i % keys))
+						.thenCompose(AsyncCuratorZkLock::release)
+						.thenRun(completed::incrementAndGet).toCompletableFuture());
+			}
+			CompletableFuture.allOf(stages.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.MINUTES);
+			long async = System.nanoTime() - start;
+
+			assertEquals(callers, completed.get());
+			System.out.println(String.format("%d callers: blocking(200 threads) %.0f ops/s, async %.0f ops/s", callers,
+					callers / (blocking / 1e9), callers / (async / 1e9)));
+		}
+	}
+
+}
@@ -0,0 +1,245 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BaseSubscriber;
+
+public class CuratorZkChangeFeedTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		client.create().forPath("/feed");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	private CuratorZkTemplate template(int bufferSize, CuratorZkChangeFeed.Overflow overflow) {
+		CuratorZkProperties properties = new CuratorZkProperties();
+		properties.getChangeFeed().setBufferSize(bufferSize);
+		properties.getChangeFeed().setOverflow(overflow);
+		return new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), properties);
+	}
+
+	private static void await(BooleanCondition condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!condition.test()) {
+			assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(20);
+		}
+	}
+
+	private interface BooleanCondition {
+
+		boolean test();
+
+	}
+
+	@Test
+	public void testCallbackExecutor() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "feed-callback"));
+		CuratorZkTemplate template = this.template(16, CuratorZkChangeFeed.Overflow.DROP_OLDEST);
+		template.setCallbackExecutor(executor);
+		BlockingQueue<String> threads = new LinkedBlockingQueue<>();
+		Disposable subscription = template.getChangeFeed("/feed").flux().subscribe(event -> threads.add(Thread.currentThread().getName()));
+		try {
+			assertEquals("feed-callback", threads.poll(10, TimeUnit.SECONDS));
+			client.create().forPath("/feed/x");
+			// Watch 回调不直接调用订阅者
+			assertEquals("feed-callback", threads.poll(10, TimeUnit.SECONDS));
+		} finally {
+			subscription.dispose();
+			template.close();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testEvents() throws Exception {
+		BlockingQueue<CuratorZkChangeEvent> events = new LinkedBlockingQueue<>();
+		Disposable subscription = this.template(16, CuratorZkChangeFeed.Overflow.DROP_OLDEST).getChangeFeed("/feed").flux()
+				.subscribe(events::add);
+		try {
+			assertEquals(CuratorZkChangeEvent.Type.RESET, events.poll(10, TimeUnit.SECONDS).getType());
+			client.create().forPath("/feed/a");
+			client.setData().forPath("/feed/a", "v1".getBytes(StandardCharsets.UTF_8));
+			client.create().forPath("/feed/a/b");
+			client.delete().forPath("/feed/a/b");
+			client.create().forPath("/other");
+
+			CuratorZkChangeEvent event = events.poll(10, TimeUnit.SECONDS);
+			assertEquals("CREATED /feed/a", event.toString());
+			event = events.poll(10, TimeUnit.SECONDS);
+			assertEquals("DATA_CHANGED /feed/a", event.toString());
+			// 数据按需读取
+			assertArrayEquals("v1".getBytes(StandardCharsets.UTF_8), event.fetchData());
+			assertEquals("CREATED /feed/a/b", events.poll(10, TimeUnit.SECONDS).toString());
+			event = events.poll(10, TimeUnit.SECONDS);
+			assertEquals("DELETED /feed/a/b", event.toString());
+			assertNull(event.fetchData());
+		} finally {
+			subscription.dispose();
+		}
+		// 取消订阅后不再收到事件
+		client.create().forPath("/feed/c");
+		assertNull(events.poll(500, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testBackpressure() throws Exception {
+		client.create().forPath("/feed/hot");
+		CuratorZkChangeFeed feed = this.template(10, CuratorZkChangeFeed.Overflow.DROP_OLDEST).getChangeFeed("/feed");
+		List<CuratorZkChangeEvent> events = new CopyOnWriteArrayList<>();
+		BaseSubscriber<CuratorZkChangeEvent> subscriber = new BaseSubscriber<CuratorZkChangeEvent>() {
+
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				// 只请求 RESET
+				request(1);
+			}
+
+			@Override
+			protected void hookOnNext(CuratorZkChangeEvent value) {
+				events.add(value);
+			}
+
+		};
+		feed.flux().subscribe(subscriber);
+		try {
+			await(() -> events.size() == 1);
+			for (int i = 0; i < 50; i++) {
+				client.setData().forPath("/feed/hot", new byte[] { (byte) i });
+			}
+			await(() -> feed.getCoalescedCount() == 49);
+			for (int i = 0; i < 20; i++) {
+				client.create().forPath("/feed/n-" + i);
+			}
+			// 合并后的 /feed/hot 与最早的 10 个创建事件被丢弃，最后一次丢弃后补一个 RESET
+			await(() -> feed.getDroppedCount() == 11);
+			subscriber.request(100);
+			await(() -> events.size() == 12);
+			for (int i = 0; i < 9; i++) {
+				assertEquals("CREATED /feed/n-" + (10 + i), events.get(1 + i).toString());
+			}
+			assertEquals(CuratorZkChangeEvent.Type.RESET, events.get(10).getType());
+			assertEquals("CREATED /feed/n-19", events.get(11).toString());
+		} finally {
+			subscriber.dispose();
+		}
+	}
+
+	@Test
+	public void testResetKeepsOrder() throws Exception {
+		client.create().forPath("/feed/hot");
+		CuratorZkChangeFeed feed = this.template(16, CuratorZkChangeFeed.Overflow.DROP_OLDEST).getChangeFeed("/feed");
+		List<CuratorZkChangeEvent> events = new CopyOnWriteArrayList<>();
+		BaseSubscriber<CuratorZkChangeEvent> subscriber = new BaseSubscriber<CuratorZkChangeEvent>() {
+
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				request(1);
+			}
+
+			@Override
+			protected void hookOnNext(CuratorZkChangeEvent value) {
+				events.add(value);
+			}
+
+		};
+		feed.flux().subscribe(subscriber);
+		try {
+			await(() -> events.size() == 1);
+			client.setData().forPath("/feed/hot", new byte[] { 1 });
+			client.create().forPath("/feed/before");
+			await(() -> feed.getCoalescedCount() == 0 && client.getZookeeperClient().isConnected());
+			// 重连后 PersistentWatcher 重新注册 Watch 并发出 RESET
+			CountDownLatch reconnected = new CountDownLatch(1);
+			client.getConnectionStateListenable().addListener((c, state) -> {
+				if (state == ConnectionState.RECONNECTED) {
+					reconnected.countDown();
+				}
+			});
+			server.restart();
+			assertTrue(reconnected.await(10, TimeUnit.SECONDS));
+			Thread.sleep(500);
+			client.setData().forPath("/feed/hot", new byte[] { 2 });
+			subscriber.request(100);
+			await(() -> events.size() == 5);
+			// 缓冲中 RESET 之前的事件先下发，RESET 之后的同一路径事件不会合并到 RESET 之前
+			assertEquals("DATA_CHANGED /feed/hot", events.get(1).toString());
+			assertEquals("CREATED /feed/before", events.get(2).toString());
+			assertEquals(CuratorZkChangeEvent.Type.RESET, events.get(3).getType());
+			assertEquals("DATA_CHANGED /feed/hot", events.get(4).toString());
+		} finally {
+			subscriber.dispose();
+		}
+	}
+
+	@Test
+	public void testOverflowError() throws Exception {
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		List<CuratorZkChangeEvent> events = new CopyOnWriteArrayList<>();
+		BaseSubscriber<CuratorZkChangeEvent> subscriber = new BaseSubscriber<CuratorZkChangeEvent>() {
+
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				request(1);
+			}
+
+			@Override
+			protected void hookOnNext(CuratorZkChangeEvent value) {
+				events.add(value);
+			}
+
+			@Override
+			protected void hookOnError(Throwable throwable) {
+				error.set(throwable);
+			}
+
+		};
+		this.template(2, CuratorZkChangeFeed.Overflow.ERROR).getChangeFeed("/feed").flux().subscribe(subscriber);
+		await(() -> events.size() == 1);
+		for (int i = 0; i < 3; i++) {
+			client.create().forPath("/feed/n-" + i);
+		}
+		await(() -> error.get() != null);
+		assertTrue(Exceptions.isOverflow(error.get()));
+	}
+
+}
@@ -0,0 +1,197 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.KeeperException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkCircuitBreakerTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.builder().connectString(server.getConnectString())
+				.sessionTimeoutMs(10000).connectionTimeoutMs(1000)
+				.retryPolicy(new ExponentialBackoffRetry(100, 3)).build();
+		client.start();
+		client.blockUntilConnected();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	private CuratorZkTemplate template(String fallback) {
+		CuratorZkProperties properties = new CuratorZkProperties();
+		properties.getCircuitBreaker().setFallback(fallback);
+		return new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), properties);
+	}
+
+	private void awaitState(CuratorZkCircuitBreaker breaker, CuratorZkCircuitBreaker.State state) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (breaker.getState() != state && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals(state, breaker.getState());
+	}
+
+	@Test
+	public void testStateTransitions() {
+		CuratorZkCircuitBreaker breaker = new CuratorZkCircuitBreaker("test", 1);
+		assertTrue(breaker.tryAcquirePermission());
+		breaker.stateChanged(client, ConnectionState.SUSPENDED);
+		assertFalse(breaker.tryAcquirePermission());
+		assertEquals(1, breaker.getRejectedCount());
+		breaker.stateChanged(client, ConnectionState.RECONNECTED);
+		assertEquals(CuratorZkCircuitBreaker.State.HALF_OPEN, breaker.getState());
+		// 半开状态只放行一个探测请求
+		assertTrue(breaker.tryAcquirePermission());
+		assertFalse(breaker.tryAcquirePermission());
+		breaker.recordFailure(new CuratorLockException(new KeeperException.ConnectionLossException()));
+		assertEquals(CuratorZkCircuitBreaker.State.OPEN, breaker.getState());
+		breaker.stateChanged(client, ConnectionState.RECONNECTED);
+		assertTrue(breaker.tryAcquirePermission());
+		// ZooKeeper 已应答的异常不算探测失败
+		breaker.recordFailure(new KeeperException.NoAuthException());
+		assertEquals(CuratorZkCircuitBreaker.State.CLOSED, breaker.getState());
+		breaker.stateChanged(client, ConnectionState.LOST);
+		breaker.stateChanged(client, ConnectionState.RECONNECTED);
+		assertTrue(breaker.tryAcquirePermission());
+		breaker.recordSuccess();
+		assertEquals(CuratorZkCircuitBreaker.State.CLOSED, breaker.getState());
+		assertEquals(3, breaker.getOpenedCount());
+	}
+
+	@Test
+	public void testTimedHalfOpen() throws Exception {
+		CuratorZkCircuitBreaker breaker = new CuratorZkCircuitBreaker("test", 1, client, 200);
+		// 连接实际正常，但不会再收到连接事件
+		breaker.stateChanged(client, ConnectionState.SUSPENDED);
+		assertFalse(breaker.tryAcquirePermission());
+		Thread.sleep(300);
+		assertTrue(breaker.tryAcquirePermission());
+		assertEquals(CuratorZkCircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquirePermission());
+		breaker.recordFailure(new KeeperException.SessionExpiredException());
+		assertEquals(CuratorZkCircuitBreaker.State.OPEN, breaker.getState());
+		// 重新打开后重新计时
+		assertFalse(breaker.tryAcquirePermission());
+		Thread.sleep(300);
+		assertTrue(breaker.tryAcquirePermission());
+		breaker.recordSuccess();
+		assertEquals(CuratorZkCircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void testFailFast() throws Exception {
+		CuratorZkTemplate template = this.template(CuratorZkProperties.CircuitBreaker.FALLBACK_FAIL_FAST);
+		CuratorZkCircuitBreaker breaker = template.getCircuitBreakers().get(0);
+		InterProcessLock lock = template.getSharedReentrantLock("/breaker/fail-fast");
+		server.stop();
+		this.awaitState(breaker, CuratorZkCircuitBreaker.State.OPEN);
+		long start = System.currentTimeMillis();
+		try {
+			lock.acquire();
+			fail();
+		} catch (CuratorLockException e) {
+			// expected
+		}
+		try {
+			template.getDistributedLock().acquireLock("fail-fast");
+			fail();
+		} catch (CuratorLockException e) {
+			// expected
+		}
+		try {
+			template.getLeaseLock("/breaker/lease").acquire();
+			fail();
+		} catch (CuratorLockException e) {
+			// expected
+		}
+		try {
+			template.getShardedSemaphore("/breaker/semaphore", 4).acquire();
+			fail();
+		} catch (CuratorLockException e) {
+			// expected
+		}
+		assertTrue(System.currentTimeMillis() - start < 1000);
+		assertEquals(4, breaker.getRejectedCount());
+
+		server.restart();
+		this.awaitState(breaker, CuratorZkCircuitBreaker.State.HALF_OPEN);
+		lock.acquire();
+		lock.release();
+		assertEquals(CuratorZkCircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void testProbeReleasedOnLocalTimeout() throws Exception {
+		CuratorZkCircuitBreaker breaker = new CuratorZkCircuitBreaker("probe", 1);
+		CuratorZkCircuitBreakerLock lock = new CuratorZkCircuitBreakerLock(
+				new InterProcessMutex(client, "/breaker/probe"), "/breaker/probe", breaker, true);
+		lock.acquire();
+		try {
+			breaker.stateChanged(client, ConnectionState.SUSPENDED);
+			breaker.stateChanged(client, ConnectionState.RECONNECTED);
+			// 探测请求在本地锁上超时，没有访问 ZooKeeper，名额必须归还
+			assertFalse(CompletableFuture.supplyAsync(() -> {
+				try {
+					return lock.acquire(100, TimeUnit.MILLISECONDS);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}).get());
+			assertEquals(CuratorZkCircuitBreaker.State.HALF_OPEN, breaker.getState());
+			assertTrue(breaker.tryAcquirePermission());
+			breaker.recordSuccess();
+		} finally {
+			lock.release();
+		}
+		assertEquals(CuratorZkCircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void testLocalFallback() throws Exception {
+		CuratorZkTemplate template = this.template(CuratorZkProperties.CircuitBreaker.FALLBACK_LOCAL);
+		CuratorZkCircuitBreaker breaker = template.getCircuitBreakers().get(0);
+		InterProcessLock lock = template.getSharedReentrantLock("/breaker/local");
+		server.stop();
+		this.awaitState(breaker, CuratorZkCircuitBreaker.State.OPEN);
+		lock.acquire();
+		try {
+			// 降级后仍在本 JVM 内互斥
+			assertFalse(CompletableFuture.supplyAsync(() -> {
+				try {
+					return lock.acquire(100, TimeUnit.MILLISECONDS);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}).get());
+		} finally {
+			lock.release();
+		}
+		assertEquals(2, breaker.getRejectedCount());
+		assertFalse(lock.isAcquiredInThisProcess());
+	}
+
+}
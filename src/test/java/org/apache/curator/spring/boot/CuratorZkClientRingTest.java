@@ -0,0 +1,219 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.imps.CuratorFrameworkState;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import reactor.core.Disposable;
+
+public class CuratorZkClientRingTest {
+
+	private TestingServer server1;
+	private TestingServer server2;
+	private CuratorZkClientRing ring;
+	private CuratorZkTemplate template;
+
+	@Before
+	public void setUp() throws Exception {
+		server1 = new TestingServer();
+		server2 = new TestingServer();
+		Map<String, CuratorFramework> ensembles = new LinkedHashMap<>();
+		for (TestingServer server : new TestingServer[] { server1, server2 }) {
+			CuratorFramework client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+			client.start();
+			client.blockUntilConnected();
+			ensembles.put(server.getConnectString(), client);
+		}
+		ring = new CuratorZkClientRing(ensembles, CuratorZkClientRing.DEFAULT_VIRTUAL_NODES);
+		template = new CuratorZkTemplate(ring, new ExponentialBackoffRetry(100, 3), new CuratorZkProperties());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ring.close();
+		server1.close();
+		server2.close();
+	}
+
+	@Test
+	public void testDistributionAndStability() {
+		Map<String, CuratorFramework> three = new LinkedHashMap<>();
+		three.put("zk-a:2181", null);
+		three.put("zk-b:2181", null);
+		three.put("zk-c:2181", null);
+		CuratorZkClientRing before = new CuratorZkClientRing(three, 160);
+		Map<String, CuratorFramework> four = new LinkedHashMap<>(three);
+		four.put("zk-d:2181", null);
+		CuratorZkClientRing after = new CuratorZkClientRing(four, 160);
+		int keys = 30000;
+		int[] counts = new int[3];
+		int moved = 0;
+		for (int i = 0; i < keys; i++) {
+			String key = "/locks/order/" + i;
+			int index = before.indexOf(key);
+			counts[index]++;
+			int newIndex = after.indexOf(key);
+			if (newIndex != index) {
+				// 新增集群只会接走 key，不会在原有集群之间迁移
+				assertEquals(3, newIndex);
+				moved++;
+			}
+		}
+		for (int count : counts) {
+			assertTrue("unbalanced: " + count, count > keys / 3 * 0.8 && count < keys / 3 * 1.2);
+		}
+		assertTrue("moved: " + moved, moved > keys / 4 * 0.7 && moved < keys / 4 * 1.3);
+	}
+
+	@Test
+	public void testTemplateRouting() throws Exception {
+		String lockKey = null;
+		for (int i = 0; lockKey == null; i++) {
+			if (ring.indexOf("/route/" + i) == 1) {
+				lockKey = "/route/" + i;
+			}
+		}
+		InterProcessLock lock = template.getSharedReentrantLock(lockKey);
+		lock.acquire();
+		try {
+			assertNotNull(ring.getClient(1).checkExists().forPath(lockKey));
+			assertNull(ring.getClient(0).checkExists().forPath(lockKey));
+		} finally {
+			lock.release();
+		}
+
+		CuratorZkDistributedLock distributedLock = template.getDistributedLock();
+		String key = null;
+		for (int i = 0; key == null; i++) {
+			if (ring.indexOf("key-" + i) == 1) {
+				key = "key-" + i;
+			}
+		}
+		distributedLock.acquireLock(key);
+		try {
+			assertEquals(1, ring.getClient(1).getChildren().forPath("/locks/" + key).size());
+			assertNull(ring.getClient(0).checkExists().forPath("/locks/" + key));
+		} finally {
+			distributedLock.unlock(key);
+		}
+	}
+
+	@Test
+	public void testAsyncLockRouting() throws Exception {
+		String key = null;
+		for (int i = 0; key == null; i++) {
+			if (ring.indexOf("key-" + i) == 1) {
+				key = "key-" + i;
+			}
+		}
+		// 异步锁与同步锁按相同规则路由，同一个 key 互相排斥
+		try (AsyncCuratorZkTemplate asyncTemplate = new AsyncCuratorZkTemplate(ring, "/locks", null)) {
+			AsyncCuratorZkLock lock = asyncTemplate.acquire(key).toCompletableFuture().get(10, TimeUnit.SECONDS);
+			assertEquals(1, ring.getClient(1).getChildren().forPath("/locks/" + key).size());
+			assertNull(ring.getClient(0).checkExists().forPath("/locks/" + key));
+			assertFalse(template.getDistributedLock().tryLock(key));
+			lock.release().toCompletableFuture().get(10, TimeUnit.SECONDS);
+			assertTrue(template.getDistributedLock().tryLock(key));
+			template.getDistributedLock().unlock(key);
+		}
+	}
+
+	@Test
+	public void testTreeSpansEnsembles() throws Exception {
+		Set<String> expected = new HashSet<>();
+		for (int i = 0; i < 20; i++) {
+			template.put("/tree/n" + i, "v" + i);
+			expected.add("/tree/n" + i);
+		}
+		assertTrue(ring.getClient(0).getChildren().forPath("/tree").size() > 0);
+		assertTrue(ring.getClient(1).getChildren().forPath("/tree").size() > 0);
+		// 遍历覆盖两个集群，父节点只在所属集群上返回一次
+		List<String> walked = new ArrayList<>();
+		template.walkTree("/tree", false, node -> walked.add(node.getPath()));
+		assertEquals(walked.size(), new HashSet<>(walked).size());
+		assertTrue(walked.containsAll(expected));
+
+		ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+		template.exportTree("/tree", snapshot);
+		template.importTree("/copy", new ByteArrayInputStream(snapshot.toByteArray()));
+		for (int i = 0; i < 20; i++) {
+			assertEquals("v" + i, template.get("/copy/n" + i, String.class));
+		}
+	}
+
+	@Test
+	public void testChangeFeedSpansEnsembles() throws Exception {
+		String[] paths = new String[2];
+		for (int i = 0; paths[0] == null || paths[1] == null; i++) {
+			String path = "/feed/n" + i;
+			if (paths[ring.indexOf(path)] == null) {
+				paths[ring.indexOf(path)] = path;
+			}
+		}
+		BlockingQueue<CuratorZkChangeEvent> events = new LinkedBlockingQueue<>();
+		Disposable subscription = template.getChangeFeed("/feed").flux().subscribe(events::add);
+		try {
+			// 每个集群各一个 RESET
+			assertEquals(CuratorZkChangeEvent.Type.RESET, events.poll(10, TimeUnit.SECONDS).getType());
+			assertEquals(CuratorZkChangeEvent.Type.RESET, events.poll(10, TimeUnit.SECONDS).getType());
+			Set<String> created = new HashSet<>();
+			for (String path : paths) {
+				template.put(path, "v");
+			}
+			while (created.size() < 2) {
+				CuratorZkChangeEvent event = events.poll(10, TimeUnit.SECONDS);
+				assertNotNull(event);
+				if (event.getType() == CuratorZkChangeEvent.Type.CREATED && event.getPath().startsWith("/feed/")) {
+					created.add(event.getPath());
+					// 按需读取落到事件所在的集群
+					assertNotNull(event.fetchData());
+				}
+			}
+			assertEquals(new HashSet<>(Arrays.asList(paths)), created);
+		} finally {
+			subscription.dispose();
+		}
+	}
+
+	@Test
+	public void testCloseOnlyOwnedClients() throws Exception {
+		CuratorFramework shared = ring.getClient(0);
+		CuratorFramework owned = CuratorFrameworkFactory.newClient(server2.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		owned.start();
+		Map<String, CuratorFramework> ensembles = new LinkedHashMap<>();
+		ensembles.put("shared", shared);
+		ensembles.put("owned", owned);
+		new CuratorZkClientRing(ensembles, 16, Collections.singletonList(owned)).close();
+		assertEquals(CuratorFrameworkState.STOPPED, owned.getState());
+		assertEquals(CuratorFrameworkState.STARTED, shared.getState());
+		CuratorZkClientRing.of(shared).close();
+		assertEquals(CuratorFrameworkState.STARTED, shared.getState());
+	}
+
+}
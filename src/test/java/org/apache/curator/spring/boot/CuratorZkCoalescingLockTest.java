@@ -0,0 +1,170 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkCoalescingLockTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private CuratorZkTemplate template;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		template = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), new CuratorZkProperties());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testReentrantAndTimeout() throws Exception {
+		InterProcessLock lock = template.getCoalescingLock("/coalescing/a");
+		assertSame(lock, template.getCoalescingLock("/coalescing/a"));
+		lock.acquire();
+		assertTrue(lock.acquire(1, TimeUnit.SECONDS));
+		ExecutorService other = Executors.newSingleThreadExecutor();
+		assertFalse(other.submit(() -> lock.acquire(100, TimeUnit.MILLISECONDS)).get());
+		lock.release();
+		lock.release();
+		assertFalse(lock.isAcquiredInThisProcess());
+		other.shutdown();
+	}
+
+	/**
+	 * 更换回调线程池后，已缓存的合并锁仍能限时加锁
+	 */
+	@Test
+	public void testCallbackExecutorSwap() throws Exception {
+		InterProcessLock lock = template.getCoalescingLock("/coalescing/swap");
+		lock.acquire();
+		lock.release();
+		ExecutorService callbacks = Executors.newSingleThreadExecutor();
+		ExecutorService other = Executors.newSingleThreadExecutor();
+		try {
+			template.setCallbackExecutor(callbacks);
+			assertSame(lock, template.getCoalescingLock("/coalescing/swap"));
+			assertTrue(lock.acquire(5, TimeUnit.SECONDS));
+			assertFalse(other.submit(() -> lock.acquire(100, TimeUnit.MILLISECONDS)).get());
+			lock.release();
+			assertTrue(other.submit(() -> {
+				boolean acquired = lock.acquire(5, TimeUnit.SECONDS);
+				lock.release();
+				return acquired;
+			}).get());
+		} finally {
+			template.setCallbackExecutor(null);
+			callbacks.shutdown();
+			other.shutdown();
+		}
+	}
+
+	/**
+	 * 移交后等待者超时放弃时，ZooKeeper 锁不能滞留在无人持有的状态
+	 */
+	@Test
+	public void testWaiterGivesUpAfterHandoff() throws Exception {
+		try (AsyncCuratorZkTemplate asyncTemplate = new AsyncCuratorZkTemplate(client, "/")) {
+			CuratorZkCoalescingLock lock = new CuratorZkCoalescingLock(asyncTemplate, "/coalescing/orphan", 16);
+			ExecutorService waiters = Executors.newFixedThreadPool(4);
+			AtomicBoolean running = new AtomicBoolean(true);
+			try {
+				List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < 4; i++) {
+					futures.add(waiters.submit(() -> {
+						// 极短的等待时间，使等待者常在移交之后放弃
+						while (running.get()) {
+							if (lock.acquire(ThreadLocalRandom.current().nextInt(200), TimeUnit.MICROSECONDS)) {
+								lock.release();
+							}
+						}
+						return null;
+					}));
+				}
+				for (int i = 0; i < 500; i++) {
+					lock.acquire();
+					TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextInt(200));
+					lock.release();
+				}
+				running.set(false);
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} finally {
+				waiters.shutdown();
+			}
+			assertFalse(lock.isAcquiredInThisProcess());
+			assertTrue(client.getChildren().forPath("/coalescing/orphan").isEmpty());
+		}
+	}
+
+	/**
+	 * 本地合并后，ZooKeeper 上的加锁次数远小于临界区执行次数
+	 */
+	@Test
+	public void testCoalescing() throws Exception {
+		final int threads = 50;
+		final int rounds = 20;
+		final InterProcessLock lock = template.getCoalescingLock("/coalescing/hot");
+		final AtomicInteger inside = new AtomicInteger();
+		final AtomicInteger violations = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(threads);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			pool.execute(() -> {
+				try {
+					for (int i = 0; i < rounds; i++) {
+						lock.acquire();
+						if (inside.incrementAndGet() > 1) {
+							violations.incrementAndGet();
+						}
+						inside.decrementAndGet();
+						lock.release();
+					}
+				} catch (Exception e) {
+					violations.incrementAndGet();
+				} finally {
+					done.countDown();
+				}
+			});
+		}
+		assertTrue(done.await(2, TimeUnit.MINUTES));
+		pool.shutdown();
+		assertEquals(0, violations.get());
+
+		// 每个锁节点的创建和删除各使子节点版本号加 1
+		int zkAcquisitions = client.checkExists().forPath("/coalescing/hot").getCversion() / 2;
+		System.out.println(String.format("%d critical sections, %d ZooKeeper lock nodes", threads * rounds, zkAcquisitions));
+		assertTrue(zkAcquisitions < threads * rounds / 4);
+	}
+
+}
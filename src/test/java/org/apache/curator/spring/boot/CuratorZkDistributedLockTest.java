@@ -0,0 +1,112 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkDistributedLockTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testReentrantAndTryLock() throws Exception {
+		final CuratorZkDistributedLock lock = new CuratorZkDistributedLock(client, 30000);
+		lock.acquireLock("order-1");
+		lock.acquireLock("order-1");
+		assertTrue(lock.isHeldByCurrentThread("order-1"));
+
+		ExecutorService other = Executors.newSingleThreadExecutor();
+		assertFalse(other.submit(() -> lock.tryLock("order-1")).get());
+		assertFalse(other.submit(() -> lock.tryLock("order-1", 200, TimeUnit.MILLISECONDS)).get());
+
+		lock.unlock("order-1");
+		assertTrue(lock.isHeldByCurrentThread("order-1"));
+		lock.unlock("order-1");
+		assertFalse(lock.isHeldByCurrentThread("order-1"));
+
+		assertTrue(other.submit(() -> {
+			boolean locked = lock.tryLock("order-1", 1, TimeUnit.SECONDS);
+			lock.unlock("order-1");
+			return locked;
+		}).get());
+		other.shutdown();
+		assertEquals(0, client.getChildren().forPath("/locks/order-1").size());
+	}
+
+	/**
+	 * 高竞争下的加锁延迟（p50/p99）与互斥性
+	 */
+	@Test
+	public void testAcquireLatency() throws Exception {
+		final int threads = 32;
+		final int rounds = 20;
+		final CuratorZkDistributedLock lock = new CuratorZkDistributedLock(client, 30000);
+		final AtomicInteger inside = new AtomicInteger();
+		final AtomicInteger violations = new AtomicInteger();
+		final long[] latencies = new long[threads * rounds];
+		final AtomicInteger index = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(threads);
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			pool.execute(() -> {
+				try {
+					for (int i = 0; i < rounds; i++) {
+						long start = System.nanoTime();
+						lock.acquireLock("hot-key");
+						latencies[index.getAndIncrement()] = System.nanoTime() - start;
+						if (inside.incrementAndGet() > 1) {
+							violations.incrementAndGet();
+						}
+						inside.decrementAndGet();
+						lock.unlock("hot-key");
+					}
+				} finally {
+					done.countDown();
+				}
+			});
+		}
+		assertTrue(done.await(2, TimeUnit.MINUTES));
+		pool.shutdown();
+
+		Arrays.sort(latencies);
+		long p50 = latencies[latencies.length / 2];
+		long p99 = latencies[(int) (latencies.length * 0.99)];
+		System.out.println(String.format("CuratorZkDistributedLock %d threads: p50=%.2fms p99=%.2fms", threads,
+				p50 / 1e6, p99 / 1e6));
+		assertEquals(0, violations.get());
+		// 等待者由前驱节点删除事件唤醒，而不是等到 sessionTimeout
+		assertTrue(p99 < TimeUnit.SECONDS.toNanos(10));
+	}
+
+}
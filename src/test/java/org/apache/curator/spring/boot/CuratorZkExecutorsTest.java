@@ -0,0 +1,128 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkExecutorsTest {
+
+	private static final int KEYS = 100;
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testExecutorTypes() throws Exception {
+		CuratorZkProperties.Executor properties = new CuratorZkProperties.Executor();
+		assertNull(CuratorZkExecutors.newCallbackExecutor(properties));
+		properties.setType("fixed");
+		properties.setThreads(2);
+		ExecutorService fixed = CuratorZkExecutors.newCallbackExecutor(properties);
+		assertTrue(fixed.submit(() -> Thread.currentThread().getName()).get().startsWith("curator-callback-"));
+		fixed.shutdown();
+		// JDK 21 以下退回平台线程池
+		properties.setType("virtual");
+		ExecutorService virtual = CuratorZkExecutors.newCallbackExecutor(properties);
+		assertNotNull(virtual.submit(() -> Boolean.TRUE).get());
+		virtual.shutdown();
+	}
+
+	/**
+	 * 异步等待者不占用线程：等待者数量增加两个数量级，线程数基本不变
+	 */
+	@Test
+	public void testAsyncWaiterScaling() throws Exception {
+		CuratorZkProperties.Executor properties = new CuratorZkProperties.Executor();
+		properties.setType("fixed");
+		properties.setThreads(4);
+		ExecutorService executor = CuratorZkExecutors.newCallbackExecutor(properties);
+		AsyncCuratorZkTemplate template = new AsyncCuratorZkTemplate(client, "/locks", executor);
+		try {
+			for (int waiters : new int[] { 100, 1000, 10000 }) {
+				int baseline = threads.getThreadCount();
+				threads.resetPeakThreadCount();
+				AtomicInteger acquired = new AtomicInteger();
+				List<CompletableFuture<Void>> futures = new ArrayList<>(waiters);
+				for (int i = 0; i < waiters; i++) {
+					futures.add(template.acquire("scale-" + (i % KEYS)).thenCompose(lock -> {
+						acquired.incrementAndGet();
+						return lock.release();
+					}).toCompletableFuture());
+				}
+				CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(2, TimeUnit.MINUTES);
+				int extra = threads.getPeakThreadCount() - baseline;
+				System.out.println("async waiters=" + waiters + ", extra platform threads=" + extra);
+				assertEquals(waiters, acquired.get());
+				assertTrue("extra threads: " + extra, extra < 20);
+			}
+		} finally {
+			template.close();
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * 阻塞等待者运行在虚拟线程上：一万个等待者只占用少量载体线程（需要 JDK 21+）
+	 */
+	@Test
+	public void testBlockingWaiterScalingOnVirtualThreads() throws Exception {
+		Assume.assumeTrue(CuratorZkExecutors.isVirtualThreadSupported());
+		CuratorZkDistributedLock lock = new CuratorZkDistributedLock(client, 30000);
+		for (int waiters : new int[] { 100, 1000, 10000 }) {
+			int baseline = threads.getThreadCount();
+			threads.resetPeakThreadCount();
+			ExecutorService executor = CuratorZkExecutors.newVirtualThreadPerTaskExecutor();
+			List<Future<?>> futures = new ArrayList<>(waiters);
+			for (int i = 0; i < waiters; i++) {
+				String key = "scale-" + (i % KEYS);
+				futures.add(executor.submit(() -> {
+					lock.acquireLock(key);
+					lock.unlock(key);
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(2, TimeUnit.MINUTES);
+			}
+			executor.shutdown();
+			int extra = threads.getPeakThreadCount() - baseline;
+			System.out.println("virtual waiters=" + waiters + ", extra platform threads=" + extra);
+			assertTrue("extra threads: " + extra, extra <= Runtime.getRuntime().availableProcessors() + 20);
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkLeaderRegistryTest {
+
+	private TestingServer server;
+	private CuratorFramework client1;
+	private CuratorFramework client2;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client1 = this.newClient();
+		client2 = this.newClient();
+	}
+
+	private CuratorFramework newClient() throws InterruptedException {
+		CuratorFramework client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		return client;
+	}
+
+	private CuratorZkTemplate template(CuratorFramework client, String participantId) {
+		CuratorZkProperties properties = new CuratorZkProperties();
+		properties.getLeader().setParticipantId(participantId);
+		return new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), properties);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client1.close();
+		client2.close();
+		server.close();
+	}
+
+	@Test
+	public void testFailover() throws Exception {
+		CuratorZkTemplate template1 = this.template(client1, "node-1");
+		CuratorZkTemplate template2 = this.template(client2, "node-2");
+		List<String> changes = new CopyOnWriteArrayList<>();
+		template1.addLeaderListener((latch, leader) -> changes.add(latch.getParticipantId() + ":" + leader));
+		template2.addLeaderListener((latch, leader) -> changes.add(latch.getParticipantId() + ":" + leader));
+
+		CuratorZkLeaderLatch latch1 = template1.getLeaderLatch("job");
+		assertSame(latch1, template1.getLeaderLatch("job"));
+		assertTrue(latch1.await(10, TimeUnit.SECONDS));
+		CuratorZkLeaderLatch latch2 = template2.getLeaderLatch("job");
+		assertFalse(latch2.await(200, TimeUnit.MILLISECONDS));
+		assertTrue(template1.getLeaderRegistry().isLeader("job"));
+		assertFalse(template2.getLeaderRegistry().isLeader("job"));
+		assertFalse(template2.getLeaderRegistry().isLeader("other"));
+		assertEquals("node-1", latch2.getLeaderId());
+
+		// 领导者退出后另一个节点接任
+		template1.getLeaderRegistry().leave("job");
+		assertFalse(latch1.isLeader());
+		assertTrue(latch2.await(10, TimeUnit.SECONDS));
+		assertTrue(latch2.isLeader());
+		assertEquals("node-2", latch2.getLeaderId());
+		assertNotEquals(latch1, template1.getLeaderLatch("job"));
+		assertEquals("[node-1:true, node-1:false, node-2:true]", changes.toString());
+		template1.getLeaderRegistry().close();
+		template2.getLeaderRegistry().close();
+	}
+
+}
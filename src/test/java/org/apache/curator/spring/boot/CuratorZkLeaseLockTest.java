@@ -0,0 +1,157 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkLeaseLockTest {
+
+	private TestingServer server;
+	private CuratorFramework client1;
+	private CuratorFramework client2;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client1 = this.newClient();
+		client2 = this.newClient();
+	}
+
+	private CuratorFramework newClient() throws InterruptedException {
+		CuratorFramework client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		return client;
+	}
+
+	private CuratorZkTemplate template(CuratorFramework client, long leaseMs) {
+		CuratorZkProperties properties = new CuratorZkProperties();
+		properties.getLeaseLock().setLeaseMs(leaseMs);
+		return new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), properties);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client1.close();
+		client2.close();
+		server.close();
+	}
+
+	@Test
+	public void testLocalReacquire() throws Exception {
+		CuratorZkTemplate template = this.template(client1, 60000);
+		CuratorZkLeaseLock lock = template.getLeaseLock("/lease/order/1");
+		assertSame(lock, template.getLeaseLock("/lease/order/1"));
+		long token = -1;
+		for (int i = 0; i < 100; i++) {
+			lock.acquire();
+			try {
+				if (token < 0) {
+					token = lock.getFencingToken();
+				}
+				assertEquals(token, lock.getFencingToken());
+			} finally {
+				lock.release();
+			}
+		}
+		assertEquals(1, lock.getLeaseAcquireCount());
+		assertEquals(99, lock.getLocalAcquireCount());
+		assertTrue(lock.isLeaseHeld());
+	}
+
+	@Test
+	public void testRevocationAndFencing() throws Exception {
+		CuratorZkLeaseLock lock1 = this.template(client1, 60000).getLeaseLock("/lease/order/2");
+		CuratorZkLeaseLock lock2 = this.template(client2, 60000).getLeaseLock("/lease/order/2");
+		lock1.acquire();
+		long token1 = lock1.getFencingToken();
+		lock1.release();
+		assertTrue(lock1.isLeaseHeld());
+
+		// 空闲租约在收到撤销请求后立即交出
+		long start = System.currentTimeMillis();
+		assertTrue(lock2.acquire(10, TimeUnit.SECONDS));
+		long token2 = lock2.getFencingToken();
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertFalse(lock1.isLeaseHeld());
+		assertTrue(token2 > token1);
+
+		// 本地持有期间其他进程无法取得锁，其撤销请求使持有者释放时立即交出租约
+		assertFalse(lock1.acquire(200, TimeUnit.MILLISECONDS));
+		lock2.release();
+		assertFalse(lock2.isLeaseHeld());
+		assertTrue(lock1.acquire(10, TimeUnit.SECONDS));
+		assertTrue(lock1.getFencingToken() > token2);
+		lock1.release();
+	}
+
+	@Test
+	public void testLeaseExpires() throws Exception {
+		CuratorZkLeaseLock lock = this.template(client1, 200).getLeaseLock("/lease/order/3");
+		lock.acquire();
+		lock.release();
+		assertTrue(lock.isLeaseHeld());
+		long deadline = System.currentTimeMillis() + 5000;
+		while (lock.isLeaseHeld() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertFalse(lock.isLeaseHeld());
+		assertTrue(client1.getChildren().forPath("/lease/order/3/leases").isEmpty());
+	}
+
+	@Test
+	public void testNoLocalGrantWhileDisconnected() throws Exception {
+		CuratorFramework client = CuratorFrameworkFactory.builder().connectString(server.getConnectString())
+				.connectionTimeoutMs(500).sessionTimeoutMs(30000).retryPolicy(new RetryOneTime(50)).build();
+		client.start();
+		client.blockUntilConnected();
+		try {
+			CuratorZkTemplate template = this.template(client, 60000);
+			CuratorZkLeaseLock lock = template.getLeaseLock("/lease/order/4");
+			lock.acquire();
+			lock.release();
+			assertTrue(lock.isLeaseHeld());
+
+			server.stop();
+			long deadline = System.currentTimeMillis() + 10000;
+			while (client.getZookeeperClient().isConnected() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(20);
+			}
+			// 连接中断后不再在本地授予锁
+			boolean acquired;
+			try {
+				acquired = lock.acquire(200, TimeUnit.MILLISECONDS);
+			} catch (Exception e) {
+				acquired = false;
+			}
+			assertFalse(acquired);
+			assertEquals(0, lock.getLocalAcquireCount());
+			assertFalse(lock.isLeaseHeld());
+
+			server.restart();
+			assertTrue(client.blockUntilConnected(10, TimeUnit.SECONDS));
+			deadline = System.currentTimeMillis() + 10000;
+			while (template.getCircuitBreakers().get(0).getState() == CuratorZkCircuitBreaker.State.OPEN && System.currentTimeMillis() < deadline) {
+				Thread.sleep(20);
+			}
+			assertTrue(lock.acquire(10, TimeUnit.SECONDS));
+			lock.release();
+			assertEquals(2, lock.getLeaseAcquireCount());
+		} finally {
+			client.close();
+		}
+	}
+
+}
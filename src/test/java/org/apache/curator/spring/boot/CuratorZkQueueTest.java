@@ -0,0 +1,166 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.queue.QueueSerializer;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkQueueTest {
+
+	private static final QueueSerializer<String> SERIALIZER = new QueueSerializer<String>() {
+
+		@Override
+		public byte[] serialize(String item) {
+			return item.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String deserialize(byte[] bytes) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+	};
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private CuratorZkTemplate template;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		CuratorZkProperties properties = new CuratorZkProperties();
+		properties.getQueue().setMaxBatchSize(100);
+		properties.getQueue().setPrefetch(2);
+		template = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), properties);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	private static List<String> items(String prefix, int count) {
+		List<String> items = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			items.add(prefix + i);
+		}
+		return items;
+	}
+
+	@Test
+	public void testBatchedPutAndTake() throws Exception {
+		CuratorZkQueue<String> queue = template.getQueue("/queue/tasks", SERIALIZER);
+		queue.putAll(items("task-", 250));
+		// 250 个元素写入 3 个节点
+		assertEquals(3, client.getChildren().forPath("/queue/tasks").size());
+		assertEquals(3, queue.getPutBatches());
+
+		List<String> taken = new ArrayList<>();
+		while (taken.size() < 250) {
+			CuratorZkQueue.Batch<String> batch = queue.take(10, TimeUnit.SECONDS);
+			assertNotNull(batch);
+			taken.addAll(batch.getItems());
+			batch.ack();
+		}
+		assertEquals(items("task-", 250), taken);
+		assertEquals(3, queue.getTakenBatches());
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!client.getChildren().forPath("/queue/tasks").isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertTrue(client.getChildren().forPath("/queue/tasks").isEmpty());
+		queue.close();
+	}
+
+	@Test
+	public void testNackRequeues() throws Exception {
+		CuratorZkQueue<String> queue = template.getQueue("/queue/retry", SERIALIZER);
+		queue.putAll(items("job-", 10));
+		CuratorZkQueue.Batch<String> batch = queue.take(10, TimeUnit.SECONDS);
+		assertEquals(10, batch.getItems().size());
+		batch.nack();
+		CuratorZkQueue.Batch<String> redelivered = queue.take(10, TimeUnit.SECONDS);
+		assertNotNull(redelivered);
+		assertEquals(batch.getItems(), redelivered.getItems());
+		redelivered.ack();
+		assertEquals(1, queue.getRequeuedBatches());
+		queue.close();
+	}
+
+	@Test
+	public void testPriority() throws Exception {
+		CuratorZkQueue<String> queue = template.getPriorityQueue("/queue/priority", SERIALIZER);
+		queue.putAll(items("low-", 5), 10);
+		queue.putAll(items("high-", 5), 1);
+		CuratorZkQueue.Batch<String> first = queue.take(10, TimeUnit.SECONDS);
+		assertEquals(items("high-", 5), first.getItems());
+		first.ack();
+		CuratorZkQueue.Batch<String> second = queue.take(10, TimeUnit.SECONDS);
+		assertEquals(items("low-", 5), second.getItems());
+		second.ack();
+		queue.close();
+	}
+
+	@Test
+	public void testCompetingConsumers() throws Exception {
+		CuratorZkQueue<String> producer = template.getQueue("/queue/shared", SERIALIZER);
+		for (int i = 0; i < 20; i++) {
+			producer.putAll(items("item-" + i + "-", 50));
+		}
+		Set<String> consumed = ConcurrentHashMap.newKeySet();
+		AtomicInteger duplicates = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		List<CuratorZkQueue<String>> consumers = new ArrayList<>();
+		for (int c = 0; c < 3; c++) {
+			CuratorZkQueue<String> consumer = template.getQueue("/queue/shared", SERIALIZER);
+			consumers.add(consumer);
+			Thread thread = new Thread(() -> {
+				try {
+					CuratorZkQueue.Batch<String> batch;
+					while ((batch = consumer.take(2, TimeUnit.SECONDS)) != null) {
+						for (String item : batch.getItems()) {
+							if (!consumed.add(item)) {
+								duplicates.incrementAndGet();
+							}
+						}
+						batch.ack();
+					}
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join(60000);
+		}
+		assertEquals(1000, consumed.size());
+		assertEquals(0, duplicates.get());
+		for (CuratorZkQueue<String> consumer : consumers) {
+			consumer.close();
+		}
+		producer.close();
+	}
+
+}
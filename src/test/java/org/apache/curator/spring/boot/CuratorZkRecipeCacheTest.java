@@ -0,0 +1,83 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class CuratorZkRecipeCacheTest {
+
+	@Test
+	public void testHitAndMiss() {
+		CuratorZkRecipeCache.Stats stats = new CuratorZkRecipeCache.Stats();
+		CuratorZkRecipeCache<Object> cache = new CuratorZkRecipeCache<>(100, 0, value -> true, stats);
+		Object first = cache.get("/a", key -> new Object());
+		assertSame(first, cache.get("/a", key -> new Object()));
+		assertEquals(1, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+	}
+
+	@Test
+	public void testSizeEvictionSkipsHeld() {
+		final Set<String> held = new HashSet<>();
+		held.add("/0");
+		CuratorZkRecipeCache.Stats stats = new CuratorZkRecipeCache.Stats();
+		CuratorZkRecipeCache<String> cache = new CuratorZkRecipeCache<>(10, 0, value -> !held.contains(value), stats);
+		AtomicInteger loads = new AtomicInteger();
+		for (int i = 0; i < 100; i++) {
+			cache.get("/" + i, key -> {
+				loads.incrementAndGet();
+				return key;
+			});
+		}
+		assertTrue(cache.size() <= 10);
+		assertTrue(stats.getEvictionCount() >= 90);
+		// 被持有的实例不会被淘汰
+		cache.get("/0", key -> {
+			loads.incrementAndGet();
+			return key;
+		});
+		assertEquals(100, loads.get());
+	}
+
+	@Test
+	public void testIdleEviction() throws Exception {
+		CuratorZkRecipeCache.Stats stats = new CuratorZkRecipeCache.Stats();
+		CuratorZkRecipeCache<Object> cache = new CuratorZkRecipeCache<>(100, 50, value -> true, stats);
+		Object first = cache.get("/a", key -> new Object());
+		Thread.sleep(120);
+		cache.get("/b", key -> new Object());
+		assertNotSame(first, cache.get("/a", key -> new Object()));
+		assertEquals(1, stats.getEvictionCount());
+	}
+
+	@Test
+	public void testEvictionOffCallerThread() throws Exception {
+		CuratorZkRecipeCache.Stats stats = new CuratorZkRecipeCache.Stats();
+		List<Runnable> tasks = new ArrayList<>();
+		CuratorZkRecipeCache<Object> cache = new CuratorZkRecipeCache<>(10, 0, 50, value -> true, stats, tasks::add);
+		for (int i = 0; i < 20; i++) {
+			cache.get("/" + i, key -> new Object());
+		}
+		// 扫描只提交一次，调用线程不淘汰
+		assertEquals(1, tasks.size());
+		assertEquals(20, cache.size());
+		// 最近访问过的实例不淘汰
+		tasks.remove(0).run();
+		assertEquals(20, cache.size());
+		Thread.sleep(80);
+		Object recent = cache.get("/19", key -> new Object());
+		tasks.remove(0).run();
+		assertEquals(9, cache.size());
+		assertSame(recent, cache.getIfPresent("/19"));
+	}
+
+}
@@ -0,0 +1,149 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.locks.Lease;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkShardedSemaphoreTest {
+
+	private TestingServer server;
+	private CuratorFramework client1;
+	private CuratorFramework client2;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client1 = this.newClient();
+		client2 = this.newClient();
+	}
+
+	private CuratorFramework newClient() throws InterruptedException {
+		CuratorFramework client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		return client;
+	}
+
+	private CuratorZkTemplate template(CuratorFramework client, int shards, int prefetch, long idleReturnMs) {
+		CuratorZkProperties properties = new CuratorZkProperties();
+		properties.getSemaphore().setShards(shards);
+		properties.getSemaphore().setPrefetch(prefetch);
+		properties.getSemaphore().setIdleReturnMs(idleReturnMs);
+		return new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), properties);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client1.close();
+		client2.close();
+		server.close();
+	}
+
+	@Test
+	public void testPrefetch() throws Exception {
+		CuratorZkTemplate template = this.template(client1, 4, 16, 60000);
+		CuratorZkShardedSemaphore semaphore = template.getShardedSemaphore("/semaphore/prefetch", 100);
+		assertSame(semaphore, template.getShardedSemaphore("/semaphore/prefetch", 100));
+		assertEquals(4, semaphore.getShards());
+		for (int i = 0; i < 1000; i++) {
+			Lease lease = semaphore.acquire(1, TimeUnit.SECONDS);
+			assertNotNull(lease);
+			lease.close();
+		}
+		// 第一次预取 16 个租约，之后都从本地池取得
+		assertEquals(1, semaphore.getZkAcquireCount());
+		assertEquals(999, semaphore.getLocalAcquireCount());
+		assertEquals(16, semaphore.getLocalAvailable());
+		semaphore.close();
+		assertEquals(0, semaphore.getLocalAvailable());
+	}
+
+	@Test
+	public void testPermitsAcrossNodes() throws Exception {
+		CuratorZkShardedSemaphore semaphore1 = this.template(client1, 3, 4, 200).getShardedSemaphore("/semaphore/nodes", 10);
+		CuratorZkShardedSemaphore semaphore2 = this.template(client2, 3, 4, 200).getShardedSemaphore("/semaphore/nodes", 10);
+		List<Lease> leases = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			Lease lease = semaphore1.acquire(2, TimeUnit.SECONDS);
+			assertNotNull(lease);
+			leases.add(lease);
+		}
+		assertNull(semaphore2.acquire(200, TimeUnit.MILLISECONDS));
+		for (Lease lease : leases) {
+			lease.close();
+		}
+		// 超出 prefetch 的租约立即交还，其余留在本地池
+		assertEquals(4, semaphore1.getLocalAvailable());
+		Lease lease = semaphore2.acquire(2, TimeUnit.SECONDS);
+		assertNotNull(lease);
+		lease.close();
+		// 空闲交还后其他节点可以取得全部许可
+		long deadline = System.currentTimeMillis() + 5000;
+		while (semaphore1.getLocalAvailable() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertEquals(0, semaphore1.getLocalAvailable());
+		semaphore2.returnPool();
+		leases.clear();
+		for (int i = 0; i < 10; i++) {
+			lease = semaphore2.acquire(2, TimeUnit.SECONDS);
+			assertNotNull(lease);
+			leases.add(lease);
+		}
+		for (Lease held : leases) {
+			held.close();
+		}
+	}
+
+	@Test
+	public void testConcurrentPermits() throws Exception {
+		CuratorZkShardedSemaphore semaphore1 = this.template(client1, 2, 2, 100).getShardedSemaphore("/semaphore/concurrent", 5);
+		CuratorZkShardedSemaphore semaphore2 = this.template(client2, 2, 2, 100).getShardedSemaphore("/semaphore/concurrent", 5);
+		AtomicInteger holders = new AtomicInteger();
+		AtomicInteger maxHolders = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 16; t++) {
+			CuratorZkShardedSemaphore semaphore = t % 2 == 0 ? semaphore1 : semaphore2;
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 10; i++) {
+					Lease lease = semaphore.acquire();
+					try {
+						maxHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+						Thread.sleep(2);
+					} finally {
+						holders.decrementAndGet();
+						lease.close();
+					}
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+		assertTrue(maxHolders.get() <= 5);
+		assertTrue(maxHolders.get() > 1);
+	}
+
+}
@@ -0,0 +1,118 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.CreateMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkStripedCounterTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private CuratorZkTemplate template;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		CuratorZkProperties properties = new CuratorZkProperties();
+		properties.getCounter().setFlushIntervalMs(50);
+		properties.getCounter().setSequenceBlockSize(100);
+		template = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), properties);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testStripedCounter() throws Exception {
+		CuratorZkStripedCounter counter = template.getStripedCounter("/counter/requests");
+		assertSame(counter, template.getStripedCounter("/counter/requests"));
+		// 模拟另一个节点上的计数器
+		CuratorZkStripedCounter other = new CuratorZkStripedCounter(client, "/counter/requests", 8, template.getScheduler(), 50);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 8; i++) {
+			pool.execute(() -> {
+				for (int j = 0; j < 10000; j++) {
+					counter.increment();
+					other.add(2);
+				}
+			});
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+		counter.flush();
+		other.close();
+		assertEquals(80000 * 3, counter.getGlobal());
+	}
+
+	@Test
+	public void testSequence() throws Exception {
+		final CuratorZkSequence sequence = template.getSequence("/sequence/order");
+		final CuratorZkSequence other = new CuratorZkSequence(template.getAtomicLong("/sequence/order"), 100);
+		final Set<Long> values = ConcurrentHashMap.newKeySet();
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 8; i++) {
+			final CuratorZkSequence target = i % 2 == 0 ? sequence : other;
+			pool.execute(() -> {
+				for (int j = 0; j < 1000; j++) {
+					try {
+						values.add(target.next());
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			});
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+		assertEquals(8000, values.size());
+	}
+
+	@Test
+	public void testCloseFlushesAndReleases() throws Exception {
+		CuratorZkProperties properties = new CuratorZkProperties();
+		properties.getCounter().setFlushIntervalMs(60000);
+		properties.getWriteBatch().setLingerMs(60000);
+		properties.getLeaseLock().setLeaseMs(60000);
+		CuratorZkTemplate closing = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), properties);
+		closing.getStripedCounter("/counter/close").add(5);
+		CompletableFuture<CuratorTransactionResult> batched = closing.createBatched("/batch-close", new byte[0], CreateMode.PERSISTENT);
+		CuratorZkLeaseLock lock = closing.getLeaseLock("/lease/close");
+		lock.acquire();
+		lock.release();
+		assertFalse(client.getChildren().forPath("/lease/close/leases").isEmpty());
+
+		closing.close();
+		closing.close();
+		assertTrue(closing.isClosed());
+		assertEquals(5, template.getStripedCounter("/counter/close").getGlobal());
+		assertEquals("/batch-close", batched.get(5, TimeUnit.SECONDS).getForPath());
+		assertTrue(client.getChildren().forPath("/lease/close/leases").isEmpty());
+		assertTrue(closing.getScheduler().isShutdown());
+		assertTrue(closing.getBatchExecutor().isTerminated());
+	}
+
+}
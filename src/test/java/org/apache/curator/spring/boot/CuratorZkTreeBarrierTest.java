@@ -0,0 +1,179 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkTreeBarrierTest {
+
+	private TestingServer server;
+	private final List<CuratorFramework> clients = new ArrayList<>();
+	private final List<CuratorZkTemplate> templates = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		for (int i = 0; i < 4; i++) {
+			CuratorFramework client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+			client.start();
+			client.blockUntilConnected();
+			clients.add(client);
+			templates.add(new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), new CuratorZkProperties()));
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (CuratorFramework client : clients) {
+			client.close();
+		}
+		server.close();
+	}
+
+	@Test
+	public void testCallbackExecutor() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "barrier-callback"));
+		try {
+			CuratorZkTreeBarrier barrier = new CuratorZkTreeBarrier(clients.get(0), "/barrier/callback", 1, 2, executor);
+			AtomicReference<String> thread = new AtomicReference<>();
+			CompletableFuture<Void> entered = new CompletableFuture<>();
+			// 先挂上后续阶段，确保其由完成 future 的线程执行
+			barrier.enterAsync().whenComplete((value, ex) -> {
+				thread.set(Thread.currentThread().getName());
+				entered.complete(null);
+			});
+			entered.get(10, TimeUnit.SECONDS);
+			assertEquals("barrier-callback", thread.get());
+			assertTrue(barrier.leave(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testEnterLeave() throws Exception {
+		int members = 10;
+		AtomicInteger entered = new AtomicInteger();
+		AtomicInteger left = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(members);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < members; i++) {
+				CuratorZkTemplate template = templates.get(i % templates.size());
+				futures.add(executor.submit(() -> {
+					CuratorZkTreeBarrier barrier = template.getTreeBarrier("/barrier/small", members, 3);
+					assertEquals(3, barrier.getLevels());
+					entered.incrementAndGet();
+					barrier.enter();
+					// 所有成员进入后才放行
+					assertEquals(members, entered.get());
+					left.incrementAndGet();
+					assertTrue(barrier.leave(10, TimeUnit.SECONDS));
+					assertEquals(members, left.get());
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testTimeoutAndLimits() throws Exception {
+		CuratorZkTreeBarrier barrier = templates.get(0).getTreeBarrier("/barrier/timeout", 2);
+		assertFalse(barrier.enter(200, TimeUnit.MILLISECONDS));
+		CuratorZkTreeBarrier single = templates.get(0).getTreeBarrier("/barrier/single", 1);
+		single.enter();
+		single.leave();
+		try {
+			templates.get(1).getTreeBarrier("/barrier/single", 1).enter();
+			fail();
+		} catch (IllegalStateException e) {
+			// 超出成员数
+		}
+	}
+
+	@Test
+	public void testSequenceGapsAndClean() throws Exception {
+		CuratorFramework client = clients.get(0);
+		// 组节点下被删除的子节点使 cversion 增长，后续到达的序号出现空洞
+		client.create().creatingParentsIfNeeded().forPath("/barrier/gap/enter/0-0/stale");
+		client.delete().forPath("/barrier/gap/enter/0-0/stale");
+		client.create().forPath("/barrier/gap/enter/0-0/stale");
+		client.delete().forPath("/barrier/gap/enter/0-0/stale");
+		List<CuratorZkTreeBarrier> barriers = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			barriers.add(templates.get(i).getTreeBarrier("/barrier/gap", 4, 4));
+		}
+		List<CompletableFuture<Void>> entered = new ArrayList<>();
+		entered.add(barriers.get(0).enterAsync());
+		entered.add(barriers.get(1).enterAsync());
+		Thread.sleep(500);
+		for (CompletableFuture<Void> future : entered) {
+			assertFalse(future.isDone());
+		}
+		entered.add(barriers.get(2).enterAsync());
+		Thread.sleep(300);
+		for (CompletableFuture<Void> future : entered) {
+			assertFalse(future.isDone());
+		}
+		entered.add(barriers.get(3).enterAsync());
+		CompletableFuture.allOf(entered.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+		List<CompletableFuture<Void>> left = new ArrayList<>();
+		for (CuratorZkTreeBarrier barrier : barriers) {
+			left.add(barrier.leaveAsync());
+		}
+		CompletableFuture.allOf(left.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+		barriers.get(0).clean();
+		assertNull(client.checkExists().forPath("/barrier/gap"));
+	}
+
+	@Test
+	public void testLatency() throws Exception {
+		for (int members : new int[] { 100, 1000, 5000 }) {
+			List<CuratorZkTreeBarrier> barriers = new ArrayList<>();
+			for (int i = 0; i < members; i++) {
+				barriers.add(templates.get(i % templates.size()).getTreeBarrier("/barrier/latency-" + members, members));
+			}
+			long start = System.nanoTime();
+			List<CompletableFuture<Void>> entered = new ArrayList<>();
+			for (CuratorZkTreeBarrier barrier : barriers) {
+				entered.add(barrier.enterAsync());
+			}
+			CompletableFuture.allOf(entered.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+			long enterMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			start = System.nanoTime();
+			List<CompletableFuture<Void>> left = new ArrayList<>();
+			for (CuratorZkTreeBarrier barrier : barriers) {
+				left.add(barrier.leaveAsync());
+			}
+			CompletableFuture.allOf(left.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+			long leaveMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			System.out.println(String.format("%d members: enter %d ms, leave %d ms", members, enterMs, leaveMs));
+		}
+	}
+
+}
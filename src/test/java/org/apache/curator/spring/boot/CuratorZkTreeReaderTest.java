@@ -0,0 +1,107 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.CreateMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkTreeReaderTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private CuratorZkTemplate template;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		CuratorZkProperties properties = new CuratorZkProperties();
+		properties.getBulk().setMaxInFlight(8);
+		template = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), properties);
+		// 3 层，每层 10 个子节点
+		client.create().forPath("/tree", "root".getBytes(StandardCharsets.UTF_8));
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 10; j++) {
+				for (int k = 0; k < 10; k++) {
+					client.create().creatingParentsIfNeeded().forPath("/tree/" + i + "/" + j + "/" + k,
+							(i + "-" + j + "-" + k).getBytes(StandardCharsets.UTF_8));
+				}
+			}
+		}
+		client.create().withMode(CreateMode.EPHEMERAL).forPath("/tree/0/session", new byte[0]);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	private Map<String, byte[]> read(String root) throws Exception {
+		Map<String, byte[]> nodes = new LinkedHashMap<>();
+		template.walkTree(root, node -> nodes.put(node.getPath().substring(root.length()), node.getData()));
+		return nodes;
+	}
+
+	@Test
+	public void testWalk() throws Exception {
+		Map<String, byte[]> nodes = this.read("/tree");
+		assertEquals(1 + 10 + 100 + 1000 + 1, nodes.size());
+		assertEquals("root", new String(nodes.get(""), StandardCharsets.UTF_8));
+		assertEquals("3-4-5", new String(nodes.get("/3/4/5"), StandardCharsets.UTF_8));
+		// 广度优先：父节点先于子节点
+		int depth = 0;
+		for (String path : nodes.keySet()) {
+			int current = path.isEmpty() ? 0 : path.split("/").length - 1;
+			assertTrue(current >= depth);
+			depth = current;
+		}
+		long[] count = new long[1];
+		assertEquals(1112, template.walkTree("/tree", false, node -> {
+			assertNull(node.getData());
+			count[0]++;
+		}));
+		assertEquals(1112, count[0]);
+		assertEquals(0, template.walkTree("/missing", node -> {
+		}));
+	}
+
+	@Test
+	public void testExportImport() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		// 临时节点不导出
+		assertEquals(1111, template.exportTree("/tree", out));
+		assertEquals(1111, template.importTree("/copy/tree", new ByteArrayInputStream(out.toByteArray())));
+		Map<String, byte[]> source = this.read("/tree");
+		Map<String, byte[]> copy = this.read("/copy/tree");
+		source.remove("/0/session");
+		assertEquals(source.keySet(), copy.keySet());
+		for (Map.Entry<String, byte[]> entry : source.entrySet()) {
+			assertArrayEquals(entry.getValue(), copy.get(entry.getKey()));
+		}
+		// 再次导入覆盖已有节点
+		client.setData().forPath("/copy/tree/1/2/3", "changed".getBytes(StandardCharsets.UTF_8));
+		assertEquals(1111, template.importTree("/copy/tree", new ByteArrayInputStream(out.toByteArray())));
+		assertArrayEquals("1-2-3".getBytes(StandardCharsets.UTF_8), client.getData().forPath("/copy/tree/1/2/3"));
+		assertFalse(copy.containsKey("/0/session"));
+	}
+
+}
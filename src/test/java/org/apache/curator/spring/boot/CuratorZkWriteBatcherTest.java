@@ -0,0 +1,152 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CuratorZkWriteBatcherTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private ScheduledExecutorService executor;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		client.create().forPath("/jobs");
+		executor = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testBatching() throws Exception {
+		CuratorZkWriteBatcher batcher = new CuratorZkWriteBatcher(client, 100, 0, 20, executor);
+		List<CompletableFuture<CuratorTransactionResult>> futures = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			futures.add(batcher.create("/jobs/job-" + i, ("" + i).getBytes(), CreateMode.PERSISTENT));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+		assertEquals(1000, batcher.getOperationCount());
+		assertTrue("batches: " + batcher.getBatchCount(), batcher.getBatchCount() <= 20);
+		assertEquals(1000, client.getChildren().forPath("/jobs").size());
+		assertArrayEquals("42".getBytes(), client.getData().forPath("/jobs/job-42"));
+		batcher.close();
+	}
+
+	@Test
+	public void testFailureIsolated() throws Exception {
+		client.create().forPath("/jobs/exists");
+		CuratorZkWriteBatcher batcher = new CuratorZkWriteBatcher(client, 100, 0, 1000, executor);
+		// 同一线程、其他线程的无关操作与失败操作同批提交，被回滚后重新提交
+		CompletableFuture<CuratorTransactionResult> first = batcher.create("/jobs/a", null, CreateMode.PERSISTENT);
+		CompletableFuture<CuratorTransactionResult> duplicate = batcher.create("/jobs/exists", null, CreateMode.PERSISTENT);
+		CompletableFuture<CuratorTransactionResult> unrelated = batcher.create("/jobs/unrelated", null, CreateMode.PERSISTENT);
+		CompletableFuture<CuratorTransactionResult> other = CompletableFuture.supplyAsync(() -> create(batcher, "/jobs/b")).get();
+		batcher.flush();
+		assertNotNull(first.get());
+		assertNotNull(unrelated.get());
+		assertNotNull(other.get());
+		try {
+			duplicate.get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof KeeperException.NodeExistsException);
+		}
+		assertNotNull(client.checkExists().forPath("/jobs/a"));
+		assertNotNull(client.checkExists().forPath("/jobs/unrelated"));
+		assertNotNull(client.checkExists().forPath("/jobs/b"));
+		assertEquals(3, batcher.getOperationCount());
+		batcher.close();
+	}
+
+	@Test
+	public void testGroupAllOrNothing() throws Exception {
+		client.create().forPath("/jobs/guarded", "v0".getBytes());
+		// 单批最多 2 个操作，3 个操作的组也不会被拆分到多个事务中
+		CuratorZkWriteBatcher batcher = new CuratorZkWriteBatcher(client, 2, 0, 20, executor);
+		CompletableFuture<CuratorTransactionResult> before = batcher.create("/jobs/before", null, CreateMode.PERSISTENT);
+		CompletableFuture<List<CuratorTransactionResult>> group = batcher.group()
+				.create("/jobs/x", null, CreateMode.PERSISTENT)
+				.create("/jobs/y", null, CreateMode.PERSISTENT)
+				.check("/jobs/guarded", 5)
+				.submit();
+		CompletableFuture<CuratorTransactionResult> after = batcher.create("/jobs/after", null, CreateMode.PERSISTENT);
+		try {
+			group.get(10, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof KeeperException.BadVersionException);
+		}
+		assertNotNull(before.get(10, TimeUnit.SECONDS));
+		assertNotNull(after.get(10, TimeUnit.SECONDS));
+		assertNull(client.checkExists().forPath("/jobs/x"));
+		assertNull(client.checkExists().forPath("/jobs/y"));
+
+		// 条件满足时整组生效
+		List<CuratorTransactionResult> results = batcher.group()
+				.check("/jobs/guarded", 0)
+				.setData("/jobs/guarded", "v1".getBytes())
+				.create("/jobs/x", null, CreateMode.PERSISTENT)
+				.submit().get(10, TimeUnit.SECONDS);
+		assertEquals(3, results.size());
+		assertArrayEquals("v1".getBytes(), client.getData().forPath("/jobs/guarded"));
+		assertNotNull(client.checkExists().forPath("/jobs/x"));
+		batcher.close();
+	}
+
+	private static CompletableFuture<CuratorTransactionResult> create(CuratorZkWriteBatcher batcher, String path) {
+		try {
+			return batcher.create(path, null, CreateMode.PERSISTENT);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Test
+	public void testSplitByBytes() throws Exception {
+		CuratorZkWriteBatcher batcher = new CuratorZkWriteBatcher(client, 1000, 10 * 1024, 1000, executor);
+		List<CompletableFuture<CuratorTransactionResult>> futures = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			futures.add(batcher.create("/jobs/big-" + i, new byte[4096], CreateMode.PERSISTENT));
+		}
+		batcher.flush();
+		for (CompletableFuture<CuratorTransactionResult> future : futures) {
+			assertNotNull(future.get());
+		}
+		// 每批最多容纳两个 4KB 节点
+		assertEquals(10, batcher.getBatchCount());
+		batcher.close();
+	}
+
+}
@@ -0,0 +1,84 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZkNodeCacheTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private ZkNodeCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		client.create().creatingParentsIfNeeded().forPath("/config/app", "v1".getBytes());
+		cache = new ZkNodeCache(client, Arrays.asList("/config"), 100, 0);
+		cache.start();
+		Thread.sleep(500);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		cache.close();
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testReadThroughAndInvalidate() throws Exception {
+		final AtomicInteger decodes = new AtomicInteger();
+		Function<byte[], String> decoder = bytes -> {
+			decodes.incrementAndGet();
+			return new String(bytes);
+		};
+		assertArrayEquals("v1".getBytes(), cache.get("/config/app"));
+		String first = cache.get("/config/app", decoder);
+		assertSame(first, cache.get("/config/app", decoder));
+		assertEquals(1, decodes.get());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+
+		client.setData().forPath("/config/app", "v2".getBytes());
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!"v2".equals(cache.get("/config/app", decoder)) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals("v2", cache.get("/config/app", decoder));
+		assertEquals(2, decodes.get());
+
+		client.delete().forPath("/config/app");
+		deadline = System.currentTimeMillis() + 5000;
+		while (cache.get("/config/app") != null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertNull(cache.get("/config/app"));
+		assertTrue(cache.getHitRatio() > 0);
+	}
+
+	@Test
+	public void testUncachedPath() throws Exception {
+		client.create().forPath("/other", "x".getBytes());
+		assertArrayEquals("x".getBytes(), cache.get("/other"));
+		assertEquals(1, cache.getUncachedReadCount());
+	}
+
+}
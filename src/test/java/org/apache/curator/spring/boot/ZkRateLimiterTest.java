@@ -0,0 +1,134 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.InstanceSpec;
+import org.apache.curator.test.TestingCluster;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZkRateLimiterTest {
+
+	private TestingCluster cluster;
+	private final List<CuratorFramework> clients = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		cluster = new TestingCluster(3);
+		cluster.start();
+		// 每个客户端连接不同的服务器，模拟部署在不同节点上的实例
+		for (InstanceSpec spec : cluster.getInstances()) {
+			CuratorFramework client = CuratorFrameworkFactory.newClient(spec.getConnectString(), new ExponentialBackoffRetry(100, 3));
+			client.start();
+			client.blockUntilConnected();
+			clients.add(client);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (CuratorFramework client : clients) {
+			client.close();
+		}
+		cluster.close();
+	}
+
+	private CuratorZkTemplate template(CuratorFramework client) {
+		return new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), new CuratorZkProperties());
+	}
+
+	@Test
+	public void testBurstAndRefill() throws Exception {
+		CuratorZkTemplate template = this.template(clients.get(0));
+		ZkRateLimiter limiter = template.getRateLimiter("/limiter/burst", 10, 20);
+		assertSame(limiter, template.getRateLimiter("/limiter/burst", 10, 20));
+		for (int i = 0; i < 20; i++) {
+			assertTrue(limiter.tryAcquire());
+		}
+		assertFalse(limiter.tryAcquire());
+		assertTrue(limiter.tryAcquire(1, 1, TimeUnit.SECONDS));
+		assertEquals(21, limiter.getAcquiredCount());
+	}
+
+	@Test
+	public void testLocalBatching() throws Exception {
+		ZkRateLimiter limiter = this.template(clients.get(0)).getRateLimiter("/limiter/batching", 100000);
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+		while (System.nanoTime() < deadline) {
+			limiter.tryAcquire();
+		}
+		// 观测到高速率后单次预留一整个有效期的令牌，绝大多数请求不访问 ZooKeeper
+		assertTrue(limiter.getAcquiredCount() + " acquired with " + limiter.getReserveCount() + " reservations",
+				limiter.getAcquiredCount() > limiter.getReserveCount() * 20);
+	}
+
+	@Test
+	public void testAccuracyUnderSkewedLoad() throws Exception {
+		double rate = 500;
+		long capacity = 50;
+		List<ZkRateLimiter> limiters = new ArrayList<>();
+		for (CuratorFramework client : clients) {
+			limiters.add(this.template(client).getRateLimiter("/limiter/skewed", rate, capacity));
+		}
+		LongAdder calls = new LongAdder();
+		ExecutorService executor = Executors.newFixedThreadPool(10);
+		List<Future<?>> futures = new ArrayList<>();
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.SECONDS.toNanos(3);
+		// 热点实例 8 个线程不停请求，另外两个实例各 1 个线程每 10 毫秒请求一次
+		for (int t = 0; t < 8; t++) {
+			futures.add(executor.submit(() -> {
+				while (System.nanoTime() < deadline) {
+					limiters.get(0).tryAcquire();
+					calls.increment();
+				}
+				return null;
+			}));
+		}
+		for (int i = 1; i < limiters.size(); i++) {
+			ZkRateLimiter limiter = limiters.get(i);
+			futures.add(executor.submit(() -> {
+				while (System.nanoTime() < deadline) {
+					limiter.tryAcquire();
+					calls.increment();
+					Thread.sleep(10);
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get(30, TimeUnit.SECONDS);
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		executor.shutdown();
+		long acquired = 0;
+		long reservations = 0;
+		for (ZkRateLimiter limiter : limiters) {
+			acquired += limiter.getAcquiredCount();
+			reservations += limiter.getReserveCount();
+		}
+		String stats = acquired + " acquired, " + reservations + " reservations, " + calls.sum() + " calls in " + elapsed + "s";
+		// 总放行数不超过桶容量加上期间补充的令牌，且接近该上限
+		assertTrue(stats, acquired <= capacity + rate * elapsed);
+		assertTrue(stats, acquired >= rate * elapsed * 0.8);
+		// 被拒绝的请求在本地快速失败，访问 ZooKeeper 的次数远小于请求数
+		assertTrue(stats, reservations * 10 < calls.sum());
+		assertTrue(stats, limiters.get(1).getAcquiredCount() > 0 && limiters.get(2).getAcquiredCount() > 0);
+	}
+
+}
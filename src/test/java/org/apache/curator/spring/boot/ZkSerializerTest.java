@@ -0,0 +1,196 @@
+package org.apache.curator.spring.boot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.imps.GzipCompressionProvider;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.data.Stat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZkSerializerTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.builder()
+				.connectString(server.getConnectString())
+				.retryPolicy(new ExponentialBackoffRetry(100, 3))
+				.compressionProvider(new CuratorZkCompressionProvider(256, 1))
+				.build();
+		client.start();
+		client.blockUntilConnected();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	private CuratorZkTemplate template(String serializer, boolean compression) {
+		CuratorZkProperties properties = new CuratorZkProperties();
+		properties.getPayload().setSerializer(serializer);
+		properties.getPayload().setCompression(compression);
+		return new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), properties);
+	}
+
+	private static AppConfig config(int entries) {
+		AppConfig config = new AppConfig();
+		config.setName("orders");
+		config.setVersion(3);
+		for (int i = 0; i < entries; i++) {
+			config.getEntries().put("feature.flag." + i, "enabled-for-region-" + (i % 7));
+		}
+		return config;
+	}
+
+	@Test
+	public void testCompressedJson() throws Exception {
+		CuratorZkTemplate template = this.template(ZkSerializers.TYPE_JSON, true);
+		assertNull(template.get("/config/missing", AppConfig.class));
+
+		AppConfig large = config(500);
+		template.put("/config/large", large);
+		byte[] json = template.getSerializer().serialize(large);
+		byte[] stored = client.getData().forPath("/config/large");
+		// 超过阈值的数据压缩保存
+		assertEquals(1, stored[0]);
+		assertTrue(stored.length * 4 < json.length);
+		assertEquals(large, template.get("/config/large", AppConfig.class));
+
+		AppConfig small = config(1);
+		template.put("/config/small", small);
+		assertEquals(0, client.getData().forPath("/config/small")[0]);
+		Stat stat = new Stat();
+		assertEquals(small, template.get("/config/small", AppConfig.class, stat));
+
+		// 按版本号写入
+		assertTrue(template.put("/config/small", large, stat.getVersion()));
+		assertFalse(template.put("/config/small", small, stat.getVersion()));
+		assertEquals(large, template.get("/config/small", AppConfig.class));
+	}
+
+	@Test
+	public void testGetLegacyPayload() throws Exception {
+		// 启用压缩前写入的未压缩数据
+		AppConfig legacy = config(500);
+		this.template(ZkSerializers.TYPE_JSON, false).put("/legacy/config", legacy);
+		assertEquals('{', client.getData().forPath("/legacy/config")[0]);
+		CuratorZkTemplate template = this.template(ZkSerializers.TYPE_JSON, true);
+		Stat stat = new Stat();
+		assertEquals(legacy, template.get("/legacy/config", AppConfig.class, stat));
+		assertEquals(0, stat.getVersion());
+		// 覆盖写入后按压缩格式保存，仍可读取
+		template.put("/legacy/config", legacy);
+		assertEquals(1, client.getData().forPath("/legacy/config")[0]);
+		assertEquals(legacy, template.get("/legacy/config", AppConfig.class));
+	}
+
+	@Test
+	public void testWalkMixedPayload() throws Exception {
+		CuratorZkTemplate template = this.template(ZkSerializers.TYPE_JSON, true);
+		AppConfig large = config(500);
+		template.put("/mixed/template", large);
+		// 其它程序写入的未压缩节点
+		byte[] plain = "{\"name\":\"plain\"}".getBytes(StandardCharsets.UTF_8);
+		client.create().forPath("/mixed/plain", plain);
+		Map<String, byte[]> nodes = new LinkedHashMap<>();
+		template.walkTree("/mixed", node -> nodes.put(node.getPath(), node.getData()));
+		assertArrayEquals(plain, nodes.get("/mixed/plain"));
+		assertEquals(large, template.getSerializer().deserialize(nodes.get("/mixed/template"), AppConfig.class));
+	}
+
+	@Test
+	public void testSerializers() throws Exception {
+		AppConfig config = config(50);
+		byte[] json = ZkSerializers.of(ZkSerializers.TYPE_JSON).serialize(config);
+		byte[] smile = ZkSerializers.of(ZkSerializers.TYPE_SMILE).serialize(config);
+		assertTrue(smile.length < json.length);
+		for (String type : new String[] { ZkSerializers.TYPE_SMILE, ZkSerializers.TYPE_JDK }) {
+			CuratorZkTemplate template = this.template(type, false);
+			template.put("/config/" + type, config);
+			assertEquals(config, template.get("/config/" + type, AppConfig.class));
+		}
+	}
+
+	@Test
+	public void testCompressionProvider() throws Exception {
+		CuratorZkCompressionProvider provider = new CuratorZkCompressionProvider(16, 1);
+		byte[] data = new String(new char[1000]).replace('\0', 'z').getBytes(StandardCharsets.UTF_8);
+		assertArrayEquals(data, provider.decompress("/p", provider.compress("/p", data)));
+		// 不可压缩的数据原样保存
+		byte[] random = new byte[1000];
+		new Random(1).nextBytes(random);
+		byte[] compressed = provider.compress("/p", random);
+		assertEquals(random.length + 1, compressed.length);
+		assertArrayEquals(random, provider.decompress("/p", compressed));
+		// 兼容 Curator 默认 GZIP 压缩的数据
+		assertArrayEquals(data, provider.decompress("/p", new GzipCompressionProvider().compress("/p", data)));
+	}
+
+	@SuppressWarnings("serial")
+	public static class AppConfig implements Serializable {
+
+		private String name;
+		private int version;
+		private Map<String, String> entries = new LinkedHashMap<>();
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getVersion() {
+			return version;
+		}
+
+		public void setVersion(int version) {
+			this.version = version;
+		}
+
+		public Map<String, String> getEntries() {
+			return entries;
+		}
+
+		public void setEntries(Map<String, String> entries) {
+			this.entries = entries;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof AppConfig)) {
+				return false;
+			}
+			AppConfig other = (AppConfig) obj;
+			return name.equals(other.name) && version == other.version && entries.equals(other.entries);
+		}
+
+		@Override
+		public int hashCode() {
+			return name.hashCode();
+		}
+
+	}
+
+}
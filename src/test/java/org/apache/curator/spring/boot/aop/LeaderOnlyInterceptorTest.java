@@ -0,0 +1,131 @@
+package org.apache.curator.spring.boot.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.CuratorZkLeaderRegistry;
+import org.apache.curator.spring.boot.CuratorZkLeadershipEvent;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationListener;
+
+public class LeaderOnlyInterceptorTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testAutoConfiguration() throws Exception {
+		// 另一个节点先当选
+		CuratorZkTemplate other = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), new CuratorZkProperties());
+		assertTrue(other.getLeaderLatch("report").await(10, TimeUnit.SECONDS));
+		List<CuratorZkLeadershipEvent> events = new CopyOnWriteArrayList<>();
+		new ApplicationContextRunner()
+				.withConfiguration(AutoConfigurations.of(AopAutoConfiguration.class, CuratorZkAutoConfiguration.class, LeaderOnlyAutoConfiguration.class))
+				.withPropertyValues(CuratorZkProperties.PREFIX + ".connect-string=" + server.getConnectString(),
+						CuratorZkProperties.PREFIX + ".leader.latches=report")
+				.withBean(ReportService.class, ReportService::new)
+				.withBean("leadershipListener", ApplicationListener.class, () -> (ApplicationListener<CuratorZkLeadershipEvent>) events::add)
+				.run(context -> {
+					ReportService service = context.getBean(ReportService.class);
+					assertTrue(AopUtils.isAopProxy(service));
+					assertNull(service.generate());
+					assertEquals(0, service.count());
+					assertEquals("always", service.unguarded());
+
+					other.getLeaderRegistry().close();
+					assertTrue(context.getBean(CuratorZkLeaderRegistry.class).getLatch("report").await(10, TimeUnit.SECONDS));
+					assertEquals("report", service.generate());
+					assertEquals(1, service.count());
+					assertEquals(1, events.size());
+					assertEquals("report", events.get(0).getName());
+					assertTrue(events.get(0).isLeader());
+				});
+	}
+
+	@Test
+	public void testInheritedMethodPerTargetClass() throws Exception {
+		CuratorZkTemplate other = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), new CuratorZkProperties());
+		assertTrue(other.getLeaderLatch("cleanup").await(10, TimeUnit.SECONDS));
+		CuratorZkTemplate template = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), new CuratorZkProperties());
+		LeaderOnlyInterceptor interceptor = new LeaderOnlyInterceptor(template.getLeaderRegistry());
+		// 先调用类上标注了 @LeaderOnly 的子类，未标注的子类不能沿用它的解析结果
+		assertNull(this.proxy(new GuardedTask(), interceptor).execute());
+		assertEquals("done", this.proxy(new PlainTask(), interceptor).execute());
+		template.getLeaderRegistry().close();
+		other.getLeaderRegistry().close();
+	}
+
+	private BaseTask proxy(BaseTask target, LeaderOnlyInterceptor interceptor) {
+		ProxyFactory factory = new ProxyFactory(target);
+		factory.setProxyTargetClass(true);
+		factory.addAdvice(interceptor);
+		return (BaseTask) factory.getProxy();
+	}
+
+	public static class BaseTask {
+
+		public String execute() {
+			return "done";
+		}
+
+	}
+
+	@LeaderOnly("cleanup")
+	public static class GuardedTask extends BaseTask {
+	}
+
+	public static class PlainTask extends BaseTask {
+	}
+
+	public static class ReportService {
+
+		@LeaderOnly("report")
+		public String generate() {
+			return "report";
+		}
+
+		@LeaderOnly("report")
+		public int count() {
+			return 1;
+		}
+
+		public String unguarded() {
+			return "always";
+		}
+
+	}
+
+}
@@ -0,0 +1,265 @@
+package org.apache.curator.spring.boot.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.spring.boot.CuratorLockException;
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+public class ZkLockInterceptorTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private CuratorZkTemplate template;
+	private OrderService service;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		template = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), new CuratorZkProperties());
+		ProxyFactory factory = new ProxyFactory(new OrderService(template));
+		factory.setProxyTargetClass(true);
+		factory.addAdvisor(new ZkLockAutoConfiguration().zkLockAdvisor(new ZkLockInterceptor(template)));
+		service = (OrderService) factory.getProxy();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testKeys() throws Exception {
+		assertEquals("/locks/order/42", service.byName("42"));
+		assertEquals("/locks/order/7", service.byIndex(7L));
+		assertEquals("/locks/order/1001", service.byProperty(new Order(1001)));
+		assertEquals("/locks/order", service.staticKey());
+		// 编译后的表达式结果一致
+		for (int i = 0; i < 200; i++) {
+			assertEquals("/locks/order/" + i, service.byProperty(new Order(i)));
+		}
+		assertNotNull(service.readLocked("1"));
+		assertNotNull(service.semaphore("1"));
+		assertFalse(template.getSharedReentrantLock("/locks/order/42").isAcquiredInThisProcess());
+	}
+
+	@Test
+	public void testSemaphorePermits() throws Exception {
+		CountDownLatch entered = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<?>[] holders = new CompletableFuture<?>[2];
+		for (int i = 0; i < holders.length; i++) {
+			holders[i] = CompletableFuture.runAsync(() -> {
+				try {
+					service.pooled(entered, release);
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+		}
+		// 两个许可可同时持有
+		assertTrue(entered.await(10, TimeUnit.SECONDS));
+		try {
+			service.pooled(new CountDownLatch(1), new CountDownLatch(0));
+			fail();
+		} catch (CuratorLockException e) {
+			// expected
+		}
+		release.countDown();
+		CompletableFuture.allOf(holders).get(10, TimeUnit.SECONDS);
+		service.pooled(new CountDownLatch(1), new CountDownLatch(0));
+	}
+
+	@Test
+	public void testWaitTimeAndRelease() throws Exception {
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+			try {
+				template.getSharedReentrantLock("/locks/order/busy").acquire();
+				locked.countDown();
+				done.await();
+				template.getSharedReentrantLock("/locks/order/busy").release();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertTrue(locked.await(10, TimeUnit.SECONDS));
+		try {
+			service.withWaitTime("busy");
+			fail();
+		} catch (CuratorLockException e) {
+			// expected
+		}
+		done.countDown();
+		holder.get();
+
+		try {
+			service.failing("boom");
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("boom", e.getMessage());
+		}
+		assertFalse(template.getSharedReentrantLock("/locks/order/boom").isAcquiredInThisProcess());
+	}
+
+	@Test
+	public void testAutoConfiguration() {
+		new ApplicationContextRunner()
+				.withConfiguration(AutoConfigurations.of(AopAutoConfiguration.class, CuratorZkAutoConfiguration.class, ZkLockAutoConfiguration.class))
+				.withPropertyValues(CuratorZkProperties.PREFIX + ".connect-string=" + server.getConnectString())
+				.withBean(OrderService.class, () -> new OrderService(null))
+				.run(context -> {
+					assertTrue(AopUtils.isAopProxy(context.getBean(OrderService.class)));
+					assertEquals("/locks/order/9", context.getBean(OrderService.class).byName("9"));
+				});
+	}
+
+	@Test
+	public void testInheritedMethodPerTargetClass() throws Exception {
+		ZkLockInterceptor interceptor = new ZkLockInterceptor(template);
+		for (BaseJob job : new BaseJob[] { new ImportJob(template), new ExportJob(template) }) {
+			ProxyFactory factory = new ProxyFactory(job);
+			factory.setProxyTargetClass(true);
+			factory.addAdvisor(new ZkLockAutoConfiguration().zkLockAdvisor(interceptor));
+			// 默认锁路径按各自的目标类生成，不共用先解析的子类的结果
+			assertEquals("/locks/" + job.getClass().getName() + ".run/1", ((BaseJob) factory.getProxy()).run("1"));
+		}
+	}
+
+	public static class BaseJob {
+
+		private final CuratorZkTemplate template;
+
+		public BaseJob(CuratorZkTemplate template) {
+			this.template = template;
+		}
+
+		@ZkLock(key = "#id")
+		public String run(String id) {
+			String path = "/locks/" + this.getClass().getName() + ".run/" + id;
+			assertTrue(template.getSharedReentrantLock(path).isAcquiredInThisProcess());
+			return path;
+		}
+
+	}
+
+	public static class ImportJob extends BaseJob {
+
+		public ImportJob(CuratorZkTemplate template) {
+			super(template);
+		}
+
+	}
+
+	public static class ExportJob extends BaseJob {
+
+		public ExportJob(CuratorZkTemplate template) {
+			super(template);
+		}
+
+	}
+
+	public static class Order {
+
+		private final long id;
+
+		public Order(long id) {
+			this.id = id;
+		}
+
+		public long getId() {
+			return id;
+		}
+
+	}
+
+	public static class OrderService {
+
+		private final CuratorZkTemplate template;
+
+		public OrderService(CuratorZkTemplate template) {
+			this.template = template;
+		}
+
+		private String held(String path) {
+			if (template != null) {
+				assertTrue(template.getSharedReentrantLock(path).isAcquiredInThisProcess());
+			}
+			return path;
+		}
+
+		@ZkLock(name = "/locks/order", key = "#orderId")
+		public String byName(String orderId) {
+			return this.held("/locks/order/" + orderId);
+		}
+
+		@ZkLock(name = "/locks/order", key = "#p0")
+		public String byIndex(Long orderId) {
+			return this.held("/locks/order/" + orderId);
+		}
+
+		@ZkLock(name = "/locks/order", key = "#order.id")
+		public String byProperty(Order order) {
+			return this.held("/locks/order/" + order.getId());
+		}
+
+		@ZkLock(name = "/locks/order")
+		public String staticKey() {
+			return this.held("/locks/order");
+		}
+
+		@ZkLock(name = "/locks/order", key = "#orderId", type = ZkLock.Type.READ)
+		public String readLocked(String orderId) {
+			return orderId;
+		}
+
+		@ZkLock(name = "/locks/semaphore", key = "#orderId", type = ZkLock.Type.SEMAPHORE)
+		public String semaphore(String orderId) {
+			return orderId;
+		}
+
+		@ZkLock(name = "/locks/pool", type = ZkLock.Type.SEMAPHORE, permits = 2, waitTime = 100)
+		public void pooled(CountDownLatch entered, CountDownLatch release) throws InterruptedException {
+			entered.countDown();
+			release.await();
+		}
+
+		@ZkLock(name = "/locks/order", key = "#orderId", waitTime = 100)
+		public String withWaitTime(String orderId) {
+			return orderId;
+		}
+
+		@ZkLock(name = "/locks/order", key = "#orderId")
+		public String failing(String orderId) {
+			throw new IllegalStateException(orderId);
+		}
+
+	}
+
+}
@@ -0,0 +1,183 @@
+package org.apache.curator.spring.boot.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.metrics.CuratorZkMetricsAutoConfiguration;
+import org.apache.curator.test.TestingServer;
+import org.apache.curator.x.discovery.ServiceDiscovery;
+import org.apache.curator.x.discovery.ServiceDiscoveryBuilder;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.apache.curator.x.discovery.details.JsonInstanceSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CuratorZkServiceProvidersTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private ServiceDiscovery<CuratorZkServiceMetadata> discovery;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		discovery = ServiceDiscoveryBuilder.builder(CuratorZkServiceMetadata.class)
+				.client(client)
+				.basePath("/services")
+				.serializer(new JsonInstanceSerializer<>(CuratorZkServiceMetadata.class))
+				.build();
+		discovery.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		discovery.close();
+		client.close();
+		server.close();
+	}
+
+	private ServiceInstance<CuratorZkServiceMetadata> register(String name, int port, int weight) throws Exception {
+		CuratorZkServiceMetadata metadata = new CuratorZkServiceMetadata();
+		metadata.setWeight(weight);
+		ServiceInstance<CuratorZkServiceMetadata> instance = ServiceInstance.<CuratorZkServiceMetadata>builder()
+				.name(name).address("127.0.0.1").port(port).payload(metadata).build();
+		discovery.registerService(instance);
+		return instance;
+	}
+
+	private void awaitInstances(CuratorZkServiceProvider<?> provider, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (provider.getInstanceCount() != count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals(count, provider.getInstanceCount());
+	}
+
+	@Test
+	public void testStrategies() throws Exception {
+		this.register("orders", 8001, 1);
+		this.register("orders", 8002, 1);
+		ServiceInstance<CuratorZkServiceMetadata> heavy = this.register("orders", 8003, 8);
+		Map<String, String> strategies = new HashMap<>();
+		strategies.put("orders-weighted", CuratorZkInstanceStrategy.WEIGHTED_RANDOM);
+		CuratorZkServiceProviders providers = new CuratorZkServiceProviders(discovery, CuratorZkInstanceStrategy.ROUND_ROBIN, strategies);
+
+		CuratorZkServiceProvider<CuratorZkServiceMetadata> provider = providers.getProvider("orders");
+		assertSame(provider, providers.getProvider("orders"));
+		this.awaitInstances(provider, 3);
+		Map<Integer, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 300; i++) {
+			counts.merge(provider.getInstance().getPort(), 1, Integer::sum);
+		}
+		assertEquals(3, counts.size());
+		for (int count : counts.values()) {
+			assertEquals(100, count);
+		}
+		assertEquals(300, provider.getResolveCount());
+		assertNull(providers.getInstance("missing"));
+
+		// 权重 1:0:9
+		this.register("orders-weighted", 9001, 1);
+		this.register("orders-weighted", 9002, 0);
+		this.register("orders-weighted", 9003, 9);
+		CuratorZkServiceProvider<CuratorZkServiceMetadata> weighted = providers.getProvider("orders-weighted");
+		this.awaitInstances(weighted, 3);
+		counts.clear();
+		for (int i = 0; i < 10000; i++) {
+			counts.merge(weighted.getInstance().getPort(), 1, Integer::sum);
+		}
+		assertNull(counts.get(9002));
+		assertTrue(counts.toString(), counts.get(9003) > 8500);
+
+		// 实例下线后由 Watch 刷新本地缓存
+		long refreshes = provider.getRefreshCount();
+		discovery.unregisterService(heavy);
+		this.awaitInstances(provider, 2);
+		assertTrue(provider.getRefreshCount() > refreshes);
+		providers.close();
+	}
+
+	@Test
+	public void testLeastInflight() throws Exception {
+		this.register("payments", 8001, 1);
+		this.register("payments", 8002, 1);
+		CuratorZkServiceProviders providers = new CuratorZkServiceProviders(discovery, CuratorZkInstanceStrategy.LEAST_INFLIGHT,
+				Collections.emptyMap());
+		CuratorZkServiceProvider<CuratorZkServiceMetadata> provider = providers.getProvider("payments");
+		this.awaitInstances(provider, 2);
+		CuratorZkServiceProvider.Selection<CuratorZkServiceMetadata> first = provider.select();
+		// 第一个实例有进行中的请求，后续选择都落在另一个实例上
+		for (int i = 0; i < 10; i++) {
+			try (CuratorZkServiceProvider.Selection<CuratorZkServiceMetadata> selection = provider.select()) {
+				assertTrue(selection.getInstance().getPort() != first.getInstance().getPort());
+			}
+		}
+		first.close();
+		first.close();
+		assertEquals(0, provider.getSnapshot().getInflight(0) + provider.getSnapshot().getInflight(1));
+		providers.close();
+	}
+
+	@Test
+	public void testReentrantListener() throws Exception {
+		this.register("orders", 8001, 1);
+		this.register("inventory", 8101, 1);
+		CuratorZkServiceProviders providers = new CuratorZkServiceProviders(discovery, CuratorZkInstanceStrategy.ROUND_ROBIN,
+				Collections.emptyMap());
+		// 回调中获取其他服务不会在 ConcurrentHashMap 内部重入
+		providers.addProviderListener(provider -> {
+			if (provider.getServiceName().equals("orders")) {
+				providers.getProvider("inventory");
+			}
+		});
+		CuratorZkServiceProvider<CuratorZkServiceMetadata> orders = providers.getProvider("orders");
+		assertEquals(2, providers.getProviders().size());
+		assertSame(orders, providers.getProvider("orders"));
+		this.awaitInstances(providers.getProvider("inventory"), 1);
+		providers.close();
+	}
+
+	@Test
+	public void testAutoConfiguration() {
+		new ApplicationContextRunner()
+				.withConfiguration(AutoConfigurations.of(CuratorZkAutoConfiguration.class, CuratorZkDiscoveryAutoConfiguration.class,
+						CuratorZkMetricsAutoConfiguration.class))
+				.withPropertyValues(CuratorZkProperties.PREFIX + ".connect-string=" + server.getConnectString(),
+						"spring.application.name=inventory", "server.port=9100",
+						CuratorZkProperties.PREFIX + ".discovery.metadata.zone=a")
+				.withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+				.run(context -> {
+					CuratorZkServiceProvider<CuratorZkServiceMetadata> provider = context.getBean(CuratorZkServiceProviders.class)
+							.getProvider("inventory");
+					this.awaitInstances(provider, 1);
+					ServiceInstance<CuratorZkServiceMetadata> instance = provider.getInstance();
+					assertEquals(9100, instance.getPort().intValue());
+					assertEquals("a", instance.getPayload().getMetadata().get("zone"));
+					MeterRegistry registry = context.getBean(MeterRegistry.class);
+					assertNotNull(registry.find("curator.discovery.resolve").tag("service", "inventory").functionTimer());
+					assertEquals(1, registry.get("curator.discovery.instances").tag("service", "inventory").gauge().value(), 0);
+				});
+	}
+
+}
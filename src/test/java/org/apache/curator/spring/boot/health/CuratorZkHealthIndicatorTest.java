@@ -0,0 +1,157 @@
+package org.apache.curator.spring.boot.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkStartup;
+import org.apache.curator.spring.boot.discovery.CuratorZkDiscoveryAutoConfiguration;
+import org.apache.curator.spring.boot.discovery.CuratorZkServiceMetadata;
+import org.apache.curator.test.InstanceSpec;
+import org.apache.curator.test.TestingServer;
+import org.apache.curator.x.discovery.ServiceDiscovery;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.availability.ApplicationAvailabilityAutoConfiguration;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+public class CuratorZkHealthIndicatorTest {
+
+	private TestingServer server;
+
+	@After
+	public void tearDown() throws Exception {
+		if (server != null) {
+			server.close();
+		}
+	}
+
+	private ApplicationContextRunner runner(int port) {
+		return new ApplicationContextRunner()
+				.withConfiguration(AutoConfigurations.of(ApplicationAvailabilityAutoConfiguration.class, CuratorZkAutoConfiguration.class,
+						CuratorZkDiscoveryAutoConfiguration.class, CuratorZkHealthAutoConfiguration.class))
+				.withPropertyValues(CuratorZkProperties.PREFIX + ".connect-string=127.0.0.1:" + port,
+						"spring.application.name=orders");
+	}
+
+	private static void await(Runnable assertion) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 20000;
+		while (true) {
+			try {
+				assertion.run();
+				return;
+			} catch (AssertionError e) {
+				if (System.currentTimeMillis() > deadline) {
+					throw e;
+				}
+				Thread.sleep(50);
+			}
+		}
+	}
+
+	@Test
+	public void testAsyncStartup() throws Exception {
+		// ZooKeeper 尚未启动，上下文刷新不等待连接
+		int port = InstanceSpec.getRandomPort();
+		long start = System.nanoTime();
+		this.runner(port).withPropertyValues(CuratorZkProperties.PREFIX + ".startup.async=true").run(context -> {
+			assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+			CuratorZkHealthIndicator indicator = context.getBean(CuratorZkHealthIndicator.class);
+			assertEquals(Status.DOWN, indicator.health().getStatus());
+			assertEquals(-1L, indicator.health().getDetails().get("connectMs"));
+
+			// 连接后在后台完成服务注册
+			server = new TestingServer(port);
+			@SuppressWarnings("unchecked")
+			ServiceDiscovery<CuratorZkServiceMetadata> discovery = context.getBean(ServiceDiscovery.class);
+			await(() -> {
+				try {
+					assertEquals(1, discovery.queryForInstances("orders").size());
+				} catch (Exception e) {
+					throw new AssertionError(e);
+				}
+			});
+			assertEquals(Status.UP, indicator.health().getStatus());
+			assertTrue(context.getBean(CuratorZkStartup.class).getConnectMillis() >= 0);
+		});
+	}
+
+	@Test
+	public void testReadinessState() throws Exception {
+		server = new TestingServer();
+		this.runner(server.getPort())
+				.withPropertyValues(CuratorZkProperties.PREFIX + ".startup.block-until-connected-ms=10000",
+						CuratorZkProperties.PREFIX + ".health.readiness-state=true")
+				.run(context -> {
+					ApplicationAvailability availability = context.getBean(ApplicationAvailability.class);
+					context.publishEvent(new ApplicationReadyEvent(new SpringApplication(), new String[0], context.getSourceApplicationContext(), null));
+					assertEquals(Status.UP, context.getBean(CuratorZkHealthIndicator.class).health().getStatus());
+					server.stop();
+					await(() -> assertEquals(ReadinessState.REFUSING_TRAFFIC, availability.getReadinessState()));
+					server.restart();
+					await(() -> assertEquals(ReadinessState.ACCEPTING_TRAFFIC, availability.getReadinessState()));
+				});
+	}
+
+	@Test
+	public void testReadinessStateWaitsForReady() throws Exception {
+		server = new TestingServer();
+		this.runner(server.getPort())
+				.withPropertyValues(CuratorZkProperties.PREFIX + ".startup.block-until-connected-ms=10000",
+						CuratorZkProperties.PREFIX + ".health.readiness-state=true")
+				.run(context -> {
+					ApplicationAvailability availability = context.getBean(ApplicationAvailability.class);
+					CuratorZkReadinessStateListener listener = context.getBean(CuratorZkReadinessStateListener.class);
+					CuratorFramework client = context.getBean(CuratorFramework.class);
+					// 未就绪时重连不恢复流量
+					listener.stateChanged(client, ConnectionState.SUSPENDED);
+					assertEquals(ReadinessState.REFUSING_TRAFFIC, availability.getReadinessState());
+					listener.stateChanged(client, ConnectionState.RECONNECTED);
+					assertEquals(ReadinessState.REFUSING_TRAFFIC, availability.getReadinessState());
+					context.publishEvent(new ApplicationReadyEvent(new SpringApplication(), new String[0], context.getSourceApplicationContext(), null));
+					assertEquals(ReadinessState.ACCEPTING_TRAFFIC, availability.getReadinessState());
+
+					// 其他组件设置的 REFUSING_TRAFFIC 不被覆盖
+					listener.stateChanged(client, ConnectionState.SUSPENDED);
+					AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+					listener.stateChanged(client, ConnectionState.RECONNECTED);
+					assertEquals(ReadinessState.REFUSING_TRAFFIC, availability.getReadinessState());
+				});
+	}
+
+	@Test
+	public void testAsyncRegistrationRetry() throws Exception {
+		server = new TestingServer();
+		AtomicInteger attempts = new AtomicInteger();
+		try (CuratorFramework client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3))) {
+			client.start();
+			CuratorZkStartup startup = new CuratorZkStartup(client, true);
+			try {
+				startup.executeWithRetry("flaky", () -> {
+					if (attempts.incrementAndGet() < 3) {
+						throw new IllegalStateException("attempt " + attempts.get());
+					}
+				});
+				await(() -> assertEquals(3, attempts.get()));
+			} finally {
+				startup.close();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,158 @@
+package org.apache.curator.spring.boot.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.spring.boot.CuratorZkClientRing;
+import org.apache.curator.spring.boot.CuratorZkLockListener;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CuratorZkMetricsTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private SimpleMeterRegistry registry;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		registry = new SimpleMeterRegistry();
+		new CuratorZkClientMetrics(registry).bindTo(client);
+		client.start();
+		client.blockUntilConnected();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testOperationAndConnectionMetrics() throws Exception {
+		client.create().forPath("/metrics", "v".getBytes());
+		client.getData().forPath("/metrics");
+		client.checkExists().forPath("/missing");
+
+		Timer getData = registry.find("curator.operation").tag("operation", "getData").tag("mode", "foreground").tag("result", "OK").timer();
+		assertNotNull(getData);
+		assertEquals(1, getData.count());
+		assertNotNull(registry.find("curator.operation").tag("operation", "create").timer());
+		assertEquals(1.0, registry.find("curator.connection.state").tag("state", "CONNECTED").gauge().value(), 0);
+		assertEquals(1.0, registry.find("curator.connection.events").tag("state", "CONNECTED").counter().count(), 0);
+	}
+
+	@Test
+	public void testLockMetrics() throws Exception {
+		CuratorZkTemplate template = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), new CuratorZkProperties());
+		template.addLockListener(new CuratorZkLockMetrics(registry, 1));
+		InterProcessLock lock = template.getSharedReentrantLock("/order/42");
+		lock.acquire();
+		lock.acquire();
+		lock.release();
+		lock.release();
+		template.getDistributedLock().acquireLock("order-1");
+		template.getDistributedLock().unlock("order-1");
+
+		Timer wait = registry.find("curator.lock.wait").tag("path", "/order").tag("result", "acquired").timer();
+		assertEquals(1, wait.count());
+		assertEquals(1, registry.find("curator.lock.hold").tag("path", "/order").timer().count());
+		// 锁根路径不计入前缀，没有分隔符的 key 不作为标签
+		template.getDistributedLock().acquireLock("order/2");
+		template.getDistributedLock().unlock("order/2");
+		assertEquals(1, registry.find("curator.lock.wait").tag("path", "other").tag("result", "acquired").timer().count());
+		assertEquals(2, registry.find("curator.lock.wait").tag("path", "/order").tag("result", "acquired").timer().count());
+		assertNull(registry.find("curator.lock.wait").tag("path", "/locks").timer());
+		assertNull(registry.find("curator.lock.wait").tag("path", "/order-1").timer());
+		assertEquals("/order", CuratorZkLockMetrics.prefixOf("/order/42/item", 1));
+		assertEquals("/order/42", CuratorZkLockMetrics.prefixOf("/order/42/item", 2));
+		assertEquals(CuratorZkLockMetrics.OTHER, CuratorZkLockMetrics.prefixOf("/order", 3));
+		assertEquals(CuratorZkLockMetrics.OTHER, CuratorZkLockMetrics.prefixOf("/user-123", 1));
+		assertEquals(CuratorZkLockMetrics.OTHER, CuratorZkLockMetrics.prefixOf("order:42", 1));
+		assertEquals("/order:42", CuratorZkLockMetrics.stripRoot("/locks/order:42", "/locks"));
+		assertEquals("/locksmith/1", CuratorZkLockMetrics.stripRoot("/locksmith/1", "/locks"));
+	}
+
+	@Test
+	public void testCrossThreadRelease() throws Exception {
+		CuratorZkTemplate template = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), new CuratorZkProperties());
+		AtomicInteger acquired = new AtomicInteger();
+		AtomicInteger released = new AtomicInteger();
+		template.addLockListener(new CuratorZkLockListener() {
+
+			@Override
+			public void onAcquired(String lockPath, long waitNanos) {
+				acquired.incrementAndGet();
+			}
+
+			@Override
+			public void onReleased(String lockPath, long holdNanos) {
+				if (holdNanos >= 0) {
+					released.incrementAndGet();
+				}
+			}
+
+		});
+		InterProcessLock lock = template.getSharedLock("/order/cross");
+		for (int i = 0; i < 2; i++) {
+			lock.acquire();
+			// InterProcessSemaphoreMutex 可以由其它线程释放
+			Thread releaser = new Thread(() -> {
+				try {
+					lock.release();
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			releaser.start();
+			releaser.join();
+		}
+		// 第二次获取不能被当作重入
+		assertEquals(2, acquired.get());
+		assertEquals(2, released.get());
+	}
+
+	@Test
+	public void testEveryRingClientInstrumented() throws Exception {
+		CuratorFramework other = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		other.start();
+		try {
+			other.blockUntilConnected();
+			Map<String, CuratorFramework> ensembles = new LinkedHashMap<>();
+			ensembles.put("zk-a", client);
+			ensembles.put("zk-b", other);
+			CuratorZkClientRing ring = new CuratorZkClientRing(ensembles, 16);
+			SimpleMeterRegistry ringRegistry = new SimpleMeterRegistry();
+			CuratorZkClientMetrics metrics = new CuratorZkClientMetrics(ringRegistry);
+			for (int i = 0; i < ring.size(); i++) {
+				metrics.bindTo(ring.getClient(i), ring.getNames().get(i));
+			}
+			other.create().forPath("/ring-b");
+			client.create().forPath("/ring-a");
+			assertNotNull(ringRegistry.find("curator.operation").tag("ensemble", "zk-b").tag("operation", "create").timer());
+			assertNotNull(ringRegistry.find("curator.operation").tag("ensemble", "zk-a").tag("operation", "create").timer());
+			assertEquals(1.0, ringRegistry.find("curator.connection.state").tag("ensemble", "zk-b").tag("state", "CONNECTED").gauge().value(), 0);
+		} finally {
+			other.close();
+		}
+	}
+
+}
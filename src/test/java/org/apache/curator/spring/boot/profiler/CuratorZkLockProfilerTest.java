@@ -0,0 +1,172 @@
+package org.apache.curator.spring.boot.profiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.spring.boot.CuratorZkAutoConfiguration;
+import org.apache.curator.spring.boot.CuratorZkProperties;
+import org.apache.curator.spring.boot.CuratorZkTemplate;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class CuratorZkLockProfilerTest {
+
+	private TestingServer server;
+	private CuratorFramework client;
+	private CuratorZkTemplate template;
+	private CuratorZkLockProfiler profiler;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TestingServer();
+		client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(100, 3));
+		client.start();
+		client.blockUntilConnected();
+		template = new CuratorZkTemplate(client, new ExponentialBackoffRetry(100, 3), new CuratorZkProperties());
+		profiler = new CuratorZkLockProfiler(3);
+		template.addLockListener(profiler);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testHeldWaitingAndHotKeys() throws Exception {
+		InterProcessLock lock = template.getSharedReentrantLock("/locks/hot");
+		CountDownLatch holding = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+			try {
+				lock.acquire();
+				holding.countDown();
+				release.await();
+				lock.release();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertTrue(holding.await(10, TimeUnit.SECONDS));
+		CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+			try {
+				boolean acquired = lock.acquire(10, TimeUnit.SECONDS);
+				lock.release();
+				return acquired;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!Integer.valueOf(1).equals(profiler.getWaiting().get("/locks/hot"))) {
+			assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(20);
+		}
+		List<CuratorZkLockProfiler.HeldLock> held = profiler.getHeldLocks();
+		assertEquals(1, held.size());
+		assertEquals("/locks/hot", held.get(0).getLockPath());
+		Thread.sleep(200);
+		release.countDown();
+		holder.get(10, TimeUnit.SECONDS);
+		assertTrue(waiter.get(10, TimeUnit.SECONDS));
+		assertTrue(profiler.getHeldLocks().isEmpty());
+		assertTrue(profiler.getWaiting().isEmpty());
+
+		// 其余 key 无争用
+		for (int i = 0; i < 20; i++) {
+			InterProcessLock cold = template.getSharedReentrantLock("/locks/cold-" + i);
+			cold.acquire();
+			cold.release();
+		}
+		List<CuratorZkHotKeySketch.HotKey> hotKeys = profiler.getHotKeys();
+		assertEquals(3, hotKeys.size());
+		assertEquals("/locks/hot", hotKeys.get(0).getLockPath());
+		assertEquals(2, hotKeys.get(0).getAcquisitions());
+		assertTrue(hotKeys.get(0).getWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(200));
+		assertTrue(hotKeys.get(0).getHoldNanos() >= TimeUnit.MILLISECONDS.toNanos(200));
+		assertEquals(22, profiler.getAcquisitions());
+
+		Map<String, Object> locks = new CuratorZkLocksEndpoint(profiler).locks();
+		assertNotNull(locks.get("summary"));
+		profiler.reset();
+		assertEquals(0, profiler.getAcquisitions());
+		assertTrue(profiler.getHotKeys().isEmpty());
+	}
+
+	@Test
+	public void testJfrEvents() throws Exception {
+		template.addLockListener(new CuratorZkLockJfrListener());
+		Path file = Files.createTempFile("curator-locks", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("org.apache.curator.LockAcquired");
+			recording.enable("org.apache.curator.LockReleased");
+			recording.start();
+			InterProcessLock lock = template.getSharedReentrantLock("/locks/jfr");
+			lock.acquire();
+			Thread.sleep(50);
+			lock.release();
+			recording.stop();
+			recording.dump(file);
+			List<RecordedEvent> recorded = RecordingFile.readAllEvents(file).stream()
+					.filter(event -> event.getEventType().getName().startsWith("org.apache.curator"))
+					.collect(Collectors.toList());
+			List<String> events = recorded.stream()
+					.map(event -> event.getEventType().getName() + " " + event.getString("lockPath"))
+					.collect(Collectors.toList());
+			assertTrue(events.contains("org.apache.curator.LockAcquired /locks/jfr"));
+			assertTrue(events.contains("org.apache.curator.LockReleased /locks/jfr"));
+			// 持有时长记录为事件区间
+			RecordedEvent released = recorded.stream().filter(event -> event.getEventType().getName().endsWith("LockReleased")).findFirst().get();
+			assertTrue(released.getDuration().toMillis() >= 50);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testAutoConfiguration() {
+		new ApplicationContextRunner()
+				.withConfiguration(AutoConfigurations.of(CuratorZkAutoConfiguration.class, CuratorZkLockProfilerAutoConfiguration.class))
+				.withPropertyValues(CuratorZkProperties.PREFIX + ".connect-string=" + server.getConnectString(),
+						CuratorZkProperties.PREFIX + ".lock-profiler.enabled=true",
+						CuratorZkProperties.PREFIX + ".lock-profiler.jfr=true",
+						"management.endpoints.web.exposure.include=curatorlocks")
+				.run(context -> {
+					assertNotNull(context.getBean(CuratorZkLockProfiler.class));
+					assertNotNull(context.getBean(CuratorZkLockJfrListener.class));
+					assertNotNull(context.getBean(CuratorZkLocksEndpoint.class));
+				});
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		new ApplicationContextRunner()
+				.withConfiguration(AutoConfigurations.of(CuratorZkAutoConfiguration.class, CuratorZkLockProfilerAutoConfiguration.class))
+				.withPropertyValues(CuratorZkProperties.PREFIX + ".connect-string=" + server.getConnectString())
+				.run(context -> assertTrue(context.getBeansOfType(CuratorZkLockProfiler.class).isEmpty()));
+	}
+
+}